@@ -73,7 +73,7 @@ public class MessageFormatter {
    * @return The formatted message
    */
   public static String format(String messagePattern, Object arg) {
-    return arrayFormat(messagePattern, new Object[] {arg});   
+    return format(messagePattern, 1, arg, null, null);
    }
   
   /**
@@ -91,7 +91,7 @@ public class MessageFormatter {
    * @return The formatted message
    */
   public static String format(String messagePattern, Object arg1, Object arg2) {
-   return arrayFormat(messagePattern, new Object[] {arg1, arg2});   
+    return format(messagePattern, 2, arg1, arg2, null);
   }
   
   /**
@@ -104,18 +104,83 @@ public class MessageFormatter {
    * @return The formatted message
    */
   public static String arrayFormat(String messagePattern, Object[] argArray) {
-    if(messagePattern == null) {
-      return null;
+    return format(messagePattern, argArray == null ? 0 : argArray.length, null, null, argArray);
+  }
+
+  /**
+   * Appends the result of {@link #format(String, Object)} to the given
+   * buffer, without intermediate strings. A null pattern appends nothing.
+   * 
+   * @param sbuf The buffer to append to
+   * @param messagePattern The message pattern which will be parsed and formatted
+   * @param arg The argument to be substituted in place of the formatting anchor
+   */
+  public static void appendFormat(StringBuffer sbuf, String messagePattern, Object arg) {
+    appendFormat(sbuf, messagePattern, 1, arg, null, null);
+  }
+
+  /**
+   * Appends the result of {@link #format(String, Object, Object)} to the
+   * given buffer, without intermediate strings. A null pattern appends
+   * nothing.
+   * 
+   * @param sbuf The buffer to append to
+   * @param messagePattern The message pattern which will be parsed and formatted
+   * @param arg1 The argument to be substituted in place of the first formatting anchor 
+   * @param arg2 The argument to be substituted in place of the second formatting anchor 
+   */
+  public static void appendFormat(StringBuffer sbuf, String messagePattern, Object arg1,
+      Object arg2) {
+    appendFormat(sbuf, messagePattern, 2, arg1, arg2, null);
+  }
+
+  /**
+   * Appends the result of {@link #arrayFormat(String, Object[])} to the
+   * given buffer, without intermediate strings. A null pattern appends
+   * nothing.
+   * 
+   * @param sbuf The buffer to append to
+   * @param messagePattern The message pattern which will be parsed and formatted
+   * @param argArray An array of arguments to be substituted in place of formatting anchors
+   */
+  public static void appendArrayFormat(StringBuffer sbuf, String messagePattern,
+      Object[] argArray) {
+    appendFormat(sbuf, messagePattern, argArray == null ? 0 : argArray.length, null, null,
+        argArray);
+  }
+
+  /**
+   * A pattern without anchor is returned as it is.
+   */
+  private static String format(String messagePattern, int count, Object arg1, Object arg2,
+      Object[] argArray) {
+    if (messagePattern == null || count == 0
+        || messagePattern.indexOf(DELIM_START) == -1) {
+      return messagePattern;
+    }
+    StringBuffer sbuf = new StringBuffer(messagePattern.length() + 50);
+    appendFormat(sbuf, messagePattern, count, arg1, arg2, argArray);
+    return sbuf.toString();
+  }
+
+  /**
+   * Substitutes the arguments, which are taken from argArray if not null and
+   * from arg1 and arg2 otherwise. The pattern is appended at once and the
+   * anchors are replaced in place, no substrings are created.
+   */
+  private static void appendFormat(StringBuffer sbuf, String messagePattern, int count,
+      Object arg1, Object arg2, Object[] argArray) {
+    if (messagePattern == null) {
+      return;
     }
+    // offset of the pattern in the buffer, moves with each replacement
+    int offset = sbuf.length();
+    sbuf.append(messagePattern);
     int i = 0;
     int len = messagePattern.length();
-    int j = messagePattern.indexOf(DELIM_START);
-    
-  
-    
-    StringBuffer sbuf = new StringBuffer(messagePattern.length() + 50);
+    int j;
 
-    for (int L = 0; L < argArray.length; L++) {
+    for (int L = 0; L < count; L++) {
       
       char escape = 'x';
       
@@ -123,12 +188,7 @@ public class MessageFormatter {
 
       if (j == -1 || (j+1 == len)) {
         // no more variables
-        if (i == 0) { // this is a simple string
-          return messagePattern;
-        } else { // add the tail string which contains no variables and return the result.
-          sbuf.append(messagePattern.substring(i, messagePattern.length()));
-          return sbuf.toString();
-        }
+        return;
       } else {
         char delimStop = messagePattern.charAt(j + 1);
         if (j > 0) {
@@ -137,23 +197,23 @@ public class MessageFormatter {
         
         if(escape == '\\') {
           L--; // DELIM_START was escaped, thus should not be incremented
-          sbuf.append(messagePattern.substring(i, j-1));
-          sbuf.append(DELIM_START);
+          sbuf.deleteCharAt(offset + j - 1);
+          offset--;
           i = j + 1;
         } else if ((delimStop != DELIM_STOP)) {
           // invalid DELIM_START/DELIM_STOP pair
-          sbuf.append(messagePattern.substring(i, messagePattern.length()));
-          return sbuf.toString();
+          return;
         } else {
           // normal case
-          sbuf.append(messagePattern.substring(i, j));
-          sbuf.append(argArray[L]);
+          String value = String.valueOf(argArray != null ? argArray[L] : (L == 0 ? arg1 : arg2));
+          if (value == null) {
+            value = "null";
+          }
+          sbuf.replace(offset + j, offset + j + 2, value);
+          offset += value.length() - 2;
           i = j + 2;
         }
       }
     }
-    // append the characters following the second {} pair.
-    sbuf.append(messagePattern.substring(i, messagePattern.length()));
-    return sbuf.toString();
   }
 }
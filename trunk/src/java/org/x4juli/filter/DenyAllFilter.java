@@ -17,6 +17,7 @@ package org.x4juli.filter;
 
 import org.x4juli.global.spi.ExtendedFilter;
 import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.LevelOnlyFilter;
 
 /**
  * A filter which denys everything
@@ -36,7 +37,7 @@ import org.x4juli.global.spi.ExtendedLogRecord;
  * @author Boris Unckel
  * @since 0.5
  */
-public class DenyAllFilter extends AbstractFilter {
+public class DenyAllFilter extends AbstractFilter implements LevelOnlyFilter {
 
     // -------------------------------------------------------------- Variables
 
@@ -63,4 +64,12 @@ public class DenyAllFilter extends AbstractFilter {
         return ExtendedFilter.X4JULI_DENY;
     }
 
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public int decideLevel(final int levelValue) {
+        return ExtendedFilter.X4JULI_DENY;
+    }
+
 }
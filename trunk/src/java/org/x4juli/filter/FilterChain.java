@@ -0,0 +1,235 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.x4juli.global.spi.ExtendedFilter;
+import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.LevelOnlyFilter;
+import org.x4juli.global.spi.SummarizingFilter;
+
+/**
+ * <p>
+ * A filter chain compiled for the levels of <code>java.util.logging.Level</code>,
+ * <code>FINEST</code> to <code>SEVERE</code>. For each of these levels the
+ * decisions of all {@link LevelOnlyFilter}s are evaluated in advance. What
+ * remains per level is the list of the other filters in front of the first
+ * level filter which accepts or denies, and the decision at the end of that
+ * list. A record of a level which no content filter has to see is decided
+ * by one array lookup.
+ * </p>
+ * <p>
+ * Records of other levels walk the chain like {@link #decide(ExtendedFilter,
+ * ExtendedLogRecord)}. The chain has to be compiled again if filters are added
+ * or options of level filters change.
+ * </p>
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public final class FilterChain {
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * The levels of the table are multiples of this value.
+     */
+    private static final int LEVEL_STEP = 100;
+
+    /**
+     * Covers the level values 0 to 1000.
+     */
+    private static final int TABLE_SIZE = 11;
+
+    private static final ExtendedFilter[] NO_FILTERS = new ExtendedFilter[0];
+
+    private final ExtendedFilter head;
+
+    private final ExtendedFilter[][] filters = new ExtendedFilter[TABLE_SIZE][];
+
+    private final boolean[] decisions = new boolean[TABLE_SIZE];
+
+    private final SummarizingFilter[] summarizing;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Compiles the chain starting at <code>head</code>.
+     *
+     * @param head first filter of the chain, may be null.
+     */
+    public FilterChain(final ExtendedFilter head) {
+        this.head = head;
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            compile(i, i * LEVEL_STEP);
+        }
+        List found = new ArrayList();
+        for (ExtendedFilter f = head; f != null; f = f.getNext()) {
+            if (f instanceof SummarizingFilter) {
+                found.add(f);
+            }
+        }
+        this.summarizing = (SummarizingFilter[]) found.toArray(new SummarizingFilter[found
+                .size()]);
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Decides whether the record passes the chain.
+     *
+     * @param record to decide upon.
+     * @return <code>true</code> if the record is accepted.
+     * @since 0.7
+     */
+    public boolean decide(final ExtendedLogRecord record) {
+        final int levelValue = record.getLevel().intValue();
+        if (levelValue < 0 || levelValue >= TABLE_SIZE * LEVEL_STEP
+                || levelValue % LEVEL_STEP != 0) {
+            return decide(this.head, record);
+        }
+        final int index = levelValue / LEVEL_STEP;
+        final ExtendedFilter[] remaining = this.filters[index];
+        for (int i = 0; i < remaining.length; i++) {
+            switch (remaining[i].decide(record)) {
+            case ExtendedFilter.X4JULI_DENY:
+                return false;
+            case ExtendedFilter.X4JULI_ACCEPT:
+                return true;
+            default:
+                break;
+            }
+        }
+        return this.decisions[index];
+    }
+
+    /**
+     * Returns the next pending summary of the {@link SummarizingFilter}s in
+     * the chain.
+     *
+     * @return a summary record, null if none is pending.
+     * @since 0.7
+     */
+    public ExtendedLogRecord pollSummary() {
+        for (int i = 0; i < this.summarizing.length; i++) {
+            ExtendedLogRecord summary = this.summarizing[i].pollSummary();
+            if (summary != null) {
+                return summary;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Queues the due summaries of the {@link SummarizingFilter}s in the
+     * chain.
+     *
+     * @return the {@link org.x4juli.global.Clock} time in milliseconds the
+     *         next summary is due, Long.MAX_VALUE if no denied records are
+     *         pending.
+     * @since 0.7
+     */
+    public long summarizeDue() {
+        long next = Long.MAX_VALUE;
+        for (int i = 0; i < this.summarizing.length; i++) {
+            next = Math.min(next, this.summarizing[i].summarizeDue());
+        }
+        return next;
+    }
+
+    /**
+     * @return true if a {@link SummarizingFilter} in the chain denied records
+     *         since its last summary check.
+     * @since 0.7
+     */
+    public boolean isSuppressing() {
+        for (int i = 0; i < this.summarizing.length; i++) {
+            if (this.summarizing[i].isSuppressing()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Walks the chain starting at <code>head</code>. The first filter which
+     * accepts or denies decides. If all filters are neutral the record is
+     * denied, an empty chain accepts all records.
+     *
+     * @param head first filter of the chain, may be null.
+     * @param record to decide upon.
+     * @return <code>true</code> if the record is accepted.
+     * @since 0.7
+     */
+    public static boolean decide(final ExtendedFilter head, final ExtendedLogRecord record) {
+        ExtendedFilter f = head;
+        int lastDecision = ExtendedFilter.X4JULI_DENY;
+
+        while (f != null) {
+            lastDecision = f.decide(record);
+            switch (lastDecision) {
+            case ExtendedFilter.X4JULI_DENY:
+                return false;
+
+            case ExtendedFilter.X4JULI_ACCEPT:
+                return true;
+
+            default:
+            case ExtendedFilter.X4JULI_NEUTRAL:
+                f = f.getNext();
+            }
+        }
+        if (lastDecision == ExtendedFilter.X4JULI_NEUTRAL) {
+            return false;
+        }
+        return true;
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private void compile(final int index, final int levelValue) {
+        List remaining = null;
+        boolean decision = (this.head == null);
+        for (ExtendedFilter f = this.head; f != null; f = f.getNext()) {
+            if (f instanceof LevelOnlyFilter) {
+                final int levelDecision = ((LevelOnlyFilter) f).decideLevel(levelValue);
+                if (levelDecision == ExtendedFilter.X4JULI_DENY) {
+                    decision = false;
+                    break;
+                } else if (levelDecision == ExtendedFilter.X4JULI_ACCEPT) {
+                    decision = true;
+                    break;
+                }
+            } else {
+                if (remaining == null) {
+                    remaining = new ArrayList();
+                }
+                remaining.add(f);
+            }
+        }
+        if (remaining == null) {
+            this.filters[index] = NO_FILTERS;
+        } else {
+            this.filters[index] = (ExtendedFilter[]) remaining
+                    .toArray(new ExtendedFilter[remaining.size()]);
+        }
+        this.decisions[index] = decision;
+    }
+
+}
+
+// EOF FilterChain.java
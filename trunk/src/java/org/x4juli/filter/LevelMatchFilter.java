@@ -19,6 +19,7 @@ import java.util.logging.Level;
 
 import org.x4juli.global.spi.ExtendedFilter;
 import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.LevelOnlyFilter;
 
 /**
  * This is a very simple filter based on level matching.
@@ -38,7 +39,7 @@ import org.x4juli.global.spi.ExtendedLogRecord;
  * @author Boris Unckel
  * @since 0.5
  */
-public class LevelMatchFilter extends AbstractFilter {
+public class LevelMatchFilter extends AbstractFilter implements LevelOnlyFilter {
     // -------------------------------------------------------------- Variables
 
     /**
@@ -75,13 +76,21 @@ public class LevelMatchFilter extends AbstractFilter {
      * @since 0.5
      */
     public int decide(final ExtendedLogRecord record) {
+        return decideLevel(record.getLevel().intValue());
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public int decideLevel(final int levelValue) {
         if (this.levelToMatch == null) {
             return ExtendedFilter.X4JULI_NEUTRAL;
         }
 
         boolean matchOccured = false;
 
-        if (this.levelToMatch.equals(record.getLevel())) {
+        if (this.levelToMatch.intValue() == levelValue) {
             matchOccured = true;
         }
 
@@ -19,6 +19,7 @@ import java.util.logging.Level;
 
 import org.x4juli.global.spi.ExtendedFilter;
 import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.LevelOnlyFilter;
 
 /**
  * This is a very simple filter based on level matching, which can be used to
@@ -39,7 +40,7 @@ import org.x4juli.global.spi.ExtendedLogRecord;
  * @author Boris Unckel
  * @since 0.5
  */
-public class LevelRangeFilter extends AbstractFilter {
+public class LevelRangeFilter extends AbstractFilter implements LevelOnlyFilter {
 
     // -------------------------------------------------------------- Variables
 
@@ -69,16 +70,23 @@ public class LevelRangeFilter extends AbstractFilter {
      * @since 0.5
      */
     public int decide(final ExtendedLogRecord record) {
-        Level recordLevel = record.getLevel();
+        return decideLevel(record.getLevel().intValue());
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public int decideLevel(final int levelValue) {
         if (this.levelMin != null) {
-            if (isGreaterOrEqual(recordLevel, this.levelMin) == false) {
+            if (levelValue < this.levelMin.intValue()) {
                 // level of event is less than minimum
                 return ExtendedFilter.X4JULI_DENY;
             }
         }
 
         if (this.levelMax != null) {
-            if (recordLevel.intValue() > this.levelMax.intValue()) {
+            if (levelValue > this.levelMax.intValue()) {
                 // level of event is greater than maximum
                 // Alas, there is no Level.isGreater method. and using
                 // a combo of isGreaterOrEqual && !Equal seems worse than
@@ -152,10 +160,4 @@ public class LevelRangeFilter extends AbstractFilter {
 
     // ------------------------------------------------------ Protected Methods
 
-    // -------------------------------------------------------- Private Methods
-
-    private static boolean isGreaterOrEqual(Level left, Level right) {
-        return (left.intValue() >= right.intValue());
-    }
-
 }
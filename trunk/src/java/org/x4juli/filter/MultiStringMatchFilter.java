@@ -0,0 +1,351 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.x4juli.formatter.helper.FormatterUtil;
+import org.x4juli.global.spi.ExtendedFilter;
+import org.x4juli.global.spi.ExtendedLogRecord;
+
+/**
+ * <p>
+ * Searches many strings in the message at once, like a chain of
+ * {@link StringMatchFilter}s which scans the message only once. The strings
+ * are compiled into an Aho-Corasick automaton by {@link #activateOptions()}.
+ * </p>
+ * <p>
+ * Each <b>StringToMatch</b> option adds a string with the decision of the
+ * <b>AcceptOnMatch</b> option, <code>true</code> by default. Nested
+ * <code>match</code> components of type {@link StringMatch} add strings
+ * with their own decision. If several strings occur in the message, the one
+ * added first decides, as the first filter of a chain would. If
+ * <b>MatchFormatted</b> is <code>true</code>, the formatted message is
+ * searched instead of the raw template. If no string matches
+ * {@link ExtendedFilter#X4JULI_NEUTRAL} is returned.
+ * </p>
+ * <pre>
+ * &lt;filter class="org.x4juli.filter.MultiStringMatchFilter"&gt;
+ *   &lt;param name="AcceptOnMatch" value="false"/&gt;
+ *   &lt;param name="StringToMatch" value="Connection reset"/&gt;
+ *   &lt;param name="StringToMatch" value="Broken pipe"/&gt;
+ *   &lt;match class="org.x4juli.filter.StringMatch"&gt;
+ *     &lt;param name="StringToMatch" value="OutOfMemoryError"/&gt;
+ *     &lt;param name="AcceptOnMatch" value="true"/&gt;
+ *   &lt;/match&gt;
+ * &lt;/filter&gt;
+ * </pre>
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public class MultiStringMatchFilter extends AbstractFilter {
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * Decision for strings added by {@link #setStringToMatch(String)}.
+     */
+    boolean acceptOnMatch = true;
+
+    /**
+     * Search the formatted message instead of the template.
+     */
+    boolean matchFormatted = false;
+
+    /**
+     * The configured {@link StringMatch}es in order of precedence.
+     */
+    private final List matches = new ArrayList();
+
+    /**
+     * The compiled automaton, null if the strings changed since.
+     */
+    private Automaton automaton;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Default constructor, does not activateOptions.
+     */
+    public MultiStringMatchFilter() {
+        super();
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Compiles the configured strings.
+     * @since 0.7
+     */
+    public void activateOptions() {
+        this.automaton = new Automaton(this.matches);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public int decide(final ExtendedLogRecord record) {
+        Automaton compiled = this.automaton;
+        if (compiled == null) {
+            compiled = new Automaton(this.matches);
+            this.automaton = compiled;
+        }
+        if (compiled.isEmpty()) {
+            return ExtendedFilter.X4JULI_NEUTRAL;
+        }
+        final String msg;
+        if (this.matchFormatted) {
+            msg = FormatterUtil.formatMessage(record);
+        } else {
+            msg = record.getMessage();
+        }
+        if (msg == null) {
+            return ExtendedFilter.X4JULI_NEUTRAL;
+        }
+        final int index = compiled.find(msg);
+        if (index < 0) {
+            return ExtendedFilter.X4JULI_NEUTRAL;
+        }
+        if (compiled.accept[index]) {
+            return ExtendedFilter.X4JULI_ACCEPT;
+        } else {
+            return ExtendedFilter.X4JULI_DENY;
+        }
+    }
+
+    /**
+     * Adds a string with the decision of the <b>AcceptOnMatch</b> option.
+     *
+     * @param s the string to search in messages.
+     * @since 0.7
+     */
+    public void setStringToMatch(final String s) {
+        addMatch(new StringMatch(s, this.acceptOnMatch));
+    }
+
+    /**
+     * Adds a string with its own decision.
+     *
+     * @param match the string and its decision.
+     * @since 0.7
+     */
+    public void addMatch(final StringMatch match) {
+        if (match != null && match.getStringToMatch() != null) {
+            this.matches.add(match);
+            this.automaton = null;
+        }
+    }
+
+    /**
+     * Sets the decision for the strings added afterwards by
+     * <b>StringToMatch</b>.
+     *
+     * @param acceptOnMatch accept on a match if <code>true</code>, deny
+     *            otherwise.
+     * @since 0.7
+     */
+    public void setAcceptOnMatch(final boolean acceptOnMatch) {
+        this.acceptOnMatch = acceptOnMatch;
+    }
+
+    /**
+     * @return whether accepted or not
+     * @since 0.7
+     */
+    public boolean getAcceptOnMatch() {
+        return this.acceptOnMatch;
+    }
+
+    /**
+     * @param matchFormatted search the formatted message if <code>true</code>,
+     *            the template otherwise.
+     * @since 0.7
+     */
+    public void setMatchFormatted(final boolean matchFormatted) {
+        this.matchFormatted = matchFormatted;
+    }
+
+    /**
+     * @return whether the formatted message is searched.
+     * @since 0.7
+     */
+    public boolean getMatchFormatted() {
+        return this.matchFormatted;
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Aho-Corasick automaton of the strings. Each node knows the lowest index
+     * of the strings ending in it or in a node of its failure chain, so one
+     * pass over the message finds the string added first.
+     */
+    static final class Automaton {
+
+        private static final int NO_MATCH = Integer.MAX_VALUE;
+
+        final boolean[] accept;
+
+        private final Node root = new Node();
+
+        Automaton(final List matches) {
+            this.accept = new boolean[matches.size()];
+            for (int i = 0; i < this.accept.length; i++) {
+                StringMatch match = (StringMatch) matches.get(i);
+                this.accept[i] = match.getAcceptOnMatch();
+                add(match.getStringToMatch(), i);
+            }
+            link();
+        }
+
+        boolean isEmpty() {
+            return this.accept.length == 0;
+        }
+
+        /**
+         * @param text to search.
+         * @return the lowest index of the strings found, -1 if none.
+         */
+        int find(final String text) {
+            final Node start = this.root;
+            int best = start.match;
+            Node node = start;
+            final int length = text.length();
+            for (int i = 0; i < length && best > 0; i++) {
+                final char c = text.charAt(i);
+                Node next = node.get(c);
+                while (next == null && node != start) {
+                    node = node.fail;
+                    next = node.get(c);
+                }
+                node = (next == null) ? start : next;
+                if (node.match < best) {
+                    best = node.match;
+                }
+            }
+            return (best == NO_MATCH) ? -1 : best;
+        }
+
+        private void add(final String s, final int index) {
+            Node node = this.root;
+            for (int i = 0; i < s.length(); i++) {
+                final char c = s.charAt(i);
+                Node next = node.get(c);
+                if (next == null) {
+                    next = new Node();
+                    node.put(c, next);
+                }
+                node = next;
+            }
+            if (index < node.match) {
+                node.match = index;
+            }
+        }
+
+        /**
+         * Computes the failure links breadth first and propagates the
+         * matches along them.
+         */
+        private void link() {
+            List queue = new ArrayList();
+            this.root.fail = this.root;
+            for (int i = 0; i < this.root.size; i++) {
+                Node child = this.root.next[i];
+                child.fail = this.root;
+                if (this.root.match < child.match) {
+                    child.match = this.root.match;
+                }
+                queue.add(child);
+            }
+            for (int head = 0; head < queue.size(); head++) {
+                Node node = (Node) queue.get(head);
+                for (int i = 0; i < node.size; i++) {
+                    final char c = node.keys[i];
+                    Node child = node.next[i];
+                    Node fail = node.fail;
+                    while (fail.get(c) == null && fail != this.root) {
+                        fail = fail.fail;
+                    }
+                    Node target = fail.get(c);
+                    child.fail = (target == null) ? this.root : target;
+                    if (child.fail.match < child.match) {
+                        child.match = child.fail.match;
+                    }
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * A state of the automaton with its transitions sorted by character.
+     */
+    static final class Node {
+
+        char[] keys = new char[2];
+
+        Node[] next = new Node[2];
+
+        int size;
+
+        Node fail;
+
+        int match = Automaton.NO_MATCH;
+
+        Node get(final char c) {
+            int low = 0;
+            int high = this.size - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                final char key = this.keys[mid];
+                if (key < c) {
+                    low = mid + 1;
+                } else if (key > c) {
+                    high = mid - 1;
+                } else {
+                    return this.next[mid];
+                }
+            }
+            return null;
+        }
+
+        void put(final char c, final Node node) {
+            if (this.size == this.keys.length) {
+                char[] grownKeys = new char[this.size * 2];
+                Node[] grownNext = new Node[this.size * 2];
+                System.arraycopy(this.keys, 0, grownKeys, 0, this.size);
+                System.arraycopy(this.next, 0, grownNext, 0, this.size);
+                this.keys = grownKeys;
+                this.next = grownNext;
+            }
+            int pos = this.size;
+            while (pos > 0 && this.keys[pos - 1] > c) {
+                this.keys[pos] = this.keys[pos - 1];
+                this.next[pos] = this.next[pos - 1];
+                pos--;
+            }
+            this.keys[pos] = c;
+            this.next[pos] = node;
+            this.size++;
+        }
+    }
+
+}
+
+// EOF MultiStringMatchFilter.java
@@ -0,0 +1,475 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.filter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.logging.Level;
+
+import org.x4juli.global.Clock;
+import org.x4juli.global.spi.ExtendedFilter;
+import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.ExtendedLogRecordImpl;
+import org.x4juli.global.spi.SummarizingFilter;
+
+/**
+ * <p>
+ * Limits the rate of records with a token bucket per key. Each record takes
+ * a token from the bucket of its key, records which find the bucket empty are
+ * denied and counted. The buckets refill with <b>Rate</b> tokens per second up
+ * to <b>Burst</b> tokens. Records of a key which were denied are reported by
+ * a summary record "N similar messages suppressed" with the level and logger
+ * of the last denied record. The summary is published before the next record
+ * which passes, or by a job of the handler once the bucket refilled, if no
+ * record follows.
+ * </p>
+ * <p>
+ * Records which get a token are accepted. If <b>AcceptOnMatch</b> is
+ * <code>false</code> they are {@link ExtendedFilter#X4JULI_NEUTRAL} instead,
+ * so the filters following in the chain decide.
+ * </p>
+ * <p>
+ * The option <b>Key</b> is a comma separated combination of
+ * <code>logger</code>, <code>level</code> and <code>template</code>, the
+ * default is <code>logger,level</code>. <b>MaxKeys</b> bounds the number of
+ * buckets, the least recently used bucket is dropped when it is exceeded. Its
+ * denied records are summarized.
+ * </p>
+ * <pre>
+ * &lt;filter class="org.x4juli.filter.RateLimitFilter"&gt;
+ *   &lt;param name="Key" value="logger,template"/&gt;
+ *   &lt;param name="Rate" value="10"/&gt;
+ *   &lt;param name="Burst" value="100"/&gt;
+ * &lt;/filter&gt;
+ * </pre>
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public class RateLimitFilter extends AbstractFilter implements SummarizingFilter {
+
+    // -------------------------------------------------------------- Variables
+
+    static final String SUMMARY = "{0} similar messages suppressed";
+
+    private static final int KEY_LOGGER = 1;
+
+    private static final int KEY_LEVEL = 2;
+
+    private static final int KEY_TEMPLATE = 4;
+
+    boolean acceptOnMatch = true;
+
+    int rate = 10;
+
+    int burst = 100;
+
+    int maxKeys = 1000;
+
+    String key = "logger,level";
+
+    private int keyMask = KEY_LOGGER | KEY_LEVEL;
+
+    /**
+     * Buckets by key in the order of their use, guarded by itself.
+     */
+    private final Map buckets = new LinkedHashMap(16, 0.75f, true) {
+        protected boolean removeEldestEntry(final Map.Entry eldest) {
+            if (size() <= RateLimitFilter.this.maxKeys) {
+                return false;
+            }
+            drop((Bucket) eldest.getValue());
+            return true;
+        }
+    };
+
+    /**
+     * Whether records were denied since the last {@link #summarizeDue()}.
+     */
+    private volatile boolean suppressing = false;
+
+    /**
+     * Summaries not yet polled, guarded by itself.
+     */
+    private final LinkedList summaries = new LinkedList();
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Default constructor, does not activateOptions.
+     */
+    public RateLimitFilter() {
+        super();
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Parses the key and drops all buckets.
+     * @since 0.7
+     */
+    public void activateOptions() {
+        int mask = 0;
+        StringTokenizer tokens = new StringTokenizer(this.key == null ? "" : this.key, ", ");
+        while (tokens.hasMoreTokens()) {
+            String token = tokens.nextToken();
+            if ("logger".equalsIgnoreCase(token)) {
+                mask |= KEY_LOGGER;
+            } else if ("level".equalsIgnoreCase(token)) {
+                mask |= KEY_LEVEL;
+            } else if ("template".equalsIgnoreCase(token)) {
+                mask |= KEY_TEMPLATE;
+            }
+        }
+        this.keyMask = mask;
+        synchronized (this.buckets) {
+            this.buckets.clear();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public int decide(final ExtendedLogRecord record) {
+        final Bucket bucket = getBucket(keyOf(record));
+        final int suppressed;
+        final Level level;
+        final String loggerName;
+        synchronized (bucket) {
+            suppressed = bucket.take(record, now(), this.rate, this.burst);
+            level = bucket.level;
+            loggerName = bucket.loggerName;
+        }
+        if (suppressed < 0) {
+            if (!this.suppressing) {
+                this.suppressing = true;
+            }
+            return ExtendedFilter.X4JULI_DENY;
+        }
+        if (suppressed > 0) {
+            queueSummary(level, loggerName, suppressed);
+        }
+        if (this.acceptOnMatch) {
+            return ExtendedFilter.X4JULI_ACCEPT;
+        } else {
+            return ExtendedFilter.X4JULI_NEUTRAL;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public ExtendedLogRecord pollSummary() {
+        synchronized (this.summaries) {
+            if (this.summaries.isEmpty()) {
+                return null;
+            }
+            return (ExtendedLogRecord) this.summaries.removeFirst();
+        }
+    }
+
+    /**
+     * Queues the summaries of the buckets which refilled since their records
+     * were denied.
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public long summarizeDue() {
+        this.suppressing = false;
+        final long now = now();
+        long next = Long.MAX_VALUE;
+        synchronized (this.buckets) {
+            for (Iterator iter = this.buckets.values().iterator(); iter.hasNext();) {
+                next = Math.min(next, summarize((Bucket) iter.next(), now));
+            }
+        }
+        return next;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public boolean isSuppressing() {
+        return this.suppressing;
+    }
+
+    /**
+     * @param acceptOnMatch accept records which get a token if
+     *            <code>true</code>, else leave them to the next filters.
+     * @since 0.7
+     */
+    public void setAcceptOnMatch(final boolean acceptOnMatch) {
+        this.acceptOnMatch = acceptOnMatch;
+    }
+
+    /**
+     * @return whether records which get a token are accepted.
+     * @since 0.7
+     */
+    public boolean getAcceptOnMatch() {
+        return this.acceptOnMatch;
+    }
+
+    /**
+     * @param key comma separated combination of <code>logger</code>,
+     *            <code>level</code> and <code>template</code>.
+     * @since 0.7
+     */
+    public void setKey(final String key) {
+        this.key = key;
+    }
+
+    /**
+     * @return the key option.
+     * @since 0.7
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * @param rate tokens added per second.
+     * @since 0.7
+     */
+    public void setRate(final int rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * @return tokens added per second.
+     * @since 0.7
+     */
+    public int getRate() {
+        return this.rate;
+    }
+
+    /**
+     * @param burst capacity of a bucket.
+     * @since 0.7
+     */
+    public void setBurst(final int burst) {
+        this.burst = burst;
+    }
+
+    /**
+     * @return capacity of a bucket.
+     * @since 0.7
+     */
+    public int getBurst() {
+        return this.burst;
+    }
+
+    /**
+     * @param maxKeys maximum number of buckets.
+     * @since 0.7
+     */
+    public void setMaxKeys(final int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * @return maximum number of buckets.
+     * @since 0.7
+     */
+    public int getMaxKeys() {
+        return this.maxKeys;
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * @return the current time in milliseconds of the {@link Clock} in use.
+     */
+    protected long now() {
+        return Clock.currentTimeMillis();
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private Object keyOf(final ExtendedLogRecord record) {
+        switch (this.keyMask) {
+        case KEY_LOGGER:
+            return String.valueOf(record.getLoggerName());
+        case KEY_LEVEL:
+            return record.getLevel();
+        case KEY_TEMPLATE:
+            return String.valueOf(record.getMessage());
+        default:
+            StringBuffer buf = new StringBuffer(64);
+            if ((this.keyMask & KEY_LOGGER) != 0) {
+                buf.append(record.getLoggerName());
+            }
+            buf.append('\u0000');
+            if ((this.keyMask & KEY_LEVEL) != 0) {
+                buf.append(record.getLevel().intValue());
+            }
+            buf.append('\u0000');
+            if ((this.keyMask & KEY_TEMPLATE) != 0) {
+                buf.append(record.getMessage());
+            }
+            return buf.toString();
+        }
+    }
+
+    private Bucket getBucket(final Object bucketKey) {
+        synchronized (this.buckets) {
+            Bucket bucket = (Bucket) this.buckets.get(bucketKey);
+            if (bucket == null) {
+                bucket = new Bucket(this.burst, now());
+                this.buckets.put(bucketKey, bucket);
+            }
+            return bucket;
+        }
+    }
+
+    /**
+     * Queues the summary of the bucket if it is due at <code>now</code>.
+     *
+     * @return the time the summary of the bucket is due, Long.MAX_VALUE if no
+     *         records of the bucket are pending.
+     */
+    private long summarize(final Bucket bucket, final long now) {
+        final int suppressed;
+        final long due;
+        final Level level;
+        final String loggerName;
+        synchronized (bucket) {
+            due = bucket.refilledAt(now, this.rate, this.burst);
+            if (due > now) {
+                return due;
+            }
+            suppressed = bucket.suppressed;
+            level = bucket.level;
+            loggerName = bucket.loggerName;
+            bucket.suppressed = 0;
+        }
+        if (suppressed > 0) {
+            queueSummary(level, loggerName, suppressed);
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Queues the summary of a bucket which is dropped.
+     */
+    private void drop(final Bucket bucket) {
+        final int suppressed;
+        final Level level;
+        final String loggerName;
+        synchronized (bucket) {
+            suppressed = bucket.suppressed;
+            level = bucket.level;
+            loggerName = bucket.loggerName;
+            bucket.suppressed = 0;
+        }
+        if (suppressed > 0) {
+            queueSummary(level, loggerName, suppressed);
+        }
+    }
+
+    private void queueSummary(final Level level, final String loggerName, final int suppressed) {
+        ExtendedLogRecord summary = new ExtendedLogRecordImpl(level, SUMMARY);
+        summary.setLoggerName(loggerName);
+        summary.setParameters(new Object[] {new Integer(suppressed) });
+        synchronized (this.summaries) {
+            this.summaries.add(summary);
+        }
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Token bucket of one key, guarded by itself.
+     */
+    static final class Bucket {
+
+        private double tokens;
+
+        private long lastRefill;
+
+        int suppressed;
+
+        /**
+         * Level of the last denied record.
+         */
+        Level level;
+
+        /**
+         * Logger of the last denied record.
+         */
+        String loggerName;
+
+        Bucket(final int burst, final long now) {
+            this.tokens = burst;
+            this.lastRefill = now;
+        }
+
+        /**
+         * Refills the bucket and takes a token.
+         *
+         * @return -1 if the bucket is empty, else the number of records
+         *         suppressed since the last token.
+         */
+        int take(final ExtendedLogRecord record, final long now, final int rate,
+                final int burst) {
+            refill(now, rate, burst);
+            if (this.tokens < 1) {
+                this.suppressed++;
+                this.level = record.getLevel();
+                this.loggerName = record.getLoggerName();
+                return -1;
+            }
+            this.tokens--;
+            final int count = this.suppressed;
+            this.suppressed = 0;
+            return count;
+        }
+
+        /**
+         * Refills the bucket.
+         *
+         * @return the time the bucket holds a token again, Long.MIN_VALUE if
+         *         no records are suppressed.
+         */
+        long refilledAt(final long now, final int rate, final int burst) {
+            refill(now, rate, burst);
+            if (this.suppressed == 0 || this.tokens >= 1) {
+                return Long.MIN_VALUE;
+            }
+            if (rate <= 0) {
+                return Long.MAX_VALUE;
+            }
+            return now + (long) Math.ceil((1 - this.tokens) * 1000 / rate);
+        }
+
+        private void refill(final long now, final int rate, final int burst) {
+            if (now > this.lastRefill) {
+                this.tokens = Math.min(burst, this.tokens + (now - this.lastRefill) * rate
+                        / 1000.0);
+                this.lastRefill = now;
+            }
+        }
+    }
+
+}
+
+// EOF RateLimitFilter.java
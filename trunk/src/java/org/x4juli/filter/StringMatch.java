@@ -0,0 +1,89 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.filter;
+
+/**
+ * One string of a {@link MultiStringMatchFilter} with its own decision. The
+ * options are <b>StringToMatch</b> and <b>AcceptOnMatch</b>, which is
+ * <code>true</code> by default.
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public class StringMatch {
+
+    // -------------------------------------------------------------- Variables
+
+    boolean acceptOnMatch = true;
+
+    String stringToMatch;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Default constructor for configuration.
+     */
+    public StringMatch() {
+        super();
+    }
+
+    /**
+     * @param stringToMatch the string to search in messages.
+     * @param acceptOnMatch the decision on a match.
+     */
+    public StringMatch(final String stringToMatch, final boolean acceptOnMatch) {
+        super();
+        this.stringToMatch = stringToMatch;
+        this.acceptOnMatch = acceptOnMatch;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * @param s the string to search in messages.
+     * @since 0.7
+     */
+    public void setStringToMatch(final String s) {
+        this.stringToMatch = s;
+    }
+
+    /**
+     * @return the string to match
+     * @since 0.7
+     */
+    public String getStringToMatch() {
+        return this.stringToMatch;
+    }
+
+    /**
+     * @param acceptOnMatch accept on a match if <code>true</code>, deny
+     *            otherwise.
+     * @since 0.7
+     */
+    public void setAcceptOnMatch(final boolean acceptOnMatch) {
+        this.acceptOnMatch = acceptOnMatch;
+    }
+
+    /**
+     * @return whether accepted or not
+     * @since 0.7
+     */
+    public boolean getAcceptOnMatch() {
+        return this.acceptOnMatch;
+    }
+
+}
+
+// EOF StringMatch.java
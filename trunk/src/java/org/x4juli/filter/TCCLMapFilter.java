@@ -15,11 +15,9 @@
  */
 package org.x4juli.filter;
 
-import org.x4juli.global.context.ContextFactory;
 import org.x4juli.global.spi.ExtendedFilter;
 import org.x4juli.global.spi.ExtendedLogRecord;
 import org.x4juli.global.spi.LogIllegalStateException;
-import org.x4juli.global.spi.TCCLMapper;
 
 /**
  * The filter is based on the hashcode of the ThreadContextClassloder
@@ -37,8 +35,6 @@ public class TCCLMapFilter extends AbstractFilter {
     boolean acceptOnMatch = true;
     
     String tcclToMatch;
-    
-    TCCLMapper mapper = ContextFactory.getThreadContextClassLoaderMapper();
 
     // ----------------------------------------------------------- Constructors
     /**
@@ -61,7 +57,7 @@ public class TCCLMapFilter extends AbstractFilter {
 
         boolean matchOccured = false;
         
-        final String identifier = mapper.getIdentifier(record.getClassloaderId());
+        final String identifier = record.getClassloaderIdentifier();
 
         if (this.tcclToMatch.equals(identifier)) {
             matchOccured = true;
@@ -0,0 +1,452 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.formatter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.logging.Level;
+
+import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.ThrowableInformation;
+
+/**
+ * Serializes records into a compact binary layout, read back by
+ * {@link BinaryLogReader}. Unlike the text formatters it writes bytes to a
+ * stream, it is used by {@link org.x4juli.handlers.BinaryFileHandler}.
+ * <p>
+ * The stream is a sequence of entries, each is a type byte, the length of
+ * the payload as variable length integer and the payload. A segment entry
+ * starts every opened file and clears the dictionaries. Levels, logger
+ * names, thread names and message templates are written once as dictionary
+ * entries and referenced by number afterwards. Parameters are stored apart
+ * from the template and formatted when the record is rendered. Time and
+ * sequence number are stored as difference to the previous record.
+ * </p>
+ * <p>
+ * Instances are not thread safe, the handler confines them to its monitor.
+ * </p>
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public final class BinaryFormatter {
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * Version of the layout, written in the segment entry.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Maximum number of entries per dictionary and segment, further strings
+     * are written inline.
+     */
+    public static final int MAX_DICTIONARY_SIZE = 4096;
+
+    static final byte[] MAGIC = new byte[] {'X', '4', 'J', 'B' };
+
+    static final int ENTRY_SEGMENT = 0;
+
+    static final int ENTRY_LEVEL = 1;
+
+    static final int ENTRY_LOGGER = 2;
+
+    static final int ENTRY_THREAD = 3;
+
+    static final int ENTRY_TEMPLATE = 4;
+
+    static final int ENTRY_RECORD = 5;
+
+    static final int FLAG_PARAMETERS = 1;
+
+    static final int FLAG_NDC = 2;
+
+    static final int FLAG_PROPERTIES = 4;
+
+    static final int FLAG_THROWN = 8;
+
+    static final int FLAG_SLF4J = 16;
+
+    static final int PARAM_NULL = 0;
+
+    static final int PARAM_STRING = 1;
+
+    static final int PARAM_LONG = 2;
+
+    static final int PARAM_DOUBLE = 3;
+
+    static final int PARAM_DATE = 4;
+
+    /**
+     * Reference to a string written inline, dictionary references follow.
+     */
+    static final int REF_INLINE = 1;
+
+    static final int REF_FIRST_ID = 2;
+
+    private final Map levels = new HashMap();
+
+    private final Map loggers = new HashMap();
+
+    private final Map threads = new HashMap();
+
+    private final Map templates = new HashMap();
+
+    /**
+     * Payload of the current record.
+     */
+    private final Buffer record = new Buffer(256);
+
+    /**
+     * Payload of dictionary entries.
+     */
+    private final Buffer entry = new Buffer(64);
+
+    /**
+     * Header of an entry.
+     */
+    private final Buffer header = new Buffer(8);
+
+    private long lastMillis;
+
+    private long lastSequence;
+
+    private long writtenBytes;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Constructs a formatter, {@link #writeSegment(OutputStream)} has to be
+     * called before the first record.
+     * @since 0.7
+     */
+    public BinaryFormatter() {
+        super();
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Starts a new segment, i.E. for a newly opened file. The dictionaries
+     * are cleared.
+     *
+     * @param out to write to.
+     * @throws IOException if writing fails.
+     * @since 0.7
+     */
+    public void writeSegment(final OutputStream out) throws IOException {
+        this.levels.clear();
+        this.loggers.clear();
+        this.threads.clear();
+        this.templates.clear();
+        this.lastMillis = 0;
+        this.lastSequence = 0;
+        this.entry.reset();
+        this.entry.write(MAGIC, 0, MAGIC.length);
+        this.entry.writeVarInt(VERSION);
+        writeEntry(out, ENTRY_SEGMENT, this.entry);
+    }
+
+    /**
+     * Writes the record and the dictionary entries it needs.
+     *
+     * @param rec to write.
+     * @param out to write to.
+     * @throws IOException if writing fails.
+     * @since 0.7
+     */
+    public void format(final ExtendedLogRecord rec, final OutputStream out) throws IOException {
+        final Buffer buf = this.record;
+        buf.reset();
+
+        final Level level = rec.getLevel();
+        final int levelRef = reference(out, this.levels, ENTRY_LEVEL, level.getName(), level);
+        buf.writeVarInt(levelRef);
+        if (levelRef == REF_INLINE) {
+            buf.writeSignedVarLong(level.intValue());
+            buf.writeString(level.getName());
+        }
+        buf.writeSignedVarLong(rec.getMillis() - this.lastMillis);
+        this.lastMillis = rec.getMillis();
+        buf.writeSignedVarLong(rec.getSequenceNumber() - this.lastSequence);
+        this.lastSequence = rec.getSequenceNumber();
+        buf.writeSignedVarLong(rec.getThreadID());
+        writeReference(out, buf, this.loggers, ENTRY_LOGGER, rec.getLoggerName());
+        writeReference(out, buf, this.threads, ENTRY_THREAD, rec.getThreadName());
+        writeReference(out, buf, this.templates, ENTRY_TEMPLATE, getTemplate(rec));
+
+        final Object[] parameters = rec.getParameters();
+        final String ndc = rec.getNDC();
+        final Set keys = rec.getPropertyKeySet();
+        final ThrowableInformation information = rec.getThrowableInformation();
+        int flags = 0;
+        if (parameters != null && parameters.length > 0) {
+            flags |= FLAG_PARAMETERS;
+        }
+        if (ndc != null) {
+            flags |= FLAG_NDC;
+        }
+        if (!keys.isEmpty()) {
+            flags |= FLAG_PROPERTIES;
+        }
+        if (information != null) {
+            flags |= FLAG_THROWN;
+        }
+        if (rec.isSlf4jFormat()) {
+            flags |= FLAG_SLF4J;
+        }
+        buf.writeVarInt(flags);
+
+        if (parameters != null && parameters.length > 0) {
+            buf.writeVarInt(parameters.length);
+            for (int i = 0; i < parameters.length; i++) {
+                writeParameter(buf, parameters[i]);
+            }
+        }
+        if (ndc != null) {
+            buf.writeString(ndc);
+        }
+        if (!keys.isEmpty()) {
+            buf.writeVarInt(keys.size());
+            for (Iterator i = keys.iterator(); i.hasNext();) {
+                String key = String.valueOf(i.next());
+                buf.writeString(key);
+                buf.writeString(rec.getProperty(key));
+            }
+        }
+        if (information != null) {
+            int lines = information.getLineCount();
+            buf.writeVarInt(lines);
+            for (int i = 0; i < lines; i++) {
+                buf.writeString(information.getLine(i));
+            }
+        }
+        writeEntry(out, ENTRY_RECORD, buf);
+    }
+
+    /**
+     * @return number of bytes written since construction.
+     * @since 0.7
+     */
+    public long getWrittenBytes() {
+        return this.writtenBytes;
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * The message, localized with the resource bundle of the record.
+     */
+    private static String getTemplate(final ExtendedLogRecord rec) {
+        String template = rec.getMessage();
+        ResourceBundle bundle = rec.getResourceBundle();
+        if (template != null && bundle != null) {
+            try {
+                template = bundle.getString(template);
+            } catch (MissingResourceException e) {
+                // Use the message as template.
+            }
+        }
+        return template;
+    }
+
+    private void writeReference(final OutputStream out, final Buffer buf, final Map dictionary,
+            final int type, final String value) throws IOException {
+        int ref = reference(out, dictionary, type, value, null);
+        buf.writeVarInt(ref);
+        if (ref == REF_INLINE) {
+            buf.writeString(value);
+        }
+    }
+
+    /**
+     * Looks the value up in the dictionary, a new value is added and written
+     * as dictionary entry.
+     *
+     * @return 0 for null, REF_INLINE if the dictionary is full or the
+     *         reference.
+     */
+    private int reference(final OutputStream out, final Map dictionary, final int type,
+            final String value, final Level level) throws IOException {
+        if (value == null) {
+            return 0;
+        }
+        Integer id = (Integer) dictionary.get(value);
+        if (id != null) {
+            return id.intValue();
+        }
+        if (dictionary.size() >= MAX_DICTIONARY_SIZE) {
+            return REF_INLINE;
+        }
+        int ref = REF_FIRST_ID + dictionary.size();
+        dictionary.put(value, new Integer(ref));
+        this.entry.reset();
+        if (level != null) {
+            this.entry.writeSignedVarLong(level.intValue());
+        }
+        this.entry.writeString(value);
+        writeEntry(out, type, this.entry);
+        return ref;
+    }
+
+    private static void writeParameter(final Buffer buf, final Object parameter) {
+        if (parameter == null) {
+            buf.writeVarInt(PARAM_NULL);
+        } else if (parameter instanceof Long || parameter instanceof Integer
+                || parameter instanceof Short || parameter instanceof Byte) {
+            buf.writeVarInt(PARAM_LONG);
+            buf.writeSignedVarLong(((Number) parameter).longValue());
+        } else if (parameter instanceof Double || parameter instanceof Float) {
+            buf.writeVarInt(PARAM_DOUBLE);
+            buf.writeFixedLong(Double.doubleToLongBits(((Number) parameter).doubleValue()));
+        } else if (parameter instanceof Date) {
+            buf.writeVarInt(PARAM_DATE);
+            buf.writeSignedVarLong(((Date) parameter).getTime());
+        } else {
+            String value;
+            try {
+                value = String.valueOf(parameter);
+            } catch (RuntimeException e) {
+                value = "Error in format[" + e + "]";
+            }
+            buf.writeVarInt(PARAM_STRING);
+            buf.writeString(value);
+        }
+    }
+
+    private void writeEntry(final OutputStream out, final int type, final Buffer payload)
+            throws IOException {
+        this.header.reset();
+        this.header.writeVarInt(type);
+        this.header.writeVarInt(payload.pos);
+        out.write(this.header.data, 0, this.header.pos);
+        out.write(payload.data, 0, payload.pos);
+        this.writtenBytes += this.header.pos + payload.pos;
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Growable byte array with the encodings of the layout.
+     */
+    private static final class Buffer {
+
+        private byte[] data;
+
+        private int pos;
+
+        Buffer(final int capacity) {
+            this.data = new byte[capacity];
+        }
+
+        void reset() {
+            this.pos = 0;
+        }
+
+        void write(final byte[] b, final int off, final int len) {
+            ensure(len);
+            System.arraycopy(b, off, this.data, this.pos, len);
+            this.pos += len;
+        }
+
+        void writeVarInt(final int value) {
+            writeVarLong(value & 0xffffffffL);
+        }
+
+        void writeVarLong(final long value) {
+            ensure(10);
+            long v = value;
+            while ((v & ~0x7fL) != 0) {
+                this.data[this.pos++] = (byte) ((v & 0x7f) | 0x80);
+                v >>>= 7;
+            }
+            this.data[this.pos++] = (byte) v;
+        }
+
+        /**
+         * Zig zag encoded, small negative values stay short.
+         */
+        void writeSignedVarLong(final long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeFixedLong(final long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                this.data[this.pos++] = (byte) (value >>> shift);
+            }
+        }
+
+        /**
+         * Length plus one, 0 for null, followed by the UTF-8 bytes.
+         */
+        void writeString(final String value) {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            final int len = value.length();
+            int utfLength = 0;
+            for (int i = 0; i < len; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    utfLength++;
+                } else if (c < 0x800) {
+                    utfLength += 2;
+                } else {
+                    utfLength += 3;
+                }
+            }
+            writeVarInt(utfLength + 1);
+            ensure(utfLength);
+            final byte[] b = this.data;
+            int p = this.pos;
+            for (int i = 0; i < len; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    b[p++] = (byte) c;
+                } else if (c < 0x800) {
+                    b[p++] = (byte) (0xc0 | (c >> 6));
+                    b[p++] = (byte) (0x80 | (c & 0x3f));
+                } else {
+                    b[p++] = (byte) (0xe0 | (c >> 12));
+                    b[p++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    b[p++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+            this.pos = p;
+        }
+
+        private void ensure(final int len) {
+            if (this.pos + len > this.data.length) {
+                byte[] grown = new byte[Math.max(this.data.length * 2, this.pos + len)];
+                System.arraycopy(this.data, 0, grown, 0, this.pos);
+                this.data = grown;
+            }
+        }
+    }
+
+}
+
+// EOF BinaryFormatter.java
@@ -0,0 +1,497 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.formatter;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.logging.Level;
+
+import org.x4juli.global.helper.IOUtil;
+import org.x4juli.global.spi.AbstractExtendedLogRecord;
+import org.x4juli.global.spi.ExtendedFormatter;
+import org.x4juli.global.spi.ExtendedHandler;
+import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.ThrowableInformation;
+import org.x4juli.global.spi.location.LocationInfo;
+import org.x4juli.handlers.ConsoleHandler;
+
+/**
+ * Reads the records written by {@link BinaryFormatter}, one at a time. The
+ * records can be replayed into any handler, which formats them like records
+ * logged right now. Location information is not stored, the records carry
+ * {@link LocationInfo#NA_LOCATION_INFO}.
+ * <p>
+ * A truncated entry at the end of the stream, i.E. of a file still written
+ * to, is treated as the end of the stream.
+ * </p>
+ * <p>
+ * Can be used from the command line:
+ * <code>java org.x4juli.formatter.BinaryLogReader file [pattern]</code>
+ * prints the file to the console with a <code>PatternFormatter</code>.
+ * </p>
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public final class BinaryLogReader {
+
+    // -------------------------------------------------------------- Variables
+
+    private static final String DEFAULT_PATTERN = "%d %p %c [%t] %x - %m%n";
+
+    private final InputStream in;
+
+    private final List levels = new ArrayList();
+
+    private final List loggers = new ArrayList();
+
+    private final List threads = new ArrayList();
+
+    private final List templates = new ArrayList();
+
+    /**
+     * Payload of the current entry.
+     */
+    private byte[] data = new byte[256];
+
+    private int pos;
+
+    private int limit;
+
+    private char[] chars = new char[128];
+
+    private boolean segmentRead;
+
+    private long lastMillis;
+
+    private long lastSequence;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Constructs a reader.
+     *
+     * @param in to read from, is buffered by the reader.
+     * @since 0.7
+     */
+    public BinaryLogReader(final InputStream in) {
+        super();
+        if (in instanceof BufferedInputStream) {
+            this.in = in;
+        } else {
+            this.in = new BufferedInputStream(in);
+        }
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Reads the next record.
+     *
+     * @return the record or null at the end of the stream.
+     * @throws IOException if reading fails or the stream is not in the binary
+     *             layout.
+     * @since 0.7
+     */
+    public ExtendedLogRecord read() throws IOException {
+        while (true) {
+            int type = this.in.read();
+            if (type < 0) {
+                return null;
+            }
+            long length = readStreamVarLong();
+            if (length < 0 || length > Integer.MAX_VALUE || !readPayload((int) length)) {
+                return null;
+            }
+            if (type == BinaryFormatter.ENTRY_SEGMENT) {
+                readSegment();
+                continue;
+            }
+            if (!this.segmentRead) {
+                throw new IOException("Missing segment, not a binary log");
+            }
+            switch (type) {
+            case BinaryFormatter.ENTRY_LEVEL:
+                this.levels.add(readLevel());
+                break;
+            case BinaryFormatter.ENTRY_LOGGER:
+                this.loggers.add(readString());
+                break;
+            case BinaryFormatter.ENTRY_THREAD:
+                this.threads.add(readString());
+                break;
+            case BinaryFormatter.ENTRY_TEMPLATE:
+                this.templates.add(readString());
+                break;
+            case BinaryFormatter.ENTRY_RECORD:
+                return readRecord();
+            default:
+                // Unknown entries of later versions are skipped.
+                break;
+            }
+        }
+    }
+
+    /**
+     * Publishes all remaining records to the handler.
+     *
+     * @param handler to publish to.
+     * @return number of records published.
+     * @throws IOException if reading fails.
+     * @since 0.7
+     */
+    public int replay(final ExtendedHandler handler) throws IOException {
+        int count = 0;
+        ExtendedLogRecord record;
+        while ((record = read()) != null) {
+            handler.publish(record);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Closes the stream.
+     * @since 0.7
+     */
+    public void close() {
+        IOUtil.closeInputStream(this.in);
+    }
+
+    /**
+     * Prints a binary log file to the console.
+     *
+     * @param args the file and optionally the conversion pattern.
+     * @throws IOException if reading fails.
+     * @since 0.7
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: java " + BinaryLogReader.class.getName()
+                    + " file [pattern]");
+            System.exit(1);
+        }
+        String pattern = args.length == 2 ? args[1] : DEFAULT_PATTERN;
+        ConsoleHandler handler = new ConsoleHandler();
+        handler.setLevel(Level.ALL);
+        handler.setFormatter((ExtendedFormatter) new PatternFormatter(pattern));
+        handler.activateOptions();
+        BinaryLogReader reader = new BinaryLogReader(new FileInputStream(args[0]));
+        try {
+            reader.replay(handler);
+        } finally {
+            reader.close();
+            handler.close();
+        }
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private void readSegment() throws IOException {
+        byte[] magic = BinaryFormatter.MAGIC;
+        if (this.limit < magic.length) {
+            throw new IOException("Not a binary log");
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (this.data[i] != magic[i]) {
+                throw new IOException("Not a binary log");
+            }
+        }
+        this.pos = magic.length;
+        int version = (int) readVarLong();
+        if (version > BinaryFormatter.VERSION) {
+            throw new IOException("Unsupported version " + version + " of binary log");
+        }
+        this.levels.clear();
+        this.loggers.clear();
+        this.threads.clear();
+        this.templates.clear();
+        this.lastMillis = 0;
+        this.lastSequence = 0;
+        this.segmentRead = true;
+    }
+
+    private ExtendedLogRecord readRecord() throws IOException {
+        int levelRef = (int) readVarLong();
+        Level level;
+        if (levelRef == BinaryFormatter.REF_INLINE) {
+            level = readLevel();
+        } else {
+            level = (Level) lookup(this.levels, levelRef);
+        }
+        this.lastMillis += readSignedVarLong();
+        this.lastSequence += readSignedVarLong();
+        int threadID = (int) readSignedVarLong();
+        String loggerName = readReference(this.loggers);
+        String threadName = readReference(this.threads);
+        String template = readReference(this.templates);
+        int flags = (int) readVarLong();
+
+        ReplayedLogRecord record = new ReplayedLogRecord(level, template, threadName);
+        record.setMillis(this.lastMillis);
+        record.setSequenceNumber(this.lastSequence);
+        record.setThreadID(threadID);
+        record.setLoggerName(loggerName);
+        record.setSourceClassName(null);
+        record.setSourceMethodName(null);
+        record.setLocationInformation(LocationInfo.NA_LOCATION_INFO);
+        record.setSlf4jFormat((flags & BinaryFormatter.FLAG_SLF4J) != 0);
+
+        if ((flags & BinaryFormatter.FLAG_PARAMETERS) != 0) {
+            Object[] parameters = new Object[(int) readVarLong()];
+            for (int i = 0; i < parameters.length; i++) {
+                parameters[i] = readParameter();
+            }
+            record.setParameters(parameters);
+        }
+        if ((flags & BinaryFormatter.FLAG_NDC) != 0) {
+            record.setNDC(readString());
+        } else {
+            record.setNDC(null);
+        }
+        // An empty table keeps the MDC of the reading thread out.
+        Hashtable properties = new Hashtable();
+        if ((flags & BinaryFormatter.FLAG_PROPERTIES) != 0) {
+            int count = (int) readVarLong();
+            for (int i = 0; i < count; i++) {
+                String key = readString();
+                String value = readString();
+                if (key != null && value != null) {
+                    properties.put(key, value);
+                }
+            }
+        }
+        record.setProperties(properties);
+        if ((flags & BinaryFormatter.FLAG_THROWN) != 0) {
+            String[] lines = new String[(int) readVarLong()];
+            for (int i = 0; i < lines.length; i++) {
+                lines[i] = readString();
+            }
+            record.throwableInformation = new ThrowableInformation(lines);
+        }
+        return record;
+    }
+
+    private Level readLevel() throws IOException {
+        int value = (int) readSignedVarLong();
+        String name = readString();
+        try {
+            Level level = Level.parse(name);
+            if (level.intValue() == value) {
+                return level;
+            }
+        } catch (IllegalArgumentException e) {
+            // Not a known level.
+        }
+        return new ReplayedLevel(name, value);
+    }
+
+    private String readReference(final List dictionary) throws IOException {
+        int ref = (int) readVarLong();
+        if (ref == BinaryFormatter.REF_INLINE) {
+            return readString();
+        }
+        return (String) lookup(dictionary, ref);
+    }
+
+    private static Object lookup(final List dictionary, final int ref) throws IOException {
+        if (ref == 0) {
+            return null;
+        }
+        int index = ref - BinaryFormatter.REF_FIRST_ID;
+        if (index < 0 || index >= dictionary.size()) {
+            throw new IOException("Undefined reference " + ref + " in binary log");
+        }
+        return dictionary.get(index);
+    }
+
+    private Object readParameter() throws IOException {
+        int tag = (int) readVarLong();
+        switch (tag) {
+        case BinaryFormatter.PARAM_NULL:
+            return null;
+        case BinaryFormatter.PARAM_STRING:
+            return readString();
+        case BinaryFormatter.PARAM_LONG:
+            return new Long(readSignedVarLong());
+        case BinaryFormatter.PARAM_DOUBLE:
+            long bits = 0;
+            checkAvailable(8);
+            for (int i = 0; i < 8; i++) {
+                bits = (bits << 8) | (this.data[this.pos++] & 0xff);
+            }
+            return new Double(Double.longBitsToDouble(bits));
+        case BinaryFormatter.PARAM_DATE:
+            return new Date(readSignedVarLong());
+        default:
+            throw new IOException("Unknown parameter type " + tag + " in binary log");
+        }
+    }
+
+    private String readString() throws IOException {
+        int length = (int) readVarLong();
+        if (length == 0) {
+            return null;
+        }
+        length--;
+        checkAvailable(length);
+        if (this.chars.length < length) {
+            this.chars = new char[Math.max(length, this.chars.length * 2)];
+        }
+        final byte[] b = this.data;
+        final char[] c = this.chars;
+        final int end = this.pos + length;
+        int p = this.pos;
+        int n = 0;
+        while (p < end) {
+            int b0 = b[p++] & 0xff;
+            if (b0 < 0x80) {
+                c[n++] = (char) b0;
+            } else if (b0 < 0xe0) {
+                checkContinuation(p, end, 1);
+                c[n++] = (char) (((b0 & 0x1f) << 6) | (b[p++] & 0x3f));
+            } else {
+                checkContinuation(p, end, 2);
+                c[n++] = (char) (((b0 & 0x0f) << 12) | ((b[p++] & 0x3f) << 6)
+                        | (b[p++] & 0x3f));
+            }
+        }
+        this.pos = end;
+        return new String(c, 0, n);
+    }
+
+    private static void checkContinuation(final int p, final int end, final int count)
+            throws IOException {
+        if (p + count > end) {
+            throw new IOException("Malformed string in binary log");
+        }
+    }
+
+    private long readSignedVarLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            checkAvailable(1);
+            int b = this.data[this.pos++];
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed number in binary log");
+    }
+
+    private void checkAvailable(final int count) throws IOException {
+        if (count < 0 || this.pos + count > this.limit) {
+            throw new IOException("Entry too short in binary log");
+        }
+    }
+
+    /**
+     * Reads a number of the entry header from the stream.
+     *
+     * @return the number, -1 at the end of the stream.
+     */
+    private long readStreamVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = this.in.read();
+            if (b < 0) {
+                return -1;
+            }
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed number in binary log");
+    }
+
+    /**
+     * Reads the payload of an entry into the data buffer.
+     *
+     * @return false if the stream ends before the payload.
+     */
+    private boolean readPayload(final int length) throws IOException {
+        if (this.data.length < length) {
+            this.data = new byte[Math.max(length, this.data.length * 2)];
+        }
+        int read = 0;
+        while (read < length) {
+            int n = this.in.read(this.data, read, length - read);
+            if (n < 0) {
+                return false;
+            }
+            read += n;
+        }
+        this.pos = 0;
+        this.limit = length;
+        return true;
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * A record read from a binary log, the thread name and stack trace are
+     * those of the original record.
+     */
+    private static final class ReplayedLogRecord extends AbstractExtendedLogRecord {
+
+        private static final long serialVersionUID = 7263104512331296187L;
+
+        private final String replayedThreadName;
+
+        private ThrowableInformation throwableInformation;
+
+        ReplayedLogRecord(final Level level, final String msg, final String threadName) {
+            super(level, msg);
+            this.replayedThreadName = threadName;
+        }
+
+        public String getThreadName() {
+            return this.replayedThreadName;
+        }
+
+        public ThrowableInformation getThrowableInformation() {
+            return this.throwableInformation;
+        }
+    }
+
+    /**
+     * A level unknown to this runtime.
+     */
+    private static final class ReplayedLevel extends Level {
+
+        private static final long serialVersionUID = -2471839620017745531L;
+
+        ReplayedLevel(final String name, final int value) {
+            super(name, value);
+        }
+    }
+
+}
+
+// EOF BinaryLogReader.java
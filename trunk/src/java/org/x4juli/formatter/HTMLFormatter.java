@@ -18,24 +18,23 @@ package org.x4juli.formatter;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 
+import org.x4juli.formatter.helper.ThreadLocalStringBuffer;
 import org.x4juli.formatter.pattern.FormattingInfo;
-import org.x4juli.formatter.pattern.LiteralPatternConverter;
 import org.x4juli.formatter.pattern.LogRecordPatternConverter;
 import org.x4juli.formatter.pattern.PatternConverter;
-import org.x4juli.formatter.pattern.PatternParser;
 import org.x4juli.global.LoggerRepositoryHolder;
 import org.x4juli.global.SystemUtils;
 import org.x4juli.global.helper.Transform;
+import org.x4juli.global.spi.CompactTraceRenderer;
 import org.x4juli.global.spi.ExtendedLogRecord;
 import org.x4juli.global.spi.ThrowableInformation;
+import org.x4juli.global.spi.location.LocationAware;
+import org.x4juli.global.spi.location.LocationCapture;
 
 /**
  * <p>
@@ -54,7 +53,7 @@ import org.x4juli.global.spi.ThrowableInformation;
  * @author Boris Unckel
  * @since 0.5
  */
-public class HTMLFormatter extends AbstractFormatter {
+public class HTMLFormatter extends AbstractFormatter implements LocationAware {
 
     // -------------------------------------------------------------- Variables
 
@@ -83,14 +82,24 @@ public class HTMLFormatter extends AbstractFormatter {
 
     private String url2ExternalCSS = "http://logging.apache.org/log4j/docs/css/eventTable-1.0.css";
 
-    // Does our PatternConverter chain handle throwable on its own?
-    private boolean chainHandlesThrowable;
+    private boolean compactThrowable = false;
 
-    // counter keeping track of the rows output
+    private int throwableDepth = CompactTraceRenderer.DEFAULT_DEPTH;
+
+    private String collapsedPackages = CompactTraceRenderer.DEFAULT_PACKAGES;
+
+    // renderer of the exception row if compactThrowable, replaced by activateOptions
+    private volatile CompactTraceRenderer traceRenderer = null;
+
+    // counter keeping track of the rows output, guarded by this
     private long counter = 0;
 
-    private LogRecordPatternConverter[] patternConverters;
-    private FormattingInfo[] patternFields;
+    // parsed pattern, replaced as a whole by activateOptions
+    private volatile PatternChain chain = PatternChain.parse(
+            PatternFormatter.DEFAULT_CONVERSION_PATTERN, null);
+
+    // scratch buffers used in formatting, one per thread
+    private final ThreadLocalStringBuffer buffers = new ThreadLocalStringBuffer(512);
 
     // ----------------------------------------------------------- Constructors
 
@@ -125,14 +134,13 @@ public class HTMLFormatter extends AbstractFormatter {
      */
     public String doFormat(final ExtendedLogRecord extRecord) {
         LogRecord record = (LogRecord) extRecord;
-        StringWriter output = new StringWriter();
+        final PatternChain current = this.chain;
+        final LogRecordPatternConverter[] converters = current.converters;
+        final FormattingInfo[] fields = current.fields;
         try {
-            boolean odd = true;
-            if (((this.counter++) & 1) == 0) {
-                odd = false;
-            }
+            boolean odd = nextRowIsOdd();
             String level = record.getLevel().toString().toLowerCase();
-            StringBuffer buf = new StringBuffer();
+            StringBuffer buf = this.buffers.getBuffer();
             buf.append(SystemUtils.LINE_SEPARATOR);
             buf.append("<tr class=\"");
             buf.append(level);
@@ -143,35 +151,42 @@ public class HTMLFormatter extends AbstractFormatter {
             }
             buf.append(SystemUtils.LINE_SEPARATOR);
 
-            for (int i = 0; i < this.patternConverters.length; i++) {
-                PatternConverter c = this.patternConverters[i];
+            for (int i = 0; i < converters.length; i++) {
+                PatternConverter c = converters[i];
                 buf.append("<td class=\"");
                 buf.append(c.getStyleClass(extRecord).toLowerCase());
                 buf.append("\">");
                 int fieldStart = buf.length();
                 c.format(extRecord, buf);
-                this.patternFields[i].format(fieldStart, buf);
+                fields[i].format(fieldStart, buf);
                 buf.append("</td>");
                 buf.append(SystemUtils.LINE_SEPARATOR);
             }
             buf.append("</tr>");
             buf.append(SystemUtils.LINE_SEPARATOR);
-            output.write(buf.toString());
             // if the pattern chain handles throwables then no need to do it
             // again
             // here.
-            if (!this.chainHandlesThrowable) {
+            if (!current.handlesThrowable) {
                 String[] s = null;
-                if (record.getThrown() != null) {
-                    ThrowableInformation ti = new ThrowableInformation(record.getThrown());
-                    s = ti.getThrowableStrRep();
+                final CompactTraceRenderer renderer = this.traceRenderer;
+                if (renderer != null && extRecord.getThrown() != null) {
+                    s = renderer.render(extRecord.getThrown());
+                } else {
+                    ThrowableInformation ti = extRecord.getThrowableInformation();
+                    if (ti != null) {
+                        s = ti.getThrowableStrRep();
+                    }
                 }
                 if (s != null) {
+                    StringWriter output = new StringWriter();
                     output.write("<tr><td class=\"exception\" colspan=\"6\">");
                     appendThrowableAsHTML(s, output);
                     output.write("</td></tr>" + SystemUtils.LINE_SEPARATOR);
+                    buf.append(output.getBuffer());
                 }
             }
+            return buf.toString();
         } catch (IOException e) {
             // Should not occure in an StringWriter so something curious is
             // wrong
@@ -179,7 +194,6 @@ public class HTMLFormatter extends AbstractFormatter {
             getLogger().log(Level.SEVERE, MessageText.Unexcpected_IO_Exception_during_formating, e);
             throw new RuntimeException(errtxt, e);
         }
-        return output.toString();
     }
 
     /**
@@ -187,36 +201,26 @@ public class HTMLFormatter extends AbstractFormatter {
      * @since 0.5
      */
     public void activateOptions() {
-        List converters = new ArrayList();
-        List fields = new ArrayList();
         Map converterRegistry = null;
         if (this.repository != null) {
             converterRegistry = (Map) this.repository.getObject(PATTERN_RULE_REGISTRY);
         }
-        PatternParser.parse(this.pattern, converters, fields, converterRegistry, PatternParser
-                .getPatternLayoutRules());
-
-        this.patternConverters = new LogRecordPatternConverter[converters.size()];
-        this.patternFields = new FormattingInfo[converters.size()];
-
-        int i = 0;
-        Iterator converterIter = converters.iterator();
-        Iterator fieldIter = fields.iterator();
-        while (converterIter.hasNext()) {
-            Object converter = converterIter.next();
-            if (converter instanceof LogRecordPatternConverter) {
-                this.patternConverters[i] = (LogRecordPatternConverter) converter;
-                this.chainHandlesThrowable |= this.patternConverters[i].handlesThrowable();
-            } else {
-                this.patternConverters[i] = new LiteralPatternConverter("");
-            }
-            if (fieldIter.hasNext()) {
-                this.patternFields[i] = (FormattingInfo) fieldIter.next();
-            } else {
-                this.patternFields[i] = FormattingInfo.getDefault();
-            }
-            i++;
+        this.chain = PatternChain.parse(this.pattern, converterRegistry);
+        if (this.compactThrowable) {
+            this.traceRenderer = new CompactTraceRenderer(this.throwableDepth,
+                    this.collapsedPackages);
+        } else {
+            this.traceRenderer = null;
         }
+        LocationCapture.invalidate();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public boolean requiresLocationInfo() {
+        return this.chain.requiresLocation;
     }
 
     /**
@@ -311,6 +315,62 @@ public class HTMLFormatter extends AbstractFormatter {
         this.url2ExternalCSS = url2ExternalCss;
     }
 
+    /**
+     * @return the value of the <b>CompactThrowable </b> option.
+     * @since 0.7
+     */
+    public boolean isCompactThrowable() {
+        return this.compactThrowable;
+    }
+
+    /**
+     * If set to true, the exception row is rendered by a
+     * {@link CompactTraceRenderer}, like <code>%throwable{compact}</code> in
+     * the pattern. Defaults to false. Takes effect with activateOptions.
+     * @param compactThrowable to render compact or not.
+     * @since 0.7
+     */
+    public void setCompactThrowable(final boolean compactThrowable) {
+        this.compactThrowable = compactThrowable;
+    }
+
+    /**
+     * @return the value of the <b>ThrowableDepth </b> option.
+     * @since 0.7
+     */
+    public int getThrowableDepth() {
+        return this.throwableDepth;
+    }
+
+    /**
+     * Maximum of frame lines per throwable in compact rendering, unlimited if
+     * not positive. Defaults to {@link CompactTraceRenderer#DEFAULT_DEPTH}.
+     * @param throwableDepth maximum of frame lines.
+     * @since 0.7
+     */
+    public void setThrowableDepth(final int throwableDepth) {
+        this.throwableDepth = throwableDepth;
+    }
+
+    /**
+     * @return the value of the <b>CollapsedPackages </b> option.
+     * @since 0.7
+     */
+    public String getCollapsedPackages() {
+        return this.collapsedPackages;
+    }
+
+    /**
+     * Comma separated packages whose consecutive frames are collapsed into
+     * one line in compact rendering. Defaults to
+     * {@link CompactTraceRenderer#DEFAULT_PACKAGES}.
+     * @param collapsedPackages packages to collapse, may be empty.
+     * @since 0.7
+     */
+    public void setCollapsedPackages(final String collapsedPackages) {
+        this.collapsedPackages = collapsedPackages;
+    }
+
     /**
      * The Content type.
      * @return the content type output by this layout, i.e "text/html".
@@ -360,8 +420,9 @@ public class HTMLFormatter extends AbstractFormatter {
 
         sbuf.append("<tr class=\"header\">");
         sbuf.append(SystemUtils.LINE_SEPARATOR);
-        for (int i = 0; i < this.patternConverters.length; i++) {
-            PatternConverter c = this.patternConverters[i];
+        final LogRecordPatternConverter[] converters = this.chain.converters;
+        for (int i = 0; i < converters.length; i++) {
+            PatternConverter c = converters[i];
             sbuf.append("<td class=\"");
             sbuf.append(c.getStyleClass(null).toLowerCase());
             sbuf.append("\">");
@@ -416,6 +477,16 @@ public class HTMLFormatter extends AbstractFormatter {
 
     // -----------------------------------------------Package Protected Methods
 
+    /**
+     * Alternates the style of the rows, the only state shared by concurrent
+     * format calls.
+     * @return true if the next row is an odd one.
+     * @since 0.7
+     */
+    synchronized boolean nextRowIsOdd() {
+        return ((this.counter++) & 1) != 0;
+    }
+
     /**
      * Write an Throwable as HTML code.
      * @param s the throwable as String array.
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.formatter;
+
+import java.util.Iterator;
+import java.util.Set;
+
+import org.x4juli.formatter.helper.FormatterUtil;
+import org.x4juli.formatter.helper.ThreadLocalStringBuffer;
+import org.x4juli.global.SystemUtils;
+import org.x4juli.global.helper.Transform;
+import org.x4juli.global.spi.AppendingFormatter;
+import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.ThrowableInformation;
+import org.x4juli.global.spi.location.LocationAware;
+import org.x4juli.global.spi.location.LocationCapture;
+import org.x4juli.global.spi.location.LocationInfo;
+
+/**
+ * Formats each record as one JSON object on a single line, for log
+ * indexers which read one event per line. The object contains the members
+ * <code>millis</code>, <code>sequence</code>, <code>level</code>,
+ * <code>logger</code>, <code>thread</code>, <code>message</code> and if
+ * present <code>ndc</code>, <code>properties</code> (the properties and MDC
+ * of the record), <code>location</code> and <code>thrown</code> (the lines
+ * of the stack trace).
+ * <p>
+ * Strings are escaped while they are appended to the buffer, no
+ * intermediate objects are built.
+ * </p>
+ * <table border="1" cellspacing="0" cellpadding="2">
+ * <tr>
+ * <th valign="top" scope="col">Attribute</th>
+ * <th valign="top" scope="col">Description</th>
+ * <th valign="top" scope="col">Required</th>
+ * </tr>
+ * <tr>
+ * <td valign="top">.locationInfo</td>
+ * <td valign="top">Adds class, method, file and line of the caller.
+ * Capturing the location is expensive.</td>
+ * <td valign="top">No. Default false.</td>
+ * </tr>
+ * </table>
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public class JsonFormatter extends AbstractFormatter implements AppendingFormatter, LocationAware {
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * Include the location of the caller.
+     */
+    private boolean locationInfo = false;
+
+    /**
+     * Scratch buffers used in formatting, one per thread.
+     */
+    private final ThreadLocalStringBuffer buffers = new ThreadLocalStringBuffer(512);
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Constructs a JsonFormatter without location information.
+     * @since 0.7
+     */
+    public JsonFormatter() {
+        super();
+        this.ignoresThrowable = false;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Formats into a buffer of the current thread, instances can be shared
+     * by many threads.
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public String doFormat(final ExtendedLogRecord record) {
+        StringBuffer buf = this.buffers.getBuffer();
+        format(record, buf);
+        return buf.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public void format(final ExtendedLogRecord record, final StringBuffer buf) {
+        buf.append("{\"millis\":");
+        buf.append(record.getMillis());
+        buf.append(",\"sequence\":");
+        buf.append(record.getSequenceNumber());
+        appendMember(buf, "level", record.getLevel().getName());
+        appendMember(buf, "logger", record.getLoggerName());
+        appendMember(buf, "thread", record.getThreadName());
+        appendMember(buf, "message", FormatterUtil.formatMessage(record));
+        appendMember(buf, "ndc", record.getNDC());
+
+        Set keys = record.getPropertyKeySet();
+        if (!keys.isEmpty()) {
+            buf.append(",\"properties\":{");
+            boolean first = true;
+            for (Iterator i = keys.iterator(); i.hasNext();) {
+                String key = String.valueOf(i.next());
+                if (!first) {
+                    buf.append(',');
+                }
+                first = false;
+                appendString(buf, key);
+                buf.append(':');
+                appendString(buf, record.getProperty(key));
+            }
+            buf.append('}');
+        }
+
+        if (this.locationInfo) {
+            LocationInfo location = record.getLocationInformation();
+            if (location != null) {
+                buf.append(",\"location\":{");
+                buf.append("\"class\":");
+                appendString(buf, location.getClassName());
+                appendMember(buf, "method", location.getMethodName());
+                appendMember(buf, "file", location.getFileName());
+                appendMember(buf, "line", location.getLineNumber());
+                buf.append('}');
+            }
+        }
+
+        ThrowableInformation information = record.getThrowableInformation();
+        if (information != null) {
+            int lines = information.getLineCount();
+            buf.append(",\"thrown\":[");
+            for (int i = 0; i < lines; i++) {
+                if (i > 0) {
+                    buf.append(',');
+                }
+                appendString(buf, information.getLine(i));
+            }
+            buf.append(']');
+        }
+        buf.append('}');
+        buf.append(SystemUtils.LINE_SEPARATOR);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public void activateOptions() {
+        LocationCapture.invalidate();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public boolean requiresLocationInfo() {
+        return this.locationInfo;
+    }
+
+    /**
+     * @return true if the location of the caller is included.
+     * @since 0.7
+     */
+    public boolean getLocationInfo() {
+        return this.locationInfo;
+    }
+
+    /**
+     * Sets the <b>LocationInfo</b> option. Takes effect with the next call
+     * of {@link #activateOptions()}.
+     *
+     * @param locationInfo true to include the location of the caller.
+     * @since 0.7
+     */
+    public void setLocationInfo(final boolean locationInfo) {
+        this.locationInfo = locationInfo;
+    }
+
+    /**
+     * The content type.
+     * @return "application/json".
+     * @since 0.7
+     */
+    public String getContentType() {
+        return "application/json";
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Appends <code>,"name":"value"</code>, nothing if the value is null.
+     */
+    private static void appendMember(final StringBuffer buf, final String name,
+            final String value) {
+        if (value == null) {
+            return;
+        }
+        buf.append(",\"");
+        buf.append(name);
+        buf.append("\":");
+        appendString(buf, value);
+    }
+
+    private static void appendString(final StringBuffer buf, final String value) {
+        if (value == null) {
+            buf.append("null");
+            return;
+        }
+        buf.append('"');
+        Transform.appendEscapingJSON(buf, value);
+        buf.append('"');
+    }
+
+}
+
+// EOF JsonFormatter.java
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.formatter;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.x4juli.formatter.pattern.FormattingInfo;
+import org.x4juli.formatter.pattern.LiteralPatternConverter;
+import org.x4juli.formatter.pattern.LogRecordPatternConverter;
+import org.x4juli.formatter.pattern.PatternParser;
+
+/**
+ * The parsed conversion pattern of a formatter: converters, their fields and
+ * the derived flags. Instances are immutable, a formatter publishes a new
+ * chain on activation and every format call works on the chain it read once,
+ * even if the pattern is replaced concurrently.
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+final class PatternChain {
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * Pattern converters.
+     */
+    final LogRecordPatternConverter[] converters;
+
+    /**
+     * Field widths and alignment corresponding to pattern converters.
+     */
+    final FormattingInfo[] fields;
+
+    /**
+     * True if any converter formats information from exceptions.
+     */
+    final boolean handlesThrowable;
+
+    /**
+     * True if any converter outputs the location of the caller.
+     */
+    final boolean requiresLocation;
+
+    // ----------------------------------------------------------- Constructors
+
+    private PatternChain(final LogRecordPatternConverter[] converters,
+            final FormattingInfo[] fields, final boolean handlesThrowable,
+            final boolean requiresLocation) {
+        this.converters = converters;
+        this.fields = fields;
+        this.handlesThrowable = handlesThrowable;
+        this.requiresLocation = requiresLocation;
+    }
+
+    // ------------------------------------------------------ Package Methods
+
+    /**
+     * Parses a conversion pattern.
+     *
+     * @param pattern to parse.
+     * @param converterRegistry customized rules, may be null.
+     * @return the chain.
+     */
+    static PatternChain parse(final String pattern, final Map converterRegistry) {
+        List converterList = new ArrayList();
+        List fieldList = new ArrayList();
+        PatternParser.parse(pattern, converterList, fieldList, converterRegistry, PatternParser
+                .getPatternLayoutRules());
+
+        LogRecordPatternConverter[] converters = new LogRecordPatternConverter[converterList.size()];
+        FormattingInfo[] fields = new FormattingInfo[converterList.size()];
+
+        int i = 0;
+        boolean throwable = false;
+        boolean location = false;
+        Iterator converterIter = converterList.iterator();
+        Iterator fieldIter = fieldList.iterator();
+
+        while (converterIter.hasNext()) {
+            Object converter = converterIter.next();
+
+            if (converter instanceof LogRecordPatternConverter) {
+                converters[i] = (LogRecordPatternConverter) converter;
+                throwable |= converters[i].handlesThrowable();
+                location |= converters[i].requiresLocationInfo();
+            } else {
+                converters[i] = new LiteralPatternConverter("");
+            }
+
+            if (fieldIter.hasNext()) {
+                fields[i] = (FormattingInfo) fieldIter.next();
+            } else {
+                fields[i] = FormattingInfo.getDefault();
+            }
+
+            i++;
+        }
+        return new PatternChain(converters, fields, throwable, location);
+    }
+
+}
+
+// EOF PatternChain.java
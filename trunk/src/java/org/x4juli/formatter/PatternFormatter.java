@@ -15,21 +15,20 @@
  */
 package org.x4juli.formatter;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 
+import org.x4juli.formatter.helper.ThreadLocalStringBuffer;
 import org.x4juli.formatter.pattern.FormattingInfo;
-import org.x4juli.formatter.pattern.LiteralPatternConverter;
 import org.x4juli.formatter.pattern.LogRecordPatternConverter;
-import org.x4juli.formatter.pattern.PatternParser;
 import org.x4juli.global.helper.OptionConverter;
 import org.x4juli.global.resources.MessageProperties;
+import org.x4juli.global.spi.AppendingFormatter;
 import org.x4juli.global.spi.ExtendedLogRecord;
 import org.x4juli.global.spi.LoggerRepository;
+import org.x4juli.global.spi.location.LocationAware;
+import org.x4juli.global.spi.location.LocationCapture;
 
 /**
  * <p>
@@ -501,7 +500,8 @@ import org.x4juli.global.spi.LoggerRepository;
  * @since 0.5
  */
 
-public class PatternFormatter extends AbstractFormatter {
+public class PatternFormatter extends AbstractFormatter implements AppendingFormatter,
+        LocationAware {
 
     // -------------------------------------------------------------- Variables
 
@@ -529,24 +529,14 @@ public class PatternFormatter extends AbstractFormatter {
     private String conversionPattern;
 
     /**
-     * Pattern converters.
+     * Parsed pattern, replaced as a whole by activateOptions.
      */
-    private LogRecordPatternConverter[] patternConverters;
+    private volatile PatternChain chain = PatternChain.parse(DEFAULT_CONVERSION_PATTERN, null);
 
     /**
-     * Field widths and alignment corresponding to pattern converters.
+     * Scratch buffers used in formatting, one per thread.
      */
-    private FormattingInfo[] patternFields;
-
-    /**
-     * String buffer used in formatting.
-     */
-    private StringBuffer buf = new StringBuffer();
-
-    /**
-     * True if any element in pattern formats information from exceptions.
-     */
-    private boolean handlesExceptions;
+    private final ThreadLocalStringBuffer buffers = new ThreadLocalStringBuffer(256);
 
     // ----------------------------------------------------------- Constructors
 
@@ -583,17 +573,30 @@ public class PatternFormatter extends AbstractFormatter {
         return MessageProperties.PROPERTIES_FORMATTER;
     }
 
+    /**
+     * Formats into a buffer of the current thread, instances can be shared
+     * by many threads.
+     * {@inheritDoc}
+     */
     public String doFormat(final ExtendedLogRecord extRecord) {
-        this.buf.setLength(0);
+        StringBuffer buf = this.buffers.getBuffer();
+        format(extRecord, buf);
+        return buf.toString();
+    }
 
-        for (int i = 0; i < this.patternConverters.length; i++) {
-            int startField = this.buf.length();
-            this.patternConverters[i].format(extRecord, this.buf);
-            this.patternFields[i].format(startField, this.buf);
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public void format(final ExtendedLogRecord extRecord, final StringBuffer toAppendTo) {
+        final PatternChain current = this.chain;
+        final LogRecordPatternConverter[] converters = current.converters;
+        final FormattingInfo[] fields = current.fields;
+        for (int i = 0; i < converters.length; i++) {
+            int startField = toAppendTo.length();
+            converters[i].format(extRecord, toAppendTo);
+            fields[i].format(startField, toAppendTo);
         }
-        String ret = this.buf.toString();
-        this.buf.setLength(0);
-        return ret;
     }
 
     /**
@@ -619,42 +622,22 @@ public class PatternFormatter extends AbstractFormatter {
      * you change the parameters of the PatternLayout instance.
      */
     public void activateOptions() {
-        List converters = new ArrayList();
-        List fields = new ArrayList();
         Map converterRegistry = null;
 
         if (this.repository != null) {
             converterRegistry = (Map) this.repository.getObject(PATTERN_RULE_REGISTRY);
         }
 
-        PatternParser.parse(this.conversionPattern, converters, fields, converterRegistry, PatternParser
-                .getPatternLayoutRules());
-
-        this.patternConverters = new LogRecordPatternConverter[converters.size()];
-        this.patternFields = new FormattingInfo[converters.size()];
-
-        int i = 0;
-        Iterator converterIter = converters.iterator();
-        Iterator fieldIter = fields.iterator();
-
-        while (converterIter.hasNext()) {
-            Object converter = converterIter.next();
-
-            if (converter instanceof LogRecordPatternConverter) {
-                this.patternConverters[i] = (LogRecordPatternConverter) converter;
-                this.handlesExceptions = this.patternConverters[i].handlesThrowable();
-            } else {
-                this.patternConverters[i] = new LiteralPatternConverter("");
-            }
-
-            if (fieldIter.hasNext()) {
-                this.patternFields[i] = (FormattingInfo) fieldIter.next();
-            } else {
-                this.patternFields[i] = FormattingInfo.getDefault();
-            }
+        this.chain = PatternChain.parse(this.conversionPattern, converterRegistry);
+        LocationCapture.invalidate();
+    }
 
-            i++;
-        }
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public boolean requiresLocationInfo() {
+        return this.chain.requiresLocation;
     }
 
     /**
@@ -662,7 +645,7 @@ public class PatternFormatter extends AbstractFormatter {
      * handles {@link Exception Exceptions}.
      */
     public boolean ignoresThrowable() {
-        return !this.handlesExceptions;
+        return !this.chain.handlesThrowable;
     }
 
     // ------------------------------------------------------ Protected Methods
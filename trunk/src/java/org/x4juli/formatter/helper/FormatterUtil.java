@@ -15,10 +15,21 @@
  */
 package org.x4juli.formatter.helper;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Handler;
 import java.util.logging.LogRecord;
 
+import org.slf4j.impl.MessageFormatter;
 import org.x4juli.global.helper.LoggerUtil;
+import org.x4juli.global.spi.ExtendedHandler;
 import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.HandlerAttachable;
 
 /**
  * Utility methods for formatting purposes.
@@ -30,6 +41,34 @@ public final class FormatterUtil {
 
     // -------------------------------------------------------------- Variables
 
+    /**
+     * Maximum number of parsed java.text templates kept.
+     */
+    private static final int MAX_CACHED_FORMATS = 256;
+
+    /**
+     * Marks a template MessageFormat is not able to parse.
+     */
+    private static final Object INVALID_FORMAT = new Object();
+
+    /**
+     * Parsed MessageFormat instances by template, least recently used are
+     * removed. Access is synchronized on the map, formatting on the
+     * MessageFormat.
+     */
+    private static final Map FORMATS = new LinkedHashMap(64, 0.75f, true) {
+        private static final long serialVersionUID = -5083615405276853421L;
+
+        protected boolean removeEldestEntry(final Map.Entry eldest) {
+            return size() > MAX_CACHED_FORMATS;
+        }
+    };
+
+    /**
+     * Scratch buffers for the substitution of SLF4J templates.
+     */
+    private static final ThreadLocalStringBuffer BUFFERS = new ThreadLocalStringBuffer(256);
+
     // ----------------------------------------------------------- Constructors
 
     /**
@@ -62,6 +101,11 @@ public final class FormatterUtil {
      * is missing key and value, the parameters are appended on the raw message
      * with [Number=Value]. The Method will try to use the cache of the formatted
      * message and fill it after formatting.
+     * <p>
+     * A SLF4J template (see {@link ExtendedLogRecord#isSlf4jFormat()}) gets
+     * the parameters substituted into its <code>{}</code> anchors. The parsed
+     * java.text templates are cached.
+     * </p>
      * 
      * @param record containing raw message and optional parameters.
      * @return the formatted message String.
@@ -94,10 +138,15 @@ public final class FormatterUtil {
                 record.setFormattedMessage(format);
                 return format;
             }
+            if (record.isSlf4jFormat()) {
+                ret = formatSlf4j(format, parameters);
+                record.setFormattedMessage(ret);
+                return ret;
+            }
             // Is this a java.text style format?
             if (format.indexOf("{0") >= 0) {
                 // Second default case
-                ret = java.text.MessageFormat.format(format, parameters);
+                ret = formatJavaText(format, parameters);
             }
         } catch (Exception ex) {
             // Case of formatting exception.
@@ -112,6 +161,160 @@ public final class FormatterUtil {
         return ret;
     }
 
+    /**
+     * Prepares the parameters of a record, which is formatted on another
+     * thread. Parameters which might change until then are replaced, a date
+     * by a copy and objects of other than immutable types by their string
+     * value. The parameter array itself is copied too.
+     * 
+     * @param record to prepare, nothing is done if it is already formatted.
+     * @since 0.7
+     */
+    public static void snapshotParameters(final ExtendedLogRecord record) {
+        Object[] parameters = record.getParameters();
+        if (parameters == null || parameters.length == 0
+                || record.getFormattedMessage() != null) {
+            return;
+        }
+        Object[] snapshot = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            snapshot[i] = snapshot(parameters[i]);
+        }
+        record.setParameters(snapshot);
+    }
+
+    /**
+     * Returns a record for a <code>java.util.logging</code> formatter or
+     * handler. These only know java.text templates, so a record with a SLF4J
+     * template is copied with the formatted message and without parameters.
+     * 
+     * @param record to pass on.
+     * @return the record itself or the copy.
+     * @since 0.7
+     */
+    public static LogRecord toJulRecord(final ExtendedLogRecord record) {
+        if (!record.isSlf4jFormat()) {
+            return (LogRecord) record;
+        }
+        LogRecord copy = new LogRecord(record.getLevel(), formatMessage(record));
+        copy.setLoggerName(record.getLoggerName());
+        copy.setMillis(record.getMillis());
+        copy.setSequenceNumber(record.getSequenceNumber());
+        copy.setThreadID(record.getThreadID());
+        copy.setSourceClassName(record.getSourceClassName());
+        copy.setSourceMethodName(record.getSourceMethodName());
+        copy.setThrown(record.getThrown());
+        return copy;
+    }
+
+    /**
+     * Checks whether records with a SLF4J template may be passed to the
+     * handlers unformatted. Only handlers of x4juli ({@link ExtendedHandler})
+     * know these records, they pass a plain copy to handlers and formatters
+     * of java.util.logging, see {@link #toJulRecord(ExtendedLogRecord)}.
+     * Handlers attached to the handlers are checked as well.
+     * 
+     * @param handlers to check, may be null.
+     * @return true if all handlers are ExtendedHandlers.
+     * @since 0.7
+     */
+    public static boolean acceptsSlf4jFormat(final Handler[] handlers) {
+        if (handlers == null) {
+            return true;
+        }
+        for (int i = 0; i < handlers.length; i++) {
+            if (!acceptsSlf4jFormat(handlers[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private static boolean acceptsSlf4jFormat(final Handler handler) {
+        if (handler == null) {
+            return true;
+        }
+        if (!(handler instanceof ExtendedHandler)) {
+            return false;
+        }
+        if (handler instanceof HandlerAttachable) {
+            List attached = ((HandlerAttachable) handler).getAllHandlers();
+            if (attached != null) {
+                for (int i = 0; i < attached.size(); i++) {
+                    if (!acceptsSlf4jFormat((Handler) attached.get(i))) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static String formatSlf4j(final String format, final Object[] parameters) {
+        if (format.indexOf('{') < 0) {
+            return format;
+        }
+        try {
+            StringBuffer buf = BUFFERS.getBuffer();
+            MessageFormatter.appendArrayFormat(buf, format, parameters);
+            return buf.toString();
+        } catch (RuntimeException e) {
+            return format + " Error in formatting message[" + e + "]";
+        }
+    }
+
+    /**
+     * Formats with a cached MessageFormat.
+     * 
+     * @return the formatted message or null if the template is invalid.
+     */
+    private static String formatJavaText(final String format, final Object[] parameters) {
+        Object cached;
+        synchronized (FORMATS) {
+            cached = FORMATS.get(format);
+        }
+        if (cached == null) {
+            try {
+                cached = new MessageFormat(format);
+            } catch (IllegalArgumentException e) {
+                cached = INVALID_FORMAT;
+            }
+            synchronized (FORMATS) {
+                FORMATS.put(format, cached);
+            }
+        }
+        if (cached == INVALID_FORMAT) {
+            return null;
+        }
+        MessageFormat messageFormat = (MessageFormat) cached;
+        synchronized (messageFormat) {
+            return messageFormat.format(parameters);
+        }
+    }
+
+    private static Object snapshot(final Object parameter) {
+        if (parameter == null) {
+            return null;
+        }
+        Class type = parameter.getClass();
+        if (type == String.class || type == Integer.class || type == Long.class
+                || type == Double.class || type == Float.class || type == Short.class
+                || type == Byte.class || type == Boolean.class || type == Character.class
+                || type == BigDecimal.class || type == BigInteger.class) {
+            return parameter;
+        }
+        if (type == Date.class) {
+            return new Date(((Date) parameter).getTime());
+        }
+        try {
+            return String.valueOf(parameter);
+        } catch (RuntimeException e) {
+            return "Error in format[" + e + "]";
+        }
+    }
+
     private static String appendParamsToString(final String format, final Object[] parameters) {
         StringBuffer buf = new StringBuffer(format);
         for (int i = 0; i < parameters.length; i++) {
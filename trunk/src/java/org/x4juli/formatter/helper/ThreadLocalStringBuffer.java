@@ -0,0 +1,82 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.formatter.helper;
+
+/**
+ * Holds one scratch <code>StringBuffer</code> per thread, formatters use it
+ * instead of a shared instance buffer and may run on many threads at once.
+ * Buffers which grew beyond {@link #MAX_CAPACITY} are not kept, a single huge
+ * record does not pin its memory for the lifetime of the thread.
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public final class ThreadLocalStringBuffer extends ThreadLocal {
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * Largest capacity of a buffer which is reused.
+     */
+    public static final int MAX_CAPACITY = 8 * 1024;
+
+    private final int initialCapacity;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Constructs the holder.
+     *
+     * @param initialCapacity of newly created buffers.
+     * @since 0.7
+     */
+    public ThreadLocalStringBuffer(final int initialCapacity) {
+        super();
+        this.initialCapacity = initialCapacity;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Returns the emptied buffer of the current thread.
+     *
+     * @return the buffer, confined to the current thread.
+     * @since 0.7
+     */
+    public StringBuffer getBuffer() {
+        StringBuffer buf = (StringBuffer) get();
+        if (buf.capacity() > MAX_CAPACITY) {
+            buf = new StringBuffer(this.initialCapacity);
+            set(buf);
+        } else {
+            buf.setLength(0);
+        }
+        return buf;
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    protected Object initialValue() {
+        return new StringBuffer(this.initialCapacity);
+    }
+
+}
+
+// EOF ThreadLocalStringBuffer.java
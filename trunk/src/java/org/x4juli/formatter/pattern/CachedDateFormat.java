@@ -25,7 +25,8 @@ import java.util.TimeZone;
 
 /**
  * CachedDateFormat optimizes the performance of a wrapped DateFormat. The
- * implementation is not thread-safe. If the millisecond pattern is not
+ * implementation is not thread-safe, {@link DatePatternConverter} keeps one
+ * instance per thread. If the millisecond pattern is not
  * recognized, the class will only use the cache if the same value is requested.
  * <p>
  * Logging API as a whole was originally done for <a
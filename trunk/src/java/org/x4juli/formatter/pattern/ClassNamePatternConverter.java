@@ -86,6 +86,14 @@ public class ClassNamePatternConverter extends NamePatternConverter {
         abbreviate(initialLength, toAppendTo);
     }
 
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public boolean requiresLocationInfo() {
+        return true;
+    }
+
 }
 
 // EOF ClassNamePatternConverter.java
@@ -15,6 +15,7 @@
  */
 package org.x4juli.formatter.pattern;
 
+import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.TimeZone;
@@ -27,6 +28,11 @@ import org.x4juli.global.spi.ExtendedLogRecordImpl;
 /**
  * Convert and format the event's date in a StringBuffer.
  * <p>
+ * <code>CachedDateFormat</code> is not thread safe, every thread formats with
+ * its own cache created from a clone of the configured date format. Thus one
+ * converter can be used by many threads at once.
+ * </p>
+ * <p>
  * Logging API as a whole was originally done for <a
  * href="http://logging.apache.org/log4j/">Apache log4j</a>. <b>Juli</b> is a
  * port of main parts of that to complete the <a
@@ -47,9 +53,9 @@ public class DatePatternConverter extends LogRecordPatternConverter {
     // -------------------------------------------------------------- Variables
 
     /**
-     * Date format.
+     * Date format cache per thread.
      */
-    private final CachedDateFormat df;
+    private final CachedDateFormatThreadLocal df;
 
     // ----------------------------------------------------------- Constructors
 
@@ -105,7 +111,7 @@ public class DatePatternConverter extends LogRecordPatternConverter {
             simpleFormat.setTimeZone(tz);
         }
 
-        this.df = new CachedDateFormat(simpleFormat, maximumCacheValidity);
+        this.df = new CachedDateFormatThreadLocal(simpleFormat, maximumCacheValidity);
     }
 
     // --------------------------------------------------------- Public Methods
@@ -127,7 +133,7 @@ public class DatePatternConverter extends LogRecordPatternConverter {
      * @since 0.5
      */
     public void format(final ExtendedLogRecord record, final StringBuffer output) {
-        this.df.format(record.getMillis(), output);
+        this.df.getDateFormat().format(record.getMillis(), output);
     }
 
     /**
@@ -151,7 +157,34 @@ public class DatePatternConverter extends LogRecordPatternConverter {
      * @since 0.5
      */
     public void format(final Date date, final StringBuffer toAppendTo) {
-        this.df.format(date.getTime(), toAppendTo);
+        this.df.getDateFormat().format(date.getTime(), toAppendTo);
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Creates a <code>CachedDateFormat</code> per thread. The prototype is
+     * never used for formatting, only cloned.
+     * @since 0.7
+     */
+    private static final class CachedDateFormatThreadLocal extends ThreadLocal {
+
+        private final DateFormat prototype;
+
+        private final int expiration;
+
+        CachedDateFormatThreadLocal(final DateFormat prototype, final int expiration) {
+            this.prototype = prototype;
+            this.expiration = expiration;
+        }
+
+        CachedDateFormat getDateFormat() {
+            return (CachedDateFormat) get();
+        }
+
+        protected Object initialValue() {
+            return new CachedDateFormat((DateFormat) this.prototype.clone(), this.expiration);
+        }
     }
 }
 
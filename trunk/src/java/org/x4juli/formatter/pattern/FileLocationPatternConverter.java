@@ -83,6 +83,14 @@ public class FileLocationPatternConverter extends LogRecordPatternConverter {
 
     }
 
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public boolean requiresLocationInfo() {
+        return true;
+    }
+
 }
 
 // EOF FileLocationPatternConverter.java
@@ -80,6 +80,14 @@ public class FullLocationPatternConverter extends LogRecordPatternConverter {
 
     }
 
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public boolean requiresLocationInfo() {
+        return true;
+    }
+
 }
 
 // EOF FullLocationPatternConverter.java
@@ -84,6 +84,14 @@ public class LineLocationPatternConverter extends LogRecordPatternConverter {
 
     }
 
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public boolean requiresLocationInfo() {
+        return true;
+    }
+
 }
 
 // EOF LineLocationPatternConverter.java
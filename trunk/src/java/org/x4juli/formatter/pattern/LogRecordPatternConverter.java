@@ -88,6 +88,18 @@ public abstract class LogRecordPatternConverter extends PatternConverter {
     public boolean handlesThrowable() {
         return false;
     }
+
+    /**
+     * Pattern converters which output the location of the caller return
+     * true, the containing layout will then ask the loggers to capture it at
+     * the log call.
+     *
+     * @return true if this PatternConverter needs location information.
+     * @since 0.7
+     */
+    public boolean requiresLocationInfo() {
+        return false;
+    }
 }
 
 // EOF LogRecordPatternConverter.java
@@ -85,6 +85,14 @@ public class MethodLocationPatternConverter extends LogRecordPatternConverter {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public boolean requiresLocationInfo() {
+        return true;
+    }
+
 }
 
 // EOF MethodLocationPatternConverter.java
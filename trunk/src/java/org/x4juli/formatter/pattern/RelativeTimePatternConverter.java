@@ -41,9 +41,10 @@ public class RelativeTimePatternConverter extends LogRecordPatternConverter {
     // -------------------------------------------------------------- Variables
 
     /**
-     * Cached formatted timestamp.
+     * Cached formatted timestamp. The cache entry is immutable and replaced as
+     * a whole, concurrent threads either hit it or format on their own.
      */
-    private CachedTimestamp lastTimestamp = new CachedTimestamp(0, "");
+    private volatile CachedTimestamp lastTimestamp = new CachedTimestamp(0, "");
 
     // ----------------------------------------------------------- Constructors
 
@@ -73,8 +74,9 @@ public class RelativeTimePatternConverter extends LogRecordPatternConverter {
      */
     public void format(ExtendedLogRecord record, StringBuffer toAppendTo) {
         long timestamp = record.getMillis();
+        CachedTimestamp cached = this.lastTimestamp;
 
-        if (!this.lastTimestamp.format(timestamp, toAppendTo)) {
+        if (!cached.format(timestamp, toAppendTo)) {
           final String formatted =
             Long.toString(timestamp - record.getStartTime());
           toAppendTo.append(formatted);
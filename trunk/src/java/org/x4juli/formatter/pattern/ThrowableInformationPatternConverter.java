@@ -16,6 +16,7 @@
 package org.x4juli.formatter.pattern;
 
 import org.x4juli.global.SystemUtils;
+import org.x4juli.global.spi.CompactTraceRenderer;
 import org.x4juli.global.spi.ExtendedLogRecord;
 import org.x4juli.global.spi.ThrowableInformation;
 
@@ -23,6 +24,14 @@ import org.x4juli.global.spi.ThrowableInformation;
  * Outputs the ThrowableInformation portion of the LoggingiEvent as a full stacktrace
  * unless this converter's option is 'short', where it just outputs the first line of the trace.
  * <p>
+ * With the option 'compact' the trace is rendered by a
+ * {@link CompactTraceRenderer}. The optional second and third option are the
+ * maximum of frame lines per throwable and the comma separated packages to
+ * collapse, e.g. <code>%throwable{compact}{20}{sun.reflect,org.apache.catalina}</code>.
+ * An empty third option collapses no packages. Records without the throwable
+ * itself, e.g. read from a binary log, are rendered in full.
+ * </p>
+ * <p>
  * Logging API as a whole was originally done for <a
  * href="http://logging.apache.org/log4j/">Apache log4j</a>. <b>Juli</b> is a
  * port of main parts of that to complete the <a
@@ -47,6 +56,11 @@ public class ThrowableInformationPatternConverter extends LogRecordPatternConver
      */
     private final String option;
 
+    /**
+     * Renderer for the option "compact", null otherwise.
+     */
+    private final CompactTraceRenderer renderer;
+
     // ----------------------------------------------------------- Constructors
 
     /**
@@ -62,6 +76,12 @@ public class ThrowableInformationPatternConverter extends LogRecordPatternConver
         } else {
             this.option = null;
         }
+        if ("compact".equals(this.option)) {
+            this.renderer = CompactTraceRenderer.newInstance(options.length > 1 ? options[1]
+                    : null, options.length > 2 ? options[2] : null);
+        } else {
+            this.renderer = null;
+        }
     }
 
     // --------------------------------------------------------- Public Methods
@@ -70,7 +90,8 @@ public class ThrowableInformationPatternConverter extends LogRecordPatternConver
      * Gets an instance of the class.
      *
      * @param options pattern options, may be null. If first element is "short",
-     *            only the first line of the throwable will be formatted.
+     *            only the first line of the throwable will be formatted. If it
+     *            is "compact", the trace is rendered compact.
      * @return instance of class.
      * @since 0.5
      */
@@ -84,26 +105,25 @@ public class ThrowableInformationPatternConverter extends LogRecordPatternConver
      * @since 0.5
      */
     public void format(ExtendedLogRecord record, StringBuffer toAppendTo) {
+        if (this.renderer != null && record.getThrown() != null) {
+            String[] lines = this.renderer.render(record.getThrown());
+            for (int i = 0; i < lines.length; i++) {
+                toAppendTo.append(lines[i]).append(SystemUtils.LINE_SEPARATOR);
+            }
+            return;
+        }
+
         ThrowableInformation information = record.getThrowableInformation();
 
         if (information != null) {
-            String[] stringRep = information.getThrowableStrRep();
-
-            int length = 0;
+            int length = information.getLineCount();
 
-            if (this.option == null) {
-                length = stringRep.length;
-            } else if (this.option.equals("full")) {
-                length = stringRep.length;
-            } else if (this.option.equals("short")) {
+            if (this.option != null && this.option.equals("short") && length > 1) {
                 length = 1;
-            } else {
-                length = stringRep.length;
             }
 
             for (int i = 0; i < length; i++) {
-                String string = stringRep[i];
-                toAppendTo.append(string).append(SystemUtils.LINE_SEPARATOR);
+                toAppendTo.append(information.getLine(i)).append(SystemUtils.LINE_SEPARATOR);
             }
         }
 
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.global;
+
+/**
+ * Source of the current time for log records, the relative time and the time
+ * based rolling policies. The clock in use is replaced as a whole:
+ * <ul>
+ * <li>{@link #precise()} asks <code>System.currentTimeMillis()</code> on each
+ * call. This is the default.</li>
+ * <li>{@link #coarse(long)} returns a timestamp which a daemon thread updates
+ * every <code>resolution</code> milliseconds.</li>
+ * <li>Tests subclass the clock and return a time of their choice.</li>
+ * </ul>
+ * The system property {@link Constants#CLOCK_PROPERTY} selects the initial
+ * clock, the values are "precise", "coarse" ({@link #DEFAULT_RESOLUTION}
+ * milliseconds) or "coarse:N" (N milliseconds).
+ * <p>
+ * A coarse clock does not save the system call per record: the constructor of
+ * <code>java.util.logging.LogRecord</code> still reads the system time, the
+ * record only replaces it with the time of the clock. The coarse clock makes
+ * the timestamps of records, rollover and rate limits consistent, and it
+ * saves the system calls of the rolling policies and filters reading the
+ * clock. It costs a thread waking up every resolution, so it should not tick
+ * faster than needed.
+ * </p>
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public abstract class Clock {
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * Milliseconds between updates of the coarse clock selected by "coarse".
+     */
+    public static final long DEFAULT_RESOLUTION = 10;
+
+    private static final Clock PRECISE = new PreciseClock();
+
+    private static volatile Clock current = fromProperty();
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Constructor for subclasses.
+     */
+    protected Clock() {
+        super();
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * @return the current time in milliseconds of the clock in use.
+     * @since 0.7
+     */
+    public static long currentTimeMillis() {
+        return current.millis();
+    }
+
+    /**
+     * @return the clock in use.
+     * @since 0.7
+     */
+    public static Clock getClock() {
+        return current;
+    }
+
+    /**
+     * Replaces the clock in use. A replaced coarse clock stops its thread.
+     *
+     * @param clock to use, the precise clock if null.
+     * @since 0.7
+     */
+    public static void setClock(final Clock clock) {
+        final Clock replaced;
+        synchronized (Clock.class) {
+            replaced = current;
+            current = clock == null ? PRECISE : clock;
+        }
+        if (replaced != current) {
+            replaced.stop();
+        }
+    }
+
+    /**
+     * @return the shared clock asking the system on each call.
+     * @since 0.7
+     */
+    public static Clock precise() {
+        return PRECISE;
+    }
+
+    /**
+     * Creates and starts a clock updated by a daemon thread.
+     *
+     * @param resolution milliseconds between updates, at least one.
+     * @return the clock.
+     * @since 0.7
+     */
+    public static Clock coarse(final long resolution) {
+        return new CoarseClock(Math.max(1, resolution));
+    }
+
+    /**
+     * @return the current time in milliseconds.
+     * @since 0.7
+     */
+    public abstract long millis();
+
+    /**
+     * @return true if {@link #millis()} is <code>System.currentTimeMillis()</code>.
+     * @since 0.7
+     */
+    public boolean isSystemTime() {
+        return false;
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * Called when the clock is replaced. Does nothing by default.
+     * @since 0.7
+     */
+    protected void stop() {
+        // Nothing to do.
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private static Clock fromProperty() {
+        String value = null;
+        try {
+            value = System.getProperty(Constants.CLOCK_PROPERTY);
+        } catch (SecurityException e) {
+            value = null;
+        }
+        if (value == null || !value.trim().startsWith("coarse")) {
+            return PRECISE;
+        }
+        value = value.trim();
+        long resolution = DEFAULT_RESOLUTION;
+        if (value.startsWith("coarse:")) {
+            try {
+                resolution = Long.parseLong(value.substring("coarse:".length()).trim());
+            } catch (NumberFormatException e) {
+                resolution = DEFAULT_RESOLUTION;
+            }
+        }
+        return coarse(resolution);
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Asks the system on each call.
+     */
+    private static final class PreciseClock extends Clock {
+
+        public long millis() {
+            return System.currentTimeMillis();
+        }
+
+        public boolean isSystemTime() {
+            return true;
+        }
+    }
+
+    /**
+     * Returns the timestamp of the last update by its daemon thread.
+     */
+    private static final class CoarseClock extends Clock implements Runnable {
+
+        private final long resolution;
+
+        private volatile long now;
+
+        private volatile boolean stopped = false;
+
+        private CoarseClock(final long resolution) {
+            this.resolution = resolution;
+            this.now = System.currentTimeMillis();
+            Thread thread = new Thread(this, "x4juli-clock");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        public long millis() {
+            return this.now;
+        }
+
+        public void run() {
+            while (!this.stopped) {
+                try {
+                    Thread.sleep(this.resolution);
+                } catch (InterruptedException e) {
+                    this.stopped = true;
+                }
+                this.now = System.currentTimeMillis();
+            }
+        }
+
+        protected void stop() {
+            this.stopped = true;
+        }
+    }
+
+}
+
+// EOF Clock.java
@@ -171,6 +171,13 @@ public final class Constants {
     public static final String CONFIG_FILE_PROPERTIES = "logging.properties";
     
     public static final String CONFIGURATOR_PROPERTY = "org.x4juli.configurator";
+
+    /**
+     * System property selecting the initial {@link Clock}: "precise", "coarse"
+     * with {@link Clock#DEFAULT_RESOLUTION} or "coarse:N" with N the
+     * resolution in milliseconds.
+     */
+    public static final String CLOCK_PROPERTY = "org.x4juli.clock";
     
     /**
      * A random object for generating seeds.
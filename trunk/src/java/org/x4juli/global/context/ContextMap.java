@@ -0,0 +1,198 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.global.context;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Immutable content of a mapped diagnostic context. {@link MDCImpl} never
+ * changes an instance once it is published, but replaces it with a modified
+ * copy. Log records and child threads therefore share the instance by
+ * reference instead of copying it.
+ *
+ * <p>
+ * The key set is sorted, like the former copies into a
+ * <code>TreeMap</code>. All modifying methods throw an
+ * {@link UnsupportedOperationException}, {@link #clone()} returns a
+ * modifiable <code>Hashtable</code>.
+ * </p>
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+final class ContextMap extends Hashtable {
+
+    // -------------------------------------------------------------- Variables
+
+    private static final long serialVersionUID = -3094186526377478453L;
+
+    private final Set sortedKeys;
+
+    private final boolean frozen;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Copies <code>source</code> and adds or removes one entry.
+     *
+     * @param source to copy, may be null.
+     * @param key of the entry.
+     * @param value of the entry, ignored when removing.
+     * @param remove <code>true</code> to remove the entry.
+     */
+    private ContextMap(final Map source, final String key, final String value,
+            final boolean remove) {
+        super(source == null ? 7 : source.size() * 2 + 1);
+        if (source != null) {
+            for (Iterator iter = source.entrySet().iterator(); iter.hasNext();) {
+                Map.Entry entry = (Map.Entry) iter.next();
+                super.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (remove) {
+            super.remove(key);
+        } else {
+            super.put(key, value);
+        }
+        this.sortedKeys = Collections.unmodifiableSet(new TreeSet(super.keySet()));
+        this.frozen = true;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Returns a context containing the entries of <code>source</code> and the
+     * given entry.
+     *
+     * @param source to copy, may be null.
+     * @param key of the entry.
+     * @param value of the entry.
+     * @return the new context.
+     * @since 0.7
+     */
+    static ContextMap with(final ContextMap source, final String key, final String value) {
+        return new ContextMap(source, key, value, false);
+    }
+
+    /**
+     * Returns a context containing the entries of <code>source</code> without
+     * the given key.
+     *
+     * @param source to copy, may be null.
+     * @param key to remove.
+     * @return <code>source</code> itself if it does not contain
+     *         <code>key</code>, null if no entries remain.
+     * @since 0.7
+     */
+    static ContextMap without(final ContextMap source, final String key) {
+        if (source == null || key == null || !source.containsKey(key)) {
+            return source;
+        }
+        if (source.size() == 1) {
+            return null;
+        }
+        return new ContextMap(source, key, null, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public Object put(final Object key, final Object value) {
+        checkFrozen();
+        return super.put(key, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public Object remove(final Object key) {
+        checkFrozen();
+        return super.remove(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public void putAll(final Map t) {
+        checkFrozen();
+        super.putAll(t);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public void clear() {
+        checkFrozen();
+        super.clear();
+    }
+
+    /**
+     * Returns a modifiable copy.
+     *
+     * @return a <code>Hashtable</code> with the same entries.
+     * @since 0.7
+     */
+    public Object clone() {
+        return new Hashtable(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the sorted and unmodifiable key set.
+     * @since 0.7
+     */
+    public Set keySet() {
+        return this.frozen ? this.sortedKeys : super.keySet();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public Set entrySet() {
+        return Collections.unmodifiableSet(super.entrySet());
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public Collection values() {
+        return Collections.unmodifiableCollection(super.values());
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private void checkFrozen() {
+        if (this.frozen) {
+            throw new UnsupportedOperationException("The context is immutable.");
+        }
+    }
+
+}
+
+// EOF ContextMap.java
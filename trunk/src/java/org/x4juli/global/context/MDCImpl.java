@@ -30,7 +30,13 @@ import org.x4juli.global.spi.NDC;
  * 
  * <p>
  * <b><em>The MDC is managed on a per thread basis</em></b>. A child thread automatically
- * inherits a <em>copy</em> of the mapped diagnostic context of its parent.
+ * inherits the mapped diagnostic context of its parent.
+ * </p>
+ * 
+ * <p>
+ * The context of a thread is an immutable {@link ContextMap}. Each modification replaces it
+ * with a modified copy, so log records, asynchronous handlers and child threads keep a
+ * reference instead of copying it.
  * </p>
  * 
  * <p>
@@ -50,8 +56,6 @@ final class MDCImpl implements MDC {
     
     // -------------------------------------------------------------- Variables
 
-    private static final int HT_SIZE = 7;
-
     private static final ThreadLocalMap TLM = new ThreadLocalMap();
 
     // ----------------------------------------------------------- Constructors
@@ -71,14 +75,7 @@ final class MDCImpl implements MDC {
      * @since 0.7
      */
     public void put(String key, String val) {
-        Hashtable ht = (Hashtable) TLM.get();
-
-        if (ht == null) {
-            ht = new Hashtable(HT_SIZE);
-            TLM.set(ht);
-        }
-
-        ht.put(key, val);
+        TLM.set(ContextMap.with((ContextMap) TLM.get(), key, val));
     }
 
     /**
@@ -104,11 +101,7 @@ final class MDCImpl implements MDC {
      * @since 0.7
      */
     public void remove(String key) {
-        Hashtable ht = (Hashtable) TLM.get();
-
-        if (ht != null) {
-            ht.remove(key);
-        }
+        TLM.set(ContextMap.without((ContextMap) TLM.get(), key));
     }
 
     /**
@@ -117,17 +110,13 @@ final class MDCImpl implements MDC {
      * @since 0.7
      */
     public void clear() {
-        Hashtable ht = (Hashtable) TLM.get();
-
-        if (ht != null) {
-            ht.clear();
-        }
+        TLM.set(null);
     }
 
     /**
      * {@inheritDoc}
      *
-     * @return current MDC as hastable.
+     * @return current MDC as immutable hastable, null if empty.
      * @since 0.7
      */
     public Hashtable getContext() {
@@ -92,17 +92,13 @@ final class NDCImpl implements NDC {
     // -------------------------------------------------------------- Variables
 
     /**
-     * The synchronized keyword is not used in this class. This may seem dangerous, especially since
-     * the class will be used by multiple-threads. This is OK since java Stacks are thread safe.
-     * More importantly, when inheriting diagnostic contexts the child thread is handed a clone of
-     * the parent's NDC. It follows that each thread has its own NDC (i.e. stack).
+     * The synchronized keyword is not used in this class. Each thread has its own
+     * {@link ContextStack}, only {@link #cloneStack} and {@link #inherit} hand a context over to
+     * another thread, both copy it.
      */
     private static final ThreadLocal TL = new ThreadLocal();
 
-    // after the latest call to lazyRemove
-    private static final int REAP_THRESHOLD = 5;
-
-    private static int pushCounter = 0; // the number of times push has been called
+    private static final int INITIAL_CAPACITY = 8;
 
     // ----------------------------------------------------------- Constructors
 
@@ -120,7 +116,7 @@ final class NDCImpl implements NDC {
      * @since 0.7
      */
     public void clear() {
-        Stack stack = (Stack) TL.get();
+        ContextStack stack = (ContextStack) TL.get();
 
         if (stack != null) {
             stack.setSize(0);
@@ -135,14 +131,16 @@ final class NDCImpl implements NDC {
      *
      */
     public Stack cloneStack() {
-        Object o = TL.get();
+        ContextStack stack = (ContextStack) TL.get();
 
-        if (o == null) {
+        if (stack == null) {
             return null;
         } else {
-            Stack stack = (Stack) o;
-
-            return (Stack) stack.clone();
+            Stack clone = new Stack();
+            for (int i = 0; i < stack.size; i++) {
+                clone.push(stack.messages[i]);
+            }
+            return clone;
         }
     }
 
@@ -153,7 +151,12 @@ final class NDCImpl implements NDC {
      */
     public void inherit(Stack stack) {
         if (stack != null) {
-            TL.set(stack);
+            ContextStack inherited = new ContextStack(stack.size());
+            for (int i = 0; i < stack.size(); i++) {
+                Object message = stack.get(i);
+                inherited.push((message == null) ? null : message.toString());
+            }
+            TL.set(inherited);
         }
     }
 
@@ -164,10 +167,10 @@ final class NDCImpl implements NDC {
      * @since 0.7
      */
     public String get() {
-        Stack s = (Stack) TL.get();
+        ContextStack stack = (ContextStack) TL.get();
 
-        if ((s != null) && !s.isEmpty()) {
-            return ((DiagnosticContext) s.peek()).fullMessage;
+        if ((stack != null) && (stack.size > 0)) {
+            return stack.getFullMessage();
         } else {
             return null;
         }
@@ -181,12 +184,12 @@ final class NDCImpl implements NDC {
      * @since 0.7
      */
     public int getDepth() {
-        Stack stack = (Stack) TL.get();
+        ContextStack stack = (ContextStack) TL.get();
 
         if (stack == null) {
             return 0;
         } else {
-            return stack.size();
+            return stack.size;
         }
     }
 
@@ -197,10 +200,10 @@ final class NDCImpl implements NDC {
      * @since 0.7
      */
     public String pop() {
-        Stack stack = (Stack) TL.get();
+        ContextStack stack = (ContextStack) TL.get();
 
-        if ((stack != null) && !stack.isEmpty()) {
-            return ((DiagnosticContext) stack.pop()).message;
+        if ((stack != null) && (stack.size > 0)) {
+            return stack.pop();
         } else {
             return "";
         }
@@ -213,10 +216,10 @@ final class NDCImpl implements NDC {
      * @since 0.7
      */
     public String peek() {
-        Stack stack = (Stack) TL.get();
+        ContextStack stack = (ContextStack) TL.get();
 
-        if ((stack != null) && !stack.isEmpty()) {
-            return ((DiagnosticContext) stack.peek()).message;
+        if ((stack != null) && (stack.size > 0)) {
+            return stack.messages[stack.size - 1];
         } else {
             return "";
         }
@@ -229,20 +232,13 @@ final class NDCImpl implements NDC {
      * @since 0.7
      */
     public void push(String message) {
-        Stack stack = (Stack) TL.get();
+        ContextStack stack = (ContextStack) TL.get();
 
         if (stack == null) {
-            DiagnosticContext dc = new DiagnosticContext(message, null);
-            stack = new Stack();
+            stack = new ContextStack(INITIAL_CAPACITY);
             TL.set(stack);
-            stack.push(dc);
-        } else if (stack.isEmpty()) {
-            DiagnosticContext dc = new DiagnosticContext(message, null);
-            stack.push(dc);
-        } else {
-            DiagnosticContext parent = (DiagnosticContext) stack.peek();
-            stack.push(new DiagnosticContext(message, parent));
         }
+        stack.push(message);
     }
 
     /**
@@ -253,37 +249,87 @@ final class NDCImpl implements NDC {
      * @since 0.7
      */
     public void setMaxDepth(int maxDepth) {
-        Stack stack = (Stack) TL.get();
+        ContextStack stack = (ContextStack) TL.get();
 
-        if ((stack != null) && (maxDepth < stack.size())) {
+        if ((stack != null) && (maxDepth < stack.size)) {
             stack.setSize(maxDepth);
         }
     }
 
+    // ---------------------------------------------------------- Inner Classes
+
     /**
-     * {@inheritDoc}
+     * The diagnostic context of one thread. Push and pop only move the top of
+     * the array, the full message is joined when it is requested and kept
+     * until the next change.
      *
      * @since 0.7
      */
-    private final class DiagnosticContext {
-        String fullMessage;
+    private static final class ContextStack {
+
+        String[] messages;
 
-        String message;
+        int size;
+
+        /**
+         * The joined messages, null if not rendered since the last change.
+         */
+        private String fullMessage;
 
         /**
          * Constructor.
          *
-         * @param message for this diagnostic context.
-         * @param parent of this diagnostic context.
+         * @param capacity initial capacity.
          */
-        DiagnosticContext(String message, DiagnosticContext parent) {
-            this.message = message;
+        ContextStack(final int capacity) {
+            this.messages = new String[Math.max(capacity, 1)];
+        }
+
+        void push(final String message) {
+            if (this.size == this.messages.length) {
+                String[] grown = new String[this.size * 2];
+                System.arraycopy(this.messages, 0, grown, 0, this.size);
+                this.messages = grown;
+            }
+            this.messages[this.size++] = message;
+            this.fullMessage = null;
+        }
+
+        String pop() {
+            String message = this.messages[--this.size];
+            this.messages[this.size] = null;
+            this.fullMessage = null;
+            return message;
+        }
 
-            if (parent != null) {
-                fullMessage = parent.fullMessage + ' ' + message;
-            } else {
-                fullMessage = message;
+        void setSize(final int newSize) {
+            while (this.size > newSize) {
+                this.messages[--this.size] = null;
+            }
+            this.fullMessage = null;
+        }
+
+        /**
+         * Joins the messages separated by a space, like
+         * <code>parent + ' ' + message</code> for each level.
+         *
+         * @return the full message, null if the only message is null.
+         */
+        String getFullMessage() {
+            if (this.fullMessage == null) {
+                if (this.size == 1) {
+                    this.fullMessage = this.messages[0];
+                } else {
+                    StringBuffer buf = new StringBuffer(this.size * 16);
+                    buf.append(this.messages[0]);
+                    for (int i = 1; i < this.size; i++) {
+                        buf.append(' ');
+                        buf.append(this.messages[i]);
+                    }
+                    this.fullMessage = buf.toString();
+                }
             }
+            return this.fullMessage;
         }
     }
 }
@@ -18,8 +18,9 @@ package org.x4juli.global.context;
 import java.util.Hashtable;
 
 /**
- * <code>ThreadLocalMap</code> extends {@link InheritableThreadLocal} to bequeath a copy of the
- * hashtable of the MDC of the parent thread.
+ * <code>ThreadLocalMap</code> extends {@link InheritableThreadLocal} to bequeath the hashtable of
+ * the MDC of the parent thread. An immutable {@link ContextMap} is shared, any other hashtable is
+ * copied.
  * 
  * <p>
  * Logging API as a whole was originally done for <a href="http://logging.apache.org/log4j/">Apache
@@ -52,6 +53,9 @@ public final class ThreadLocalMap extends InheritableThreadLocal {
      * @since 0.7
      */
     public Object childValue(Object parentValue) {
+        if (parentValue instanceof ContextMap) {
+            return parentValue;
+        }
         Hashtable ht = (Hashtable) parentValue;
         if (ht != null) {
             return ht.clone();
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.global.helper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Encodes text into a reusable <code>ByteBuffer</code> and writes it to a
+ * channel. All buffers and the <code>CharsetEncoder</code> are allocated
+ * once, encoding a record does not create garbage.
+ * <p>
+ * The text is collected in the buffer returned by {@link #getText()}, then
+ * {@link #encode(WritableByteChannel)} moves it into the byte buffer. Bytes
+ * are written to the channel as soon as the byte buffer is full or
+ * {@link #flush(WritableByteChannel)} is called.
+ * </p>
+ * <p>
+ * The texts are encoded as one stream, like an <code>OutputStreamWriter</code>
+ * does: a byte order mark, e.g. of UTF-16, is written once at the start of the
+ * stream, and a char waiting for its low surrogate is kept for the next text.
+ * {@link #reset(boolean)} starts a new stream.
+ * </p>
+ * <p>
+ * Instances are not thread safe, the owner has to confine them to one
+ * thread at a time.
+ * </p>
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public final class ByteBufferEncoder {
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * Default size of the byte buffer.
+     */
+    public static final int DEFAULT_CAPACITY = 8 * 1024;
+
+    /**
+     * Chars are moved from the text to the encoder in chunks of this size.
+     */
+    private static final int CHUNK_SIZE = 1024;
+
+    private final StringBuffer text = new StringBuffer(256);
+
+    private final char[] chars = new char[CHUNK_SIZE];
+
+    private final CharBuffer charBuffer = CharBuffer.wrap(this.chars);
+
+    private final ByteBuffer byteBuffer;
+
+    private final CharsetEncoder encoder;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Constructs an encoder.
+     *
+     * @param charset to encode with, <code>null</code> for the platform
+     *            default.
+     * @param capacity of the byte buffer.
+     * @since 0.7
+     */
+    public ByteBufferEncoder(final Charset charset, final int capacity) {
+        Charset cs = charset;
+        if (cs == null) {
+            cs = getDefaultCharset();
+        }
+        this.encoder = cs.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        int size = capacity;
+        if (size < CHUNK_SIZE) {
+            size = CHUNK_SIZE;
+        }
+        this.byteBuffer = ByteBuffer.allocateDirect(size);
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * The platform default charset, as used by <code>OutputStreamWriter</code>.
+     *
+     * @return the default charset.
+     * @since 0.7
+     */
+    public static Charset getDefaultCharset() {
+        String name = new OutputStreamWriter(new ByteArrayOutputStream()).getEncoding();
+        return Charset.forName(name);
+    }
+
+    /**
+     * @return the charset of this encoder.
+     * @since 0.7
+     */
+    public Charset getCharset() {
+        return this.encoder.charset();
+    }
+
+    /**
+     * @return the size of the byte buffer.
+     * @since 0.7
+     */
+    public int getCapacity() {
+        return this.byteBuffer.capacity();
+    }
+
+    /**
+     * Returns the emptied text buffer.
+     *
+     * @return the buffer to append the text to encode.
+     * @since 0.7
+     */
+    public StringBuffer getText() {
+        this.text.setLength(0);
+        return this.text;
+    }
+
+    /**
+     * Starts a new stream, chars not yet encoded are discarded.
+     *
+     * @param continued <code>true</code> if the stream already holds text
+     *            written by other means, e.g. the header written by a writer.
+     *            The start of the stream, like a byte order mark, is not
+     *            written again then.
+     * @since 0.7
+     */
+    public void reset(final boolean continued) {
+        this.encoder.reset();
+        this.charBuffer.clear();
+        if (continued) {
+            // the encoder writes the start of the stream into a scratch buffer
+            ByteBuffer scratch = ByteBuffer.allocate(4 * (int) Math.ceil(this.encoder
+                    .maxBytesPerChar()));
+            this.encoder.encode(CharBuffer.wrap(" "), scratch, false);
+        }
+    }
+
+    /**
+     * Encodes the content of the text buffer. The text buffer is emptied.
+     *
+     * @param channel to write to if the byte buffer gets full.
+     * @return the number of bytes the text was encoded to.
+     * @throws IOException if writing to the channel fails.
+     * @since 0.7
+     */
+    public int encode(final WritableByteChannel channel) throws IOException {
+        final int len = this.text.length();
+        int pos = 0;
+        int encoded = 0;
+        int start = this.byteBuffer.position();
+        while (true) {
+            int n = Math.min(len - pos, this.charBuffer.remaining());
+            if (n > 0) {
+                int offset = this.charBuffer.position();
+                this.text.getChars(pos, pos + n, this.chars, offset);
+                this.charBuffer.position(offset + n);
+                pos += n;
+            }
+            this.charBuffer.flip();
+            // not the end of input, the stream goes on with the next text
+            CoderResult result = this.encoder.encode(this.charBuffer, this.byteBuffer, false);
+            boolean overflow = result.isOverflow();
+            if (overflow) {
+                encoded += this.byteBuffer.position() - start;
+                start = 0;
+                drain(channel);
+            }
+            this.charBuffer.compact();
+            if (pos == len && !overflow) {
+                break;
+            }
+        }
+        this.text.setLength(0);
+        return encoded + this.byteBuffer.position() - start;
+    }
+
+    /**
+     * Writes all pending bytes to the channel.
+     *
+     * @param channel to write to.
+     * @throws IOException if writing to the channel fails.
+     * @since 0.7
+     */
+    public void flush(final WritableByteChannel channel) throws IOException {
+        if (this.byteBuffer.position() > 0) {
+            drain(channel);
+        }
+    }
+
+    /**
+     * @return the number of encoded bytes not yet written.
+     * @since 0.7
+     */
+    public int getPending() {
+        return this.byteBuffer.position();
+    }
+
+    /**
+     * Discards the pending bytes, i.E. after the channel has been closed.
+     * @since 0.7
+     */
+    public void clear() {
+        this.byteBuffer.clear();
+        this.text.setLength(0);
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private void drain(final WritableByteChannel channel) throws IOException {
+        this.byteBuffer.flip();
+        try {
+            while (this.byteBuffer.hasRemaining()) {
+                channel.write(this.byteBuffer);
+            }
+        } finally {
+            this.byteBuffer.clear();
+        }
+    }
+
+}
+
+// EOF ByteBufferEncoder.java
@@ -0,0 +1,513 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.global.helper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.x4juli.global.scheduler.Job;
+import org.x4juli.global.scheduler.Scheduler;
+
+/**
+ * Collects the encoded records of concurrent publishers into a batch and
+ * writes each batch with one <code>FileChannel.write</code>.
+ * <p>
+ * Records are appended with {@link #write(ByteBuffer)} and completed with
+ * {@link #endRecord(boolean)}, both while the caller holds the lock of its
+ * handler. Afterwards, without that lock, the caller invokes
+ * {@link #commit()}. The first committing thread becomes the leader and
+ * writes the pending batch, records appended meanwhile by other threads are
+ * collected in a second buffer and written by the leader in the next round.
+ * </p>
+ * <p>
+ * When a batch is written is decided by the flush policy:
+ * </p>
+ * <ul>
+ * <li>both <code>flushRecords</code> and <code>flushInterval</code> are 0:
+ * the batch is written when it is full or on {@link #flush()}.</li>
+ * <li><code>flushRecords</code> &gt; 0: as soon as the batch holds this
+ * number of records.</li>
+ * <li><code>flushInterval</code> &gt; 0: as soon as the oldest record of the
+ * batch is older than this number of milliseconds. The age is checked on
+ * every commit and, if the writer was given a {@link Scheduler}, by a job
+ * at the time the batch becomes due. Without scheduler, or after it was shut
+ * down, a batch of a quiet writer waits for the next commit or flush.</li>
+ * </ul>
+ * <p>
+ * Records ended with <code>force</code> are written and forced to the
+ * storage device with <code>FileChannel.force(false)</code> before the
+ * commit of their thread returns. Other records of the same batch share the
+ * force.
+ * </p>
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public final class GroupCommitWriter implements WritableByteChannel {
+
+    // -------------------------------------------------------------- Variables
+
+    private final FileChannel channel;
+
+    private final int flushRecords;
+
+    private final long flushInterval;
+
+    /**
+     * Runs {@link #intervalJob}, <code>null</code> for none.
+     */
+    private final Scheduler scheduler;
+
+    /**
+     * Writes a batch of a quiet writer once it is due.
+     */
+    private final Job intervalJob = new Job() {
+        public void execute() {
+            commitDue();
+        }
+    };
+
+    /**
+     * Sequence number of the last record ended by the current thread and
+     * whether it requested a force.
+     */
+    private final ThreadLocal tickets = new ThreadLocal() {
+        protected Object initialValue() {
+            return new long[2];
+        }
+    };
+
+    // All following fields are guarded by the monitor of this object.
+
+    /**
+     * Collects the records appended since the last batch was taken.
+     */
+    private ByteBuffer pending;
+
+    /**
+     * The buffer not in use by pending, <code>null</code> while the leader
+     * writes it.
+     */
+    private ByteBuffer spare;
+
+    private int pendingRecords = 0;
+
+    private long pendingSince = 0;
+
+    private long appended = 0;
+
+    private long written = 0;
+
+    private long forceRequested = 0;
+
+    private long forced = 0;
+
+    private long appendedBytes = 0;
+
+    private boolean writing = false;
+
+    private boolean closed = false;
+
+    private IOException failure = null;
+
+    private long batchCount = 0;
+
+    private long forceCount = 0;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Constructs a writer for the channel.
+     *
+     * @param channel the file is written to.
+     * @param capacity of each of the two batch buffers.
+     * @param flushRecords number of records to write a batch, 0 for none.
+     * @param flushInterval maximum age of a batch in milliseconds, 0 for
+     *            none.
+     * @since 0.7
+     */
+    public GroupCommitWriter(final FileChannel channel, final int capacity,
+            final int flushRecords, final long flushInterval) {
+        this(channel, capacity, flushRecords, flushInterval, null);
+    }
+
+    /**
+     * Constructs a writer for the channel, which writes batches older than
+     * <code>flushInterval</code> by a job of the scheduler.
+     *
+     * @param channel the file is written to.
+     * @param capacity of each of the two batch buffers.
+     * @param flushRecords number of records to write a batch, 0 for none.
+     * @param flushInterval maximum age of a batch in milliseconds, 0 for
+     *            none.
+     * @param scheduler to write due batches without commit, may be
+     *            <code>null</code>.
+     * @since 0.7
+     */
+    public GroupCommitWriter(final FileChannel channel, final int capacity,
+            final int flushRecords, final long flushInterval, final Scheduler scheduler) {
+        this.channel = channel;
+        this.flushRecords = flushRecords;
+        this.flushInterval = flushInterval;
+        this.scheduler = flushInterval > 0 ? scheduler : null;
+        this.pending = ByteBuffer.allocateDirect(capacity);
+        this.spare = ByteBuffer.allocateDirect(capacity);
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Appends the bytes to the pending batch. A full batch is written
+     * immediately by the calling thread.
+     *
+     * @param src bytes to append, all are consumed.
+     * @return the number of bytes appended.
+     * @throws IOException if writing a full batch fails or has failed before.
+     * @since 0.7
+     */
+    public synchronized int write(final ByteBuffer src) throws IOException {
+        checkFailure();
+        final int len = src.remaining();
+        while (src.hasRemaining()) {
+            if (!this.pending.hasRemaining()) {
+                writePending();
+            }
+            if (src.remaining() <= this.pending.remaining()) {
+                this.pending.put(src);
+            } else {
+                int limit = src.limit();
+                src.limit(src.position() + this.pending.remaining());
+                this.pending.put(src);
+                src.limit(limit);
+            }
+        }
+        this.appendedBytes += len;
+        return len;
+    }
+
+    /**
+     * Marks the bytes appended so far as complete record and remembers it
+     * for the next {@link #commit()} of the current thread.
+     *
+     * @param force the record has to be forced to the storage device.
+     * @since 0.7
+     */
+    public void endRecord(final boolean force) {
+        long sequence;
+        synchronized (this) {
+            sequence = ++this.appended;
+            if (this.pendingRecords++ == 0 && this.flushInterval > 0) {
+                this.pendingSince = System.currentTimeMillis();
+                scheduleInterval();
+            }
+            if (force) {
+                this.forceRequested = sequence;
+            }
+        }
+        long[] ticket = (long[]) this.tickets.get();
+        ticket[0] = sequence;
+        ticket[1] = force ? 1 : 0;
+    }
+
+    /**
+     * Writes the pending batch if the flush policy or the last record of the
+     * current thread requires it. Must not be called with the lock of the
+     * handler held, the thread may wait for the leader.
+     *
+     * @throws IOException if this thread writes the batch and it fails.
+     * @since 0.7
+     */
+    public void commit() throws IOException {
+        long[] ticket = (long[]) this.tickets.get();
+        final long sequence = ticket[0];
+        final boolean force = ticket[1] != 0;
+        if (sequence == 0) {
+            return;
+        }
+        synchronized (this) {
+            while (true) {
+                if (this.closed || this.failure != null) {
+                    return;
+                }
+                if (force) {
+                    if (this.forced >= sequence) {
+                        return;
+                    }
+                } else if (this.written >= sequence || !isDue()) {
+                    return;
+                }
+                if (!this.writing) {
+                    break;
+                }
+                if (!force) {
+                    // The leader takes the batch if it is due.
+                    return;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            this.writing = true;
+        }
+        lead();
+    }
+
+    /**
+     * Writes the pending batch, forces the channel if a pending record
+     * requested it.
+     *
+     * @throws IOException if writing fails or has failed before.
+     * @since 0.7
+     */
+    public synchronized void flush() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        checkFailure();
+        writePending();
+    }
+
+    /**
+     * Flushes the pending batch. Later commits do nothing, the channel is
+     * closed by its owner.
+     *
+     * @throws IOException if the final write fails.
+     * @since 0.7
+     */
+    public synchronized void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        try {
+            if (this.failure == null) {
+                writePending();
+            }
+        } finally {
+            this.closed = true;
+            notifyAll();
+            if (this.scheduler != null) {
+                this.scheduler.delete(this.intervalJob);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public synchronized boolean isOpen() {
+        return !this.closed;
+    }
+
+    /**
+     * @return the number of bytes appended.
+     * @since 0.7
+     */
+    public synchronized long getAppendedBytes() {
+        return this.appendedBytes;
+    }
+
+    /**
+     * @return the number of records written to the channel.
+     * @since 0.7
+     */
+    public synchronized long getWrittenRecords() {
+        return this.written;
+    }
+
+    /**
+     * @return the number of channel writes.
+     * @since 0.7
+     */
+    public synchronized long getBatchCount() {
+        return this.batchCount;
+    }
+
+    /**
+     * @return the number of forces of the channel.
+     * @since 0.7
+     */
+    public synchronized long getForceCount() {
+        return this.forceCount;
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Executed by the scheduler, writes the pending batch if it is due and
+     * no leader writes meanwhile. A write failure is reported by the next
+     * write of the handler.
+     */
+    private void commitDue() {
+        synchronized (this) {
+            if (this.closed || this.failure != null || this.pendingRecords == 0) {
+                return;
+            }
+            if (!isDue()) {
+                // Written and refilled since scheduled.
+                scheduleInterval();
+                return;
+            }
+            if (this.writing) {
+                // The leader takes the batch as it is due.
+                return;
+            }
+            this.writing = true;
+        }
+        try {
+            lead();
+        } catch (IOException e) {
+            // Kept as failure by lead().
+        }
+    }
+
+    /**
+     * Schedules the interval job for the age limit of the pending batch,
+     * monitor held.
+     */
+    private void scheduleInterval() {
+        if (this.scheduler != null) {
+            this.scheduler.schedule(this.intervalJob, this.pendingSince + this.flushInterval);
+        }
+    }
+
+    /**
+     * Called by the leader without the monitor. Writes batches as long as
+     * they are due, records appended during a write form the next batch.
+     */
+    private void lead() throws IOException {
+        IOException error = null;
+        try {
+            while (true) {
+                ByteBuffer batch;
+                long end;
+                boolean doForce;
+                synchronized (this) {
+                    doForce = this.forceRequested > this.forced;
+                    if (this.closed || !(doForce || isDue())) {
+                        break;
+                    }
+                    batch = this.pending;
+                    this.pending = this.spare;
+                    this.spare = null;
+                    end = this.appended;
+                    this.pendingRecords = 0;
+                }
+                batch.flip();
+                boolean wrote = batch.hasRemaining();
+                while (batch.hasRemaining()) {
+                    this.channel.write(batch);
+                }
+                if (doForce) {
+                    this.channel.force(false);
+                }
+                batch.clear();
+                synchronized (this) {
+                    this.spare = batch;
+                    this.written = end;
+                    if (wrote) {
+                        this.batchCount++;
+                    }
+                    if (doForce) {
+                        this.forced = end;
+                        this.forceCount++;
+                    }
+                    notifyAll();
+                }
+            }
+        } catch (IOException e) {
+            error = e;
+            throw e;
+        } finally {
+            synchronized (this) {
+                this.writing = false;
+                if (error != null) {
+                    this.failure = error;
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Writes the pending buffer with the monitor held, waits for a leader
+     * first.
+     */
+    private void writePending() throws IOException {
+        while (this.writing) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the batch writer.");
+            }
+        }
+        checkFailure();
+        final boolean doForce = this.forceRequested > this.forced;
+        try {
+            this.pending.flip();
+            if (this.pending.hasRemaining()) {
+                while (this.pending.hasRemaining()) {
+                    this.channel.write(this.pending);
+                }
+                this.batchCount++;
+            }
+            if (doForce) {
+                this.channel.force(false);
+                this.forceCount++;
+            }
+        } catch (IOException e) {
+            this.failure = e;
+            throw e;
+        } finally {
+            this.pending.clear();
+        }
+        this.written = this.appended;
+        this.pendingRecords = 0;
+        if (doForce) {
+            this.forced = this.appended;
+        }
+        notifyAll();
+    }
+
+    /**
+     * @return true if the pending batch has to be written, monitor held.
+     */
+    private boolean isDue() {
+        if (this.pendingRecords == 0) {
+            return false;
+        }
+        if (this.flushRecords > 0 && this.pendingRecords >= this.flushRecords) {
+            return true;
+        }
+        return this.flushInterval > 0
+                && System.currentTimeMillis() - this.pendingSince >= this.flushInterval;
+    }
+
+    private void checkFailure() throws IOException {
+        if (this.failure != null) {
+            throw this.failure;
+        }
+    }
+
+}
+
+// EOF GroupCommitWriter.java
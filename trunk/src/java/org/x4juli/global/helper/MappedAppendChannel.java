@@ -0,0 +1,254 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.global.helper;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+
+/**
+ * Appends bytes to a file through a <code>MappedByteBuffer</code>. A region
+ * of the file is mapped and thereby preallocated, when it is full the next
+ * region is mapped. Closing the channel releases the region and truncates
+ * the file to the bytes actually written, so the length of the file is the
+ * position to append to when it is opened again.
+ * <p>
+ * A file which was not closed, i.E. after a crash of the VM, keeps the zero
+ * bytes of the unused part of the last region, appending continues behind
+ * them.
+ * </p>
+ * <p>
+ * Regions are released explicitly where the VM allows it, otherwise when
+ * they are garbage collected. Some platforms refuse to truncate or rename a
+ * file while a region of it is still mapped.
+ * </p>
+ * <p>
+ * Instances are not thread safe, the owner has to confine them to one
+ * thread at a time.
+ * </p>
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public final class MappedAppendChannel implements WritableByteChannel {
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * Default size of a mapped region.
+     */
+    public static final int DEFAULT_REGION_SIZE = 1024 * 1024;
+
+    private final RandomAccessFile file;
+
+    private final FileChannel channel;
+
+    private final int regionSize;
+
+    private MappedByteBuffer region;
+
+    /**
+     * File position of the first byte of the region.
+     */
+    private long regionStart;
+
+    private boolean open = true;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Opens the file and maps the first region.
+     *
+     * @param filename of the file, it is created if necessary.
+     * @param append keep the content or truncate the file.
+     * @param regionSize size of a mapped region, the default if not positive.
+     * @throws IOException if the file cannot be opened or mapped.
+     * @since 0.7
+     */
+    public MappedAppendChannel(final String filename, final boolean append, final int regionSize)
+            throws IOException {
+        this.file = new RandomAccessFile(filename, "rw");
+        this.channel = this.file.getChannel();
+        if (regionSize > 0) {
+            this.regionSize = regionSize;
+        } else {
+            this.regionSize = DEFAULT_REGION_SIZE;
+        }
+        try {
+            long start = 0;
+            if (append) {
+                start = this.channel.size();
+            } else {
+                this.file.setLength(0);
+            }
+            map(start);
+        } catch (IOException e) {
+            this.file.close();
+            throw e;
+        }
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Copies all bytes into the mapped region, further regions are mapped as
+     * needed.
+     *
+     * @param src the bytes to append.
+     * @return the number of bytes appended.
+     * @throws IOException if mapping the next region fails.
+     * @since 0.7
+     */
+    public int write(final ByteBuffer src) throws IOException {
+        if (!this.open) {
+            throw new ClosedChannelException();
+        }
+        final int len = src.remaining();
+        while (src.hasRemaining()) {
+            if (this.region == null || !this.region.hasRemaining()) {
+                map(getPosition());
+            }
+            if (src.remaining() <= this.region.remaining()) {
+                this.region.put(src);
+            } else {
+                int limit = src.limit();
+                src.limit(src.position() + this.region.remaining());
+                this.region.put(src);
+                src.limit(limit);
+            }
+        }
+        return len;
+    }
+
+    /**
+     * @return the number of bytes in the file, without the unused part of
+     *         the region.
+     * @since 0.7
+     */
+    public long getPosition() {
+        if (this.region == null) {
+            return this.regionStart;
+        }
+        return this.regionStart + this.region.position();
+    }
+
+    /**
+     * Forces the content of the region to the storage device.
+     * @since 0.7
+     */
+    public void force() {
+        if (this.region != null) {
+            this.region.force();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public boolean isOpen() {
+        return this.open;
+    }
+
+    /**
+     * Releases the region, truncates the file to the written bytes and
+     * closes it.
+     *
+     * @throws IOException if truncation or closing fails.
+     * @since 0.7
+     */
+    public void close() throws IOException {
+        if (!this.open) {
+            return;
+        }
+        this.open = false;
+        final long length = getPosition();
+        try {
+            release();
+            this.file.setLength(length);
+        } finally {
+            this.file.close();
+        }
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private void map(final long start) throws IOException {
+        release();
+        this.region = this.channel.map(FileChannel.MapMode.READ_WRITE, start, this.regionSize);
+        this.regionStart = start;
+    }
+
+    /**
+     * Unmaps the current region, it must not be accessed afterwards.
+     */
+    private void release() {
+        if (this.region == null) {
+            return;
+        }
+        final MappedByteBuffer released = this.region;
+        this.regionStart += released.position();
+        this.region = null;
+        unmap(released);
+    }
+
+    /**
+     * Unmaps the buffer if the VM allows it, by the cleaner of the buffer up
+     * to Java 8 and by <code>Unsafe.invokeCleaner</code> later on.
+     */
+    private static void unmap(final MappedByteBuffer buffer) {
+        AccessController.doPrivileged(new PrivilegedAction() {
+            public Object run() {
+                try {
+                    Method cleanerMethod = buffer.getClass().getMethod("cleaner", new Class[0]);
+                    cleanerMethod.setAccessible(true);
+                    Object cleaner = cleanerMethod.invoke(buffer, new Object[0]);
+                    if (cleaner != null) {
+                        Method clean = cleaner.getClass().getMethod("clean", new Class[0]);
+                        clean.setAccessible(true);
+                        clean.invoke(cleaner, new Object[0]);
+                        return Boolean.TRUE;
+                    }
+                } catch (Exception e) {
+                    // Not accessible, try Unsafe.
+                }
+                try {
+                    Class unsafeClass = Class.forName("sun.misc.Unsafe");
+                    Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                    theUnsafe.setAccessible(true);
+                    Method invokeCleaner = unsafeClass.getMethod("invokeCleaner",
+                            new Class[] {ByteBuffer.class });
+                    invokeCleaner.invoke(theUnsafe.get(null), new Object[] {buffer });
+                    return Boolean.TRUE;
+                } catch (Exception e) {
+                    // Left to the garbage collector.
+                }
+                return Boolean.FALSE;
+            }
+        });
+    }
+
+}
+
+// EOF MappedAppendChannel.java
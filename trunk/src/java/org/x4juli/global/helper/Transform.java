@@ -52,6 +52,8 @@ public final class Transform {
 
   private static final int CDATA_END_LEN = CDATA_END.length();
 
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
   // ------------------------------------------------------------ Constructor
 
   /**
@@ -143,4 +145,84 @@ public final class Transform {
 
     output.write(str.substring(start));
   }
+
+  /**
+   * Appends the string as content of a JSON string literal, the enclosing
+   * quotes are the responsibility of the calling method. Quote, backslash
+   * and control characters are escaped, all other characters are appended
+   * unchanged. A string without such characters is appended as a whole, no
+   * copy is made.
+   *
+   * @param buf
+   *            the buffer to append to.
+   * @param str
+   *            the string to escape, <code>null</code> appends nothing.
+   * @since 0.7
+   */
+  public static void appendEscapingJSON(final StringBuffer buf, final String str) {
+    if (str == null) {
+      return;
+    }
+    final int len = str.length();
+    int first = 0;
+    while (first < len && !needsJSONEscape(str.charAt(first))) {
+      first++;
+    }
+    if (first == len) {
+      buf.append(str);
+      return;
+    }
+    final char[] chars = str.toCharArray();
+    buf.append(chars, 0, first);
+    int start = first;
+    for (int i = first; i < len; i++) {
+      final char ch = chars[i];
+      if (!needsJSONEscape(ch)) {
+        continue;
+      }
+      if (i > start) {
+        buf.append(chars, start, i - start);
+      }
+      start = i + 1;
+      switch (ch) {
+      case '"':
+        buf.append("\\\"");
+        break;
+      case '\\':
+        buf.append("\\\\");
+        break;
+      case '\n':
+        buf.append("\\n");
+        break;
+      case '\r':
+        buf.append("\\r");
+        break;
+      case '\t':
+        buf.append("\\t");
+        break;
+      case '\b':
+        buf.append("\\b");
+        break;
+      case '\f':
+        buf.append("\\f");
+        break;
+      default:
+        buf.append("\\u");
+        buf.append(HEX_DIGITS[(ch >> 12) & 0xf]);
+        buf.append(HEX_DIGITS[(ch >> 8) & 0xf]);
+        buf.append(HEX_DIGITS[(ch >> 4) & 0xf]);
+        buf.append(HEX_DIGITS[ch & 0xf]);
+        break;
+      }
+    }
+    if (start < len) {
+      buf.append(chars, start, len - start);
+    }
+  }
+
+  // -------------------------------------------------------- Private Methods
+
+  private static boolean needsJSONEscape(final char ch) {
+    return ch < 0x20 || ch == '"' || ch == '\\' || ch == '\u2028' || ch == '\u2029';
+  }
 }
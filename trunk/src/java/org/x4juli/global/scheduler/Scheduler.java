@@ -1,12 +1,12 @@
 /*
  * Copyright 1999,2005 The Apache Software Foundation.
- * 
+ *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
- * 
+ *
  *      http://www.apache.org/licenses/LICENSE-2.0
- * 
+ *
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
@@ -15,15 +15,23 @@
  */
 package org.x4juli.global.scheduler;
 
-import java.util.List;
-import java.util.Vector;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.Map;
 
 /**
  * A simple but still useful implementation of a Scheduler (in memory only).
- * 
- * This implementation will work very well when the number of scheduled job is small, say less than
- * 100 jobs. If a larger number of events need to be scheduled, than a better adapted data structure
- * for the jobList can give improved performance.
+ *
+ * Jobs are kept in a binary heap ordered by their execution time, jobs due at
+ * the same time run in the order they were scheduled. Scheduling and deleting
+ * a job takes O(log n). The scheduler thread only dispatches due jobs to a
+ * bounded pool of worker threads, so a slow job delays neither the
+ * dispatching nor the jobs on the other workers. Workers inherit the daemon
+ * flag of the scheduler thread.
+ *
+ * A job is scheduled at most once: scheduling it again replaces the earlier
+ * entry. A periodic job is scheduled again after it finished, at the time it
+ * was started plus its period.
  * <p>
  * Logging API as a whole was originally done for <a href="http://logging.apache.org/log4j/">Apache
  * log4j</a>. <b>x4uli</b> is a port of main parts of that to complete the <a
@@ -33,68 +41,91 @@ import java.util.Vector;
  * published by <i>Ceki G&uuml;lc&uuml;</i>. Please use exclusively the <i>appropriate</i> mailing
  * lists for questions, remarks and contribution.
  * </p>
- * 
+ *
  * @author Boris Unckel
  * @since 0.7
  */
 public class Scheduler extends Thread {
 
-    private List jobList;
+    // -------------------------------------------------------------- Variables
 
-    private boolean shutdown = false;
+    /**
+     * Number of worker threads of the default constructor.
+     */
+    public static final int DEFAULT_WORKERS = 2;
+
+    /**
+     * Guards the heap, the entries and the shutdown flag.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * Scheduled entries, the earliest at index 0.
+     */
+    private ScheduledJobEntry[] heap = new ScheduledJobEntry[16];
+
+    private int size = 0;
+
+    /**
+     * Job to its scheduled or running periodic entry.
+     */
+    private final Map entries = new IdentityHashMap();
+
+    /**
+     * Orders entries due at the same time.
+     */
+    private long sequence = 0;
+
+    /**
+     * Due entries waiting for a worker, guarded by itself.
+     */
+    private final LinkedList ready = new LinkedList();
+
+    private final int workerCount;
+
+    private volatile boolean shutdown = false;
 
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Creates a scheduler with {@link #DEFAULT_WORKERS} workers.
+     */
     public Scheduler() {
-        jobList = new Vector();
+        this(DEFAULT_WORKERS);
     }
 
     /**
-     * Find the index of a given job. Returns -1 if the job could not be found.
-     * 
+     * @param workers number of threads executing jobs, at least one.
+     * @since 0.7
      */
-    int findIndex(Job job) {
-        int size = jobList.size();
-        boolean found = false;
-
-        int i = 0;
-        for (; i < size; i++) {
-            ScheduledJobEntry se = (ScheduledJobEntry) jobList.get(i);
-            if (se.job == job) {
-                found = true;
-                break;
-            }
-        }
-        if (found) {
-            return i;
-        } else {
-            return -1;
-        }
+    public Scheduler(final int workers) {
+        super("x4juli-scheduler");
+        this.workerCount = Math.max(1, workers);
     }
 
+    // --------------------------------------------------------- Public Methods
+
     /**
      * Delete the given job. Returns true if the job could be deleted, and false if the job could
      * not be found or if the Scheduler is about to shutdown in which case deletions are not
-     * permitted.
-     */
-    public synchronized boolean delete(Job job) {
-        // if already shutdown in the process of shutdown, there is no
-        // need to remove Jobs as they will never be executed.
-        if (shutdown) {
-            return false;
-        }
-        int i = findIndex(job);
-        if (i != -1) {
-            ScheduledJobEntry se = (ScheduledJobEntry) jobList.remove(i);
-            if (se.job != job) { // this should never happen
-                new IllegalStateException("Internal programming error");
+     * permitted. A periodic job being executed is not scheduled again.
+     */
+    public boolean delete(final Job job) {
+        synchronized (this.lock) {
+            // if already shutdown in the process of shutdown, there is no
+            // need to remove Jobs as they will never be executed.
+            if (this.shutdown) {
+                return false;
             }
-            // if the job is the first on the list, then notify the scheduler thread
-            // to schedule a new job
-            if (i == 0) {
-                this.notify();
+            ScheduledJobEntry entry = (ScheduledJobEntry) this.entries.remove(job);
+            if (entry == null) {
+                return false;
+            }
+            entry.cancelled = true;
+            if (entry.index >= 0) {
+                removeAt(entry.index);
             }
             return true;
-        } else {
-            return false;
         }
     }
 
@@ -102,99 +133,146 @@ public class Scheduler extends Thread {
      * Schedule a {@link Job} for execution at system time given by the <code>desiredTime</code>
      * parameter.
      */
-    public synchronized void schedule(Job job, long desiredTime) {
-        schedule(new ScheduledJobEntry(job, desiredTime));
+    public void schedule(final Job job, final long desiredTime) {
+        schedule(job, desiredTime, 0);
     }
 
     /**
      * Schedule a {@link Job} for execution at system time given by the <code>desiredTime</code>
      * parameter.
-     * 
-     * The job will be rescheduled. It will execute with a frequency determined by the period
-     * parameter.
+     *
+     * The job will be rescheduled if the period is positive. It will execute with a frequency
+     * determined by the period parameter.
      */
-    public synchronized void schedule(Job job, long desiredTime, long period) {
-        schedule(new ScheduledJobEntry(job, desiredTime, period));
+    public void schedule(final Job job, final long desiredTime, final long period) {
+        synchronized (this.lock) {
+            // disallow new jobs after shutdown
+            if (this.shutdown) {
+                return;
+            }
+            ScheduledJobEntry replaced = (ScheduledJobEntry) this.entries.remove(job);
+            if (replaced != null) {
+                replaced.cancelled = true;
+                if (replaced.index >= 0) {
+                    removeAt(replaced.index);
+                }
+            }
+            ScheduledJobEntry entry = new ScheduledJobEntry(job, desiredTime, period);
+            this.entries.put(job, entry);
+            push(entry);
+        }
     }
 
     /**
      * Change the period of a job. The original job must exist for its period to be changed.
-     * 
+     *
      * The method returns true if the period could be changes, and false otherwise.
      */
-    public synchronized boolean changePeriod(Job job, long newPeriod) {
+    public boolean changePeriod(final Job job, final long newPeriod) {
         if (newPeriod <= 0) {
             throw new IllegalArgumentException("Period must be an integer langer than zero");
         }
-
-        int i = findIndex(job);
-        if (i == -1) {
-            return false;
-        } else {
-            ScheduledJobEntry se = (ScheduledJobEntry) jobList.get(i);
-            se.period = newPeriod;
+        synchronized (this.lock) {
+            ScheduledJobEntry entry = (ScheduledJobEntry) this.entries.get(job);
+            if (entry == null) {
+                return false;
+            }
+            entry.period = newPeriod;
             return true;
         }
     }
 
-    private synchronized void schedule(ScheduledJobEntry newSJE) {
-        // disallow new jobs after shutdown
-        if (shutdown) {
-            return;
+    /**
+     * Stops the scheduler and its workers. Jobs being executed finish, all
+     * other jobs are discarded.
+     */
+    public void shutdown() {
+        synchronized (this.lock) {
+            this.shutdown = true;
+            this.lock.notifyAll();
         }
-        int max = jobList.size();
-        long desiredExecutionTime = newSJE.desiredExecutionTime;
-
-        // find the index i such that timeInMillis < jobList[i]
-        int i = 0;
-        for (; i < max; i++) {
+        synchronized (this.ready) {
+            this.ready.notifyAll();
+        }
+    }
 
-            ScheduledJobEntry sje = (ScheduledJobEntry) jobList.get(i);
+    /**
+     * @return true once {@link #shutdown()} was called or the scheduler
+     *         thread ended, scheduled jobs are not executed anymore.
+     * @since 0.7
+     */
+    public boolean isShutdown() {
+        return this.shutdown;
+    }
 
-            if (desiredExecutionTime < sje.desiredExecutionTime) {
-                break;
-            }
-        }
-        jobList.add(i, newSJE);
-        // if the jobList was empty, then notify the scheduler thread
-        if (i == 0) {
-            this.notify();
+    /**
+     * @return the number of scheduled jobs, excluding those being executed.
+     * @since 0.7
+     */
+    public int size() {
+        synchronized (this.lock) {
+            return this.size;
         }
     }
 
-    public void shutdown() {
-        shutdown = true;
-    }
-
-    public synchronized void run() {
-        while (!shutdown) {
-            if (jobList.isEmpty()) {
-                linger();
-            } else {
-                ScheduledJobEntry sje = (ScheduledJobEntry) jobList.get(0);
-                long now = System.currentTimeMillis();
-                if (now >= sje.desiredExecutionTime) {
-                    executeInABox(sje.job);
-                    jobList.remove(0);
-                    if (sje.period > 0) {
-                        sje.desiredExecutionTime = now + sje.period;
-                        schedule(sje);
+    /**
+     * Dispatches due jobs to the workers until shutdown.
+     */
+    public void run() {
+        for (int i = 0; i < this.workerCount; i++) {
+            Thread worker = new Worker(getName() + "-worker-" + i);
+            worker.setDaemon(isDaemon());
+            worker.start();
+        }
+        try {
+            synchronized (this.lock) {
+                while (!this.shutdown) {
+                    if (this.size == 0) {
+                        this.lock.wait();
+                        continue;
+                    }
+                    ScheduledJobEntry first = this.heap[0];
+                    long now = System.currentTimeMillis();
+                    if (now < first.desiredExecutionTime) {
+                        this.lock.wait(first.desiredExecutionTime - now);
+                        continue;
+                    }
+                    removeAt(0);
+                    if (first.period <= 0) {
+                        this.entries.remove(first.job);
+                    }
+                    first.startTime = now;
+                    synchronized (this.ready) {
+                        this.ready.addLast(first);
+                        this.ready.notify();
                     }
-                } else {
-                    linger(sje.desiredExecutionTime - now);
                 }
             }
+        } catch (InterruptedException ie) {
+            // shut down
+        } finally {
+            synchronized (this.lock) {
+                this.shutdown = true;
+                // clear out the jobs to facilitate garbage collection
+                for (int i = 0; i < this.size; i++) {
+                    this.heap[i] = null;
+                }
+                this.size = 0;
+                this.entries.clear();
+            }
+            synchronized (this.ready) {
+                this.ready.clear();
+                this.ready.notifyAll();
+            }
         }
-        // clear out the job list to facilitate garbage collection
-        jobList.clear();
-        jobList = null;
-        System.out.println("Leaving scheduler run method");
     }
 
+    // -------------------------------------------------------- Private Methods
+
     /**
      * We do not want a single failure to affect the whole scheduler.
      */
-    void executeInABox(Job job) {
+    void executeInABox(final Job job) {
         try {
             job.execute();
         } catch (Exception e) {
@@ -203,19 +281,133 @@ public class Scheduler extends Thread {
         }
     }
 
-    void linger() {
-        try {
-            this.wait();
-        } catch (InterruptedException ie) {
-            shutdown = true;
+    /**
+     * Schedules a periodic entry again after its execution, unless it was
+     * deleted or replaced meanwhile.
+     */
+    private void reschedule(final ScheduledJobEntry entry) {
+        synchronized (this.lock) {
+            if (this.shutdown || entry.cancelled || entry.period <= 0
+                    || this.entries.get(entry.job) != entry) {
+                return;
+            }
+            entry.desiredExecutionTime = entry.startTime + entry.period;
+            push(entry);
         }
     }
 
-    void linger(long timeToLinger) {
-        try {
-            this.wait(timeToLinger);
-        } catch (InterruptedException ie) {
-            shutdown = true;
+    /**
+     * Adds the entry to the heap, lock held.
+     */
+    private void push(final ScheduledJobEntry entry) {
+        if (this.size == this.heap.length) {
+            ScheduledJobEntry[] grown = new ScheduledJobEntry[this.size * 2];
+            System.arraycopy(this.heap, 0, grown, 0, this.size);
+            this.heap = grown;
+        }
+        entry.sequence = this.sequence++;
+        entry.index = this.size;
+        this.heap[this.size++] = entry;
+        siftUp(entry.index);
+        if (entry.index == 0) {
+            // a new earliest job, the scheduler thread has to wait less
+            this.lock.notifyAll();
+        }
+    }
+
+    /**
+     * Removes the entry at <code>index</code> from the heap, lock held.
+     */
+    private void removeAt(final int index) {
+        ScheduledJobEntry removed = this.heap[index];
+        removed.index = -1;
+        this.size--;
+        if (index == this.size) {
+            this.heap[index] = null;
+            return;
+        }
+        ScheduledJobEntry last = this.heap[this.size];
+        this.heap[this.size] = null;
+        this.heap[index] = last;
+        last.index = index;
+        siftDown(index);
+        if (last.index == index) {
+            siftUp(index);
+        }
+    }
+
+    private void siftUp(final int start) {
+        int i = start;
+        ScheduledJobEntry entry = this.heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!entry.before(this.heap[parent])) {
+                break;
+            }
+            move(parent, i);
+            i = parent;
+        }
+        this.heap[i] = entry;
+        entry.index = i;
+    }
+
+    private void siftDown(final int start) {
+        int i = start;
+        ScheduledJobEntry entry = this.heap[i];
+        int half = this.size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < this.size && this.heap[right].before(this.heap[child])) {
+                child = right;
+            }
+            if (!this.heap[child].before(entry)) {
+                break;
+            }
+            move(child, i);
+            i = child;
+        }
+        this.heap[i] = entry;
+        entry.index = i;
+    }
+
+    private void move(final int from, final int to) {
+        this.heap[to] = this.heap[from];
+        this.heap[to].index = to;
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Executes the due jobs.
+     */
+    private final class Worker extends Thread {
+
+        Worker(final String name) {
+            super(name);
+        }
+
+        public void run() {
+            while (true) {
+                ScheduledJobEntry entry;
+                synchronized (Scheduler.this.ready) {
+                    while (Scheduler.this.ready.isEmpty() && !Scheduler.this.shutdown) {
+                        try {
+                            Scheduler.this.ready.wait();
+                        } catch (InterruptedException ie) {
+                            return;
+                        }
+                    }
+                    if (Scheduler.this.ready.isEmpty()) {
+                        return;
+                    }
+                    entry = (ScheduledJobEntry) Scheduler.this.ready.removeFirst();
+                }
+                if (!entry.cancelled) {
+                    executeInABox(entry.job);
+                    reschedule(entry);
+                }
+            }
         }
     }
 }
@@ -223,10 +415,27 @@ public class Scheduler extends Thread {
 class ScheduledJobEntry {
     long desiredExecutionTime;
 
-    Job job;
+    final Job job;
 
     long period = 0;
 
+    /**
+     * Order of scheduling, breaks ties of the execution time.
+     */
+    long sequence;
+
+    /**
+     * Position in the heap, -1 if not scheduled.
+     */
+    int index = -1;
+
+    /**
+     * Time of the last dispatch.
+     */
+    long startTime;
+
+    volatile boolean cancelled = false;
+
     ScheduledJobEntry(Job job, long desiredTime) {
         this(job, desiredTime, 0);
     }
@@ -237,6 +446,16 @@ class ScheduledJobEntry {
         this.period = period;
     }
 
+    /**
+     * @return true if this entry is due before <code>other</code>.
+     */
+    boolean before(ScheduledJobEntry other) {
+        if (this.desiredExecutionTime != other.desiredExecutionTime) {
+            return this.desiredExecutionTime < other.desiredExecutionTime;
+        }
+        return this.sequence < other.sequence;
+    }
+
 }
 
 // EOF Scheduler.java
@@ -24,6 +24,7 @@ import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.LogRecord;
 
+import org.x4juli.global.Clock;
 import org.x4juli.global.context.ContextFactory;
 import org.x4juli.global.spi.location.LocationInfo;
 
@@ -38,13 +39,18 @@ import org.x4juli.global.spi.location.LocationInfo;
 public abstract class AbstractExtendedLogRecord extends LogRecord implements ExtendedLogRecord {
 
     // -------------------------------------------------------------- Variables
-    private static final long START_TIME = System.currentTimeMillis();
+    private static final long START_TIME = Clock.currentTimeMillis();
 
     /**
      * Represents the last formatted message.
      */
     protected String cachedFormattedMessage = null;
 
+    /**
+     * The message is a SLF4J template.
+     */
+    private boolean slf4jFormat = false;
+
     /**
      * This variable contains information about this event's throwable.
      */
@@ -72,9 +78,11 @@ public abstract class AbstractExtendedLogRecord extends LogRecord implements Ext
      */
     private boolean ndcLookupRequired = true;
 
-    private final String threadName;
-
-    private final int threadContextClassloaderId;
+    /**
+     * Name and context classloader of the creating thread, shared with the
+     * other records of that thread.
+     */
+    private final ThreadMetadata threadMetadata;
 
     /**
      * <p>
@@ -91,35 +99,29 @@ public abstract class AbstractExtendedLogRecord extends LogRecord implements Ext
      */
     private Map properties;
 
+    /**
+     * <code>true</code> while {@link #properties} is the shared MDC context,
+     * which must be copied before setting a property.
+     */
+    private boolean sharedProperties;
+
     // ----------------------------------------------------------- Constructors
 
     /**
-     * Constructs a new ExtendedLogRecord.
+     * Constructs a new ExtendedLogRecord. The time is taken from the
+     * {@link Clock} in use. The super constructor has read the system time
+     * already, a clock which is not the system time replaces it.
      * 
      * @param level to log.
      * @param msg to format and log.
      */
     public AbstractExtendedLogRecord(final Level level, final String msg) {
         super(level, msg);
-        String tempThreadname = null;
-        try {
-            tempThreadname = Thread.currentThread().getName();
-        } catch (Exception e) {
-            tempThreadname = String.valueOf(getThreadID());
-        }
-        this.threadName = tempThreadname;
-
-        int tempId = 0;
-        try {
-            ClassLoader cl = Thread.currentThread().getContextClassLoader();
-            if (cl == null) {
-                cl = ClassLoader.getSystemClassLoader();
-            }
-            tempId = cl.hashCode();
-        } catch (Exception e) {
-            tempId = -1;
+        final Clock clock = Clock.getClock();
+        if (!clock.isSystemTime()) {
+            setMillis(clock.millis());
         }
-        this.threadContextClassloaderId = tempId;
+        this.threadMetadata = ThreadMetadata.current();
     }
 
     // --------------------------------------------------------- Public Methods
@@ -151,6 +153,15 @@ public abstract class AbstractExtendedLogRecord extends LogRecord implements Ext
         return this.locationInfo;
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * @since 0.7
+     */
+    public void setLocationInformation(final LocationInfo locationInfo) {
+        this.locationInfo = locationInfo;
+    }
+
     /**
      * {@inheritDoc}
      * 
@@ -207,6 +218,24 @@ public abstract class AbstractExtendedLogRecord extends LogRecord implements Ext
         return this.cachedFormattedMessage;
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * @since 0.7
+     */
+    public void setSlf4jFormat(final boolean slf4jFormat) {
+        this.slf4jFormat = slf4jFormat;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @since 0.7
+     */
+    public boolean isSlf4jFormat() {
+        return this.slf4jFormat;
+    }
+
     /**
      * {@inheritDoc}
      * 
@@ -257,7 +286,11 @@ public abstract class AbstractExtendedLogRecord extends LogRecord implements Ext
      * @since 0.7
      */
     public String getThreadName() {
-        return this.threadName;
+        final String threadName = this.threadMetadata.getName();
+        if (threadName == null) {
+            return String.valueOf(getThreadID());
+        }
+        return threadName;
     }
 
     /**
@@ -299,6 +332,7 @@ public abstract class AbstractExtendedLogRecord extends LogRecord implements Ext
      */
     public void setProperties(final Hashtable props) {
         this.properties = props;
+        this.sharedProperties = false;
     }
 
     /**
@@ -308,9 +342,13 @@ public abstract class AbstractExtendedLogRecord extends LogRecord implements Ext
      */
     public void setProperty(String key, String value) {
         if (properties == null) {
-            // create a copy of MDC and repository properties
             initializeProperties();
         }
+        if (sharedProperties) {
+            // copy on first write, the MDC context is immutable
+            properties = new TreeMap(properties);
+            sharedProperties = false;
+        }
 
         if (value != null) {
             properties.put(key, value);
@@ -326,11 +364,9 @@ public abstract class AbstractExtendedLogRecord extends LogRecord implements Ext
      */
     public void initializeProperties() {
         if (properties == null) {
-            properties = new TreeMap();
             Map mdcMap = ContextFactory.getMappedDiagnosticContext().getContext();
-            if (mdcMap != null) {
-                properties.putAll(mdcMap);
-            }
+            properties = (mdcMap != null) ? mdcMap : Collections.EMPTY_MAP;
+            sharedProperties = true;
         }
     }
 
@@ -350,7 +386,25 @@ public abstract class AbstractExtendedLogRecord extends LogRecord implements Ext
      * @since 0.7
      */
     public int getClassloaderId() {
-        return this.threadContextClassloaderId;
+        return this.threadMetadata.getClassLoaderId();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @since 0.7
+     */
+    public String getClassloaderIdentifier() {
+        return this.threadMetadata.getClassLoaderIdentifier();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @since 0.7
+     */
+    public ThreadMetadata getThreadMetadata() {
+        return this.threadMetadata;
     }
 
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.global.spi;
+
+/**
+ * An ExtendedFormatter which appends its output to a buffer supplied by the
+ * caller instead of returning a new String. Handlers own the buffer and
+ * reuse it for every record, thus formatting does not create garbage.
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public interface AppendingFormatter extends ExtendedFormatter {
+
+    /**
+     * Formats a given ExtendedLogRecord into the buffer.
+     *
+     * @param record containing the information to generate and beautify Output.
+     * @param toAppendTo buffer the output is appended to. The buffer is
+     *            confined to the calling thread.
+     * @since 0.7
+     */
+    void format(ExtendedLogRecord record, StringBuffer toAppendTo);
+
+}
+
+// EOF AppendingFormatter.java
@@ -21,9 +21,11 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.WeakReference;
 import java.net.URLClassLoader;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Iterator;
@@ -67,6 +69,14 @@ public abstract class ClassLoaderLogManager extends LogManager implements Logger
      */
     protected final Map classLoaderLoggers = new WeakHashMap();
 
+    private static final LogInfoCacheEntry[] EMPTY_LOG_INFO_CACHE = new LogInfoCacheEntry[0];
+
+    /**
+     * Copy on write cache of <code>classLoaderLoggers</code> for lookups without lock. Replaced
+     * with the lock of this manager held, the classloaders are only weakly referenced.
+     */
+    private volatile LogInfoCacheEntry[] logInfoCache = EMPTY_LOG_INFO_CACHE;
+
     protected boolean internalLogPossible = false;
 
     protected final String FQCNofLogManager = this.getClass().getName();
@@ -105,11 +115,15 @@ public abstract class ClassLoaderLogManager extends LogManager implements Logger
      * Get the logger associated with the specified name inside the classloader local configuration.
      * If this returns null, and the call originated for Logger.getLogger, a new logger with the
      * specified name will be instantiated and added using addLogger.
+     * <p>
+     * Existing loggers are found without any lock, only the configuration of a new classloader
+     * and the creation of a new logger are serialized.
+     * </p>
      * 
      * @param name The name of the logger to retrieve.
      * @return the logger corresponding to classloader and name.
      */
-    public synchronized java.util.logging.Logger getLogger(final String name) {
+    public java.util.logging.Logger getLogger(final String name) {
         ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
         LoggerRepository repository = getClassLoaderInfo(classLoader).repository;
         return (java.util.logging.Logger) repository.getLogger(name);
@@ -289,18 +303,27 @@ public abstract class ClassLoaderLogManager extends LogManager implements Logger
         if (clToFind == null) {
             clToFind = ClassLoader.getSystemClassLoader();
         }
-        ClassLoaderLogInfo info = (ClassLoaderLogInfo) this.classLoaderLoggers.get(clToFind);
-        if (info == null) {
-            getMyLogger().log(Level.INFO,
-                    "Need to configure ClassLoaderLogInfo for[" + clToFind.hashCode() + "]");
-            final ClassLoader classLoaderParam = clToFind;
-            AccessController.doPrivileged(new PrivilegedAction() {
-                public Object run() {
-                    readConfiguration(classLoaderParam);
-                    return null;
-                }
-            });
+        ClassLoaderLogInfo info = lookupLogInfoCache(clToFind);
+        if (info != null) {
+            return info;
+        }
+        synchronized (this) {
             info = (ClassLoaderLogInfo) this.classLoaderLoggers.get(clToFind);
+            if (info == null) {
+                getMyLogger().log(Level.INFO,
+                        "Need to configure ClassLoaderLogInfo for[" + clToFind.hashCode() + "]");
+                final ClassLoader classLoaderParam = clToFind;
+                AccessController.doPrivileged(new PrivilegedAction() {
+                    public Object run() {
+                        readConfiguration(classLoaderParam);
+                        return null;
+                    }
+                });
+                info = (ClassLoaderLogInfo) this.classLoaderLoggers.get(clToFind);
+            }
+            if (info != null) {
+                addLogInfoCache(clToFind, info);
+            }
         }
         return info;
     }
@@ -357,7 +380,10 @@ public abstract class ClassLoaderLogManager extends LogManager implements Logger
         }
 
         ClassLoaderLogInfo info = new ClassLoaderLogInfo(repository);
-        this.classLoaderLoggers.put(classLoader, info);
+        synchronized (this) {
+            this.classLoaderLoggers.put(classLoader, info);
+            this.logInfoCache = EMPTY_LOG_INFO_CACHE;
+        }
         if (enableSystemLog) {
             this.internalLogPossible = true;
         }
@@ -415,6 +441,8 @@ public abstract class ClassLoaderLogManager extends LogManager implements Logger
             parentRepository = getClassLoaderInfo(parent).repository;
         }
         childRoot.setParent((Logger) parentRepository.getRootLogger());
+        parentRepository.addLoggerEventListener(new RootLevelListener(parentRepository,
+                childRoot));
     }
 
     /**
@@ -589,7 +617,7 @@ public abstract class ClassLoaderLogManager extends LogManager implements Logger
      * @param classLoader to check.
      * @return true if there is an object in the map (not null).
      */
-    protected boolean existsLogInfo(final ClassLoader classLoader) {
+    protected synchronized boolean existsLogInfo(final ClassLoader classLoader) {
         if (this.classLoaderLoggers.get(classLoader) != null) {
             return true;
         }
@@ -657,6 +685,43 @@ public abstract class ClassLoaderLogManager extends LogManager implements Logger
         return this.myLogger;
     }
 
+    /**
+     * Lookup in the cache, without lock.
+     *
+     * @param classLoader to find, not null.
+     * @return the cached info or null.
+     */
+    private ClassLoaderLogInfo lookupLogInfoCache(final ClassLoader classLoader) {
+        final LogInfoCacheEntry[] cache = this.logInfoCache;
+        for (int i = 0; i < cache.length; i++) {
+            if (cache[i].classLoader.get() == classLoader) {
+                return cache[i].info;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replaces the cache by a copy containing the given info. Entries of collected classloaders
+     * are dropped. Has to be called with the lock of this manager held.
+     *
+     * @param classLoader the key, not null.
+     * @param info to cache.
+     */
+    private void addLogInfoCache(final ClassLoader classLoader, final ClassLoaderLogInfo info) {
+        final LogInfoCacheEntry[] cache = this.logInfoCache;
+        ArrayList entries = new ArrayList(cache.length + 1);
+        entries.add(new LogInfoCacheEntry(classLoader, info));
+        for (int i = 0; i < cache.length; i++) {
+            Object current = cache[i].classLoader.get();
+            if (current != null && current != classLoader) {
+                entries.add(cache[i]);
+            }
+        }
+        this.logInfoCache = (LogInfoCacheEntry[]) entries
+                .toArray(new LogInfoCacheEntry[entries.size()]);
+    }
+
     private static boolean runonce = false;
 
     private static void printClassLoaderHierarchy(final ClassLoader classLoader) {
@@ -736,6 +801,67 @@ public abstract class ClassLoaderLogManager extends LogManager implements Logger
 
     }
 
+    /**
+     * Forwards level changes of a parent root logger to the repository of a child root logger,
+     * which inherits the level across the repository boundary. The child is only weakly
+     * referenced, the listener removes itself once the child is gone.
+     *
+     * @since 0.7
+     */
+    private static final class RootLevelListener implements LoggerEventListener {
+
+        private final LoggerRepository parentRepository;
+
+        private final WeakReference childRoot;
+
+        RootLevelListener(final LoggerRepository parentRepository, final ExtendedLogger childRoot) {
+            this.parentRepository = parentRepository;
+            this.childRoot = new WeakReference(childRoot);
+        }
+
+        public void appenderAddedEvent(final ExtendedLogger logger, final ExtendedHandler handler) {
+            // Not of interest.
+        }
+
+        public void appenderRemovedEvent(final ExtendedLogger logger, final ExtendedHandler handler) {
+            // Not of interest.
+        }
+
+        public void levelChangedEvent(final ExtendedLogger logger) {
+            ExtendedLogger child = (ExtendedLogger) this.childRoot.get();
+            if (child == null) {
+                this.parentRepository.removeLoggerEventListener(this);
+                return;
+            }
+            if (logger != this.parentRepository.getRootLogger()) {
+                return;
+            }
+            LoggerRepository childRepository = child.getLoggerRepository();
+            if (childRepository == null) {
+                child.invalidateEffectiveLevel();
+            } else {
+                childRepository.fireLevelChangedEvent(child);
+            }
+        }
+    }
+
+    /**
+     * Immutable entry of the lock free classloader cache.
+     *
+     * @since 0.7
+     */
+    private static final class LogInfoCacheEntry {
+
+        final WeakReference classLoader;
+
+        final ClassLoaderLogInfo info;
+
+        LogInfoCacheEntry(final ClassLoader classLoader, final ClassLoaderLogInfo info) {
+            this.classLoader = new WeakReference(classLoader);
+            this.info = info;
+        }
+    }
+
     /**
      * A StreamConfiguratorPair puts together a InputStream with the config file and a corresponding
      * Configurator to use.
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.global.spi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringTokenizer;
+
+/**
+ * Renders a throwable with less lines than
+ * <code>Throwable.printStackTrace()</code>:
+ * <ul>
+ * <li>Frames a cause shares with the throwable printed before it are replaced
+ * by "... N frames in common with previous".</li>
+ * <li>Two or more consecutive frames of the collapsed packages, e.g.
+ * reflection or the servlet container, are replaced by one summary line.</li>
+ * <li>At most <code>depth</code> lines are printed per throwable, the rest is
+ * replaced by "... N more".</li>
+ * </ul>
+ * Instances are immutable and may be shared between threads. Renderers with
+ * equal options share the rendered lines of equal throwables, see
+ * {@link ThrowableInformation}.
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public final class CompactTraceRenderer {
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * Default maximum of frame lines per throwable.
+     */
+    public static final int DEFAULT_DEPTH = 32;
+
+    /**
+     * Packages collapsed by default: reflection and common servlet containers.
+     */
+    public static final String DEFAULT_PACKAGES = "sun.reflect,java.lang.reflect,"
+            + "jdk.internal.reflect,org.apache.catalina,org.apache.coyote,"
+            + "org.apache.tomcat,org.mortbay";
+
+    /**
+     * Causes beyond this number are not rendered.
+     */
+    private static final int MAX_CHAIN = 32;
+
+    private final int depth;
+
+    /**
+     * Collapsed packages with a trailing dot.
+     */
+    private final String[] prefixes;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * @param depth maximum of frame lines per throwable, unlimited if not
+     *            positive.
+     * @param packages comma separated package names to collapse, none if null
+     *            or empty.
+     * @since 0.7
+     */
+    public CompactTraceRenderer(final int depth, final String packages) {
+        this.depth = depth;
+        List list = new ArrayList();
+        if (packages != null) {
+            StringTokenizer tokens = new StringTokenizer(packages, ", ");
+            while (tokens.hasMoreTokens()) {
+                list.add(tokens.nextToken() + ".");
+            }
+        }
+        this.prefixes = (String[]) list.toArray(new String[list.size()]);
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Creates a renderer from pattern or configuration options.
+     *
+     * @param depth maximum of frame lines per throwable, {@link #DEFAULT_DEPTH}
+     *            if null or not a number.
+     * @param packages comma separated package names, {@link #DEFAULT_PACKAGES}
+     *            if null.
+     * @return the renderer.
+     * @since 0.7
+     */
+    public static CompactTraceRenderer newInstance(final String depth, final String packages) {
+        int maxDepth = DEFAULT_DEPTH;
+        if (depth != null) {
+            try {
+                maxDepth = Integer.parseInt(depth.trim());
+            } catch (NumberFormatException e) {
+                maxDepth = DEFAULT_DEPTH;
+            }
+        }
+        return new CompactTraceRenderer(maxDepth, packages == null ? DEFAULT_PACKAGES : packages);
+    }
+
+    /**
+     * Renders the throwable and its causes.
+     *
+     * @param throwable to render.
+     * @return the lines, the first line is the throwable itself. The array may
+     *         be shared and must not be modified.
+     * @since 0.7
+     */
+    public String[] render(final Throwable throwable) {
+        return ThrowableInformation.getCompactRep(throwable, this);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompactTraceRenderer)) {
+            return false;
+        }
+        CompactTraceRenderer other = (CompactTraceRenderer) o;
+        return this.depth == other.depth && Arrays.equals(this.prefixes, other.prefixes);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public int hashCode() {
+        int h = this.depth;
+        for (int i = 0; i < this.prefixes.length; i++) {
+            h = 31 * h + this.prefixes[i].hashCode();
+        }
+        return h;
+    }
+
+    // ------------------------------------------------------ Package Methods
+
+    /**
+     * Renders the throwable and its causes without looking up the cache.
+     *
+     * @param throwable to render.
+     * @return the lines, the first line is the throwable itself.
+     */
+    String[] renderLines(final Throwable throwable) {
+        List lines = new ArrayList();
+        List rendered = new ArrayList();
+        StackTraceElement[] enclosing = null;
+        Throwable current = throwable;
+        while (current != null && rendered.size() < MAX_CHAIN && !containsSame(rendered, current)) {
+            rendered.add(current);
+            StackTraceElement[] trace = current.getStackTrace();
+            lines.add(enclosing == null ? String.valueOf(current) : "Caused by: " + current);
+            appendFrames(trace, enclosing, lines);
+            enclosing = trace;
+            Throwable next = current.getCause();
+            if (next == null) {
+                next = ThrowableInformation.getNestedThrowable(current);
+            }
+            current = next;
+        }
+        return (String[]) lines.toArray(new String[lines.size()]);
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private void appendFrames(final StackTraceElement[] trace,
+            final StackTraceElement[] enclosing, final List lines) {
+        int m = trace.length - 1;
+        if (enclosing != null) {
+            int n = enclosing.length - 1;
+            while (m >= 0 && n >= 0 && trace[m].equals(enclosing[n])) {
+                m--;
+                n--;
+            }
+        }
+        final int unique = m + 1;
+        int printed = 0;
+        int i = 0;
+        while (i < unique) {
+            if (this.depth > 0 && printed >= this.depth) {
+                lines.add("\t... " + (unique - i) + " more");
+                break;
+            }
+            int run = collapsedRun(trace, i, unique);
+            if (run > 1) {
+                lines.add("\t... " + run + " frames in " + packagesOf(trace, i, i + run));
+                i += run;
+            } else {
+                lines.add("\tat " + trace[i]);
+                i++;
+            }
+            printed++;
+        }
+        if (unique < trace.length) {
+            lines.add("\t... " + (trace.length - unique) + " frames in common with previous");
+        }
+    }
+
+    private int collapsedRun(final StackTraceElement[] trace, final int start, final int end) {
+        int i = start;
+        while (i < end && collapsedPrefix(trace[i]) != null) {
+            i++;
+        }
+        return i - start;
+    }
+
+    private String collapsedPrefix(final StackTraceElement frame) {
+        final String className = frame.getClassName();
+        for (int i = 0; i < this.prefixes.length; i++) {
+            if (className.startsWith(this.prefixes[i])) {
+                return this.prefixes[i];
+            }
+        }
+        return null;
+    }
+
+    private String packagesOf(final StackTraceElement[] trace, final int start, final int end) {
+        List packages = new ArrayList();
+        for (int i = start; i < end; i++) {
+            String prefix = collapsedPrefix(trace[i]);
+            prefix = prefix.substring(0, prefix.length() - 1);
+            if (!packages.contains(prefix)) {
+                packages.add(prefix);
+            }
+        }
+        StringBuffer buf = new StringBuffer();
+        for (int i = 0; i < packages.size(); i++) {
+            if (i > 0) {
+                buf.append(", ");
+            }
+            buf.append(packages.get(i));
+        }
+        return buf.toString();
+    }
+
+    private static boolean containsSame(final List list, final Object o) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == o) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
+
+// EOF CompactTraceRenderer.java
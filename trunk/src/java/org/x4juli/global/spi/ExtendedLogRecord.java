@@ -48,6 +48,16 @@ public interface ExtendedLogRecord extends LogRecord, java.io.Serializable {
      */
     LocationInfo getLocationInformation();
 
+    /**
+     * Sets the location of the caller, captured at the log call. A record
+     * carrying a location does not determine it lazily anymore, which would
+     * be wrong on any thread but the caller's.
+     * 
+     * @param locationInfo the location of the caller.
+     * @since 0.7
+     */
+    void setLocationInformation(LocationInfo locationInfo);
+
     /**
      * Provide the time since start of logging.
      * 
@@ -72,6 +82,25 @@ public interface ExtendedLogRecord extends LogRecord, java.io.Serializable {
      */
     String getFormattedMessage();
 
+    /**
+     * Marks the message as SLF4J template with <code>{}</code> anchors. The
+     * parameters are substituted when the message is formatted, not with
+     * <code>java.text.MessageFormat</code>.
+     * 
+     * @param slf4jFormat true for a SLF4J template.
+     * @since 0.7
+     */
+    void setSlf4jFormat(boolean slf4jFormat);
+
+    /**
+     * Returns whether the message is a SLF4J template.
+     * 
+     * @return true if the parameters are substituted into <code>{}</code>
+     *         anchors.
+     * @since 0.7
+     */
+    boolean isSlf4jFormat();
+
     /**
      * Returns the actual FQCN of the (wrapper) class which submitted the logrecord.
      * 
@@ -154,9 +183,10 @@ public interface ExtendedLogRecord extends LogRecord, java.io.Serializable {
     public void setProperty(String key, String value);
     
     /**
-     * If the properties field is null, this method creates a new properties map
-     * containing a copy of MDC context. If properties is non-null,
-     * this method does nothing.
+     * If the properties field is null, this method takes the current MDC
+     * context as properties. The context is immutable and shared, it is
+     * copied only when a property of this record is set. If properties is
+     * non-null, this method does nothing.
      *
      * @since 0.7
      */
@@ -183,4 +213,22 @@ public interface ExtendedLogRecord extends LogRecord, java.io.Serializable {
      * the SystemClassloader.
      */
     public int getClassloaderId();
+
+    /**
+     * Returns the identifier which the {@link TCCLMapper} maps to the
+     * ThreadContextClassloader of this record.
+     * 
+     * @return the identifier, null if not mapped.
+     * @since 0.7
+     */
+    public String getClassloaderIdentifier();
+
+    /**
+     * Returns name and classloader of the thread which created this record.
+     * The instance is shared by the records of that thread.
+     * 
+     * @return the thread metadata.
+     * @since 0.7
+     */
+    public ThreadMetadata getThreadMetadata();
 }
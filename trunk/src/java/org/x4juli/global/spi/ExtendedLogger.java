@@ -49,6 +49,14 @@ public interface ExtendedLogger extends Logger, LevelAttachable, HandlerAttachab
      */
     public LoggerRepository getLoggerRepository();
 
+    /**
+     * Drops the cached effective level. Called by the {@link LoggerRepository} whenever the level
+     * of this logger or of one of its ancestors changed.
+     * 
+     * @since 0.7
+     */
+    public void invalidateEffectiveLevel();
+
 }
 
 // EOF ExtendedLogger.java
@@ -20,6 +20,8 @@ import java.util.Map;
 
 import org.x4juli.global.plugins.PluginRegistry;
 import org.x4juli.global.scheduler.Scheduler;
+import org.x4juli.global.spi.location.LocationCaptureStats;
+import org.x4juli.handlers.rolling.helper.RolloverExecutor;
 import org.x4juli.logger.DefaultJDKLoggerFactory;
 import org.x4juli.logger.NOPLogger;
 
@@ -62,6 +64,11 @@ public class Hierarchy implements LoggerRepository {
 
     Hashtable ht;
 
+    /**
+     * Lock free view on the loggers of <code>ht</code>, written with the lock of ht held.
+     */
+    private final LoggerCache loggerCache = new LoggerCache();
+
     ExtendedLogger root;
 
     PluginRegistry pluginRegistry;
@@ -70,6 +77,10 @@ public class Hierarchy implements LoggerRepository {
 
     private Scheduler scheduler;
 
+    private final LocationCaptureStats locationCaptureStats = new LocationCaptureStats();
+
+    private RolloverExecutor rolloverExecutor;
+
     // The repository can also be used as an object store for various objects used
     // by log4j components
     private Map objectMap;
@@ -200,6 +211,10 @@ public class Hierarchy implements LoggerRepository {
      * @since 0.7
      */
     public ExtendedLogger exists(final String loggername) {
+        ExtendedLogger logger = this.loggerCache.get(loggername);
+        if (logger != null) {
+            return logger;
+        }
         Object o = ht.get(new LoggerKey(loggername));
 
         if (o instanceof ExtendedLogger) {
@@ -241,6 +256,7 @@ public class Hierarchy implements LoggerRepository {
      * @since 0.7
      */
     public void fireConfigurationChangedEvent() {
+        invalidateEffectiveLevels();
         ArrayList list = copyListenerList(repositoryEventListeners);
         int size = list.size();
 
@@ -255,6 +271,7 @@ public class Hierarchy implements LoggerRepository {
      * @since 0.7
      */
     public void fireLevelChangedEvent(final ExtendedLogger logger) {
+        invalidateEffectiveLevels();
         ArrayList list = copyListenerList(loggerEventListeners);
         int size = list.size();
 
@@ -344,13 +361,15 @@ public class Hierarchy implements LoggerRepository {
      */
     public ExtendedLogger getLogger(final String loggername, final String resourceBundleName) {
         // System.out.println("getInstance("+name+") called.");
+        // Existing loggers are found without lock and without garbage.
+        ExtendedLogger logger = this.loggerCache.get(loggername);
+        if (logger != null) {
+            return logger;
+        }
         LoggerKey key = new LoggerKey(loggername);
 
-        // Synchronize to prevent write conflicts. Read conflicts (in
-        // getChainedLevel method) are possible only if variable
-        // assignments are non-atomic.
-        ExtendedLogger logger;
-
+        // Synchronize to prevent write conflicts. Only the creation of
+        // loggers and the linking with their parents is serialized.
         synchronized (ht) {
             Object o = ht.get(key);
 
@@ -363,6 +382,7 @@ public class Hierarchy implements LoggerRepository {
                 logger.setLoggerRepository(this, security);
                 ht.put(key, logger);
                 updateParents(logger);
+                this.loggerCache.put(key, logger);
                 return logger;
             } else if (o instanceof ExtendedLogger) {
                 // getMyLogger().finer(
@@ -376,6 +396,10 @@ public class Hierarchy implements LoggerRepository {
                 ht.put(key, logger);
                 updateChildren((LogNode) o, logger);
                 updateParents(logger);
+                if (logger.getLevel() != null) {
+                    invalidateEffectiveLevels();
+                }
+                this.loggerCache.put(key, logger);
 
                 return logger;
             } else {
@@ -410,6 +434,7 @@ public class Hierarchy implements LoggerRepository {
                 localLogger.setLoggerRepository(this, security);
                 ht.put(key, localLogger);
                 updateParents(localLogger);
+                this.loggerCache.put(key, localLogger);
                 return true;
             } else if (o instanceof ExtendedLogger) {
                 // Logger exists, will not be replaced.
@@ -419,6 +444,11 @@ public class Hierarchy implements LoggerRepository {
                 ht.put(key, localLogger);
                 updateChildren((LogNode) o, localLogger);
                 updateParents(localLogger);
+                if (localLogger.getLevel() != null) {
+                    // The children below the relinked ones inherit the new level.
+                    invalidateEffectiveLevels();
+                }
+                this.loggerCache.put(key, localLogger);
                 return true;
             } else {
                 // It should be impossible to arrive here
@@ -489,7 +519,8 @@ public class Hierarchy implements LoggerRepository {
      * 
      * @since 0.7
      */
-    public Scheduler getScheduler() {
+    public synchronized Scheduler getScheduler() {
+        // handlers call it from publish, see AbstractHandler
         if (scheduler == null) {
             scheduler = new Scheduler();
             scheduler.setDaemon(true);
@@ -498,6 +529,27 @@ public class Hierarchy implements LoggerRepository {
         return scheduler;
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * @since 0.7
+     */
+    public LocationCaptureStats getLocationCaptureStats() {
+        return this.locationCaptureStats;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @since 0.7
+     */
+    public synchronized RolloverExecutor getRolloverExecutor() {
+        if (this.rolloverExecutor == null) {
+            this.rolloverExecutor = new RolloverExecutor();
+        }
+        return this.rolloverExecutor;
+    }
+
     /**
      * {@inheritDoc}
      * 
@@ -613,6 +665,7 @@ public class Hierarchy implements LoggerRepository {
         }
 
         setInherited(false);
+        invalidateEffectiveLevels();
 
         // inform the listeners that the configuration has been reset
         ArrayList list = copyListenerList(repositoryEventListeners);
@@ -686,10 +739,18 @@ public class Hierarchy implements LoggerRepository {
      */
     private void shutdown(boolean doingReset) {
 
-        // stop this repo's scheduler if it has one
-        if (scheduler != null) {
-            scheduler.shutdown();
-            scheduler = null;
+        synchronized (this) {
+            // stop this repo's scheduler if it has one
+            if (scheduler != null) {
+                scheduler.shutdown();
+                scheduler = null;
+            }
+
+            // queued rollover actions still complete
+            if (this.rolloverExecutor != null) {
+                this.rolloverExecutor.shutdown();
+                this.rolloverExecutor = null;
+            }
         }
 
         // let listeners know about shutdown if this is
@@ -745,6 +806,23 @@ public class Hierarchy implements LoggerRepository {
         }
     }
 
+    /**
+     * Invalidates the cached effective level of all loggers. Level changes are rare, so all loggers
+     * are invalidated instead of searching the descendants.
+     */
+    private void invalidateEffectiveLevels() {
+        synchronized (ht) {
+            root.invalidateEffectiveLevel();
+            Enumeration elems = ht.elements();
+            while (elems.hasMoreElements()) {
+                Object o = elems.nextElement();
+                if (o instanceof ExtendedLogger) {
+                    ((ExtendedLogger) o).invalidateEffectiveLevel();
+                }
+            }
+        }
+    }
+
     private final void updateChildren(final LogNode pn, final ExtendedLogger logger) {
         // System.out.println("updateChildren called for " + logger.name);
         final int last = pn.size();
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.global.spi;
+
+/**
+ * A filter whose decision depends on the level of the record only. Filter
+ * chains precompute the decisions of such filters per level, see
+ * <code>org.x4juli.filter.FilterChain</code>. A change of the options of the
+ * filter takes effect when the chain is compiled again.
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public interface LevelOnlyFilter extends ExtendedFilter {
+
+    /**
+     * Returns the decision for records of the given level. It must be equal
+     * to {@link #decide(ExtendedLogRecord)} for all records of that level.
+     *
+     * @param levelValue the <code>intValue()</code> of the level.
+     * @return one of the <code>X4JULI_</code> decisions.
+     * @since 0.7
+     */
+    int decideLevel(int levelValue);
+
+}
+
+// EOF LevelOnlyFilter.java
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.global.spi;
+
+/**
+ * Read mostly hash table of the existing loggers of a {@link Hierarchy}, keyed
+ * by {@link LoggerKey}.
+ * <p>
+ * Lookups do not lock. Entries are immutable and prepended to their bucket,
+ * the table is published through a volatile field. A lookup racing with an
+ * insert either sees the complete entry or misses it, a miss is resolved by
+ * the caller on the synchronized creation path. Entries are never removed or
+ * replaced, loggers live as long as their repository.
+ * </p>
+ * <p>
+ * {@link #put(LoggerKey, ExtendedLogger)} has to be called with the lock of
+ * the owning repository held.
+ * </p>
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+final class LoggerCache {
+
+    // -------------------------------------------------------------- Variables
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private volatile Entry[] table = new Entry[INITIAL_CAPACITY];
+
+    /**
+     * Guarded by the lock of the owning repository.
+     */
+    private int size = 0;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Constructs an empty cache.
+     */
+    LoggerCache() {
+        super();
+    }
+
+    // ------------------------------------------------------ Package Methods
+
+    /**
+     * Looks up a logger without locking and without creating a key.
+     *
+     * @param loggername of the logger, not null.
+     * @return the logger or <code>null</code> if not (yet) visible.
+     */
+    ExtendedLogger get(final String loggername) {
+        final Entry[] tab = this.table;
+        final int hash = loggername.hashCode();
+        Entry e = tab[hash & (tab.length - 1)];
+        while (e != null) {
+            if (e.key.hashCache == hash && e.key.name.equals(loggername)) {
+                return e.logger;
+            }
+            e = e.next;
+        }
+        return null;
+    }
+
+    /**
+     * Adds a completely initialized logger. The caller holds the lock of the
+     * repository and guarantees the key is not yet contained.
+     *
+     * @param key of the logger.
+     * @param logger to add, its parent has to be set already.
+     */
+    void put(final LoggerKey key, final ExtendedLogger logger) {
+        Entry[] tab = this.table;
+        if (this.size + 1 > (tab.length >> 1) + (tab.length >> 2)) {
+            tab = resize(tab);
+        }
+        final int index = key.hashCache & (tab.length - 1);
+        tab[index] = new Entry(key, logger, tab[index]);
+        this.size++;
+        // Volatile write publishes the new entry to all following lookups.
+        this.table = tab;
+    }
+
+    /**
+     * @return the number of cached loggers.
+     */
+    int size() {
+        return this.size;
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Copies all entries into a table of double size. The old table stays
+     * untouched, lookups in progress still see consistent chains.
+     */
+    private static Entry[] resize(final Entry[] oldTable) {
+        final Entry[] newTable = new Entry[oldTable.length << 1];
+        final int mask = newTable.length - 1;
+        for (int i = 0; i < oldTable.length; i++) {
+            for (Entry e = oldTable[i]; e != null; e = e.next) {
+                int index = e.key.hashCache & mask;
+                newTable[index] = new Entry(e.key, e.logger, newTable[index]);
+            }
+        }
+        return newTable;
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Immutable bucket entry.
+     */
+    private static final class Entry {
+
+        final LoggerKey key;
+
+        final ExtendedLogger logger;
+
+        final Entry next;
+
+        Entry(final LoggerKey key, final ExtendedLogger logger, final Entry next) {
+            this.key = key;
+            this.logger = logger;
+            this.next = next;
+        }
+    }
+
+}
+
+// EOF LoggerCache.java
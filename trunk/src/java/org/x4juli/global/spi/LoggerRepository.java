@@ -22,6 +22,8 @@ import java.util.Map;
 
 import org.x4juli.global.plugins.PluginRegistry;
 import org.x4juli.global.scheduler.Scheduler;
+import org.x4juli.global.spi.location.LocationCaptureStats;
+import org.x4juli.handlers.rolling.helper.RolloverExecutor;
 
 /**
  * Missing documentation.
@@ -177,6 +179,7 @@ public interface LoggerRepository {
 
     /**
      * Requests that a level changed event be sent to any registered {@link LoggerEventListener}.
+     * Before, the cached effective levels of the affected loggers are invalidated.
      * 
      * @param logger The logger which changed levels.
      * @since 0.7
@@ -205,6 +208,22 @@ public interface LoggerRepository {
      */
     public Scheduler getScheduler();
 
+    /**
+     * Return the statistics of location captures done by the loggers of this
+     * LoggerRepository at the log call.
+     * 
+     * @since 0.7
+     */
+    public LocationCaptureStats getLocationCaptureStats();
+
+    /**
+     * Return the executor running the asynchronous rollover actions of the
+     * handlers of this LoggerRepository.
+     * 
+     * @since 0.7
+     */
+    public RolloverExecutor getRolloverExecutor();
+
     /**
      * Get the properties specific for this repository.
      * 
@@ -79,6 +79,8 @@ public interface MDC {
 
     /**
      * Get the current thread's MDC as a hashtable. This method is intended to be used internally.
+     * The returned hashtable may be immutable and shared, use a copy to modify it. Log records
+     * keep a reference to it, so an implementation must not modify it later on.
      * @return current MDC as hastable.
      * @since 0.7
      */
@@ -97,7 +97,7 @@ public interface NDC {
      * <p>
      * Internally a diagnostic context is represented as a stack. A given thread can supply the
      * stack (i.e. diagnostic context) to a child thread so that the child can inherit the parent
-     * thread's diagnostic context.
+     * thread's diagnostic context. The stack contains the messages, the outermost one first.
      * </p>
      *
      * <p>
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.global.spi;
+
+/**
+ * A filter which reports about the records it denied. A handler polls the
+ * summaries when a record passed its filters and publishes them before that
+ * record. While the filter is suppressing records, the handler also runs a job
+ * of the {@link org.x4juli.global.scheduler.Scheduler} of its repository at
+ * the time returned by {@link #summarizeDue()}, so records denied before a
+ * silence are reported, too.
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public interface SummarizingFilter extends ExtendedFilter {
+
+    /**
+     * Returns and removes the next pending summary.
+     *
+     * @return a record summarizing denied records, null if none is pending.
+     * @since 0.7
+     */
+    ExtendedLogRecord pollSummary();
+
+    /**
+     * Queues the summaries which are due without a following record.
+     *
+     * @return the time in milliseconds the next summary is due,
+     *         Long.MAX_VALUE if no denied records are pending.
+     * @since 0.7
+     */
+    long summarizeDue();
+
+    /**
+     * @return true if records were denied since the last call of
+     *         {@link #summarizeDue()}.
+     * @since 0.7
+     */
+    boolean isSuppressing();
+
+}
+
+// EOF SummarizingFilter.java
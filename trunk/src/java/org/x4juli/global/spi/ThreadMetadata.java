@@ -0,0 +1,159 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.global.spi;
+
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+
+import org.x4juli.global.context.ContextFactory;
+
+/**
+ * Name and context classloader of a thread as captured by log records. Each
+ * thread keeps its current instance, which all of its records share. A new
+ * instance is created only when the name or the context classloader of the
+ * thread changed since the last record.
+ *
+ * <p>
+ * The classloader is referenced weakly, so the cached instance of a pooled
+ * thread does not keep an undeployed classloader alive.
+ * </p>
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public final class ThreadMetadata implements Serializable {
+
+    // -------------------------------------------------------------- Variables
+
+    private static final long serialVersionUID = 6528043750843452191L;
+
+    private static final ThreadLocal CURRENT = new ThreadLocal();
+
+    /**
+     * Name of the thread, null if not accessible.
+     */
+    private final String name;
+
+    /**
+     * Hashcode of the context classloader, -1 if not accessible.
+     */
+    private final int classLoaderId;
+
+    private final transient WeakReference classLoader;
+
+    /**
+     * Identifier from the {@link TCCLMapper}, looked up when first requested.
+     */
+    private String classLoaderIdentifier;
+
+    // ----------------------------------------------------------- Constructors
+
+    private ThreadMetadata(final String name, final ClassLoader classLoader) {
+        this.name = name;
+        if (classLoader == null) {
+            this.classLoaderId = -1;
+            this.classLoader = null;
+        } else {
+            this.classLoaderId = classLoader.hashCode();
+            this.classLoader = new WeakReference(classLoader);
+        }
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Returns the metadata of the current thread. If the thread has no context
+     * classloader the system classloader is used.
+     *
+     * @return the cached instance if name and classloader are unchanged.
+     * @since 0.7
+     */
+    public static ThreadMetadata current() {
+        final Thread thread = Thread.currentThread();
+        String threadName = null;
+        try {
+            threadName = thread.getName();
+        } catch (Exception e) {
+            threadName = null;
+        }
+        ClassLoader cl = null;
+        try {
+            cl = thread.getContextClassLoader();
+            if (cl == null) {
+                cl = ClassLoader.getSystemClassLoader();
+            }
+        } catch (Exception e) {
+            cl = null;
+        }
+
+        ThreadMetadata metadata = (ThreadMetadata) CURRENT.get();
+        if (metadata == null || !metadata.matches(threadName, cl)) {
+            metadata = new ThreadMetadata(threadName, cl);
+            CURRENT.set(metadata);
+        }
+        return metadata;
+    }
+
+    /**
+     * @return the name of the thread, null if it was not accessible.
+     * @since 0.7
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * @return the hashcode of the context classloader, -1 if it was not
+     *         accessible.
+     * @since 0.7
+     */
+    public int getClassLoaderId() {
+        return this.classLoaderId;
+    }
+
+    /**
+     * Returns the identifier which the {@link TCCLMapper} maps to the
+     * classloader. The identifier is looked up again as long as it is
+     * unknown, the classloader may be registered after the first record.
+     *
+     * @return the identifier, null if not mapped.
+     * @since 0.7
+     */
+    public String getClassLoaderIdentifier() {
+        String identifier = this.classLoaderIdentifier;
+        if (identifier == null) {
+            identifier = ContextFactory.getThreadContextClassLoaderMapper().getIdentifier(
+                    this.classLoaderId);
+            this.classLoaderIdentifier = identifier;
+        }
+        return identifier;
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private boolean matches(final String threadName, final ClassLoader cl) {
+        if (this.name == null ? threadName != null : !this.name.equals(threadName)) {
+            return false;
+        }
+        if (this.classLoader == null) {
+            return cl == null;
+        }
+        return this.classLoader.get() == cl;
+    }
+
+}
+
+// EOF ThreadMetadata.java
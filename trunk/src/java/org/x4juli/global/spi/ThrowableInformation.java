@@ -18,8 +18,16 @@ package org.x4juli.global.spi;
 import java.io.PrintWriter;
 import java.io.Serializable;
 import java.io.Writer;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Vector;
+import java.util.WeakHashMap;
 
 import org.x4juli.global.helper.PlatformInfo;
 
@@ -33,6 +41,14 @@ import org.x4juli.global.helper.PlatformInfo;
  *
  * Note that ThrowableInformation does not store the throwable it represents.
  * <p>
+ * Identical throwables, equal in the string representation and the stack trace
+ * of each throwable in the cause chain, share one rendered array. The most
+ * recently rendered arrays are cached. The accessor of nested throwables
+ * (<code>getRootCause</code> etc.) is looked up once per class. The lines of
+ * a {@link CompactTraceRenderer} are cached the same way, per renderer
+ * options.
+ * </p>
+ * <p>
  * Logging API as a whole was originally done for <a
  * href="http://logging.apache.org/log4j/">Apache log4j</a>. <b>Juli</b> is a
  * port of main parts of that to complete the <a
@@ -56,13 +72,85 @@ import org.x4juli.global.helper.PlatformInfo;
 public class ThrowableInformation implements Serializable {
     private static final long serialVersionUID = -4748765566864322735L;
 
+    /**
+     * Maximum number of rendered throwables kept.
+     */
+    private static final int MAX_RENDERED = 128;
+
+    /**
+     * Throwables with a longer cause chain are not cached.
+     */
+    private static final int MAX_CHAIN = 32;
+
+    /**
+     * Cached for classes without cause accessor.
+     */
+    private static final Object NO_ACCESSOR = new Object();
+
+    /**
+     * Separates the throwables found by a cause accessor in a key.
+     */
+    private static final String ROOT_CAUSE = "Root cause follows.";
+
+    /**
+     * {@link TraceKey} to rendered <code>String[]</code>, least recently
+     * used first. Guarded by itself.
+     */
+    private static final Map RENDERED = new LinkedHashMap(MAX_RENDERED, 0.75f, true) {
+        private static final long serialVersionUID = 2412873394506911236L;
+
+        protected boolean removeEldestEntry(final Map.Entry eldest) {
+            return size() > MAX_RENDERED;
+        }
+    };
+
+    /**
+     * List of a {@link TraceKey} and a {@link CompactTraceRenderer} to the
+     * compact rendered <code>String[]</code>, least recently used first.
+     * Guarded by itself.
+     */
+    private static final Map COMPACT = new LinkedHashMap(16, 0.75f, true) {
+        private static final long serialVersionUID = -6020410962245861093L;
+
+        protected boolean removeEldestEntry(final Map.Entry eldest) {
+            return size() > MAX_RENDERED;
+        }
+    };
+
+    /**
+     * Class to a soft reference of its cause accessor <code>Method</code> or
+     * {@link #NO_ACCESSOR}. Classes are weak keys and the method, which
+     * references its declaring class, is held softly, so the cache does not
+     * keep the class loader of a redeployed application. Guarded by itself.
+     */
+    private static final Map ACCESSORS = new WeakHashMap();
+
     // private transient Throwable throwable;
+    /**
+     * The rendered lines, possibly shared with other instances. Never
+     * modified.
+     */
     private String[] rep;
 
     public ThrowableInformation(Throwable throwable) {
-        VectorWriter vw = new VectorWriter();
-        extractStringRep(throwable, vw);
-        this.rep = vw.toStringArray();
+        TraceKey key = TraceKey.create(throwable);
+        String[] rendered = null;
+        if (key != null) {
+            synchronized (RENDERED) {
+                rendered = (String[]) RENDERED.get(key);
+            }
+        }
+        if (rendered == null) {
+            VectorWriter vw = new VectorWriter();
+            extractStringRep(throwable, vw);
+            rendered = vw.toStringArray();
+            if (key != null) {
+                synchronized (RENDERED) {
+                    RENDERED.put(key, rendered);
+                }
+            }
+        }
+        this.rep = rendered;
     }
 
     public ThrowableInformation(String[] rep) {
@@ -83,35 +171,10 @@ public class ThrowableInformation implements Serializable {
         // method was modified in JDK 1.4 to handle the nested throwable
         // returned
         // by Throwable.getCause.
-        try {
-            Class tC = t.getClass();
-            Method[] mA = tC.getMethods();
-            Method nextThrowableMethod = null;
-            for (int i = 0; i < mA.length; i++) {
-                if (("getCause".equals(mA[i].getName()) && !PlatformInfo.isJDK14OrLater())
-                        || "getRootCause".equals(mA[i].getName())
-                        || "getNextException".equals(mA[i].getName())
-                        || "getException".equals(mA[i].getName())) {
-                    // check param types
-                    Class[] params = mA[i].getParameterTypes();
-                    if ((params == null) || (params.length == 0)) {
-                        // just found the getter for the nested throwable
-                        nextThrowableMethod = mA[i];
-                        break; // no need to search further
-                    }
-                }
-            }
-
-            if (nextThrowableMethod != null) {
-                // get the nested throwable and log it
-                Throwable nextT = (Throwable) nextThrowableMethod.invoke(t, new Object[0]);
-                if (nextT != null) {
-                    vw.print("Root cause follows.");
-                    extractStringRep(nextT, vw);
-                }
-            }
-        } catch (Exception e) {
-            // do nothing
+        Throwable nextT = getNestedThrowable(t);
+        if (nextT != null) {
+            vw.print(ROOT_CAUSE);
+            extractStringRep(nextT, vw);
         }
     }
 
@@ -123,6 +186,26 @@ public class ThrowableInformation implements Serializable {
         return (String[]) this.rep.clone();
     }
 
+    /**
+     * @return the number of lines of the string representation.
+     * @since 0.7
+     */
+    public int getLineCount() {
+        return this.rep.length;
+    }
+
+    /**
+     * Returns one line of the string representation, without cloning the
+     * representation like {@link #getThrowableStrRep()}.
+     *
+     * @param index of the line, the first line is the throwable itself.
+     * @return the line.
+     * @since 0.7
+     */
+    public String getLine(final int index) {
+        return this.rep[index];
+    }
+
     public boolean equals(Object o) {
         if (this == o) {
             return true;
@@ -166,6 +249,210 @@ public class ThrowableInformation implements Serializable {
         final int answer_of_life = 42;
         return answer_of_life; // any arbitrary constant will do
     }
+
+    /**
+     * Renders <code>throwable</code> with <code>renderer</code>. Equal
+     * throwables share the lines, like the lines of this class.
+     *
+     * @param throwable to render.
+     * @param renderer to render with.
+     * @return the lines, never modified.
+     */
+    static String[] getCompactRep(final Throwable throwable, final CompactTraceRenderer renderer) {
+        TraceKey key = TraceKey.createCompact(throwable);
+        if (key == null) {
+            return renderer.renderLines(throwable);
+        }
+        List compactKey = Arrays.asList(new Object[] {key, renderer });
+        String[] rendered;
+        synchronized (COMPACT) {
+            rendered = (String[]) COMPACT.get(compactKey);
+        }
+        if (rendered == null) {
+            rendered = renderer.renderLines(throwable);
+            synchronized (COMPACT) {
+                COMPACT.put(compactKey, rendered);
+            }
+        }
+        return rendered;
+    }
+
+    /**
+     * Invokes the cause accessor of the class of <code>t</code>.
+     *
+     * @param t to get the nested throwable from.
+     * @return the nested throwable, null if none.
+     */
+    static Throwable getNestedThrowable(final Throwable t) {
+        try {
+            Method nextThrowableMethod = getCauseAccessor(t.getClass());
+            if (nextThrowableMethod != null) {
+                return (Throwable) nextThrowableMethod.invoke(t, new Object[0]);
+            }
+        } catch (Exception e) {
+            // do nothing
+        }
+        return null;
+    }
+
+    /**
+     * Looks up the getter of the nested throwable once per class.
+     *
+     * @param tC class of the throwable.
+     * @return the getter, null if the class has none.
+     */
+    private static Method getCauseAccessor(final Class tC) {
+        Object cached;
+        synchronized (ACCESSORS) {
+            cached = ACCESSORS.get(tC);
+        }
+        if (cached instanceof Reference) {
+            // null if cleared, looked up again
+            cached = ((Reference) cached).get();
+        }
+        if (cached == null) {
+            cached = NO_ACCESSOR;
+            Method[] mA = tC.getMethods();
+            for (int i = 0; i < mA.length; i++) {
+                if (("getCause".equals(mA[i].getName()) && !PlatformInfo.isJDK14OrLater())
+                        || "getRootCause".equals(mA[i].getName())
+                        || "getNextException".equals(mA[i].getName())
+                        || "getException".equals(mA[i].getName())) {
+                    // check param types
+                    Class[] params = mA[i].getParameterTypes();
+                    if ((params == null) || (params.length == 0)) {
+                        // just found the getter for the nested throwable
+                        cached = mA[i];
+                        break; // no need to search further
+                    }
+                }
+            }
+            synchronized (ACCESSORS) {
+                if (cached == NO_ACCESSOR) {
+                    ACCESSORS.put(tC, NO_ACCESSOR);
+                } else {
+                    ACCESSORS.put(tC, new SoftReference(cached));
+                }
+            }
+        }
+        if (cached == NO_ACCESSOR) {
+            return null;
+        }
+        return (Method) cached;
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Identity of a rendered throwable: the string representation and the
+     * stack trace of each throwable which is rendered, in rendering order.
+     */
+    static final class TraceKey {
+
+        private final Object[] parts;
+
+        private final int hash;
+
+        private TraceKey(final Object[] parts) {
+            this.parts = parts;
+            int h = 17;
+            for (int i = 0; i < parts.length; i++) {
+                if (parts[i] instanceof StackTraceElement[]) {
+                    StackTraceElement[] trace = (StackTraceElement[]) parts[i];
+                    for (int j = 0; j < trace.length; j++) {
+                        h = 31 * h + trace[j].hashCode();
+                    }
+                } else {
+                    h = 31 * h + parts[i].hashCode();
+                }
+            }
+            this.hash = h;
+        }
+
+        /**
+         * @param t the throwable to render.
+         * @return the key, null if the cause chain is too long to cache.
+         */
+        static TraceKey create(final Throwable t) {
+            List parts = new ArrayList();
+            if (!collect(t, parts)) {
+                return null;
+            }
+            return new TraceKey(parts.toArray());
+        }
+
+        /**
+         * Creates the key of the compact rendering, which follows the nested
+         * throwable of each throwable without cause.
+         *
+         * @param t the throwable to render.
+         * @return the key, null if the cause chain is too long to cache.
+         */
+        static TraceKey createCompact(final Throwable t) {
+            List parts = new ArrayList();
+            Throwable current = t;
+            while (current != null) {
+                if (parts.size() >= 2 * MAX_CHAIN) {
+                    return null;
+                }
+                parts.add(String.valueOf(current));
+                parts.add(current.getStackTrace());
+                Throwable next = current.getCause();
+                if (next == null) {
+                    next = getNestedThrowable(current);
+                }
+                current = next;
+            }
+            return new TraceKey(parts.toArray());
+        }
+
+        private static boolean collect(final Throwable t, final List parts) {
+            Throwable current = t;
+            while (current != null) {
+                if (parts.size() >= 2 * MAX_CHAIN) {
+                    return false;
+                }
+                parts.add(String.valueOf(current));
+                parts.add(current.getStackTrace());
+                current = current.getCause();
+            }
+            Throwable nextT = getNestedThrowable(t);
+            if (nextT != null) {
+                parts.add(ROOT_CAUSE);
+                return collect(nextT, parts);
+            }
+            return true;
+        }
+
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TraceKey)) {
+                return false;
+            }
+            TraceKey other = (TraceKey) o;
+            if (this.hash != other.hash || this.parts.length != other.parts.length) {
+                return false;
+            }
+            for (int i = 0; i < this.parts.length; i++) {
+                if (this.parts[i] instanceof StackTraceElement[]) {
+                    if (!(other.parts[i] instanceof StackTraceElement[])
+                            || !Arrays.equals((Object[]) this.parts[i],
+                                    (Object[]) other.parts[i])) {
+                        return false;
+                    }
+                } else if (!this.parts[i].equals(other.parts[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public int hashCode() {
+            return this.hash;
+        }
+    }
 }
 
 /**
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.global.spi.location;
+
+/**
+ * Implemented by formatters and handlers which output caller location
+ * information. Loggers use it to decide whether the location has to be
+ * captured at the log call.
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public interface LocationAware {
+
+    /**
+     * @return true if records passed to this component need their
+     *         {@link LocationInfo}.
+     * @since 0.7
+     */
+    boolean requiresLocationInfo();
+
+}
+
+// EOF LocationAware.java
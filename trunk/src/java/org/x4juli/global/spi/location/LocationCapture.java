@@ -0,0 +1,156 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.global.spi.location;
+
+import java.util.List;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+
+import org.x4juli.global.spi.HandlerAttachable;
+
+/**
+ * Decides whether a logger has to capture the caller location at the log
+ * call. The decision depends on the handlers reachable from a logger and on
+ * their formatters, loggers cache it and recompute it once the generation
+ * of this class changed.
+ * <p>
+ * Every change which might alter the decision (handler added or removed,
+ * formatter replaced or reactivated) has to call {@link #invalidate()}.
+ * </p>
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public final class LocationCapture {
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * Capture the location only if a reachable formatter needs it.
+     */
+    public static final String MODE_AUTO = "auto";
+
+    /**
+     * Capture the location for every record.
+     */
+    public static final String MODE_ALWAYS = "always";
+
+    /**
+     * Never capture the location at the log call, formatters fall back to
+     * the lazy determination.
+     */
+    public static final String MODE_NEVER = "never";
+
+    private static final Object LOCK = new Object();
+
+    private static volatile int generation = 0;
+
+    // ----------------------------------------------------------- Constructors
+
+    private LocationCapture() {
+        // No instances.
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * @return the current generation, changed by every {@link #invalidate()}.
+     * @since 0.7
+     */
+    public static int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Invalidates all cached capture decisions.
+     * @since 0.7
+     */
+    public static void invalidate() {
+        synchronized (LOCK) {
+            generation++;
+        }
+    }
+
+    /**
+     * Normalizes the given mode.
+     * @param mode one of auto, always or never, ignoring case.
+     * @return the matching constant, or <code>null</code> if unknown.
+     * @since 0.7
+     */
+    public static String toMode(final String mode) {
+        if (MODE_AUTO.equalsIgnoreCase(mode)) {
+            return MODE_AUTO;
+        }
+        if (MODE_ALWAYS.equalsIgnoreCase(mode)) {
+            return MODE_ALWAYS;
+        }
+        if (MODE_NEVER.equalsIgnoreCase(mode)) {
+            return MODE_NEVER;
+        }
+        return null;
+    }
+
+    /**
+     * Checks the handlers, their formatters and the handlers attached to
+     * them whether anyone needs location information.
+     *
+     * @param handlers to check, may be null.
+     * @return true if location information is needed.
+     * @since 0.7
+     */
+    public static boolean requiresLocationInfo(final Handler[] handlers) {
+        if (handlers == null) {
+            return false;
+        }
+        for (int i = 0; i < handlers.length; i++) {
+            if (requiresLocationInfo(handlers[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private static boolean requiresLocationInfo(final Handler handler) {
+        if (handler == null) {
+            return false;
+        }
+        if (handler instanceof LocationAware
+                && ((LocationAware) handler).requiresLocationInfo()) {
+            return true;
+        }
+        Formatter formatter = handler.getFormatter();
+        if (formatter instanceof LocationAware
+                && ((LocationAware) formatter).requiresLocationInfo()) {
+            return true;
+        }
+        if (handler instanceof HandlerAttachable) {
+            List attached = ((HandlerAttachable) handler).getAllHandlers();
+            if (attached != null) {
+                for (int i = 0; i < attached.size(); i++) {
+                    if (requiresLocationInfo((Handler) attached.get(i))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+}
+
+// EOF LocationCapture.java
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.global.spi.location;
+
+/**
+ * Counts the location captures done at the log call for one
+ * {@link org.x4juli.global.spi.LoggerRepository}. Only captures are counted,
+ * records without capture do not touch this object.
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public final class LocationCaptureStats {
+
+    // -------------------------------------------------------------- Variables
+
+    private long captureCount = 0;
+
+    private long unresolvedCount = 0;
+
+    private long framesScanned = 0;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Constructs empty statistics.
+     * @since 0.7
+     */
+    public LocationCaptureStats() {
+        super();
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Records one capture.
+     *
+     * @param frames number of stack frames examined.
+     * @param resolved false if no caller frame was found.
+     * @since 0.7
+     */
+    public synchronized void captured(final int frames, final boolean resolved) {
+        this.captureCount++;
+        this.framesScanned += frames;
+        if (!resolved) {
+            this.unresolvedCount++;
+        }
+    }
+
+    /**
+     * @return the number of captures.
+     * @since 0.7
+     */
+    public synchronized long getCaptureCount() {
+        return this.captureCount;
+    }
+
+    /**
+     * @return the number of captures without a caller frame.
+     * @since 0.7
+     */
+    public synchronized long getUnresolvedCount() {
+        return this.unresolvedCount;
+    }
+
+    /**
+     * @return the number of stack frames examined over all captures.
+     * @since 0.7
+     */
+    public synchronized long getFramesScanned() {
+        return this.framesScanned;
+    }
+
+    /**
+     * Resets all counters.
+     * @since 0.7
+     */
+    public synchronized void reset() {
+        this.captureCount = 0;
+        this.unresolvedCount = 0;
+        this.framesScanned = 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public synchronized String toString() {
+        StringBuffer buf = new StringBuffer("LocationCaptureStats:");
+        buf.append("Captures[");
+        buf.append(this.captureCount);
+        buf.append("] Unresolved[");
+        buf.append(this.unresolvedCount);
+        buf.append("] FramesScanned[");
+        buf.append(this.framesScanned);
+        buf.append("]");
+        return buf.toString();
+    }
+
+}
+
+// EOF LocationCaptureStats.java
@@ -138,6 +138,16 @@ public class LocationInfo implements java.io.Serializable {
         StackTraceElementExtractor.extract(this, t, fqnOfInvokingClass);
     }
 
+    /**
+     * Instantiate location information based on the frame of the caller.
+     *
+     * @param location the frame of the caller, may not be null.
+     * @since 0.7
+     */
+    public LocationInfo(StackTraceElement location) {
+        StackTraceElementExtractor.fill(this, location);
+    }
+
     /**
      * {@inheritDoc}
      * @since 0.5
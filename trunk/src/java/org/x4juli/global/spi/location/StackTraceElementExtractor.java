@@ -40,6 +40,14 @@ import org.x4juli.global.Constants;
  */
 public class StackTraceElementExtractor {
 
+    /**
+     * Frames of <code>java.util.logging.Logger</code> directly following the
+     * frames of the invoking logger belong to the logging call, i.E.
+     * <code>Logger.info(String)</code> delegating to an overridden
+     * <code>log(Level, String)</code>.
+     */
+    private static final String JUL_LOGGER = "java.util.logging.Logger";
+
     static void extract(final LocationInfo li, final Throwable t, final String fqnOfInvokingClass) {
         if (t == null) {
             return;
@@ -47,17 +55,10 @@ public class StackTraceElementExtractor {
 
         StackTraceElement location = null;
         try {
-            // Object[] stes = (Object[]) t.getStackTrace();
             StackTraceElement[] stes = t.getStackTrace();
-            boolean match = false;
-            for (int i = 0; i < stes.length; i++) {
-
-                if (stes[i].getClassName().equals(fqnOfInvokingClass)) {
-                    match = true;
-                } else if (match) {
-                    location = stes[i];
-                    break;
-                }
+            int index = findCaller(stes, fqnOfInvokingClass);
+            if (index >= 0) {
+                location = stes[index];
             }
         } catch (Throwable e) {
             // Extraction failed, not much we could do now. We can't event log
@@ -77,46 +78,84 @@ public class StackTraceElementExtractor {
             li.lineNumber = Constants.NOT_AVAILABLE_CHAR;
             li.methodName = Constants.NOT_AVAILABLE_CHAR;
         } else { // otherwise, get the real info
-            setClassName(location, li);
-            setMethodName(location, li);
-            setFileName(location, li);
-            setLineNumber(location, li);
+            fill(li, location);
         }
     }
 
-    private static void setClassName(final StackTraceElement location, final LocationInfo li) {
-        try {
-            li.className = location.getClassName();
-        } catch (Exception e) {
-            li.className = Constants.NOT_AVAILABLE_CHAR;
+    /**
+     * Captures the location of the caller at the log call. Meant to be
+     * invoked by the logger itself, on the thread of the caller.
+     *
+     * @param fqnOfInvokingClass the full qualified name of the logger.
+     * @param stats to account the capture to, may be null.
+     * @return the location, {@link LocationInfo#NA_LOCATION_INFO} if the
+     *         caller could not be found.
+     * @since 0.7
+     */
+    public static LocationInfo capture(final String fqnOfInvokingClass,
+            final LocationCaptureStats stats) {
+        StackTraceElement[] stes = new Throwable().getStackTrace();
+        int index = findCaller(stes, fqnOfInvokingClass);
+        if (stats != null) {
+            if (index >= 0) {
+                stats.captured(index + 1, true);
+            } else {
+                stats.captured(stes.length, false);
+            }
+        }
+        if (index < 0) {
+            return LocationInfo.NA_LOCATION_INFO;
         }
+        return new LocationInfo(stes[index]);
     }
 
-    private static void setMethodName(final StackTraceElement location, final LocationInfo li) {
-        try {
-            li.methodName = location.getMethodName();
-        } catch (Exception e) {
-            li.methodName = Constants.NOT_AVAILABLE_CHAR;
+    /**
+     * Searches the frame of the caller in a single pass. The frames of the
+     * invoking logger are skipped, the search ends at the first frame
+     * following them, the rest of the stack is never examined.
+     *
+     * @param stes the stack of a throwable created within the logger.
+     * @param fqnOfInvokingClass the full qualified name of the logger.
+     * @return the index of the caller frame, or -1 if not found.
+     * @since 0.7
+     */
+    public static int findCaller(final StackTraceElement[] stes, final String fqnOfInvokingClass) {
+        if (stes == null || fqnOfInvokingClass == null) {
+            return -1;
         }
+        boolean match = false;
+        for (int i = 0; i < stes.length; i++) {
+            String className = stes[i].getClassName();
+            if (fqnOfInvokingClass.equals(className)) {
+                match = true;
+            } else if (match && !JUL_LOGGER.equals(className)) {
+                return i;
+            }
+        }
+        return -1;
     }
 
-    private static void setFileName(final StackTraceElement location, final LocationInfo li) {
-        try {
-            li.fileName = location.getFileName();
-        } catch (Exception e) {
+    /**
+     * Copies the information of a frame into a LocationInfo. Missing
+     * information is replaced with {@link Constants#NOT_AVAILABLE_CHAR}.
+     *
+     * @param li to fill.
+     * @param location the caller frame.
+     * @since 0.7
+     */
+    static void fill(final LocationInfo li, final StackTraceElement location) {
+        li.className = location.getClassName();
+        li.methodName = location.getMethodName();
+        String fileName = location.getFileName();
+        if (fileName != null) {
+            li.fileName = fileName;
+        } else {
             li.fileName = Constants.NOT_AVAILABLE_CHAR;
         }
-    }
-
-    private static void setLineNumber(final StackTraceElement location, final LocationInfo li) {
-        try {
-            int lnr = location.getLineNumber();
-            if (lnr > 0) {
-                li.lineNumber = String.valueOf(lnr);
-            } else {
-                li.lineNumber = Constants.NOT_AVAILABLE_CHAR;
-            }
-        } catch (Exception e) {
+        int lnr = location.getLineNumber();
+        if (lnr > 0) {
+            li.lineNumber = String.valueOf(lnr);
+        } else {
             li.lineNumber = Constants.NOT_AVAILABLE_CHAR;
         }
     }
@@ -22,11 +22,15 @@ import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.LogRecord;
 
+import org.x4juli.filter.FilterChain;
 import org.x4juli.filter.WrapperFilter;
 import org.x4juli.formatter.SimpleFormatter;
+import org.x4juli.global.Clock;
 import org.x4juli.global.Constants;
 import org.x4juli.global.helper.LoggerUtil;
 import org.x4juli.global.resources.MessageProperties;
+import org.x4juli.global.scheduler.Job;
+import org.x4juli.global.scheduler.Scheduler;
 import org.x4juli.global.spi.Component;
 import org.x4juli.global.spi.ExtendedFilter;
 import org.x4juli.global.spi.ExtendedFormatter;
@@ -36,6 +40,7 @@ import org.x4juli.global.spi.ExtendedLogger;
 import org.x4juli.global.spi.LogIllegalStateException;
 import org.x4juli.global.spi.LoggerRepository;
 import org.x4juli.global.spi.OptionHandler;
+import org.x4juli.global.spi.location.LocationCapture;
 import org.x4juli.logger.NOPLogger;
 
 /**
@@ -120,6 +125,23 @@ public abstract class AbstractHandler extends Handler
      */
     protected ExtendedFilter tailFilter = null;
 
+    /**
+     * The filter chain compiled by {@link #activateOptions()} and when
+     * filters are added. Null until then, the chain is walked instead.
+     */
+    private FilterChain filterChain = null;
+
+    /**
+     * Publishes the summaries of denied records if no record follows, created
+     * when a filter first suppresses records.
+     */
+    private Job summaryJob = null;
+
+    /**
+     * Whether the summary job is scheduled, guarded by this.
+     */
+    private boolean summaryScheduled = false;
+
     /**
      * Is this appender closed?
      */
@@ -192,6 +214,7 @@ public abstract class AbstractHandler extends Handler
                     "Every handler must have a name. Name of["+this.getClass().getName()
                   + "] is null");
         }
+        this.filterChain = new FilterChain(this.headFilter);
         this.active = true;
         this.closed = false;
     }
@@ -263,9 +286,11 @@ public abstract class AbstractHandler extends Handler
             }
             if (!isLoggable(record)) {
                 getLogger().log(Level.FINER, "Record is not loggable");
+                scheduleSummaries();
                 return;
             }
 
+            appendSummaries();
             this.appendLogRecord(record);
 
         } finally {
@@ -299,28 +324,11 @@ public abstract class AbstractHandler extends Handler
         if (record.getLevel().intValue() < levelValue || levelValue == Constants.LEVEL_OFF) {
             return false;
         }
-        ExtendedFilter f = this.headFilter;
-        int lastDecision = ExtendedFilter.X4JULI_DENY;
-
-        while (f != null) {
-            lastDecision = f.decide(record);
-            switch (lastDecision) {
-            case ExtendedFilter.X4JULI_DENY:
-                return false;
-
-            case ExtendedFilter.X4JULI_ACCEPT:
-                return true;
-
-            default:
-            case ExtendedFilter.X4JULI_NEUTRAL:
-                f = f.getNext();
-            }
-        }
-        if (lastDecision == ExtendedFilter.X4JULI_NEUTRAL) {
-            return false;
+        final FilterChain chain = this.filterChain;
+        if (chain != null) {
+            return chain.decide(record);
         }
-        return true;
-
+        return FilterChain.decide(this.headFilter, record);
     }
 
     /**
@@ -362,6 +370,7 @@ public abstract class AbstractHandler extends Handler
             this.tailFilter.setNext(newFilter);
             this.tailFilter = newFilter;
         }
+        this.filterChain = new FilterChain(this.headFilter);
     }
 
     /**
@@ -371,6 +380,7 @@ public abstract class AbstractHandler extends Handler
     public void clearFilters() {
         this.headFilter = null;
         this.tailFilter = null;
+        this.filterChain = null;
     }
 
     /**
@@ -386,6 +396,7 @@ public abstract class AbstractHandler extends Handler
             super.setFormatter(newFormatter);
             this.extFormatter = null;
         }
+        LocationCapture.invalidate();
     }
 
     /**
@@ -394,6 +405,7 @@ public abstract class AbstractHandler extends Handler
      */
     public void setFormatter(final ExtendedFormatter newFormatter) {
         this.extFormatter = newFormatter;
+        LocationCapture.invalidate();
     }
 
     /**
@@ -612,6 +624,76 @@ public abstract class AbstractHandler extends Handler
      */
     protected abstract void appendLogRecord(ExtendedLogRecord record);
 
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Schedules the summary job if a filter suppresses records and a
+     * scheduler is available.
+     */
+    private void scheduleSummaries() {
+        final FilterChain chain = this.filterChain;
+        if (this.summaryScheduled || chain == null || !chain.isSuppressing()) {
+            return;
+        }
+        final LoggerRepository repo = getLoggerRepository();
+        if (repo == null) {
+            return;
+        }
+        if (this.summaryJob == null) {
+            this.summaryJob = new Job() {
+                public void execute() {
+                    appendDueSummaries();
+                }
+            };
+        }
+        schedule(repo.getScheduler(), System.currentTimeMillis());
+    }
+
+    private void schedule(final Scheduler scheduler, final long time) {
+        // a scheduler which is shut down drops the job, a later denied record retries
+        this.summaryScheduled = scheduler.isAlive();
+        scheduler.schedule(this.summaryJob, time);
+    }
+
+    /**
+     * Appends the due summaries of the filter chain and schedules the job for
+     * the next one. Runs on a worker of the scheduler.
+     */
+    private synchronized void appendDueSummaries() {
+        this.summaryScheduled = false;
+        final FilterChain chain = this.filterChain;
+        final LoggerRepository repo = getLoggerRepository();
+        if (chain == null || repo == null || this.closed || !this.active || this.guard) {
+            return;
+        }
+        try {
+            this.guard = true;
+            final long next = chain.summarizeDue();
+            appendSummaries();
+            if (next != Long.MAX_VALUE) {
+                // next is Clock time, the scheduler runs on system time
+                schedule(repo.getScheduler(), System.currentTimeMillis()
+                        + Math.max(0, next - Clock.currentTimeMillis()));
+            }
+        } finally {
+            this.guard = false;
+        }
+    }
+
+    /**
+     * Appends the summaries of denied records pending in the filter chain.
+     */
+    private void appendSummaries() {
+        final FilterChain chain = this.filterChain;
+        if (chain == null) {
+            return;
+        }
+        ExtendedLogRecord summary;
+        while ((summary = chain.pollSummary()) != null) {
+            this.appendLogRecord(summary);
+        }
+    }
+
 }
 
 // EOF AbstractHandler.java
@@ -0,0 +1,752 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.handlers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.logging.Level;
+
+import org.x4juli.formatter.helper.FormatterUtil;
+import org.x4juli.global.spi.ExtendedHandler;
+import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.ExtendedLogRecordImpl;
+import org.x4juli.global.spi.HandlerAttachable;
+import org.x4juli.global.spi.location.LocationAware;
+import org.x4juli.global.spi.location.LocationCapture;
+
+/**
+ * <code>AsyncHandler</code> decouples the logging threads from the I/O of
+ * the attached handlers. Records are placed into a bounded, preallocated ring
+ * buffer and a single dispatcher thread drains them in batches to all
+ * attached {@link ExtendedHandler}s.
+ * <p>
+ * The handler is configured like any other handler. Attached handlers are
+ * referenced with nested <code>handler-ref</code> elements, they must be
+ * defined before the <code>AsyncHandler</code> in the configuration file.
+ * </p>
+ *
+ * <table border="1" cellspacing="0" cellpadding="2">
+ * <tr>
+ * <th valign="top" scope="col">Attribute</th>
+ * <th valign="top" scope="col">Description</th>
+ * <th valign="top" scope="col">Required</th>
+ * </tr>
+ * <tr>
+ * <td valign="top">.bufferSize</td>
+ * <td valign="top">Number of preallocated slots of the ring buffer.</td>
+ * <td valign="top">No. Default 256.</td>
+ * </tr>
+ * <tr>
+ * <td valign="top">.batchSize</td>
+ * <td valign="top">Maximum number of records the dispatcher takes out of the
+ * buffer at once.</td>
+ * <td valign="top">No. Default 64.</td>
+ * </tr>
+ * <tr>
+ * <td valign="top">.overflowPolicy</td>
+ * <td valign="top">What to do if the buffer is full. Allowed values are
+ * <code>block</code>, <code>discardOldest</code>, <code>discardNewest</code>
+ * and <code>discardBelowLevel</code>.</td>
+ * <td valign="top">No. Default <code>block</code>.</td>
+ * </tr>
+ * <tr>
+ * <td valign="top">.discardThreshold</td>
+ * <td valign="top">Used with <code>discardBelowLevel</code>: records below
+ * this level are discarded if the buffer is full, all others block.</td>
+ * <td valign="top">No. Default <code>WARNING</code>.</td>
+ * </tr>
+ * <tr>
+ * <td valign="top">.locationInfo</td>
+ * <td valign="top">Capture the caller location before the record is handed
+ * off. Loggers capture it at the log call anyway if an attached formatter
+ * uses location information.</td>
+ * <td valign="top">No. Default false.</td>
+ * </tr>
+ * </table>
+ *
+ * <p>
+ * Logging API as a whole was originally done for <a
+ * href="http://logging.apache.org/log4j/">Apache log4j</a>. <b>Juli</b> is a
+ * port of main parts of that to complete the <a
+ * href="http://java.sun.com/j2se/1.4.2/docs/guide/util/logging/">Java Logging
+ * APIs</a>. The idea of this handler goes back to the <i>AsyncAppender</i>
+ * of log4j.
+ * </p>
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public class AsyncHandler extends AbstractHandler implements HandlerAttachable, LocationAware {
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * Overflow policy: the publishing thread waits for free space.
+     */
+    public static final String POLICY_BLOCK = "block";
+
+    /**
+     * Overflow policy: the oldest buffered record is overwritten.
+     */
+    public static final String POLICY_DISCARD_OLDEST = "discardOldest";
+
+    /**
+     * Overflow policy: the record to publish is dropped.
+     */
+    public static final String POLICY_DISCARD_NEWEST = "discardNewest";
+
+    /**
+     * Overflow policy: records below the discard threshold are dropped, all
+     * others wait for free space.
+     */
+    public static final String POLICY_DISCARD_BELOW_LEVEL = "discardBelowLevel";
+
+    /**
+     * Default number of slots of the ring buffer.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+
+    /**
+     * Default number of records dispatched at once.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    private static final int BLOCK = 0;
+
+    private static final int DISCARD_OLDEST = 1;
+
+    private static final int DISCARD_NEWEST = 2;
+
+    private static final int DISCARD_BELOW_LEVEL = 3;
+
+    private static final ExtendedHandler[] EMPTY_HANDLERS = new ExtendedHandler[0];
+
+    /**
+     * The attached handlers. Modified under its own monitor, the dispatcher
+     * works on the snapshot <code>handlerArray</code>.
+     */
+    private final List handlers = new ArrayList();
+
+    /**
+     * Snapshot of the attached handlers, replaced on every modification.
+     */
+    private volatile ExtendedHandler[] handlerArray = EMPTY_HANDLERS;
+
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private int overflowPolicy = BLOCK;
+
+    private Level discardThreshold = Level.WARNING;
+
+    private boolean locationInfo = false;
+
+    private RingBuffer buffer;
+
+    private Thread dispatcher;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Default constructor, does not configure or activateOptions.
+     * @since 0.7
+     */
+    public AsyncHandler() {
+        super();
+    }
+
+    /**
+     * Utility constructor, does not configure or activateOptions.
+     * @param handlerName of this instance.
+     * @since 0.7
+     */
+    public AsyncHandler(final String handlerName) {
+        super(handlerName);
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public String getFullQualifiedClassName() {
+        return "org.x4juli.handlers.AsyncHandler";
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public void activateOptions() {
+        if (this.bufferSize < 1) {
+            this.bufferSize = DEFAULT_BUFFER_SIZE;
+        }
+        if (this.batchSize < 1 || this.batchSize > this.bufferSize) {
+            this.batchSize = Math.min(DEFAULT_BATCH_SIZE, this.bufferSize);
+        }
+        synchronized (this) {
+            if (this.dispatcher == null) {
+                this.buffer = new RingBuffer(this.bufferSize);
+                this.dispatcher = new Thread(new Dispatcher(this.buffer, this.batchSize),
+                        "x4juli-AsyncHandler-" + this.name);
+                this.dispatcher.setDaemon(true);
+                this.dispatcher.start();
+            }
+        }
+        super.activateOptions();
+    }
+
+    /**
+     * Checks the record and hands it off to the dispatcher thread. In contrast
+     * to the superclass this method does not hold the handler monitor, the
+     * ring buffer guards its slots itself.
+     *
+     * @param record to hand off.
+     * @since 0.7
+     */
+    public void publish(final ExtendedLogRecord record) {
+        if (record == null) {
+            return;
+        }
+        if (this.closed) {
+            getNonFloodingLogger().log(Level.SEVERE,
+                    MessageText.Not_allowed_to_write_to_a_closed_handler, this.name);
+            return;
+        }
+        if (!this.active) {
+            getNonFloodingLogger().log(Level.SEVERE,
+                    MessageText.Not_allowed_to_write_to_an_inactive_handler, this.name);
+            return;
+        }
+        if (!isLoggable(record)) {
+            return;
+        }
+        appendLogRecord(record);
+    }
+
+    /**
+     * Waits until all buffered records have been dispatched and flushes the
+     * attached handlers.
+     *
+     * @since 0.7
+     */
+    public void flush() {
+        RingBuffer buf = this.buffer;
+        if (buf != null && Thread.currentThread() != this.dispatcher) {
+            buf.awaitEmpty();
+        }
+        ExtendedHandler[] targets = this.handlerArray;
+        for (int i = 0; i < targets.length; i++) {
+            targets[i].flush();
+        }
+    }
+
+    /**
+     * Stops accepting records, dispatches all buffered records and closes the
+     * attached handlers.
+     *
+     * @since 0.7
+     */
+    public void close() throws SecurityException {
+        Thread toJoin = null;
+        synchronized (this) {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            if (this.buffer != null) {
+                this.buffer.close();
+            }
+            toJoin = this.dispatcher;
+            this.dispatcher = null;
+        }
+        if (toJoin != null && toJoin != Thread.currentThread()) {
+            try {
+                toJoin.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        ExtendedHandler[] targets = this.handlerArray;
+        for (int i = 0; i < targets.length; i++) {
+            targets[i].close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public void addHandler(final ExtendedHandler newHandler) {
+        if (newHandler == null) {
+            return;
+        }
+        synchronized (this.handlers) {
+            if (!this.handlers.contains(newHandler)) {
+                this.handlers.add(newHandler);
+                updateHandlerArray();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public List getAllHandlers() {
+        return Arrays.asList(this.handlerArray);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public ExtendedHandler getHandler(final String handlerName) {
+        ExtendedHandler[] targets = this.handlerArray;
+        for (int i = 0; i < targets.length; i++) {
+            if (targets[i].getName() != null && targets[i].getName().equals(handlerName)) {
+                return targets[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public boolean isAttached(final ExtendedHandler handler) {
+        ExtendedHandler[] targets = this.handlerArray;
+        for (int i = 0; i < targets.length; i++) {
+            if (targets[i] == handler) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public void removeAllHandlers() {
+        synchronized (this.handlers) {
+            this.handlers.clear();
+            updateHandlerArray();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public void removeHandler(final ExtendedHandler handler) {
+        synchronized (this.handlers) {
+            this.handlers.remove(handler);
+            updateHandlerArray();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public void removeHandler(final String handlerName) {
+        ExtendedHandler handler = getHandler(handlerName);
+        if (handler != null) {
+            removeHandler(handler);
+        }
+    }
+
+    /**
+     * Returns the number of slots of the ring buffer.
+     * @return the buffer size.
+     * @since 0.7
+     */
+    public int getBufferSize() {
+        return this.bufferSize;
+    }
+
+    /**
+     * Sets the number of slots of the ring buffer. Takes effect with
+     * activateOptions.
+     * @param bufferSize number of slots, must be positive.
+     * @since 0.7
+     */
+    public void setBufferSize(final int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Returns the maximum number of records dispatched at once.
+     * @return the batch size.
+     * @since 0.7
+     */
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    /**
+     * Sets the maximum number of records dispatched at once. Takes effect with
+     * activateOptions.
+     * @param batchSize maximum records per batch, must be positive.
+     * @since 0.7
+     */
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns the overflow policy.
+     * @return one of the <code>POLICY_*</code> constants.
+     * @since 0.7
+     */
+    public String getOverflowPolicy() {
+        switch (this.overflowPolicy) {
+        case DISCARD_OLDEST:
+            return POLICY_DISCARD_OLDEST;
+        case DISCARD_NEWEST:
+            return POLICY_DISCARD_NEWEST;
+        case DISCARD_BELOW_LEVEL:
+            return POLICY_DISCARD_BELOW_LEVEL;
+        default:
+            return POLICY_BLOCK;
+        }
+    }
+
+    /**
+     * Sets the overflow policy. Unknown values fall back to
+     * <code>block</code>.
+     * @param policy one of the <code>POLICY_*</code> constants.
+     * @since 0.7
+     */
+    public void setOverflowPolicy(final String policy) {
+        String value = policy == null ? "" : policy.trim();
+        if (POLICY_DISCARD_OLDEST.equalsIgnoreCase(value)) {
+            this.overflowPolicy = DISCARD_OLDEST;
+        } else if (POLICY_DISCARD_NEWEST.equalsIgnoreCase(value)) {
+            this.overflowPolicy = DISCARD_NEWEST;
+        } else if (POLICY_DISCARD_BELOW_LEVEL.equalsIgnoreCase(value)) {
+            this.overflowPolicy = DISCARD_BELOW_LEVEL;
+        } else {
+            if (!POLICY_BLOCK.equalsIgnoreCase(value)) {
+                getLogger().log(Level.WARNING, MessageText.Unknown_overflow_policy,
+                        new Object[] {policy, POLICY_BLOCK });
+            }
+            this.overflowPolicy = BLOCK;
+        }
+    }
+
+    /**
+     * Returns the level below which records are discarded with the
+     * <code>discardBelowLevel</code> policy.
+     * @return the discard threshold.
+     * @since 0.7
+     */
+    public Level getDiscardThreshold() {
+        return this.discardThreshold;
+    }
+
+    /**
+     * Sets the level below which records are discarded with the
+     * <code>discardBelowLevel</code> policy.
+     * @param threshold the discard threshold.
+     * @since 0.7
+     */
+    public void setDiscardThreshold(final Level threshold) {
+        if (threshold != null) {
+            this.discardThreshold = threshold;
+        }
+    }
+
+    /**
+     * Returns whether the caller location is captured before hand off.
+     * @return true if the location is captured.
+     * @since 0.7
+     */
+    public boolean getLocationInfo() {
+        return this.locationInfo;
+    }
+
+    /**
+     * Capture the caller location before hand off or not.
+     * @param locationInfo true to capture the location.
+     * @since 0.7
+     */
+    public void setLocationInfo(final boolean locationInfo) {
+        this.locationInfo = locationInfo;
+        LocationCapture.invalidate();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public boolean requiresLocationInfo() {
+        return this.locationInfo;
+    }
+
+    /**
+     * Returns the number of records discarded since activation.
+     * @return count of discarded records.
+     * @since 0.7
+     */
+    public long getDiscardedCount() {
+        RingBuffer buf = this.buffer;
+        if (buf == null) {
+            return 0;
+        }
+        return buf.getTotalDiscarded();
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * Prepares the record for processing on the dispatcher thread and puts
+     * it into the ring buffer.
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    protected void appendLogRecord(final ExtendedLogRecord record) {
+        RingBuffer buf = this.buffer;
+        if (buf == null) {
+            return;
+        }
+        // Everything which depends on the calling thread must be captured here.
+        // The message is formatted on the dispatcher, from a snapshot of the
+        // parameters.
+        record.getNDC();
+        record.initializeProperties();
+        FormatterUtil.snapshotParameters(record);
+        if (this.locationInfo) {
+            record.getLocationInformation();
+        }
+        int policy = this.overflowPolicy;
+        if (policy == DISCARD_BELOW_LEVEL) {
+            if (record.getLevel().intValue() < this.discardThreshold.intValue()) {
+                policy = DISCARD_NEWEST;
+            } else {
+                policy = BLOCK;
+            }
+        }
+        if (policy == BLOCK && Thread.currentThread() == this.dispatcher) {
+            // An attached handler logs itself, waiting would dead lock.
+            policy = DISCARD_NEWEST;
+        }
+        buf.put(record, policy);
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private void updateHandlerArray() {
+        this.handlerArray = (ExtendedHandler[]) this.handlers
+                .toArray(new ExtendedHandler[this.handlers.size()]);
+        LocationCapture.invalidate();
+    }
+
+    private ExtendedLogRecord createDiscardSummary(final int discarded) {
+        ExtendedLogRecord summary = new ExtendedLogRecordImpl(Level.WARNING,
+                MessageText.Discarded_records_in_async_handler);
+        summary.setParameters(new Object[] {new Integer(discarded), this.name });
+        summary.setLoggerName(getClass().getName());
+        String bundleName = getMessageProperties().getValueAsString();
+        try {
+            summary.setResourceBundle(ResourceBundle.getBundle(bundleName));
+            summary.setResourceBundleName(bundleName);
+        } catch (RuntimeException e) {
+            // Without the bundle the key is printed, better than nothing.
+        }
+        return summary;
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Bounded ring buffer of preallocated slots. The monitor of the buffer
+     * is held only while a slot is written or a batch is copied out, never
+     * during I/O.
+     *
+     * @since 0.7
+     */
+    private static final class RingBuffer {
+
+        private final ExtendedLogRecord[] slots;
+
+        private int head = 0;
+
+        private int count = 0;
+
+        private int inFlight = 0;
+
+        private int discarded = 0;
+
+        private long totalDiscarded = 0;
+
+        private boolean closed = false;
+
+        RingBuffer(final int size) {
+            this.slots = new ExtendedLogRecord[size];
+        }
+
+        synchronized void put(final ExtendedLogRecord record, final int policy) {
+            while (this.count == this.slots.length && !this.closed) {
+                if (policy == DISCARD_NEWEST) {
+                    discard();
+                    return;
+                }
+                if (policy == DISCARD_OLDEST) {
+                    this.slots[this.head] = null;
+                    this.head = (this.head + 1) % this.slots.length;
+                    this.count--;
+                    discard();
+                    break;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    discard();
+                    return;
+                }
+            }
+            if (this.closed) {
+                discard();
+                return;
+            }
+            this.slots[(this.head + this.count) % this.slots.length] = record;
+            this.count++;
+            if (this.count == 1) {
+                notifyAll();
+            }
+        }
+
+        /**
+         * Moves up to <code>batch.length</code> records into the batch.
+         * Waits while the buffer is empty.
+         *
+         * @return number of records moved, -1 if closed and empty.
+         */
+        synchronized int take(final ExtendedLogRecord[] batch) {
+            this.inFlight = 0;
+            notifyAll();
+            while (this.count == 0) {
+                if (this.closed) {
+                    return -1;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    // Keep on draining, close() will end the loop.
+                }
+            }
+            int n = Math.min(this.count, batch.length);
+            for (int i = 0; i < n; i++) {
+                batch[i] = this.slots[this.head];
+                this.slots[this.head] = null;
+                this.head = (this.head + 1) % this.slots.length;
+            }
+            this.count -= n;
+            this.inFlight = n;
+            notifyAll();
+            return n;
+        }
+
+        synchronized int resetDiscarded() {
+            int ret = this.discarded;
+            this.discarded = 0;
+            return ret;
+        }
+
+        synchronized long getTotalDiscarded() {
+            return this.totalDiscarded;
+        }
+
+        synchronized void awaitEmpty() {
+            while ((this.count > 0 || this.inFlight > 0) && !this.closed) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        synchronized void close() {
+            this.closed = true;
+            notifyAll();
+        }
+
+        private void discard() {
+            this.discarded++;
+            this.totalDiscarded++;
+        }
+    }
+
+    /**
+     * Drains the ring buffer and publishes the records to the attached
+     * handlers.
+     *
+     * @since 0.7
+     */
+    private final class Dispatcher implements Runnable {
+
+        private final RingBuffer source;
+
+        private final ExtendedLogRecord[] batch;
+
+        Dispatcher(final RingBuffer source, final int batchSize) {
+            this.source = source;
+            this.batch = new ExtendedLogRecord[batchSize];
+        }
+
+        public void run() {
+            int n;
+            while ((n = this.source.take(this.batch)) >= 0) {
+                ExtendedHandler[] targets = AsyncHandler.this.handlerArray;
+                int discarded = this.source.resetDiscarded();
+                if (discarded > 0) {
+                    dispatch(targets, createDiscardSummary(discarded));
+                }
+                for (int i = 0; i < n; i++) {
+                    dispatch(targets, this.batch[i]);
+                    this.batch[i] = null;
+                }
+            }
+            int discarded = this.source.resetDiscarded();
+            if (discarded > 0) {
+                dispatch(AsyncHandler.this.handlerArray, createDiscardSummary(discarded));
+            }
+        }
+
+        private void dispatch(final ExtendedHandler[] targets, final ExtendedLogRecord record) {
+            for (int j = 0; j < targets.length; j++) {
+                try {
+                    targets[j].publish(record);
+                } catch (RuntimeException e) {
+                    getNonFloodingLogger().log(Level.WARNING, MessageText.Exception_is, e);
+                }
+            }
+        }
+    }
+
+}
+
+// EOF AsyncHandler.java
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.handlers;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.logging.Level;
+
+import org.x4juli.formatter.BinaryFormatter;
+import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.ExtendedLogRecordImpl;
+
+/**
+ * <code>BinaryFileHandler</code> writes the records in the compact layout of
+ * {@link BinaryFormatter} instead of text. Logger names, thread names and
+ * message templates are stored once per file, parameters are stored apart
+ * and formatted only when the file is read. Use
+ * {@link org.x4juli.formatter.BinaryLogReader} to replay a file into any
+ * handler, i.E. a <code>ConsoleHandler</code> with a
+ * <code>PatternFormatter</code>.
+ * <p>
+ * The options are those of {@link FileHandler}. The formatter, the encoding
+ * and the options <b>ChannelIO</b> and <b>GroupCommit</b> are ignored, the
+ * output is always buffered. With <b>ImmediateFlush</b> the buffer is
+ * flushed after each record. Appending to an existing file starts a new
+ * segment with its own dictionaries.
+ * </p>
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public class BinaryFileHandler extends FileHandler {
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * Encodes the records, confined to the monitor of this handler.
+     */
+    private final BinaryFormatter binaryFormatter = new BinaryFormatter();
+
+    /**
+     * The buffered stream of the file, also wrapped by the writer.
+     */
+    private OutputStream output;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Default constructor, does not configure or activateOptions.
+     * @since 0.7
+     */
+    public BinaryFileHandler() {
+        super();
+    }
+
+    /**
+     * Utility constructor, does not configure or activateOptions.
+     * @param handlerName of this instance.
+     * @since 0.7
+     */
+    public BinaryFileHandler(String handlerName) {
+        super(handlerName);
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public String getFullQualifiedClassName() {
+        return "org.x4juli.handlers.BinaryFileHandler";
+    }
+
+    /**
+     * Opens the file and starts a new segment.
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public synchronized void setFile(String filename, boolean append, boolean bufferedIO,
+            int bufferSize) throws IOException {
+        getLogger().log(Level.FINER, MessageText.SetFile_called,
+                new Object[] {filename, Boolean.valueOf(append) });
+
+        if (bufferedIO) {
+            setImmediateFlush(false);
+        }
+
+        closeWriter();
+
+        FileOutputStream ostream = null;
+        try {
+            ostream = new FileOutputStream(filename, append);
+        } catch (FileNotFoundException ex) {
+            File parentDir = new File(new File(filename).getParent());
+            if (!parentDir.exists() && parentDir.mkdirs()) {
+                ostream = new FileOutputStream(filename, append);
+            } else {
+                throw ex;
+            }
+        }
+        int size = bufferSize > 0 ? bufferSize : DEFAULT_BUFFER_SIZE;
+        this.output = new BufferedOutputStream(ostream, size);
+        // The writer closes the stream and satisfies the entry conditions.
+        this.writer = createWriter(this.output);
+
+        this.fileAppend = append;
+        this.bufferedIO = bufferedIO;
+        this.fileName = filename;
+        this.bufferSize = bufferSize;
+        writeHeader();
+        getLogger().log(Level.FINER, MessageText.SetFile_ended);
+    }
+
+    /**
+     * @return number of bytes written by this handler.
+     * @since 0.7
+     */
+    public synchronized long getWrittenBytes() {
+        return this.binaryFormatter.getWrittenBytes();
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * Writes the segment entry instead of the head of the formatter.
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    protected void writeHeader() {
+        if (this.output == null) {
+            return;
+        }
+        try {
+            this.binaryFormatter.writeSegment(this.output);
+        } catch (IOException ioe) {
+            this.active = false;
+            ExtendedLogRecord record = new ExtendedLogRecordImpl(Level.SEVERE,
+                    MessageText.Failed_to_write_header_for_Handler);
+            record.setParameters(new Object[] {this.name });
+            record.setThrown(ioe);
+            getLogger().log(record);
+        }
+    }
+
+    /**
+     * A binary file has no footer.
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    protected void writeFooter() {
+        // Nothing to write.
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    protected void closeWriter() {
+        try {
+            super.closeWriter();
+        } finally {
+            this.output = null;
+        }
+    }
+
+    /**
+     * Encodes the record into the stream.
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    protected void subAppend(final ExtendedLogRecord record) {
+        if (!isActive()) {
+            return;
+        }
+        try {
+            this.binaryFormatter.format(record, this.output);
+            if (this.immediateFlush) {
+                this.output.flush();
+            }
+        } catch (IOException ioe) {
+            this.active = false;
+            ExtendedLogRecord rec = new ExtendedLogRecordImpl(Level.SEVERE,
+                    MessageText.IO_failure_for_handler_named);
+            rec.setParameters(new Object[] {this.name });
+            rec.setThrown(ioe);
+            getNonFloodingLogger().log(rec);
+        }
+    }
+
+}
+
+// EOF BinaryFileHandler.java
@@ -20,12 +20,25 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.util.logging.Level;
 
+import org.x4juli.formatter.helper.FormatterUtil;
 import org.x4juli.global.Constants;
+import org.x4juli.global.SystemUtils;
+import org.x4juli.global.helper.ByteBufferEncoder;
+import org.x4juli.global.helper.GroupCommitWriter;
 import org.x4juli.global.helper.OptionConverter;
+import org.x4juli.global.scheduler.Scheduler;
+import org.x4juli.global.spi.AppendingFormatter;
 import org.x4juli.global.spi.ExtendedLogRecord;
 import org.x4juli.global.spi.ExtendedLogRecordImpl;
+import org.x4juli.global.spi.LoggerRepository;
+import org.x4juli.global.spi.ThrowableInformation;
+import org.x4juli.handlers.rolling.helper.Action;
+import org.x4juli.handlers.rolling.helper.RolloverExecutor;
 
 /**
  * FileHandler publishes log records to a file. Please refer also to parent classes
@@ -57,6 +70,42 @@ import org.x4juli.global.spi.ExtendedLogRecordImpl;
  * <td valign="top">Size of the IO buffer. Allowed value is an integer.</td>
  * <td valign="top">No. Default 8kb.</td>
  * </tr>
+ * <tr>
+ * <td valign="top">.channelIO</td>
+ * <td valign="top">Encode records into a reusable byte buffer and write it
+ * to the <code>FileChannel</code> of the file. Together with a formatter
+ * appending to a buffer, i.E. <code>PatternFormatter</code>, records are
+ * written without creating garbage. Allowed values "true" or "false".</td>
+ * <td valign="top">No. Default false.</td>
+ * </tr>
+ * <tr>
+ * <td valign="top">.groupCommit</td>
+ * <td valign="top">Like channelIO, but records of concurrent threads are
+ * collected and written with one write per batch. ImmediateFlush is ignored,
+ * the batches are written as given by flushRecords, flushInterval and
+ * forceLevel. Allowed values "true" or "false".</td>
+ * <td valign="top">No. Default false.</td>
+ * </tr>
+ * <tr>
+ * <td valign="top">.flushRecords</td>
+ * <td valign="top">With groupCommit: write the batch as soon as it contains
+ * this number of records. 0 disables the option.</td>
+ * <td valign="top">No. Default 0.</td>
+ * </tr>
+ * <tr>
+ * <td valign="top">.flushInterval</td>
+ * <td valign="top">With groupCommit: write the batch as soon as its oldest
+ * record is older than this number of milliseconds. A job of the scheduler
+ * of the repository writes the batch of a quiet handler when it becomes
+ * due. 0 disables the option.</td>
+ * <td valign="top">No. Default 0.</td>
+ * </tr>
+ * <tr>
+ * <td valign="top">.forceLevel</td>
+ * <td valign="top">With groupCommit: records of this level or above are
+ * forced to the storage device before <code>publish</code> returns.</td>
+ * <td valign="top">No. Default OFF, never force.</td>
+ * </tr>
  * </table>
  * 
  * <p>
@@ -114,6 +163,47 @@ public class FileHandler extends WriterHandler {
      */
     protected int bufferSize;
 
+    /**
+     * Do we write through the FileChannel?
+     */
+    protected boolean channelIO;
+
+    /**
+     * The channel of the file, only used with channelIO.
+     */
+    private WritableByteChannel channel;
+
+    /**
+     * Encodes records for the channel, confined by the monitor of this handler.
+     */
+    private ByteBufferEncoder channelEncoder;
+
+    /**
+     * Do we collect records into batches?
+     */
+    protected boolean groupCommit;
+
+    /**
+     * Number of records to write a batch, 0 for none.
+     */
+    protected int flushRecords;
+
+    /**
+     * Maximum age of a batch in milliseconds, 0 for none.
+     */
+    protected long flushInterval;
+
+    /**
+     * Records of this level or above are forced to the device.
+     */
+    protected Level forceLevel = Level.OFF;
+
+    /**
+     * Collects the records into batches, only used with groupCommit. Read
+     * without the monitor of this handler to commit.
+     */
+    private volatile GroupCommitWriter groupCommitWriter;
+
     // ----------------------------------------------------------- Constructors
 
     /**
@@ -278,6 +368,182 @@ public class FileHandler extends WriterHandler {
         this.bufferSize = bufferSize;
     }
 
+    /**
+     * Returns the value of the <b>ChannelIO</b> option.
+     *
+     * @return write through the FileChannel or not.
+     * @since 0.7
+     */
+    public boolean getChannelIO() {
+        return this.channelIO;
+    }
+
+    /**
+     * The <b>ChannelIO</b> option takes a boolean value. It is set to
+     * <code>false</code> by default. If true, records are encoded into a
+     * reusable byte buffer which is written to the <code>FileChannel</code>
+     * of the file. The byte buffer has the size of the <b>BufferSize</b>
+     * option. Without <b>ImmediateFlush</b> it is written when it is full.
+     *
+     * <p>
+     * Note: The option is used when the file is opened by
+     * {@link #activateOptions}.
+     * </p>
+     *
+     * @param channelIO to write through the FileChannel or not.
+     * @since 0.7
+     */
+    public void setChannelIO(final boolean channelIO) {
+        this.channelIO = channelIO;
+    }
+
+    /**
+     * Returns the value of the <b>GroupCommit</b> option.
+     *
+     * @return collect records into batches or not.
+     * @since 0.7
+     */
+    public boolean getGroupCommit() {
+        return this.groupCommit;
+    }
+
+    /**
+     * The <b>GroupCommit</b> option takes a boolean value. It is set to
+     * <code>false</code> by default. If true, records are encoded like with
+     * <b>ChannelIO</b> and collected into a batch. Threads publishing while
+     * a batch is written add their records to the next batch, which is
+     * written with a single <code>FileChannel.write</code>. When batches are
+     * written is given by <b>FlushRecords</b>, <b>FlushInterval</b> and
+     * <b>ForceLevel</b>, <b>ImmediateFlush</b> is ignored.
+     *
+     * <p>
+     * Note: The option is used when the file is opened by
+     * {@link #activateOptions}.
+     * </p>
+     *
+     * @param groupCommit to collect records into batches or not.
+     * @since 0.7
+     */
+    public void setGroupCommit(final boolean groupCommit) {
+        this.groupCommit = groupCommit;
+    }
+
+    /**
+     * Returns the value of the <b>FlushRecords</b> option.
+     *
+     * @return number of records to write a batch, 0 for none.
+     * @since 0.7
+     */
+    public int getFlushRecords() {
+        return this.flushRecords;
+    }
+
+    /**
+     * The batch is written as soon as it contains this number of records.
+     * Without <b>FlushRecords</b> and <b>FlushInterval</b> a batch is only
+     * written when it is full, on {@link #flush()} and on close.
+     *
+     * @param flushRecords number of records, 0 for none.
+     * @since 0.7
+     */
+    public void setFlushRecords(final int flushRecords) {
+        this.flushRecords = flushRecords;
+    }
+
+    /**
+     * Returns the value of the <b>FlushInterval</b> option.
+     *
+     * @return maximum age of a batch in milliseconds, 0 for none.
+     * @since 0.7
+     */
+    public long getFlushInterval() {
+        return this.flushInterval;
+    }
+
+    /**
+     * The batch is written as soon as its oldest record is older than the
+     * interval. The age is checked whenever a record is published and by a
+     * job of the {@link Scheduler} of the repository, so the batch of a
+     * quiet handler is written in time as well.
+     *
+     * @param flushInterval in milliseconds, 0 for none.
+     * @since 0.7
+     */
+    public void setFlushInterval(final long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * Returns the value of the <b>ForceLevel</b> option.
+     *
+     * @return the level from which records are forced to the device.
+     * @since 0.7
+     */
+    public Level getForceLevel() {
+        return this.forceLevel;
+    }
+
+    /**
+     * Records of this level or above are written and forced to the storage
+     * device with <code>FileChannel.force</code> before <code>publish</code>
+     * returns. Only used with <b>GroupCommit</b>.
+     *
+     * @param forceLevel the level, OFF to never force.
+     * @since 0.7
+     */
+    public void setForceLevel(final Level forceLevel) {
+        if (forceLevel != null) {
+            this.forceLevel = forceLevel;
+        }
+    }
+
+    /**
+     * With <b>GroupCommit</b> the batch containing the record is written
+     * after the monitor of this handler has been released, see
+     * {@link GroupCommitWriter#commit()}.
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public void publish(final ExtendedLogRecord record) {
+        super.publish(record);
+        GroupCommitWriter gcw = this.groupCommitWriter;
+        if (gcw != null) {
+            try {
+                gcw.commit();
+            } catch (IOException ioe) {
+                this.active = false;
+                ExtendedLogRecord rec = new ExtendedLogRecordImpl(Level.SEVERE,
+                        MessageText.IO_failure_for_handler_named);
+                rec.setParameters(new Object[] {this.name });
+                rec.setThrown(ioe);
+                getNonFloodingLogger().log(rec);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public synchronized void flush() {
+        if (this.channel != null) {
+            try {
+                this.channelEncoder.flush(getChannelTarget());
+                if (this.groupCommitWriter != null) {
+                    this.groupCommitWriter.flush();
+                }
+            } catch (IOException e) {
+                this.active = false;
+                ExtendedLogRecord record = new ExtendedLogRecordImpl(Level.WARNING,
+                        MessageText.Flush_operation_failed_in_handler);
+                record.setParameters(new Object[] {this.name });
+                record.setThrown(e);
+                getLogger().log(record);
+            }
+        }
+        super.flush();
+    }
+
     /**
      * <p>
      * Sets and <i>opens</i> the file where the log output will go. The
@@ -336,7 +602,9 @@ public class FileHandler extends WriterHandler {
         }
         this.writer = createWriter(ostream);
 
-        if (bufferedIO) {
+        if (this.channelIO || this.groupCommit) {
+            attachChannel(ostream, bufferSize);
+        } else if (bufferedIO) {
             this.writer = new BufferedWriter(this.writer, bufferSize);
         }
 
@@ -350,9 +618,260 @@ public class FileHandler extends WriterHandler {
 
     // ------------------------------------------------------ Protected Methods
 
+    /**
+     * With a channel the writer is flushed right after the header to keep
+     * the order of the output.
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    protected void writeHeader() {
+        super.writeHeader();
+        if (this.channel != null && this.writer != null) {
+            // a header written by the writer already started the stream
+            final String head = getFormatter() == null ? null : getFormatter().getHead(this);
+            this.channelEncoder.reset(head != null && head.length() > 0);
+            try {
+                this.writer.flush();
+            } catch (IOException ioe) {
+                this.active = false;
+                ExtendedLogRecord record = new ExtendedLogRecordImpl(Level.SEVERE,
+                        MessageText.Failed_to_write_header_for_Handler);
+                record.setParameters(new Object[] {this.name });
+                record.setThrown(ioe);
+                getLogger().log(record);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    protected void closeWriter() {
+        try {
+            if (this.groupCommitWriter != null) {
+                // The batch precedes the footer.
+                flush();
+                this.groupCommitWriter.close();
+            }
+        } catch (IOException e) {
+            ExtendedLogRecord record = new ExtendedLogRecordImpl(Level.WARNING,
+                    MessageText.Flush_operation_failed_in_handler);
+            record.setParameters(new Object[] {this.name });
+            record.setThrown(e);
+            getLogger().log(record);
+        } finally {
+            this.groupCommitWriter = null;
+        }
+        try {
+            super.closeWriter();
+        } finally {
+            this.channel = null;
+            this.channelEncoder = null;
+        }
+    }
+
+    /**
+     * Writes the records through the channel of the stream, used with
+     * <b>ChannelIO</b> or <b>GroupCommit</b>. The writer of this handler has
+     * to be created for the same stream.
+     *
+     * @param ostream the file was opened with.
+     * @param bufferSize of the byte buffers, the default if not positive.
+     * @since 0.7
+     */
+    protected void attachChannel(final FileOutputStream ostream, final int bufferSize) {
+        FileChannel fc = ostream.getChannel();
+        attachChannel(fc, bufferSize);
+        if (this.groupCommit) {
+            Scheduler scheduler = null;
+            LoggerRepository repo = getLoggerRepository();
+            if (repo != null && this.flushInterval > 0) {
+                scheduler = repo.getScheduler();
+            }
+            this.groupCommitWriter = new GroupCommitWriter(fc, this.channelEncoder
+                    .getCapacity(), this.flushRecords, this.flushInterval, scheduler);
+        }
+    }
+
+    /**
+     * Writes the records through the given channel, the writer of this
+     * handler has to write to the same target. <b>GroupCommit</b> is not
+     * used.
+     *
+     * @param target the records are encoded to.
+     * @param bufferSize of the byte buffer, the default if not positive.
+     * @since 0.7
+     */
+    protected void attachChannel(final WritableByteChannel target, final int bufferSize) {
+        // Header and footer still pass the writer, see writeHeader().
+        this.channel = target;
+        int capacity = bufferSize;
+        if (capacity <= 0) {
+            capacity = DEFAULT_BUFFER_SIZE;
+        }
+        this.channelEncoder = new ByteBufferEncoder(getCharset(), capacity);
+    }
+
+    /**
+     * Runs an asynchronous rollover action in the {@link RolloverExecutor}
+     * of the repository. Without repository a new thread is started.
+     *
+     * @param action to run, may be <code>null</code>.
+     * @return false if the executor rejected the action, it has to be
+     *         submitted again later.
+     * @since 0.7
+     */
+    protected boolean executeAsynchronous(final Action action) {
+        if (action == null) {
+            return true;
+        }
+        RolloverExecutor executor = getRolloverExecutor();
+        if (executor != null) {
+            return executor.execute(action);
+        }
+        new Thread(action).start();
+        return true;
+    }
+
+    /**
+     * Waits until an action passed to {@link #executeAsynchronous(Action)}
+     * is complete. Actions of other handlers in the executor of the
+     * repository are not waited for.
+     *
+     * @param action to wait for, may be <code>null</code>.
+     * @since 0.7
+     */
+    protected void awaitAsynchronous(final Action action) {
+        if (action == null || action.isComplete()) {
+            return;
+        }
+        RolloverExecutor executor = getRolloverExecutor();
+        if (executor != null) {
+            try {
+                executor.awaitAction(action, 0);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            // Blocks while the action runs.
+            action.close();
+        }
+    }
+
+    /**
+     * Called with the number of bytes of each record written through the
+     * channel. The default does nothing.
+     *
+     * @param bytes encoded length of the record.
+     * @since 0.7
+     */
+    protected void channelBytesWritten(final int bytes) {
+        // NOP
+    }
+
+    /**
+     * @return the batch writer, <code>null</code> without <b>GroupCommit</b>.
+     */
+    GroupCommitWriter getGroupCommitWriter() {
+        return this.groupCommitWriter;
+    }
+
+    /**
+     * With <b>ChannelIO</b> the record is formatted into the buffer of the
+     * encoder and written to the channel, otherwise the writer is used.
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    protected void subAppend(final ExtendedLogRecord record) {
+        if (this.channel == null) {
+            super.subAppend(record);
+            return;
+        }
+        if (!isActive()) {
+            return;
+        }
+
+        try {
+            StringBuffer text = this.channelEncoder.getText();
+            if (this.extFormatter != null) {
+                if (this.extFormatter instanceof AppendingFormatter) {
+                    ((AppendingFormatter) this.extFormatter).format(record, text);
+                } else {
+                    text.append(this.extFormatter.format(record));
+                }
+                if (this.extFormatter.ignoresThrowable()) {
+                    ThrowableInformation ti = record.getThrowableInformation();
+                    if (ti != null) {
+                        int len = ti.getLineCount();
+                        for (int i = 0; i < len; i++) {
+                            text.append(ti.getLine(i));
+                            text.append(SystemUtils.LINE_SEPARATOR);
+                        }
+                    }
+                }
+            } else {
+                text.append(getFormatter().format(FormatterUtil.toJulRecord(record)));
+            }
+            GroupCommitWriter gcw = this.groupCommitWriter;
+            if (gcw != null) {
+                channelBytesWritten(this.channelEncoder.encode(gcw));
+                this.channelEncoder.flush(gcw);
+                gcw.endRecord(record.getLevel().intValue() >= this.forceLevel.intValue()
+                        && this.forceLevel.intValue() != Constants.LEVEL_OFF);
+            } else {
+                channelBytesWritten(this.channelEncoder.encode(this.channel));
+                if (this.immediateFlush) {
+                    this.channelEncoder.flush(this.channel);
+                }
+            }
+        } catch (IOException ioe) {
+            this.active = false;
+            ExtendedLogRecord rec = new ExtendedLogRecordImpl(Level.SEVERE,
+                    MessageText.IO_failure_for_handler_named);
+            rec.setParameters(new Object[] {this.name });
+            rec.setThrown(ioe);
+            getNonFloodingLogger().log(rec);
+        }
+    }
+
 
     // -------------------------------------------------------- Private Methods
 
+    private RolloverExecutor getRolloverExecutor() {
+        LoggerRepository repo = getLoggerRepository();
+        if (repo == null) {
+            return null;
+        }
+        return repo.getRolloverExecutor();
+    }
+
+    /**
+     * @return the batch writer or the channel, monitor held.
+     */
+    private WritableByteChannel getChannelTarget() {
+        if (this.groupCommitWriter != null) {
+            return this.groupCommitWriter;
+        }
+        return this.channel;
+    }
+
+    /**
+     * The charset for the channel, as configured by the encoding.
+     * Falls back to the platform default like <code>createWriter</code>.
+     */
+    private Charset getCharset() {
+        String enc = getEncoding();
+        if (enc != null) {
+            try {
+                return Charset.forName(enc);
+            } catch (IllegalArgumentException e) {
+                getLogger().log(Level.WARNING, MessageText.Unsupported_encoding, enc);
+            }
+        }
+        return ByteBufferEncoder.getDefaultCharset();
+    }
+
 }
 
 // EOF FileHandler.java
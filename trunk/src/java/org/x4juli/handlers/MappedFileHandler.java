@@ -0,0 +1,190 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.handlers;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.logging.Level;
+
+import org.x4juli.global.helper.MappedAppendChannel;
+
+/**
+ * <code>MappedFileHandler</code> appends the formatted records to a memory
+ * mapped region of the file. The region is preallocated in the file, when it
+ * is full the next region is mapped. On close and on rollover the region is
+ * released and the file is truncated to its real length.
+ * <p>
+ * Records are encoded like with the <b>ChannelIO</b> option of
+ * {@link FileHandler}, but copied into the mapped region instead of being
+ * written to the file. The operating system writes the pages of the region
+ * in background, records survive a crash of the VM but not of the operating
+ * system. The options <b>BufferedIO</b>, <b>ChannelIO</b> and
+ * <b>GroupCommit</b> are ignored.
+ * </p>
+ * <p>
+ * A <code>RollingPolicy</code> and a <code>TriggeringPolicy</code> can be
+ * set up like for {@link RollingFileHandler}, i.E.
+ * <code>SizeBasedTriggeringPolicy</code> with
+ * <code>FixedWindowRollingPolicy</code>. Without them the handler never
+ * rolls. The file is always closed before the next one is opened.
+ * </p>
+ *
+ * <table border="1" cellspacing="0" cellpadding="2">
+ * <tr>
+ * <th valign="top" scope="col">Attribute</th>
+ * <th valign="top" scope="col">Description</th>
+ * <th valign="top" scope="col">Required</th>
+ * </tr>
+ * <tr>
+ * <td valign="top">.regionSize</td>
+ * <td valign="top">Number of bytes mapped at once.</td>
+ * <td valign="top">No. Default 1 MB.</td>
+ * </tr>
+ * <tr>
+ * <td valign="top">.triggeringPolicy</td>
+ * <td valign="top">The triggering policy says when a rollover is needed.
+ * Value is the full qualified classname of the triggering policy.</td>
+ * <td valign="top">No. Needed with a rolling policy, unless the rolling
+ * policy is also the triggering policy.</td>
+ * </tr>
+ * <tr>
+ * <td valign="top">.rollingPolicy</td>
+ * <td valign="top">The rolling policy specifies what to do for rollover.
+ * Value is the full qualified classname of the rolling policy.</td>
+ * <td valign="top">No. Default no rolling.</td>
+ * </tr>
+ * </table>
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public final class MappedFileHandler extends RollingFileHandler {
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * Number of bytes mapped at once.
+     */
+    private int regionSize = MappedAppendChannel.DEFAULT_REGION_SIZE;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Default constructor, does not configure or activateOptions.
+     * @since 0.7
+     */
+    public MappedFileHandler() {
+        super();
+    }
+
+    /**
+     * Utility constructor, does not configure or activateOptions.
+     * @param handlerName of this instance.
+     * @since 0.7
+     */
+    public MappedFileHandler(String handlerName) {
+        super(handlerName);
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public String getFullQualifiedClassName() {
+        return "org.x4juli.handlers.MappedFileHandler";
+    }
+
+    /**
+     * Opens the file and maps its first region.
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public synchronized void setFile(String filename, boolean append, boolean bufferedIO,
+            int bufferSize) throws IOException {
+        getLogger().log(Level.FINER, MessageText.SetFile_called,
+                new Object[] {filename, Boolean.valueOf(append) });
+
+        closeWriter();
+
+        MappedAppendChannel mapped = null;
+        try {
+            mapped = new MappedAppendChannel(filename, append, this.regionSize);
+        } catch (FileNotFoundException ex) {
+            File parentDir = new File(new File(filename).getParent());
+            if (!parentDir.exists() && parentDir.mkdirs()) {
+                mapped = new MappedAppendChannel(filename, append, this.regionSize);
+            } else {
+                throw ex;
+            }
+        }
+        this.writer = createWriter(Channels.newOutputStream(mapped));
+        attachChannel(mapped, bufferSize);
+
+        this.fileAppend = append;
+        this.fileName = filename;
+        this.bufferSize = bufferSize;
+        writeHeader();
+        getLogger().log(Level.FINER, MessageText.SetFile_ended);
+    }
+
+    /**
+     * @return number of bytes mapped at once.
+     * @since 0.7
+     */
+    public int getRegionSize() {
+        return this.regionSize;
+    }
+
+    /**
+     * Sets the number of bytes mapped at once, used when the file is opened.
+     *
+     * @param regionSize number of bytes.
+     * @since 0.7
+     */
+    public void setRegionSize(final int regionSize) {
+        if (regionSize > 0) {
+            this.regionSize = regionSize;
+        }
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * Without rolling policy the handler never rolls.
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    protected boolean isRollingPolicyRequired() {
+        return false;
+    }
+
+    /**
+     * The file has to be truncated before the rolling policy renames or
+     * compresses it.
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    protected boolean isOpenedBeforeClose() {
+        return false;
+    }
+
+}
+
+// EOF MappedFileHandler.java
@@ -40,6 +40,7 @@ public interface MessageText {
     public static final String Unable_to_delete = "JH_RUNTIME_18";
     public static final String Exception_during_file_rollover = "JH_RUNTIME_19";
     public static final String Exception_during_purge = "JH_RUNTIME_20";
+    public static final String Discarded_records_in_async_handler = "JH_RUNTIME_21";
 	public static final String No_output_stream_or_file_set_for_the_handler = "JH_CONFIG_1";
     public static final String No_output_stream_or_file_set_for_the_handler_using_default = "JH_CONFIG_2";
 	public static final String No_formatter_set_for_the_appender = "JH_CONFIG_3";
@@ -54,6 +55,7 @@ public interface MessageText {
     public static final String Value_should_be_Systemout_or_System_err = "JH_CONFIG_12";
     public static final String Using_previously_set_target_Systemout_by_default = "JH_CONFIG_13";
     public static final String No_fileNamePattern_set_for_rolling = "JH_CONFIG_14";
+    public static final String Unknown_overflow_policy = "JH_CONFIG_15";
     public static final String Finalizing_handler_named = "JH_INFO_1";
     public static final String Setting_maxIndex_equal_to_minIndex = "JH_INFO_2";
     public static final String MaxIndex_reduced_to = "JH_INFO_3";
@@ -25,8 +25,10 @@ import java.util.logging.Level;
 
 import org.x4juli.global.helper.Loader;
 import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.LoggerRepository;
 import org.x4juli.handlers.rolling.RollingPolicy;
 import org.x4juli.handlers.rolling.RolloverDescription;
+import org.x4juli.handlers.rolling.ScheduledTriggeringPolicy;
 import org.x4juli.handlers.rolling.TimeBasedRollingPolicy;
 import org.x4juli.handlers.rolling.TriggeringPolicy;
 import org.x4juli.handlers.rolling.helper.Action;
@@ -87,7 +89,7 @@ import org.x4juli.handlers.rolling.nop.NOPTriggeringPolicy;
  * @author Boris Unckel
  * @since 0.5
  */
-public final class RollingFileHandler extends FileHandler {
+public class RollingFileHandler extends FileHandler {
 
     // -------------------------------------------------------------- Variables
     /**
@@ -110,6 +112,12 @@ public final class RollingFileHandler extends FileHandler {
      */
     private Action lastRolloverAsyncAction = null;
 
+    /**
+     * False if the executor rejected the asynchronous action, it is submitted
+     * again before the next rollover.
+     */
+    private boolean lastRolloverAsyncQueued = true;
+
     // ----------------------------------------------------------- Constructors
 
     /**
@@ -146,7 +154,11 @@ public final class RollingFileHandler extends FileHandler {
      */
     public void activateOptions() {
         if (this.rollingPolicy == null) {
-            getLogger().log(Level.WARNING, MessageText.Please_set_a_rolling_policy, this.name);
+            if (isRollingPolicyRequired()) {
+                getLogger().log(Level.WARNING, MessageText.Please_set_a_rolling_policy, this.name);
+            } else {
+                super.activateOptions();
+            }
             return;
         }
 
@@ -179,11 +191,7 @@ public final class RollingFileHandler extends FileHandler {
                     setFile(rollover.getActiveFileName());
                     setAppend(rollover.getAppend());
                     this.lastRolloverAsyncAction = rollover.getAsynchronous();
-
-                    if (this.lastRolloverAsyncAction != null) {
-                        Thread runner = new Thread(this.lastRolloverAsyncAction);
-                        runner.start();
-                    }
+                    this.lastRolloverAsyncQueued = executeAsynchronous(this.lastRolloverAsyncAction);
                 }
 
                 File activeFile = new File(getFile());
@@ -199,6 +207,11 @@ public final class RollingFileHandler extends FileHandler {
                 getLogger().log(Level.WARNING, MessageText.Exception_is, ex);
             }
         }
+
+        LoggerRepository repo = getLoggerRepository();
+        if (repo != null && this.triggeringPolicy instanceof ScheduledTriggeringPolicy) {
+            ((ScheduledTriggeringPolicy) this.triggeringPolicy).schedule(this, repo.getScheduler());
+        }
     }
 
     /**
@@ -209,7 +222,8 @@ public final class RollingFileHandler extends FileHandler {
     protected void subAppend(final ExtendedLogRecord record) {
         // The rollover check must precede actual writing. This is the
         // only correct behavior for time driven triggers.
-        if (this.triggeringPolicy.isTriggeringEvent(this, record, getFile(), getFileLength())) {
+        if (this.triggeringPolicy != null
+                && this.triggeringPolicy.isTriggeringEvent(this, record, getFile(), getFileLength())) {
             //
             // wrap rollover request in try block since
             // rollover may fail in case read access to directory
@@ -242,6 +256,11 @@ public final class RollingFileHandler extends FileHandler {
      * If <code>MaxBackupIndex</code> is equal to zero, then the
      * <code>File</code> is truncated with no backup files created.
      *
+     * <p>
+     * While the asynchronous action of the previous rollover, i.E. the
+     * compression, is not complete, the rollover is deferred to a later
+     * triggering event and the logging thread does not wait.
+     *
      * @return true if rollover performed.
      * @since 0.5
      */
@@ -254,26 +273,28 @@ public final class RollingFileHandler extends FileHandler {
 
             synchronized (this) {
                 //
-                // if a previous async task is still running
-                // }
+                // if a previous async task is still running or was rejected
+                // by a full executor don't block and return to rollover later
+                //
                 if (this.lastRolloverAsyncAction != null) {
-                    //
-                    // block until complete
-                    //
-                    this.lastRolloverAsyncAction.close();
-
-                    //
-                    // or don't block and return to rollover later
-                    //
-                    // if (!lastRolloverAsyncAction.isComplete()) return false;
+                    if (!this.lastRolloverAsyncQueued) {
+                        this.lastRolloverAsyncQueued =
+                                executeAsynchronous(this.lastRolloverAsyncAction);
+                        return false;
+                    }
+                    if (!this.lastRolloverAsyncAction.isComplete()) {
+                        return false;
+                    }
+                    this.lastRolloverAsyncAction = null;
                 }
 
                 try {
                     RolloverDescription rollover = this.rollingPolicy.rollover(getFile());
 
                     if (rollover != null) {
-                        if (rollover.getActiveFileName().equals(getFile())) {
-                            close();
+                        if (rollover.getActiveFileName().equals(getFile()) || !isOpenedBeforeClose()) {
+                            // not close(), the scheduled rollover goes on
+                            super.close();
 
                             boolean success = true;
 
@@ -294,10 +315,9 @@ public final class RollingFileHandler extends FileHandler {
                                     this.fileLength = 0;
                                 }
 
-                                if (rollover.getAsynchronous() != null) {
-                                    this.lastRolloverAsyncAction = rollover.getAsynchronous();
-                                    new Thread(this.lastRolloverAsyncAction).start();
-                                }
+                                this.lastRolloverAsyncAction = rollover.getAsynchronous();
+                                this.lastRolloverAsyncQueued =
+                                        executeAsynchronous(this.lastRolloverAsyncAction);
 
                                 setFile(rollover.getActiveFileName(), rollover.getAppend(),
                                         this.bufferedIO, this.bufferSize);
@@ -312,11 +332,15 @@ public final class RollingFileHandler extends FileHandler {
                             }
                             this.closed = false;
                         } else {
-                            Writer newWriter = createWriter(new FileOutputStream(rollover
-                                    .getActiveFileName(), rollover.getAppend()));
-                            close();
+                            FileOutputStream newStream = new FileOutputStream(rollover
+                                    .getActiveFileName(), rollover.getAppend());
+                            Writer newWriter = createWriter(newStream);
+                            super.close();
                             setFile(rollover.getActiveFileName());
                             this.writer = newWriter;
+                            if (this.channelIO || this.groupCommit) {
+                                attachChannel(newStream, this.bufferSize);
+                            }
 
                             boolean success = true;
 
@@ -337,10 +361,9 @@ public final class RollingFileHandler extends FileHandler {
                                     this.fileLength = 0;
                                 }
 
-                                if (rollover.getAsynchronous() != null) {
-                                    this.lastRolloverAsyncAction = rollover.getAsynchronous();
-                                    new Thread(this.lastRolloverAsyncAction).start();
-                                }
+                                this.lastRolloverAsyncAction = rollover.getAsynchronous();
+                                this.lastRolloverAsyncQueued =
+                                        executeAsynchronous(this.lastRolloverAsyncAction);
                             }
                             this.closed = false;
                             writeHeader();
@@ -404,17 +427,33 @@ public final class RollingFileHandler extends FileHandler {
 
     /**
      * Close appender. Waits for any asynchronous file compression actions to be
-     * completed.
+     * completed and cancels the scheduled rollover. An action rejected by the
+     * executor is run by an own thread.
      *
      * @since 0.5
      */
     public void close() {
         synchronized (this) {
-            if (this.lastRolloverAsyncAction != null) {
-                this.lastRolloverAsyncAction.close();
+            if (this.lastRolloverAsyncAction != null && !this.lastRolloverAsyncQueued) {
+                // rejected by the executor, run by an own thread as without repository
+                Thread thread = new Thread(this.lastRolloverAsyncAction);
+                thread.start();
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            } else {
+                awaitAsynchronous(this.lastRolloverAsyncAction);
             }
+            this.lastRolloverAsyncAction = null;
+            this.lastRolloverAsyncQueued = true;
         }
         super.close();
+        // outside the monitor, the rollover job takes it
+        if (this.triggeringPolicy instanceof ScheduledTriggeringPolicy) {
+            ((ScheduledTriggeringPolicy) this.triggeringPolicy).cancel();
+        }
     }
 
     /**
@@ -439,6 +478,41 @@ public final class RollingFileHandler extends FileHandler {
 
     // ------------------------------------------------------ Protected Methods
 
+    /**
+     * Without rolling policy <code>activateOptions</code> fails. Subclasses
+     * which are able to write without rolling return false.
+     *
+     * @return true if a rolling policy has to be set.
+     * @since 0.7
+     */
+    protected boolean isRollingPolicyRequired() {
+        return true;
+    }
+
+    /**
+     * On rollover to a new file name the new file is opened with a
+     * <code>FileOutputStream</code> before the current one is closed.
+     * Subclasses which open their files differently return false, the
+     * current file is then closed first and the new one opened by
+     * {@link #setFile(String, boolean, boolean, int)}.
+     *
+     * @return true to open the new file before closing the current one.
+     * @since 0.7
+     */
+    protected boolean isOpenedBeforeClose() {
+        return true;
+    }
+
+    /**
+     * Records written through the channel bypass the counting stream of the
+     * writer.
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    protected void channelBytesWritten(final int bytes) {
+        incrementFileLength(bytes);
+    }
+
     /**
      * Returns an OutputStreamWriter when passed an OutputStream. The encoding
      * used will depend on the value of the <code>encoding</code> property. If
@@ -16,8 +16,8 @@
 package org.x4juli.handlers;
 
 import java.util.logging.Handler;
-import java.util.logging.LogRecord;
 
+import org.x4juli.formatter.helper.FormatterUtil;
 import org.x4juli.global.spi.ExtendedLogRecord;
 
 /**
@@ -43,7 +43,7 @@ public class WrapperHandler extends AbstractHandler {
      * @since 0.7
      */
     protected void appendLogRecord(final ExtendedLogRecord record) {
-        wrappedHandler.publish((LogRecord)record);
+        wrappedHandler.publish(FormatterUtil.toJulRecord(record));
     }
 
     /**
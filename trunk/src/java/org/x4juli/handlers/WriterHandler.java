@@ -21,8 +21,8 @@ import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.logging.Formatter;
 import java.util.logging.Level;
-import java.util.logging.LogRecord;
 
+import org.x4juli.formatter.helper.FormatterUtil;
 import org.x4juli.global.SystemUtils;
 import org.x4juli.global.helper.IOUtil;
 import org.x4juli.global.spi.ExtendedLogRecord;
@@ -339,21 +339,17 @@ public class WriterHandler extends AbstractHandler {
                 if (this.extFormatter.ignoresThrowable()) {
                     ThrowableInformation ti = record.getThrowableInformation();
                     if (ti != null) {
-                        String[] s = ti.getThrowableStrRep();
-                        if (s != null) {
-                            int len = s.length;
-
-                            for (int i = 0; i < len; i++) {
-                                this.writer.write(s[i]);
-                                this.writer.write(SystemUtils.LINE_SEPARATOR);
-                            }
+                        int len = ti.getLineCount();
+                        for (int i = 0; i < len; i++) {
+                            this.writer.write(ti.getLine(i));
+                            this.writer.write(SystemUtils.LINE_SEPARATOR);
                         }
                     }
                 }
             } else {
                 // Case: There is not an ExtendedFormatter but
                 // java.util.logging.Formatter
-                toAppend = getFormatter().format((LogRecord) record);
+                toAppend = getFormatter().format(FormatterUtil.toJulRecord(record));
                 this.writer.write(toAppend);
             }
 
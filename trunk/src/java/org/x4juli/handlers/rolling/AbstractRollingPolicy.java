@@ -15,6 +15,7 @@
  */
 package org.x4juli.handlers.rolling;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
@@ -28,11 +29,22 @@ import org.x4juli.global.resources.MessageProperties;
 import org.x4juli.global.spi.AbstractComponent;
 import org.x4juli.global.spi.OptionHandler;
 import org.x4juli.handlers.MessageText;
+import org.x4juli.handlers.rolling.helper.Action;
+import org.x4juli.handlers.rolling.helper.GZCompressAction;
+import org.x4juli.handlers.rolling.helper.ParallelGZCompressAction;
+import org.x4juli.handlers.rolling.helper.ParallelZipCompressAction;
+import org.x4juli.handlers.rolling.helper.ZipCompressAction;
 
 /**
  * Implements methods common to most, it not all, rolling policies. Currently
  * such methods are limited to a compression mode getter/setter.
  * <p>
+ * The compression is chosen by the suffix <code>.gz</code> or
+ * <code>.zip</code> of the file name pattern. With a
+ * <b>CompressionParallelism</b> greater than one, the rolled over file is
+ * compressed in blocks on that many threads.
+ * </p>
+ * <p>
  * Logging API as a whole was originally done for <a
  * href="http://logging.apache.org/log4j/">Apache log4j</a>. <b>Juli</b> is a
  * port of main parts of that to complete the <a
@@ -74,6 +86,11 @@ public abstract class AbstractRollingPolicy extends AbstractComponent implements
      */
     protected String activeFileName;
 
+    /**
+     * Number of threads compressing a rolled over file.
+     */
+    private int compressionParallelism = 1;
+
     // ----------------------------------------------------------- Constructors
 
     /**
@@ -139,6 +156,26 @@ public abstract class AbstractRollingPolicy extends AbstractComponent implements
         return this.fileNamePatternStr;
     }
 
+    /**
+     * Get the number of threads compressing a rolled over file.
+     *
+     * @return number of threads, 1 compresses sequentially.
+     * @since 0.7
+     */
+    public int getCompressionParallelism() {
+        return this.compressionParallelism;
+    }
+
+    /**
+     * Set the number of threads compressing a rolled over file.
+     *
+     * @param parallelism number of threads, 1 compresses sequentially.
+     * @since 0.7
+     */
+    public void setCompressionParallelism(final int parallelism) {
+        this.compressionParallelism = Math.max(1, parallelism);
+    }
+
     /**
      * {@inheritDoc}
      * @since 0.5
@@ -198,6 +235,36 @@ public abstract class AbstractRollingPolicy extends AbstractComponent implements
         }
     }
 
+    /**
+     * Creates the action compressing a rolled over file, chosen by the
+     * suffix of the compressed file name and the compression parallelism.
+     *
+     * @param source file to compress.
+     * @param compressedName name ending with <code>.gz</code> or
+     *            <code>.zip</code>.
+     * @return the compress action or <code>null</code> for an unknown
+     *         suffix.
+     * @since 0.7
+     */
+    protected final Action createCompressAction(final File source, final String compressedName) {
+        final File destination = new File(compressedName);
+        if (compressedName.endsWith(".gz")) {
+            if (this.compressionParallelism > 1) {
+                return new ParallelGZCompressAction(source, destination, true,
+                        this.compressionParallelism);
+            }
+            return new GZCompressAction(source, destination, true);
+        }
+        if (compressedName.endsWith(".zip")) {
+            if (this.compressionParallelism > 1) {
+                return new ParallelZipCompressAction(source, destination, true,
+                        this.compressionParallelism);
+            }
+            return new ZipCompressAction(source, destination, true);
+        }
+        return null;
+    }
+
     /**
      * Returns the first occuring <code>DatePatternConverter</code> in the
      * pattern Converter array.
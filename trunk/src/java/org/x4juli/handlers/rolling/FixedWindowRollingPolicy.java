@@ -26,8 +26,6 @@ import org.x4juli.global.Constants;
 import org.x4juli.handlers.MessageText;
 import org.x4juli.handlers.rolling.helper.Action;
 import org.x4juli.handlers.rolling.helper.FileRenameAction;
-import org.x4juli.handlers.rolling.helper.GZCompressAction;
-import org.x4juli.handlers.rolling.helper.ZipCompressAction;
 
 /**
  * When rolling over, <code>FixedWindowRollingPolicy</code> renames files
@@ -172,12 +170,10 @@ public class FixedWindowRollingPolicy extends AbstractRollingPolicy {
 
             if (renameTo.endsWith(".gz")) {
                 renameTo = renameTo.substring(0, renameTo.length() - 3);
-                compressAction = new GZCompressAction(new File(renameTo), new File(compressedName),
-                        true);
+                compressAction = createCompressAction(new File(renameTo), compressedName);
             } else if (renameTo.endsWith(".zip")) {
                 renameTo = renameTo.substring(0, renameTo.length() - 4);
-                compressAction = new ZipCompressAction(new File(renameTo),
-                        new File(compressedName), true);
+                compressAction = createCompressAction(new File(renameTo), compressedName);
             }
 
             FileRenameAction renameAction = new FileRenameAction(new File(currentFileName),
@@ -234,6 +230,9 @@ public class FixedWindowRollingPolicy extends AbstractRollingPolicy {
         // MaxIndex
         key = className + ".maxIndex";
         setMaxIndex(getProperty(key, 7));
+        // CompressionParallelism
+        key = className + ".compressionParallelism";
+        setCompressionParallelism(getProperty(key, 1));
 
         // FileNamePattern
         key = className + ".filenamePattern";
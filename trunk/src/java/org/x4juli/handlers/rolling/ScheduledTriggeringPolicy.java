@@ -0,0 +1,57 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.handlers.rolling;
+
+import org.x4juli.global.scheduler.Scheduler;
+import org.x4juli.handlers.RollingFileHandler;
+
+/**
+ * A <code>TriggeringPolicy</code> which knows in advance when the next
+ * rollover is due. The {@link RollingFileHandler} hands it the
+ * {@link Scheduler} of its repository after activation, the policy then rolls
+ * over by a job at the due time instead of checking each record.
+ *
+ * <p>
+ * The job runs on a worker of the scheduler and takes the monitor of the
+ * handler when rolling over, like the logging threads do.
+ * </p>
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public interface ScheduledTriggeringPolicy extends TriggeringPolicy {
+
+    /**
+     * Schedules the rollover of <code>handler</code>, replacing a job
+     * scheduled before. The handler cancels the job when it is closed.
+     *
+     * @param handler to roll over.
+     * @param scheduler to run the job.
+     * @since 0.7
+     */
+    void schedule(RollingFileHandler handler, Scheduler scheduler);
+
+    /**
+     * Removes the scheduled job, if any. Records are checked again. Called
+     * without holding the monitor of the handler.
+     *
+     * @since 0.7
+     */
+    void cancel();
+
+}
+
+// EOF ScheduledTriggeringPolicy.java
@@ -16,19 +16,22 @@
 package org.x4juli.handlers.rolling;
 
 import java.io.File;
+import java.util.Calendar;
 import java.util.Date;
 import java.util.Random;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 
 import org.x4juli.formatter.pattern.PatternConverter;
+import org.x4juli.global.Clock;
 import org.x4juli.global.Constants;
+import org.x4juli.global.scheduler.Job;
+import org.x4juli.global.scheduler.Scheduler;
 import org.x4juli.global.spi.ExtendedLogRecord;
 import org.x4juli.handlers.MessageText;
+import org.x4juli.handlers.RollingFileHandler;
 import org.x4juli.handlers.rolling.helper.Action;
 import org.x4juli.handlers.rolling.helper.FileRenameAction;
-import org.x4juli.handlers.rolling.helper.GZCompressAction;
-import org.x4juli.handlers.rolling.helper.ZipCompressAction;
 
 /**
  * <code>TimeBasedRollingPolicy</code> is both easy to configure and quite
@@ -101,6 +104,16 @@ import org.x4juli.handlers.rolling.helper.ZipCompressAction;
  * </tr>
  * </table>
  *
+ * <h2>Scheduled rollover</h2>
+ * The policy derives the period of the rollover (second, minute, hour, day,
+ * week, month or year) from the date pattern. Attached to a
+ * <code>RollingFileHandler</code> of a repository, it rolls over by a job of
+ * the repository's {@link Scheduler} at the start of each period, also if no
+ * record arrives. The check of each record then reads a flag, which is set if
+ * the scheduled rollover had to be deferred. Once the scheduler is shut down,
+ * records are checked against the start of the next period again, like
+ * without a repository.
+ *
  * <p>
  * If configuring programatically, do not forget to call
  * {@link #activateOptions} method before using this policy. Moreover,
@@ -123,13 +136,37 @@ import org.x4juli.handlers.rolling.helper.ZipCompressAction;
  * @author Boris Unckel
  * @since 0.5
  */
-public class TimeBasedRollingPolicy extends AbstractRollingPolicy implements TriggeringPolicy {
+public class TimeBasedRollingPolicy extends AbstractRollingPolicy implements
+        ScheduledTriggeringPolicy {
     // -------------------------------------------------------------- Variables
 
+    /**
+     * Calendar fields tried as rollover period, shortest first.
+     */
+    private static final int[] PERIODS = new int[] {Calendar.SECOND, Calendar.MINUTE,
+            Calendar.HOUR_OF_DAY, Calendar.DAY_OF_MONTH, Calendar.WEEK_OF_YEAR, Calendar.MONTH,
+            Calendar.YEAR };
+
     /**
      * Time for next determination if time for rollover.
      */
-    private long nextCheck = 0;
+    private volatile long nextCheck = 0;
+
+    /**
+     * Index of the rollover period in {@link #PERIODS}, -1 if the date pattern
+     * does not match any of them.
+     */
+    private int periodicity = -1;
+
+    /**
+     * The scheduled rollover job, null if records are checked.
+     */
+    private volatile RolloverJob job = null;
+
+    /**
+     * Set if the scheduled rollover was deferred, the next record triggers it.
+     */
+    private volatile boolean triggered = false;
 
     /**
      * File name at last rollover.
@@ -167,10 +204,43 @@ public class TimeBasedRollingPolicy extends AbstractRollingPolicy implements Tri
      */
     public boolean isTriggeringEvent(final Handler handler, final ExtendedLogRecord record,
             final String filename, final long fileLength) {
-        boolean ret = System.currentTimeMillis() >= this.nextCheck;
+        final RolloverJob scheduled = this.job;
+        if (scheduled != null && !scheduled.scheduler.isShutdown()) {
+            return this.triggered;
+        }
+        boolean ret = Clock.currentTimeMillis() >= this.nextCheck;
         return ret;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.7
+     */
+    public void schedule(final RollingFileHandler handler, final Scheduler scheduler) {
+        cancel();
+        if (this.periodicity == -1) {
+            return;
+        }
+        RolloverJob newJob = new RolloverJob(handler, scheduler, this.nextCheck);
+        this.job = newJob;
+        newJob.reschedule();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.7
+     */
+    public void cancel() {
+        RolloverJob oldJob = this.job;
+        this.job = null;
+        this.triggered = false;
+        if (oldJob != null) {
+            oldJob.scheduler.delete(oldJob);
+        }
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -178,12 +248,12 @@ public class TimeBasedRollingPolicy extends AbstractRollingPolicy implements Tri
      */
     public RolloverDescription initialize(final String currentActiveFile, final boolean append)
             throws SecurityException {
-        long n = System.currentTimeMillis();
-        this.nextCheck = ((n / 1000) + 1) * 1000;
+        long n = Clock.currentTimeMillis();
 
         StringBuffer buf = new StringBuffer();
         formatFileName(new Date(n), buf);
         this.lastFileName = buf.toString();
+        this.nextCheck = nextCheck(n, this.lastFileName);
 
         //
         // RollingPolicyBase.activeFileName duplicates RollingFileHandler.file
@@ -209,13 +279,14 @@ public class TimeBasedRollingPolicy extends AbstractRollingPolicy implements Tri
      * @since 0.5
      */
     public RolloverDescription rollover(final String currentActiveFile) throws SecurityException {
-        long n = System.currentTimeMillis();
-        this.nextCheck = ((n / 1000) + 1) * 1000;
+        long n = Clock.currentTimeMillis();
+        this.triggered = false;
 
         StringBuffer buf = new StringBuffer();
         formatFileName(new Date(n), buf);
 
         String newFileName = buf.toString();
+        this.nextCheck = nextCheck(n, newFileName);
 
         //
         // if file names haven't changed, no rollover
@@ -239,14 +310,8 @@ public class TimeBasedRollingPolicy extends AbstractRollingPolicy implements Tri
             nextActiveFile = currentActiveFile;
         }
 
-        if (this.suffixLength == 3) {
-            compressAction = new GZCompressAction(new File(lastBaseName), new File(this.lastFileName),
-                    true);
-        }
-
-        if (this.suffixLength == 4) {
-            compressAction = new ZipCompressAction(new File(lastBaseName), new File(this.lastFileName),
-                    true);
+        if (this.suffixLength > 0) {
+            compressAction = createCompressAction(new File(lastBaseName), this.lastFileName);
         }
 
         this.lastFileName = newFileName;
@@ -268,7 +333,7 @@ public class TimeBasedRollingPolicy extends AbstractRollingPolicy implements Tri
                     + "] does not contain a valid date format specifier");
         }
 
-        long n = System.currentTimeMillis();
+        long n = Clock.currentTimeMillis();
         StringBuffer buf = new StringBuffer();
         formatFileName(new Date(n), buf);
         this.lastFileName = buf.toString();
@@ -280,6 +345,8 @@ public class TimeBasedRollingPolicy extends AbstractRollingPolicy implements Tri
         } else if (this.lastFileName.endsWith(".zip")) {
             this.suffixLength = 4;
         }
+        this.periodicity = computePeriodicity();
+        this.nextCheck = nextCheck(n, this.lastFileName);
     }
 
     /**
@@ -304,6 +371,149 @@ public class TimeBasedRollingPolicy extends AbstractRollingPolicy implements Tri
                     new Object[]{defaultfileName});
             setFileNamePattern(defaultfileName);
         }
+        //CompressionParallelism
+        key = className + ".compressionParallelism";
+        setCompressionParallelism(getProperty(key, 1));
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Finds the shortest period whose increment changes the file name.
+     *
+     * @return index in {@link #PERIODS}, -1 if none.
+     */
+    private int computePeriodicity() {
+        Calendar reference = Calendar.getInstance();
+        reference.clear();
+        reference.set(2000, Calendar.JANUARY, 3, 12, 30, 30);
+        final String base = fileNameAt(reference.getTimeInMillis());
+        for (int i = 0; i < PERIODS.length; i++) {
+            Calendar next = (Calendar) reference.clone();
+            next.add(PERIODS[i], 1);
+            if (!fileNameAt(next.getTimeInMillis()).equals(base)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the start of the next period, if the file name changes there
+     * and not before. Otherwise, e.g. for a time zone in the date pattern
+     * which differs from the default, the next second is returned.
+     *
+     * @param n current time.
+     * @param currentName file name at <code>n</code>.
+     * @return time of the next check.
+     */
+    private long nextCheck(final long n, final String currentName) {
+        if (this.periodicity != -1) {
+            long boundary = nextBoundary(n);
+            if (boundary > n && fileNameAt(boundary - 1).equals(currentName)
+                    && !fileNameAt(boundary).equals(currentName)) {
+                return boundary;
+            }
+        }
+        return ((n / 1000) + 1) * 1000;
+    }
+
+    private long nextBoundary(final long n) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(n);
+        cal.set(Calendar.MILLISECOND, 0);
+        if (this.periodicity >= 1) {
+            cal.set(Calendar.SECOND, 0);
+        }
+        if (this.periodicity >= 2) {
+            cal.set(Calendar.MINUTE, 0);
+        }
+        if (this.periodicity >= 3) {
+            cal.set(Calendar.HOUR_OF_DAY, 0);
+        }
+        if (PERIODS[this.periodicity] == Calendar.WEEK_OF_YEAR) {
+            cal.set(Calendar.DAY_OF_WEEK, cal.getFirstDayOfWeek());
+        }
+        if (this.periodicity >= 5) {
+            cal.set(Calendar.DAY_OF_MONTH, 1);
+        }
+        if (this.periodicity >= 6) {
+            cal.set(Calendar.MONTH, Calendar.JANUARY);
+        }
+        cal.add(PERIODS[this.periodicity], 1);
+        return cal.getTimeInMillis();
+    }
+
+    private String fileNameAt(final long time) {
+        StringBuffer buf = new StringBuffer();
+        formatFileName(new Date(time), buf);
+        return buf.toString();
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Rolls the handler over at the start of each period. Runs on a worker of
+     * the scheduler, one execution at a time.
+     */
+    private final class RolloverJob implements Job {
+
+        private final RollingFileHandler handler;
+
+        private final Scheduler scheduler;
+
+        /**
+         * Clock time of the next rollover, accessed by the executing job only.
+         */
+        private long due;
+
+        RolloverJob(final RollingFileHandler handler, final Scheduler scheduler, final long due) {
+            this.handler = handler;
+            this.scheduler = scheduler;
+            this.due = due;
+        }
+
+        public void execute() {
+            if (TimeBasedRollingPolicy.this.job != this) {
+                return;
+            }
+            final boolean closed;
+            synchronized (this.handler) {
+                closed = this.handler.isClosed();
+            }
+            if (closed) {
+                TimeBasedRollingPolicy.this.job = null;
+                return;
+            }
+            final long now = Clock.currentTimeMillis();
+            if (now >= this.due) {
+                if (!this.handler.rollover()
+                        && Clock.currentTimeMillis() >= TimeBasedRollingPolicy.this.nextCheck) {
+                    // deferred, the next record or the next second retries
+                    TimeBasedRollingPolicy.this.triggered = true;
+                }
+                long next = TimeBasedRollingPolicy.this.nextCheck;
+                this.due = next > now ? next : now + 1000;
+            }
+            reschedule();
+        }
+
+        /**
+         * Schedules this job at {@link #due}, translated to system time. A
+         * scheduler which is shut down drops the job, records are checked
+         * again then.
+         */
+        void reschedule() {
+            if (TimeBasedRollingPolicy.this.job != this) {
+                return;
+            }
+            if (this.scheduler.isShutdown()) {
+                TimeBasedRollingPolicy.this.job = null;
+                return;
+            }
+            long delay = Math.max(0, this.due - Clock.currentTimeMillis());
+            this.scheduler.schedule(this, System.currentTimeMillis() + delay);
+        }
     }
 
 }
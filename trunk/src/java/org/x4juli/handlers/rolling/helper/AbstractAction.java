@@ -41,9 +41,9 @@ public abstract class AbstractAction extends AbstractComponent implements Action
 
     // -------------------------------------------------------------- Variables
     /**
-     * Is action complete.
+     * Is action complete. Read without lock, run() holds it while executing.
      */
-    private boolean complete = false;
+    private volatile boolean complete = false;
 
     /**
      * Is action interrupted.
@@ -69,10 +69,10 @@ public abstract class AbstractAction extends AbstractComponent implements Action
     }
 
     /**
-     * Tests if the action is complete.
+     * Tests if the action is complete, does not wait for a running action.
      * @return true if action is complete.
      */
-    public synchronized boolean isComplete() {
+    public boolean isComplete() {
       return this.complete;
     }
 
@@ -93,10 +93,10 @@ public abstract class AbstractAction extends AbstractComponent implements Action
           execute();
         } catch (IOException ex) {
           reportException(ex);
+        } finally {
+          this.complete = true;
+          this.interrupted = true;
         }
-
-        this.complete = true;
-        this.interrupted = true;
       }
     }
 
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.handlers.rolling.helper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedList;
+
+/**
+ * Splits a stream into blocks of fixed size and compresses them in a number
+ * of worker threads. The compressed blocks are written in their original
+ * order. Subclasses define how a single block is compressed.
+ * <p>
+ * The calling thread reads the input and writes the output, the workers only
+ * compress. At most two blocks per worker are in memory at once.
+ * </p>
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+abstract class BlockCompressor {
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * Default size of an uncompressed block.
+     */
+    static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+    /**
+     * Size of the dictionary carried from one block to the next.
+     */
+    static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private final int parallelism;
+
+    private final int blockSize;
+
+    /**
+     * Blocks waiting for a worker.
+     */
+    private final LinkedList queue = new LinkedList();
+
+    /**
+     * Blocks submitted and not yet written, in order.
+     */
+    private final LinkedList inFlight = new LinkedList();
+
+    /**
+     * Buffers of written blocks for reuse.
+     */
+    private final LinkedList freeBuffers = new LinkedList();
+
+    private boolean stopped = false;
+
+    private long readBytes = 0;
+
+    private long writtenBytes = 0;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * @param parallelism number of worker threads, at least one is used.
+     * @param blockSize size of an uncompressed block, the default if not
+     *            positive.
+     */
+    BlockCompressor(final int parallelism, final int blockSize) {
+        this.parallelism = Math.max(1, parallelism);
+        this.blockSize = (blockSize > 0) ? blockSize : DEFAULT_BLOCK_SIZE;
+    }
+
+    // ------------------------------------------------------ Package Methods
+
+    /**
+     * Compresses the whole input. Neither stream is closed. An empty input
+     * results in one empty block.
+     *
+     * @param in uncompressed data.
+     * @param out receives the compressed blocks.
+     * @throws IOException if reading, writing or compression fails.
+     */
+    final void compress(final InputStream in, final OutputStream out) throws IOException {
+        final String prefix = Thread.currentThread().getName() + "-compress-";
+        Thread[] workers = new Thread[this.parallelism];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(new Worker(), prefix + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        try {
+            byte[] dictionary = null;
+            Block current = readBlock(in);
+            if (current == null) {
+                current = new Block(new byte[0], 0);
+            }
+            while (current != null) {
+                Block next = readBlock(in);
+                current.last = (next == null);
+                current.dictionary = dictionary;
+                dictionary = tail(current);
+                submit(current);
+                if (this.inFlight.size() >= 2 * this.parallelism) {
+                    writeBlock((Block) this.inFlight.removeFirst(), out);
+                }
+                current = next;
+            }
+            while (!this.inFlight.isEmpty()) {
+                writeBlock((Block) this.inFlight.removeFirst(), out);
+            }
+        } finally {
+            synchronized (this.queue) {
+                this.stopped = true;
+                this.queue.clear();
+                this.queue.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Compresses one block.
+     *
+     * @param data uncompressed bytes.
+     * @param len number of valid bytes in <code>data</code>.
+     * @param dictionary the last bytes of the previous block or
+     *            <code>null</code> for the first block.
+     * @param last true for the last block of the input.
+     * @param out receives the compressed block.
+     * @throws IOException if compression fails.
+     */
+    abstract void compressBlock(byte[] data, int len, byte[] dictionary, boolean last,
+            ByteArrayOutputStream out) throws IOException;
+
+    /**
+     * Called in the reading thread for each block in order, before it is
+     * compressed.
+     *
+     * @param data uncompressed bytes.
+     * @param len number of valid bytes in <code>data</code>.
+     */
+    void blockRead(final byte[] data, final int len) {
+        // NOP
+    }
+
+    /**
+     * @return number of uncompressed bytes read.
+     */
+    final long getReadBytes() {
+        return this.readBytes;
+    }
+
+    /**
+     * @return number of compressed bytes written.
+     */
+    final long getWrittenBytes() {
+        return this.writtenBytes;
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private Block readBlock(final InputStream in) throws IOException {
+        byte[] data;
+        if (this.freeBuffers.isEmpty()) {
+            data = new byte[this.blockSize];
+        } else {
+            data = (byte[]) this.freeBuffers.removeFirst();
+        }
+        int len = 0;
+        while (len < data.length) {
+            int n = in.read(data, len, data.length - len);
+            if (n < 0) {
+                break;
+            }
+            len += n;
+        }
+        if (len == 0) {
+            this.freeBuffers.addLast(data);
+            return null;
+        }
+        this.readBytes += len;
+        blockRead(data, len);
+        return new Block(data, len);
+    }
+
+    private static byte[] tail(final Block block) {
+        int len = Math.min(DICTIONARY_SIZE, block.len);
+        byte[] tail = new byte[len];
+        System.arraycopy(block.data, block.len - len, tail, 0, len);
+        return tail;
+    }
+
+    private void submit(final Block block) {
+        synchronized (this.queue) {
+            this.queue.addLast(block);
+            this.queue.notify();
+        }
+        this.inFlight.addLast(block);
+    }
+
+    private void writeBlock(final Block block, final OutputStream out) throws IOException {
+        synchronized (block) {
+            while (!block.done) {
+                try {
+                    block.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while compressing");
+                }
+            }
+        }
+        if (block.error instanceof IOException) {
+            throw (IOException) block.error;
+        } else if (block.error instanceof RuntimeException) {
+            throw (RuntimeException) block.error;
+        } else if (block.error instanceof Error) {
+            throw (Error) block.error;
+        }
+        block.result.writeTo(out);
+        this.writtenBytes += block.result.size();
+        if (block.data.length == this.blockSize) {
+            this.freeBuffers.addLast(block.data);
+        }
+    }
+
+    private Block nextBlock() {
+        synchronized (this.queue) {
+            while (this.queue.isEmpty() && !this.stopped) {
+                try {
+                    this.queue.wait();
+                } catch (InterruptedException e) {
+                    return null;
+                }
+            }
+            if (this.stopped) {
+                return null;
+            }
+            return (Block) this.queue.removeFirst();
+        }
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * A block of uncompressed data and its compressed result.
+     */
+    private static final class Block {
+
+        private final byte[] data;
+
+        private final int len;
+
+        private byte[] dictionary;
+
+        private boolean last;
+
+        private ByteArrayOutputStream result;
+
+        private Throwable error;
+
+        private boolean done = false;
+
+        Block(final byte[] data, final int len) {
+            this.data = data;
+            this.len = len;
+        }
+    }
+
+    /**
+     * Compresses queued blocks until the compressor stops.
+     */
+    private final class Worker implements Runnable {
+
+        public void run() {
+            Block block;
+            while ((block = nextBlock()) != null) {
+                ByteArrayOutputStream result = new ByteArrayOutputStream(block.len / 2 + 64);
+                Throwable error = null;
+                try {
+                    compressBlock(block.data, block.len, block.dictionary, block.last, result);
+                } catch (Throwable t) {
+                    error = t;
+                }
+                synchronized (block) {
+                    block.result = result;
+                    block.error = error;
+                    block.done = true;
+                    block.notifyAll();
+                }
+            }
+        }
+    }
+
+}
+
+// EOF BlockCompressor.java
@@ -70,18 +70,6 @@ public class CompositeAction extends AbstractAction {
 
     // --------------------------------------------------------- Public Methods
 
-    /**
-     * {@inheritDoc}
-     */
-    public void run() {
-        try {
-            execute();
-        } catch (IOException ex) {
-            getLogger().log(Level.SEVERE,
-                    MessageText.Exception_during_file_rollover, ex);
-        }
-    }
-
     /**
      * {@inheritDoc}
      */
@@ -117,6 +105,15 @@ public class CompositeAction extends AbstractAction {
         }
     }
 
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void reportException(final Exception ex) {
+        getLogger().log(Level.SEVERE, MessageText.Exception_during_file_rollover, ex);
+    }
+
 }
 
 // EOF CompositeAction.java
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.handlers.rolling.helper;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.x4juli.global.helper.IOUtil;
+import org.x4juli.global.spi.ExtendedLogger;
+import org.x4juli.handlers.MessageText;
+
+/**
+ * Compresses a file using GZ compression on several threads. The file is
+ * split into blocks which are compressed independently and written as
+ * consecutive gzip members. A file of concatenated members is a valid gzip
+ * file, <code>gunzip</code> and <code>GZIPInputStream</code> read it as
+ * one.
+ * <p>
+ * Compared to {@link GZCompressAction} the output is slightly larger, the
+ * compression context is reset with each block.
+ * </p>
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public final class ParallelGZCompressAction extends AbstractAction {
+
+    // -------------------------------------------------------------- Variables
+
+    private static final byte[] HEADER = new byte[] {(byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED,
+            0, 0, 0, 0, 0, 0, 0 };
+
+    /**
+     * Source file.
+     */
+    private final File source;
+
+    /**
+     * Destination file.
+     */
+    private final File destination;
+
+    /**
+     * If true, attempt to delete file on completion.
+     */
+    private final boolean deleteSource;
+
+    /**
+     * Number of compressing threads.
+     */
+    private final int parallelism;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Create new instance of ParallelGZCompressAction.
+     *
+     * @param source file to compress, may not be null.
+     * @param destination compressed file, may not be null.
+     * @param deleteSource if true, attempt to delete file on completion.
+     *            Failure to delete does not cause an exception to be thrown or
+     *            affect return value.
+     * @param parallelism number of compressing threads.
+     * @since 0.7
+     */
+    public ParallelGZCompressAction(final File source, final File destination,
+            final boolean deleteSource, final int parallelism) {
+        if (source == null) {
+            throw new NullPointerException("source");
+        }
+
+        if (destination == null) {
+            throw new NullPointerException("destination");
+        }
+
+        this.source = source;
+        this.destination = destination;
+        this.deleteSource = deleteSource;
+        this.parallelism = parallelism;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public boolean execute() throws IOException {
+        return execute(this.source, this.destination, this.deleteSource, this.parallelism,
+                BlockCompressor.DEFAULT_BLOCK_SIZE, getLogger());
+    }
+
+    /**
+     * Compress a file.
+     *
+     * @param source file to compress, may not be null.
+     * @param destination compressed file, may not be null.
+     * @param deleteSource if true, attempt to delete file on completion.
+     *            Failure to delete does not cause an exception to be thrown or
+     *            affect return value.
+     * @param parallelism number of compressing threads.
+     * @param blockSize number of bytes compressed into one gzip member.
+     * @param logger to report a failed delete.
+     * @return true if source file compressed.
+     * @throws IOException on IO exception.
+     * @since 0.7
+     */
+    public static boolean execute(final File source, final File destination,
+            final boolean deleteSource, final int parallelism, final int blockSize,
+            final ExtendedLogger logger) throws IOException {
+        if (source.exists()) {
+            FileInputStream fis = null;
+            OutputStream os = null;
+
+            try {
+                fis = new FileInputStream(source);
+                os = new BufferedOutputStream(new FileOutputStream(destination, false));
+                new MemberCompressor(parallelism, blockSize).compress(fis, os);
+            } finally {
+                IOUtil.closeInputStream(fis);
+                IOUtil.closeOutputStream(os);
+            }
+
+            if (deleteSource) {
+                if (!source.delete()) {
+                    logger.log(Level.WARNING, MessageText.Unable_to_delete,
+                            new Object[] {source });
+                }
+            }
+
+            return true;
+        }
+
+        return false;
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * Capture exception.
+     *
+     * @param ex exception.
+     */
+    protected void reportException(final Exception ex) {
+        getLogger().log(Level.WARNING, MessageText.Exception_during_compression_of,
+                new Object[] {this.source });
+        getLogger().log(Level.WARNING, MessageText.Exception_is, ex);
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Compresses each block into a complete gzip member.
+     */
+    private static final class MemberCompressor extends BlockCompressor {
+
+        MemberCompressor(final int parallelism, final int blockSize) {
+            super(parallelism, blockSize);
+        }
+
+        void compressBlock(final byte[] data, final int len, final byte[] dictionary,
+                final boolean last, final ByteArrayOutputStream out) throws IOException {
+            out.write(HEADER, 0, HEADER.length);
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            try {
+                deflater.setInput(data, 0, len);
+                deflater.finish();
+                byte[] buf = new byte[8192];
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buf);
+                    out.write(buf, 0, n);
+                }
+            } finally {
+                deflater.end();
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, len);
+            writeInt(out, (int) crc.getValue());
+            writeInt(out, len);
+        }
+
+        private static void writeInt(final ByteArrayOutputStream out, final int value) {
+            out.write(value & 0xff);
+            out.write((value >> 8) & 0xff);
+            out.write((value >> 16) & 0xff);
+            out.write((value >> 24) & 0xff);
+        }
+    }
+
+}
+
+// EOF ParallelGZCompressAction.java
@@ -0,0 +1,364 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.handlers.rolling.helper;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Calendar;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.x4juli.global.helper.IOUtil;
+import org.x4juli.global.spi.ExtendedLogRecordImpl;
+import org.x4juli.global.spi.ExtendedLogger;
+import org.x4juli.handlers.MessageText;
+
+/**
+ * Compresses a file using Zip compression on several threads. The file is
+ * split into blocks which are deflated independently, each primed with the
+ * last 32 KB of its predecessor. All blocks except the last end with a sync
+ * flush, so their concatenation is one deflate stream of a single zip entry.
+ * <p>
+ * The sync flush is available since JDK 1.7 and looked up by reflection.
+ * On older runtimes, and for files of 4 GB and more which would need Zip64,
+ * the file is compressed by {@link ZipCompressAction}.
+ * </p>
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public final class ParallelZipCompressAction extends AbstractAction {
+
+    // -------------------------------------------------------------- Variables
+
+    private static final int VERSION = 20;
+
+    /**
+     * Sizes and crc follow the data in a data descriptor.
+     */
+    private static final int FLAG_DATA_DESCRIPTOR = 8;
+
+    private static final long MAX_SIZE = 0xffffffffL;
+
+    /**
+     * Deflater.deflate(byte[], int, int, int) or null if not available.
+     */
+    private static final Method DEFLATE_WITH_FLUSH;
+
+    /**
+     * Value of Deflater.SYNC_FLUSH.
+     */
+    private static final Integer SYNC_FLUSH;
+
+    static {
+        Method method = null;
+        Integer flush = null;
+        try {
+            method = Deflater.class.getMethod("deflate", new Class[] {byte[].class, Integer.TYPE,
+                    Integer.TYPE, Integer.TYPE });
+            flush = new Integer(Deflater.class.getField("SYNC_FLUSH").getInt(null));
+        } catch (Exception e) {
+            method = null;
+        }
+        DEFLATE_WITH_FLUSH = method;
+        SYNC_FLUSH = flush;
+    }
+
+    /**
+     * Source file.
+     */
+    private final File source;
+
+    /**
+     * Destination file.
+     */
+    private final File destination;
+
+    /**
+     * If true, attempt to delete file on completion.
+     */
+    private final boolean deleteSource;
+
+    /**
+     * Number of compressing threads.
+     */
+    private final int parallelism;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Create new instance of ParallelZipCompressAction.
+     *
+     * @param source file to compress, may not be null.
+     * @param destination compressed file, may not be null.
+     * @param deleteSource if true, attempt to delete file on completion.
+     *            Failure to delete does not cause an exception to be thrown or
+     *            affect return value.
+     * @param parallelism number of compressing threads.
+     * @since 0.7
+     */
+    public ParallelZipCompressAction(final File source, final File destination,
+            final boolean deleteSource, final int parallelism) {
+        if (source == null) {
+            throw new NullPointerException("File source");
+        }
+
+        if (destination == null) {
+            throw new NullPointerException("File destination");
+        }
+
+        this.source = source;
+        this.destination = destination;
+        this.deleteSource = deleteSource;
+        this.parallelism = parallelism;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public boolean execute() throws IOException {
+        return execute(this.source, this.destination, this.deleteSource, this.parallelism,
+                BlockCompressor.DEFAULT_BLOCK_SIZE, getLogger());
+    }
+
+    /**
+     * Tests if the runtime supports parallel zip compression.
+     *
+     * @return true if the deflater supports a sync flush.
+     * @since 0.7
+     */
+    public static boolean isSupported() {
+        return DEFLATE_WITH_FLUSH != null;
+    }
+
+    /**
+     * Compress a file.
+     *
+     * @param source file to compress, may not be null.
+     * @param destination compressed file, may not be null.
+     * @param deleteSource if true, attempt to delete file on completion.
+     *            Failure to delete does not cause an exception to be thrown or
+     *            affect return value.
+     * @param parallelism number of compressing threads.
+     * @param blockSize number of bytes deflated at once.
+     * @param logger to report a failed delete.
+     * @return true if source file compressed.
+     * @throws IOException on IO exception.
+     * @since 0.7
+     */
+    public static boolean execute(final File source, final File destination,
+            final boolean deleteSource, final int parallelism, final int blockSize,
+            final ExtendedLogger logger) throws IOException {
+        if (!isSupported() || source.length() >= MAX_SIZE) {
+            return ZipCompressAction.execute(source, destination, deleteSource, logger);
+        }
+        if (source.exists()) {
+            FileInputStream fis = null;
+            OutputStream os = null;
+            try {
+                fis = new FileInputStream(source);
+                os = new BufferedOutputStream(new FileOutputStream(destination));
+
+                byte[] name = source.getName().getBytes("UTF-8");
+                int dosTime = dosTime(source.lastModified());
+                writeInt(os, 0x04034b50);
+                writeShort(os, VERSION);
+                writeShort(os, FLAG_DATA_DESCRIPTOR);
+                writeShort(os, Deflater.DEFLATED);
+                writeInt(os, dosTime);
+                writeInt(os, 0);
+                writeInt(os, 0);
+                writeInt(os, 0);
+                writeShort(os, name.length);
+                writeShort(os, 0);
+                os.write(name);
+
+                StreamCompressor compressor = new StreamCompressor(parallelism, blockSize);
+                compressor.compress(fis, os);
+                final int crc = (int) compressor.crc.getValue();
+                final long compressedSize = compressor.getWrittenBytes();
+                final long size = compressor.getReadBytes();
+                if (compressedSize >= MAX_SIZE || size >= MAX_SIZE) {
+                    throw new IOException("Zip64 required for " + source);
+                }
+
+                writeInt(os, 0x08074b50);
+                writeInt(os, crc);
+                writeInt(os, (int) compressedSize);
+                writeInt(os, (int) size);
+
+                final long directoryOffset = 30 + name.length + compressedSize + 16;
+                writeInt(os, 0x02014b50);
+                writeShort(os, VERSION);
+                writeShort(os, VERSION);
+                writeShort(os, FLAG_DATA_DESCRIPTOR);
+                writeShort(os, Deflater.DEFLATED);
+                writeInt(os, dosTime);
+                writeInt(os, crc);
+                writeInt(os, (int) compressedSize);
+                writeInt(os, (int) size);
+                writeShort(os, name.length);
+                writeShort(os, 0);
+                writeShort(os, 0);
+                writeShort(os, 0);
+                writeShort(os, 0);
+                writeInt(os, 0);
+                writeInt(os, 0);
+                os.write(name);
+
+                writeInt(os, 0x06054b50);
+                writeShort(os, 0);
+                writeShort(os, 0);
+                writeShort(os, 1);
+                writeShort(os, 1);
+                writeInt(os, 46 + name.length);
+                writeInt(os, (int) directoryOffset);
+                writeShort(os, 0);
+            } finally {
+                IOUtil.closeInputStream(fis);
+                IOUtil.closeOutputStream(os);
+            }
+            if (deleteSource) {
+                if (!source.delete()) {
+                    logger.log(Level.INFO, MessageText.Unable_to_delete, source);
+                }
+            }
+
+            return true;
+        }
+
+        return false;
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * Capture exception.
+     *
+     * @param ex exception.
+     */
+    protected void reportException(final Exception ex) {
+        LogRecord rec = new ExtendedLogRecordImpl(Level.INFO,
+                MessageText.Exception_during_compression_of);
+        rec.setParameters(new Object[] {this.source });
+        rec.setThrown(ex);
+        getLogger().log(rec);
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private static void writeShort(final OutputStream out, final int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+    }
+
+    private static void writeInt(final OutputStream out, final int value) throws IOException {
+        writeShort(out, value);
+        writeShort(out, value >>> 16);
+    }
+
+    /**
+     * Time and date in MS-DOS format, date in the high word.
+     */
+    private static int dosTime(final long time) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(time);
+        int year = cal.get(Calendar.YEAR);
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return ((year - 1980) << 25) | ((cal.get(Calendar.MONTH) + 1) << 21)
+                | (cal.get(Calendar.DAY_OF_MONTH) << 16) | (cal.get(Calendar.HOUR_OF_DAY) << 11)
+                | (cal.get(Calendar.MINUTE) << 5) | (cal.get(Calendar.SECOND) >> 1);
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Deflates the blocks into one raw deflate stream and sums up the crc.
+     */
+    private static final class StreamCompressor extends BlockCompressor {
+
+        private final CRC32 crc = new CRC32();
+
+        StreamCompressor(final int parallelism, final int blockSize) {
+            super(parallelism, blockSize);
+        }
+
+        void blockRead(final byte[] data, final int len) {
+            this.crc.update(data, 0, len);
+        }
+
+        void compressBlock(final byte[] data, final int len, final byte[] dictionary,
+                final boolean last, final ByteArrayOutputStream out) throws IOException {
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            try {
+                if (dictionary != null) {
+                    deflater.setDictionary(dictionary);
+                }
+                deflater.setInput(data, 0, len);
+                byte[] buf = new byte[8192];
+                if (last) {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        int n = deflater.deflate(buf);
+                        out.write(buf, 0, n);
+                    }
+                } else {
+                    int n;
+                    do {
+                        n = syncDeflate(deflater, buf);
+                        out.write(buf, 0, n);
+                    } while (n == buf.length);
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+
+        private static int syncDeflate(final Deflater deflater, final byte[] buf)
+                throws IOException {
+            try {
+                Object n = DEFLATE_WITH_FLUSH.invoke(deflater, new Object[] {buf,
+                        new Integer(0), new Integer(buf.length), SYNC_FLUSH });
+                return ((Integer) n).intValue();
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getTargetException();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException(String.valueOf(cause));
+            } catch (IllegalAccessException e) {
+                throw new IOException(e.toString());
+            }
+        }
+    }
+
+}
+
+// EOF ParallelZipCompressAction.java
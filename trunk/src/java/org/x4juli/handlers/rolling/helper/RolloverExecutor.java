@@ -0,0 +1,382 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.handlers.rolling.helper;
+
+import java.util.LinkedList;
+
+/**
+ * Runs the asynchronous {@link Action}s of rollovers, i.E. compression, one
+ * after another in a background thread of low priority. There is one
+ * executor per {@link org.x4juli.global.spi.LoggerRepository}, shared by all
+ * its rolling handlers.
+ * <p>
+ * The queue is bounded. If it is full or the executor is shut down, the
+ * action is rejected and counted, it is never run by the submitting thread,
+ * which usually is a logging thread holding the monitor of its handler. The
+ * handler defers its rollover and submits the action again. The worker thread is started on demand and ends when the queue is
+ * empty. It is no daemon, queued actions are completed before the VM exits.
+ * </p>
+ * <p>
+ * The executor counts the actions and measures their duration, the action
+ * currently running can be inspected to report progress.
+ * </p>
+ *
+ * @author Boris Unckel
+ * @since 0.7
+ */
+public final class RolloverExecutor {
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * Default number of actions which can be queued.
+     */
+    public static final int DEFAULT_CAPACITY = 16;
+
+    private final int capacity;
+
+    private final LinkedList queue = new LinkedList();
+
+    private Thread worker = null;
+
+    private boolean shutdown = false;
+
+    private Runnable activeAction = null;
+
+    private long activeSince = 0;
+
+    private int maxQueueDepth = 0;
+
+    private long submittedCount = 0;
+
+    private long completedCount = 0;
+
+    private long rejectedCount = 0;
+
+    private long failedCount = 0;
+
+    private long totalDuration = 0;
+
+    private long maxDuration = 0;
+
+    private long lastDuration = 0;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Constructs an executor with the default capacity.
+     * @since 0.7
+     */
+    public RolloverExecutor() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an executor.
+     *
+     * @param capacity maximum number of queued actions.
+     * @since 0.7
+     */
+    public RolloverExecutor(final int capacity) {
+        super();
+        this.capacity = (capacity > 0) ? capacity : DEFAULT_CAPACITY;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Queues the action. If the queue is full or the executor is shut down,
+     * the action is rejected, the calling thread does not run it.
+     *
+     * @param action to run, <code>null</code> is ignored.
+     * @return false if the action was rejected.
+     * @since 0.7
+     */
+    public synchronized boolean execute(final Runnable action) {
+        if (action == null) {
+            return true;
+        }
+        this.submittedCount++;
+        if (this.shutdown || this.queue.size() >= this.capacity) {
+            this.rejectedCount++;
+            return false;
+        }
+        this.queue.addLast(action);
+        if (this.queue.size() > this.maxQueueDepth) {
+            this.maxQueueDepth = this.queue.size();
+        }
+        if (this.worker == null) {
+            this.worker = new Thread(new Worker(), "x4juli-rollover");
+            this.worker.setPriority(Thread.MIN_PRIORITY);
+            this.worker.start();
+        }
+        return true;
+    }
+
+    /**
+     * Accepts no more actions, the queued actions are still run.
+     * @since 0.7
+     */
+    public synchronized void shutdown() {
+        this.shutdown = true;
+    }
+
+    /**
+     * Waits until all queued actions have been run.
+     *
+     * @param timeout maximum time to wait in milliseconds, 0 to wait forever.
+     * @return true if the queue is empty and no action is running.
+     * @throws InterruptedException if interrupted while waiting.
+     * @since 0.7
+     */
+    public synchronized boolean awaitIdle(final long timeout) throws InterruptedException {
+        final long end = System.currentTimeMillis() + timeout;
+        while (this.worker != null) {
+            if (timeout <= 0) {
+                wait();
+            } else {
+                long remaining = end - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits until the action has been run, other actions queued before it
+     * may still be running afterwards. Returns at once if the action is
+     * neither queued nor running.
+     *
+     * @param action to wait for.
+     * @param timeout maximum time to wait in milliseconds, 0 to wait forever.
+     * @return true if the action is neither queued nor running.
+     * @throws InterruptedException if interrupted while waiting.
+     * @since 0.7
+     */
+    public synchronized boolean awaitAction(final Runnable action, final long timeout)
+            throws InterruptedException {
+        final long end = System.currentTimeMillis() + timeout;
+        while (this.activeAction == action || this.queue.contains(action)) {
+            if (timeout <= 0) {
+                wait();
+            } else {
+                long remaining = end - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of queued actions, without the running one.
+     * @since 0.7
+     */
+    public synchronized int getQueueDepth() {
+        return this.queue.size();
+    }
+
+    /**
+     * @return the highest number of queued actions seen.
+     * @since 0.7
+     */
+    public synchronized int getMaxQueueDepth() {
+        return this.maxQueueDepth;
+    }
+
+    /**
+     * @return the action currently run by the worker or <code>null</code>.
+     * @since 0.7
+     */
+    public synchronized Runnable getActiveAction() {
+        return this.activeAction;
+    }
+
+    /**
+     * @return milliseconds the current action is running, 0 if idle.
+     * @since 0.7
+     */
+    public synchronized long getActiveDuration() {
+        if (this.activeAction == null) {
+            return 0;
+        }
+        return System.currentTimeMillis() - this.activeSince;
+    }
+
+    /**
+     * @return the number of submitted actions.
+     * @since 0.7
+     */
+    public synchronized long getSubmittedCount() {
+        return this.submittedCount;
+    }
+
+    /**
+     * @return the number of actions run by the worker.
+     * @since 0.7
+     */
+    public synchronized long getCompletedCount() {
+        return this.completedCount;
+    }
+
+    /**
+     * @return the number of actions rejected because the queue was full or
+     *         the executor was shut down.
+     * @since 0.7
+     */
+    public synchronized long getRejectedCount() {
+        return this.rejectedCount;
+    }
+
+    /**
+     * @return the number of actions which threw an exception.
+     * @since 0.7
+     */
+    public synchronized long getFailedCount() {
+        return this.failedCount;
+    }
+
+    /**
+     * @return the milliseconds spent in all completed actions.
+     * @since 0.7
+     */
+    public synchronized long getTotalDuration() {
+        return this.totalDuration;
+    }
+
+    /**
+     * @return the milliseconds of the longest action.
+     * @since 0.7
+     */
+    public synchronized long getMaxDuration() {
+        return this.maxDuration;
+    }
+
+    /**
+     * @return the milliseconds of the last completed action.
+     * @since 0.7
+     */
+    public synchronized long getLastDuration() {
+        return this.lastDuration;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public synchronized String toString() {
+        StringBuffer buf = new StringBuffer("RolloverExecutor:");
+        buf.append("QueueDepth[");
+        buf.append(this.queue.size());
+        buf.append("] MaxQueueDepth[");
+        buf.append(this.maxQueueDepth);
+        buf.append("] Completed[");
+        buf.append(this.completedCount);
+        buf.append("] Rejected[");
+        buf.append(this.rejectedCount);
+        buf.append("] Failed[");
+        buf.append(this.failedCount);
+        buf.append("] TotalDuration[");
+        buf.append(this.totalDuration);
+        buf.append("] MaxDuration[");
+        buf.append(this.maxDuration);
+        buf.append("]");
+        return buf.toString();
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private void runAction(final Runnable action) {
+        final long start = System.currentTimeMillis();
+        boolean failed = true;
+        try {
+            action.run();
+            failed = false;
+        } finally {
+            long duration = System.currentTimeMillis() - start;
+            synchronized (this) {
+                this.completedCount++;
+                if (failed) {
+                    this.failedCount++;
+                }
+                this.totalDuration += duration;
+                this.lastDuration = duration;
+                if (duration > this.maxDuration) {
+                    this.maxDuration = duration;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the next action or <code>null</code> if the queue is empty,
+     *         then the worker ends.
+     */
+    private synchronized Runnable nextAction() {
+        this.activeAction = null;
+        // Wakes up awaitIdle and awaitAction.
+        notifyAll();
+        if (this.queue.isEmpty()) {
+            this.worker = null;
+            return null;
+        }
+        this.activeAction = (Runnable) this.queue.removeFirst();
+        this.activeSince = System.currentTimeMillis();
+        return this.activeAction;
+    }
+
+    /**
+     * Lets the next submit start a new worker if this one died by an error.
+     */
+    private synchronized void workerEnded() {
+        if (this.worker == Thread.currentThread()) {
+            this.worker = null;
+            this.activeAction = null;
+            notifyAll();
+        }
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Runs the queued actions until the queue is empty.
+     */
+    private final class Worker implements Runnable {
+
+        public void run() {
+            try {
+                Runnable action;
+                while ((action = nextAction()) != null) {
+                    try {
+                        runAction(action);
+                    } catch (RuntimeException e) {
+                        // Counted as failed, the next action still runs.
+                    }
+                }
+            } finally {
+                workerEnded();
+            }
+        }
+    }
+
+}
+
+// EOF RolloverExecutor.java
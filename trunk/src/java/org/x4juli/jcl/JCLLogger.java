@@ -313,6 +313,7 @@ class JCLLogger extends AbstractExtendedLogger implements org.apache.commons.log
             lr.setFQCNofLogger(FQCNofLogger);
         }
         lr.getNDC();
+        captureLocation(lr);
         super.log((LogRecord)lr);
     }
 
@@ -329,6 +330,7 @@ class JCLLogger extends AbstractExtendedLogger implements org.apache.commons.log
             record.setFQCNofLogger(FQCNofLogger);
         }
         record.getNDC();
+        captureLocation(record);
         super.log((LogRecord) record);
     }
 
@@ -23,6 +23,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.LoggingPermission;
 
+import org.x4juli.formatter.helper.FormatterUtil;
 import org.x4juli.global.helper.LoggerUtil;
 import org.x4juli.global.spi.ExtendedHandler;
 import org.x4juli.global.spi.ExtendedLogRecord;
@@ -31,6 +32,8 @@ import org.x4juli.global.spi.HandlerAttachable;
 import org.x4juli.global.spi.LogSecurityException;
 import org.x4juli.global.spi.LoggerRepository;
 import org.x4juli.global.spi.SpiSecurity;
+import org.x4juli.global.spi.location.LocationCapture;
+import org.x4juli.global.spi.location.StackTraceElementExtractor;
 
 
 /**
@@ -56,6 +59,44 @@ public abstract class AbstractExtendedLogger extends Logger implements ExtendedL
      */
     protected final String FQCNofLogger;
 
+    /**
+     * One of the modes of {@link LocationCapture}.
+     */
+    private String locationCapture = LocationCapture.MODE_AUTO;
+
+    /**
+     * Generation of {@link LocationCapture} the cached decision belongs to.
+     */
+    private volatile int locationGeneration = -1;
+
+    /**
+     * Cached decision whether a reachable formatter needs location information.
+     */
+    private volatile boolean locationRequired = false;
+
+    /**
+     * Generation of {@link LocationCapture} the cached SLF4J decision belongs to.
+     */
+    private volatile int slf4jGeneration = -1;
+
+    /**
+     * Cached decision whether all reachable handlers accept SLF4J templates.
+     */
+    private volatile boolean slf4jDeferred = false;
+
+    /**
+     * Marks the cached effective level as unknown, it is out of the int range of levels.
+     */
+    private static final long LEVEL_UNKNOWN = Long.MIN_VALUE;
+
+    private static final int LEVEL_OFF = Level.OFF.intValue();
+
+    /**
+     * Cached int value of the effective level. A long keeps every int level distinguishable from
+     * {@link #LEVEL_UNKNOWN}, reads and writes of a volatile long are atomic.
+     */
+    private volatile long effectiveLevelValue = LEVEL_UNKNOWN;
+
     // ----------------------------------------------------------- Constructors
     /**
      * Constructs a logger with a specific resourcebundle.
@@ -99,6 +140,7 @@ public abstract class AbstractExtendedLogger extends Logger implements ExtendedL
     public void addHandler(final ExtendedHandler newHandler) throws SecurityException {
         checkAccess();
         super.addHandler((Handler) newHandler);
+        LocationCapture.invalidate();
     }
     
     
@@ -111,6 +153,151 @@ public abstract class AbstractExtendedLogger extends Logger implements ExtendedL
         checkAccess();
         ExtendedHandler handlerToAdd = LoggerUtil.wrapHandler(handler, null);
         super.addHandler((Handler) handlerToAdd);
+        LocationCapture.invalidate();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public void removeHandler(final Handler handler) throws SecurityException {
+        super.removeHandler(handler);
+        LocationCapture.invalidate();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public void setUseParentHandlers(final boolean useParentHandlers) {
+        super.setUseParentHandlers(useParentHandlers);
+        LocationCapture.invalidate();
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public void setParent(final Logger parent) {
+        super.setParent(parent);
+        invalidateEffectiveLevel();
+        LocationCapture.invalidate();
+    }
+
+    /**
+     * Sets the level and lets the repository invalidate the cached effective level of this logger
+     * and its descendants.
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public void setLevel(final Level newLevel) throws SecurityException {
+        Level oldLevel = getLevel();
+        super.setLevel(newLevel);
+        if (oldLevel == newLevel) {
+            return;
+        }
+        LoggerRepository repo = this.repository;
+        if (repo == null) {
+            invalidateEffectiveLevel();
+        } else {
+            repo.fireLevelChangedEvent(this);
+        }
+    }
+
+    /**
+     * Checks the level against the cached effective level. A disabled level costs one volatile
+     * read and one compare, the effective level is only determined after an invalidation.
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public boolean isLoggable(final Level level) {
+        final int value = level.intValue();
+        long cached = this.effectiveLevelValue;
+        if (value < cached) {
+            return false;
+        }
+        if (cached == LEVEL_UNKNOWN) {
+            cached = updateEffectiveLevel();
+            if (value < cached) {
+                return false;
+            }
+        }
+        return cached != LEVEL_OFF;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @since 0.7
+     */
+    public synchronized void invalidateEffectiveLevel() {
+        this.effectiveLevelValue = LEVEL_UNKNOWN;
+    }
+
+    /**
+     * Sets when the location of the caller is captured at the log call.
+     * <ul>
+     * <li><code>auto</code> (default): if any formatter reachable from this
+     * logger needs it.</li>
+     * <li><code>always</code>: for every record.</li>
+     * <li><code>never</code>: formatters determine it lazily, which is only
+     * correct on the thread of the caller.</li>
+     * </ul>
+     * Unknown values are ignored.
+     * @param mode auto, always or never.
+     * @since 0.7
+     */
+    public void setLocationCapture(final String mode) {
+        checkAccess();
+        String newMode = LocationCapture.toMode(mode);
+        if (newMode != null) {
+            this.locationCapture = newMode;
+        }
+    }
+
+    /**
+     * @return the location capture mode.
+     * @since 0.7
+     */
+    public String getLocationCapture() {
+        return this.locationCapture;
+    }
+
+    /**
+     * Tells whether records of this logger get the location of the caller
+     * captured at the log call. The decision of the <code>auto</code> mode is
+     * cached until handlers or formatters change.
+     * @return true if the location is captured.
+     * @since 0.7
+     */
+    public boolean isLocationCaptureRequired() {
+        String mode = this.locationCapture;
+        if (mode == LocationCapture.MODE_AUTO) {
+            int generation = LocationCapture.getGeneration();
+            if (generation != this.locationGeneration) {
+                this.locationRequired = computeLocationRequired();
+                this.locationGeneration = generation;
+            }
+            return this.locationRequired;
+        }
+        return mode == LocationCapture.MODE_ALWAYS;
+    }
+
+    /**
+     * Tells whether records with a SLF4J template keep template and arguments
+     * until a formatter needs the message. This holds if all handlers
+     * reachable from this logger are x4juli handlers, otherwise the message
+     * is formatted at the log call. The decision is cached until handlers or
+     * formatters change, like the one of {@link #isLocationCaptureRequired()}.
+     * @return true if formatting is deferred.
+     * @since 0.7
+     */
+    public boolean isSlf4jFormatDeferred() {
+        int generation = LocationCapture.getGeneration();
+        if (generation != this.slf4jGeneration) {
+            this.slf4jDeferred = computeSlf4jFormatDeferred();
+            this.slf4jGeneration = generation;
+        }
+        return this.slf4jDeferred;
     }
 
     /**
@@ -249,6 +436,104 @@ public abstract class AbstractExtendedLogger extends Logger implements ExtendedL
             logRecord.setFQCNofLogger(FQCNofLogger);
         }
         logRecord.getNDC();
+        captureLocation(logRecord);
+    }
+
+    /**
+     * Captures the location of the caller into the record, if required.
+     * Has to be called on the thread of the caller, directly from the
+     * methods of the logger.
+     * @param logRecord to complete with the location of the caller.
+     * @since 0.7
+     */
+    protected void captureLocation(final ExtendedLogRecord logRecord) {
+        if (!isLocationCaptureRequired()) {
+            return;
+        }
+        String fqcn = logRecord.getFQCNofLogger();
+        if (fqcn == null) {
+            fqcn = FQCNofLogger;
+        }
+        LoggerRepository repo = this.repository;
+        logRecord.setLocationInformation(StackTraceElementExtractor.capture(fqcn,
+                repo == null ? null : repo.getLocationCaptureStats()));
+    }
+
+    /**
+     * Completes a record with a SLF4J template and its arguments. Unless
+     * {@link #isSlf4jFormatDeferred()}, the message is formatted now and the
+     * record becomes a plain one, handlers and formatters of
+     * java.util.logging do not know <code>{}</code> anchors.
+     * @param logRecord with the template as message and the arguments as
+     *            parameters.
+     * @since 0.7
+     */
+    protected void completeSlf4jLogRecord(final ExtendedLogRecord logRecord) {
+        logRecord.setSlf4jFormat(true);
+        completeLogRecord(logRecord);
+        if (!isSlf4jFormatDeferred()) {
+            logRecord.setMessage(FormatterUtil.formatMessage(logRecord));
+            logRecord.setParameters(null);
+            logRecord.setSlf4jFormat(false);
+        }
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Determines the effective level like <code>java.util.logging.Logger</code>: the first level
+     * set in the parent chain, INFO if there is none. Synchronized with
+     * {@link #invalidateEffectiveLevel()}, an invalidation is never overwritten by a value computed
+     * from the levels before the change.
+     */
+    private synchronized long updateEffectiveLevel() {
+        long value = this.effectiveLevelValue;
+        if (value != LEVEL_UNKNOWN) {
+            return value;
+        }
+        Level level = null;
+        Logger logger = this;
+        while (logger != null) {
+            level = logger.getLevel();
+            if (level != null) {
+                break;
+            }
+            logger = logger.getParent();
+        }
+        if (level == null) {
+            level = Level.INFO;
+        }
+        value = level.intValue();
+        this.effectiveLevelValue = value;
+        return value;
+    }
+
+    private boolean computeLocationRequired() {
+        Logger logger = this;
+        while (logger != null) {
+            if (LocationCapture.requiresLocationInfo(logger.getHandlers())) {
+                return true;
+            }
+            if (!logger.getUseParentHandlers()) {
+                break;
+            }
+            logger = logger.getParent();
+        }
+        return false;
+    }
+
+    private boolean computeSlf4jFormatDeferred() {
+        Logger logger = this;
+        while (logger != null) {
+            if (!FormatterUtil.acceptsSlf4jFormat(logger.getHandlers())) {
+                return false;
+            }
+            if (!logger.getUseParentHandlers()) {
+                break;
+            }
+            logger = logger.getParent();
+        }
+        return true;
     }
 
 }
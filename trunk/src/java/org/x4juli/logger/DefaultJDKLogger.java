@@ -51,6 +51,7 @@ class DefaultJDKLogger extends AbstractExtendedLogger {
         ExtendedLogRecord lr = LoggerUtil.wrapLogRecord(record);
         lr.getNDC();
         lr.setFQCNofLogger(FQCNofLogger);
+        captureLocation(lr);
         super.log((LogRecord)lr);
     }
 
@@ -67,6 +68,7 @@ class DefaultJDKLogger extends AbstractExtendedLogger {
         if(record.getFQCNofLogger() == null) {
             record.setFQCNofLogger(FQCNofLogger);
         }
+        captureLocation(record);
         super.log((LogRecord) record);
     }
 
@@ -604,6 +604,7 @@ class Slf4jLogger extends AbstractExtendedLogger {
             lr.setFQCNofLogger(FQCNofLogger);
         }
         lr.getNDC();
+        captureLocation(lr);
         super.log((LogRecord)lr);
     }
 
@@ -620,6 +621,7 @@ class Slf4jLogger extends AbstractExtendedLogger {
             record.setFQCNofLogger(FQCNofLogger);
         }
         record.getNDC();
+        captureLocation(record);
         super.log((LogRecord) record);
     }
 
@@ -1033,25 +1035,19 @@ class Slf4jLogger extends AbstractExtendedLogger {
 
     /**
      * Method especially for public slf4j log methods which have an object or object[]
-     * as parameter for the message formatting.
+     * as parameter for the message formatting. The template and the args are kept on
+     * the record and formatted by the first formatter which needs the message, see
+     * {@link #completeSlf4jLogRecord(ExtendedLogRecord)}.
      * @param level is not allowed to be null.
      * @param message to format with args to complete logging.
      * @param args for message format.
      * @since 0.7
      */
     protected void robustLogSlf4j(final Level level, final String message, final Object[] args){
-        String mes = null;
-        try {
-            mes = org.slf4j.impl.MessageFormatter.arrayFormat(message, args);
-        } catch (Exception e) {
-            mes = message + " Error in formatting message["+e+"]";
-            //Temporary solution!
-            System.err.println("X4Juli: " + mes);
-            e.printStackTrace();
-        }
-        LogRecord logRecord = new ExtendedLogRecordImpl(level, mes);
-        completeLogRecord((ExtendedLogRecord)logRecord);
-        super.log(logRecord);
+        ExtendedLogRecord logRecord = new ExtendedLogRecordImpl(level, message);
+        logRecord.setParameters(args);
+        completeSlf4jLogRecord(logRecord);
+        super.log((LogRecord) logRecord);
     }
 
 }
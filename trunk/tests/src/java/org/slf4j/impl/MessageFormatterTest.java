@@ -0,0 +1,84 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.slf4j.impl;
+
+import junit.framework.TestCase;
+
+/**
+ * Testcase for x4juli.
+ * @since 0.7
+ */
+public class MessageFormatterTest extends TestCase {
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     *
+     */
+    public MessageFormatterTest() {
+        super();
+    }
+
+    /**
+     * @param name
+     */
+    public MessageFormatterTest(String name) {
+        super(name);
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    public void testFormat() {
+        String plain = "no anchor";
+        assertSame(plain, MessageFormatter.format(plain, "x"));
+        assertNull(MessageFormatter.format(null, "x"));
+        assertEquals("Hi there.", MessageFormatter.format("Hi {}.", "there"));
+        assertEquals("Hi null.", MessageFormatter.format("Hi {}.", null));
+        assertEquals("1 and 2", MessageFormatter.format("{} and {}", new Integer(1),
+                new Integer(2)));
+        assertEquals("1 and {}", MessageFormatter.format("{} and {}", new Integer(1)));
+        assertEquals("1 2 3 {}", MessageFormatter.arrayFormat("{} {} {} {}", new Object[] {
+                "1", "2", "3" }));
+        assertEquals("a {} b", MessageFormatter.arrayFormat("a {} b", new Object[0]));
+    }
+
+    public void testEscapeAndInvalidAnchor() {
+        assertEquals("File name is {App folder.zip}.", MessageFormatter.format(
+                "File name is \\{{}}.", "App folder.zip"));
+        assertEquals("{} is x", MessageFormatter.format("\\{} is {}", "x"));
+        assertEquals("x {y", MessageFormatter.format("{} {y", "x"));
+        assertEquals("x {", MessageFormatter.format("{} {", "x", "y"));
+    }
+
+    public void testAppend() {
+        StringBuffer buf = new StringBuffer("prefix ");
+        MessageFormatter.appendFormat(buf, "{} and {}", "a", "b");
+        assertEquals("prefix a and b", buf.toString());
+        buf.setLength(0);
+        MessageFormatter.appendFormat(buf, "only {}", "one");
+        assertEquals("only one", buf.toString());
+        buf.setLength(0);
+        MessageFormatter.appendArrayFormat(buf, "{}{}{}", new Object[] {"x", "y", "z" });
+        assertEquals("xyz", buf.toString());
+        buf.setLength(0);
+        MessageFormatter.appendArrayFormat(buf, null, new Object[] {"x" });
+        MessageFormatter.appendArrayFormat(buf, "{}", null);
+        assertEquals("{}", buf.toString());
+    }
+
+}
+
+// EOF MessageFormatterTest.java
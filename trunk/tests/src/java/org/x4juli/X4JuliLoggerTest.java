@@ -15,8 +15,12 @@
  */
 package org.x4juli;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
 import junit.framework.Test;
@@ -25,6 +29,8 @@ import junit.framework.TestSuite;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.x4juli.global.SystemUtils;
+import org.x4juli.logger.AbstractExtendedLogger;
+import org.x4juli.logger.NOPLogger;
 import org.x4juli.global.spi.ThrowableInformation;
 
 /**
@@ -268,10 +274,46 @@ public class X4JuliLoggerTest extends AbstractDifferentLoggerTest {
 		assertTrue(testHandler.compare());
 	}
 
+	/*
+	 * A handler of java.util.logging gets the formatted message.
+	 */
+	public void testSlf4jFormatWithPlainHandler() {
+		final List published = new ArrayList();
+		Logger plainParent = new Logger("plainParent", null) {
+			// plain java.util.logging.Logger
+		};
+		plainParent.setUseParentHandlers(false);
+		plainParent.addHandler(new Handler() {
+			public void publish(LogRecord record) {
+				published.add(record);
+			}
+			public void flush() {
+			}
+			public void close() {
+			}
+		});
+		AbstractExtendedLogger logger = (AbstractExtendedLogger) testLog;
+		assertTrue(logger.isSlf4jFormatDeferred());
+		logger.setUseParentHandlers(true);
+		logger.setParent(plainParent);
+		assertFalse(logger.isSlf4jFormatDeferred());
+
+		((org.slf4j.Logger) testLog).info("{} of {}", "one", "two");
+		assertEquals(1, published.size());
+		LogRecord record = (LogRecord) published.get(0);
+		assertEquals("one of two", record.getMessage());
+		assertNull(record.getParameters());
+		assertEquals("one of two", testHandler.getActual());
+
+		logger.setParent(NOPLogger.NOP_LOGGER);
+		assertTrue(logger.isSlf4jFormatDeferred());
+	}
+
 	public static Test suite() {
 		TestSuite suite = new TestSuite();
 		suite.setName(X4JuliLoggerTest.class.getName());
 		suite.addTest(new X4JuliLoggerTest("testGetLog", Level.FINEST));
+		suite.addTest(new X4JuliLoggerTest("testSlf4jFormatWithPlainHandler", Level.FINEST));
 
 		// Test for isXXXEnabled
         //TODO Add needed tests
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.filter;
+
+import java.util.logging.Level;
+
+import org.x4juli.global.components.AbstractJuliTestCase;
+import org.x4juli.global.spi.ExtendedFilter;
+import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.ExtendedLogRecordImpl;
+
+/**
+ * Testcase for x4juli.
+ * @since 0.7
+ */
+public class FilterChainTest extends AbstractJuliTestCase {
+
+    static final Level[] LEVELS = new Level[] {Level.ALL, Level.FINEST, Level.FINER, Level.FINE,
+            Level.CONFIG, Level.INFO, Level.WARNING, Level.SEVERE, Level.OFF,
+            new CustomLevel("HALF", 850) };
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     *
+     */
+    public FilterChainTest() {
+        super();
+    }
+
+    /**
+     * @param name
+     */
+    public FilterChainTest(String name) {
+        super(name);
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * The compiled chain has to decide like walking the chain.
+     */
+    public void testEqualsWalk() {
+        assertSameDecisions(null);
+
+        LevelRangeFilter range = new LevelRangeFilter();
+        range.setLevelMin(Level.FINE);
+        range.setLevelMax(Level.WARNING);
+        assertSameDecisions(range);
+        range.setAcceptOnMatch(true);
+        assertSameDecisions(range);
+
+        LevelMatchFilter match = new LevelMatchFilter();
+        match.setLevelToMatch("INFO");
+        match.setAcceptOnMatch(false);
+        ContentFilter content = new ContentFilter();
+        match.setNext(content);
+        content.setNext(range);
+        assertSameDecisions(match);
+
+        content.setNext(new DenyAllFilter());
+        assertSameDecisions(match);
+        match.setAcceptOnMatch(true);
+        assertSameDecisions(match);
+    }
+
+    /**
+     * Content filters in front of a level filter which denies are skipped.
+     */
+    public void testContentFilterSkipped() {
+        ContentFilter content = new ContentFilter();
+        LevelRangeFilter range = new LevelRangeFilter();
+        range.setLevelMin(Level.INFO);
+        range.setNext(content);
+        FilterChain chain = new FilterChain(range);
+
+        assertFalse(chain.decide(new ExtendedLogRecordImpl(Level.FINE, "accept")));
+        assertEquals(0, content.calls);
+        assertTrue(chain.decide(new ExtendedLogRecordImpl(Level.INFO, "accept")));
+        assertEquals(1, content.calls);
+        assertFalse(chain.decide(new ExtendedLogRecordImpl(Level.INFO, "other")));
+        assertEquals(2, content.calls);
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private void assertSameDecisions(final ExtendedFilter head) {
+        FilterChain chain = new FilterChain(head);
+        String[] messages = new String[] {"pass", "accept", "deny" };
+        for (int i = 0; i < LEVELS.length; i++) {
+            for (int j = 0; j < messages.length; j++) {
+                ExtendedLogRecord record = new ExtendedLogRecordImpl(LEVELS[i], messages[j]);
+                assertEquals(LEVELS[i] + " " + messages[j], FilterChain.decide(head, record),
+                        chain.decide(record));
+            }
+        }
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Decides on the message: "accept" and "deny" decide, other messages are
+     * neutral.
+     */
+    static final class ContentFilter extends AbstractFilter {
+
+        int calls;
+
+        public int decide(final ExtendedLogRecord record) {
+            this.calls++;
+            if ("accept".equals(record.getMessage())) {
+                return ExtendedFilter.X4JULI_ACCEPT;
+            } else if ("deny".equals(record.getMessage())) {
+                return ExtendedFilter.X4JULI_DENY;
+            }
+            return ExtendedFilter.X4JULI_NEUTRAL;
+        }
+    }
+
+    static final class CustomLevel extends Level {
+
+        private static final long serialVersionUID = 1L;
+
+        CustomLevel(final String name, final int value) {
+            super(name, value);
+        }
+    }
+
+}
+
+// EOF FilterChainTest.java
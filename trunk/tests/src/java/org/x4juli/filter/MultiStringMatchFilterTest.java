@@ -0,0 +1,156 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.filter;
+
+import java.util.Random;
+import java.util.logging.Level;
+
+import org.x4juli.config.PropertySetter;
+import org.x4juli.global.components.AbstractJuliTestCase;
+import org.x4juli.global.spi.ExtendedFilter;
+import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.ExtendedLogRecordImpl;
+
+/**
+ * Testcase for x4juli.
+ * @since 0.7
+ */
+public class MultiStringMatchFilterTest extends AbstractJuliTestCase {
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     *
+     */
+    public MultiStringMatchFilterTest() {
+        super();
+    }
+
+    /**
+     * @param name
+     */
+    public MultiStringMatchFilterTest(String name) {
+        super(name);
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    public void testFirstAddedDecides() {
+        MultiStringMatchFilter filter = new MultiStringMatchFilter();
+        filter.setAcceptOnMatch(false);
+        filter.setStringToMatch("reset");
+        filter.addMatch(new StringMatch("Connection", true));
+        filter.setStringToMatch("pipe");
+        filter.activateOptions();
+
+        assertEquals(ExtendedFilter.X4JULI_DENY, filter.decide(createRecord("Connection reset")));
+        assertEquals(ExtendedFilter.X4JULI_ACCEPT, filter.decide(createRecord("Connection pipe")));
+        assertEquals(ExtendedFilter.X4JULI_DENY, filter.decide(createRecord("Broken pipe")));
+        assertEquals(ExtendedFilter.X4JULI_NEUTRAL, filter.decide(createRecord("pip rese")));
+        assertEquals(ExtendedFilter.X4JULI_NEUTRAL, filter.decide(createRecord(null)));
+        assertEquals(ExtendedFilter.X4JULI_NEUTRAL, new MultiStringMatchFilter()
+                .decide(createRecord("anything")));
+    }
+
+    /**
+     * Overlapping strings found through failure links must decide like a
+     * chain of StringMatchFilters.
+     */
+    public void testEqualsChain() {
+        Random random = new Random(42);
+        for (int round = 0; round < 50; round++) {
+            MultiStringMatchFilter filter = new MultiStringMatchFilter();
+            StringMatchFilter head = null;
+            StringMatchFilter tail = null;
+            int count = 1 + random.nextInt(12);
+            for (int i = 0; i < count; i++) {
+                StringMatchFilter single = new StringMatchFilter();
+                single.setStringToMatch(randomString(random, 1 + random.nextInt(4)));
+                single.setAcceptOnMatch(random.nextBoolean());
+                filter.addMatch(new StringMatch(single.getStringToMatch(), single
+                        .getAcceptOnMatch()));
+                if (head == null) {
+                    head = single;
+                } else {
+                    tail.setNext(single);
+                }
+                tail = single;
+            }
+            filter.activateOptions();
+            for (int i = 0; i < 50; i++) {
+                ExtendedLogRecord record = createRecord(randomString(random, random.nextInt(30)));
+                assertEquals(record.getMessage(), walk(head, record), filter.decide(record));
+            }
+        }
+    }
+
+    public void testMatchFormatted() {
+        MultiStringMatchFilter filter = new MultiStringMatchFilter();
+        filter.setAcceptOnMatch(false);
+        filter.setStringToMatch("secret");
+        ExtendedLogRecord record = createRecord("Password {0}");
+        record.setParameters(new Object[] {"secret" });
+        assertEquals(ExtendedFilter.X4JULI_NEUTRAL, filter.decide(record));
+        filter.setMatchFormatted(true);
+        assertEquals(ExtendedFilter.X4JULI_DENY, filter.decide(record));
+    }
+
+    public void testConfiguration() {
+        MultiStringMatchFilter filter = new MultiStringMatchFilter();
+        PropertySetter setter = new PropertySetter(filter);
+        setter.setProperty("AcceptOnMatch", "false");
+        setter.setProperty("StringToMatch", "noise");
+        setter.setProperty("MatchFormatted", "true");
+        assertEquals(PropertySetter.AS_COLLECTION, setter.canContainComponent("match"));
+        StringMatch match = new StringMatch();
+        PropertySetter matchSetter = new PropertySetter(match);
+        matchSetter.setProperty("StringToMatch", "important");
+        matchSetter.setProperty("AcceptOnMatch", "true");
+        setter.addComponent("match", match);
+        filter.activateOptions();
+
+        assertTrue(filter.getMatchFormatted());
+        assertEquals(ExtendedFilter.X4JULI_DENY, filter.decide(createRecord("noise")));
+        assertEquals(ExtendedFilter.X4JULI_ACCEPT, filter.decide(createRecord("important")));
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private ExtendedLogRecord createRecord(final String message) {
+        return new ExtendedLogRecordImpl(Level.INFO, message);
+    }
+
+    private static String randomString(final Random random, final int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(3));
+        }
+        return new String(chars);
+    }
+
+    private static int walk(final ExtendedFilter head, final ExtendedLogRecord record) {
+        for (ExtendedFilter f = head; f != null; f = f.getNext()) {
+            int decision = f.decide(record);
+            if (decision != ExtendedFilter.X4JULI_NEUTRAL) {
+                return decision;
+            }
+        }
+        return ExtendedFilter.X4JULI_NEUTRAL;
+    }
+
+}
+
+// EOF MultiStringMatchFilterTest.java
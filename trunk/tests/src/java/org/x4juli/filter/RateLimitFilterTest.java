@@ -0,0 +1,211 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.filter;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+
+import org.x4juli.formatter.helper.FormatterUtil;
+import org.x4juli.global.LoggerRepositoryHolder;
+import org.x4juli.global.components.AbstractJuliTestCase;
+import org.x4juli.global.spi.ExtendedFilter;
+import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.ExtendedLogRecordImpl;
+import org.x4juli.handlers.ListHandler;
+
+/**
+ * Testcase for x4juli.
+ * @since 0.7
+ */
+public class RateLimitFilterTest extends AbstractJuliTestCase {
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     *
+     */
+    public RateLimitFilterTest() {
+        super();
+    }
+
+    /**
+     * @param name
+     */
+    public RateLimitFilterTest(String name) {
+        super(name);
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    public void testBucket() {
+        ManualClockFilter filter = createFilter("logger,level");
+        for (int i = 0; i < 3; i++) {
+            assertEquals(ExtendedFilter.X4JULI_ACCEPT, filter.decide(createRecord("a", Level.INFO)));
+        }
+        assertEquals(ExtendedFilter.X4JULI_DENY, filter.decide(createRecord("a", Level.INFO)));
+        assertEquals(ExtendedFilter.X4JULI_DENY, filter.decide(createRecord("a", Level.INFO)));
+        assertEquals(ExtendedFilter.X4JULI_ACCEPT, filter.decide(createRecord("a", Level.WARNING)));
+        assertEquals(ExtendedFilter.X4JULI_ACCEPT, filter.decide(createRecord("b", Level.INFO)));
+        assertNull(filter.pollSummary());
+
+        filter.time += 500;
+        assertEquals(ExtendedFilter.X4JULI_ACCEPT, filter.decide(createRecord("a", Level.INFO)));
+        ExtendedLogRecord summary = filter.pollSummary();
+        assertEquals("2 similar messages suppressed", FormatterUtil.formatMessage(summary));
+        assertEquals("a", summary.getLoggerName());
+        assertEquals(Level.INFO, summary.getLevel());
+        assertNull(filter.pollSummary());
+        assertEquals(ExtendedFilter.X4JULI_DENY, filter.decide(createRecord("a", Level.INFO)));
+
+        filter.time += 10000;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(ExtendedFilter.X4JULI_ACCEPT, filter.decide(createRecord("a", Level.INFO)));
+        }
+        assertEquals(ExtendedFilter.X4JULI_DENY, filter.decide(createRecord("a", Level.INFO)));
+    }
+
+    public void testTemplateKey() {
+        ManualClockFilter filter = createFilter("template");
+        for (int i = 0; i < 3; i++) {
+            filter.decide(createRecord("logger" + i, Level.INFO));
+        }
+        ExtendedLogRecord other = createRecord("a", Level.INFO);
+        other.setMessage("other template");
+        assertEquals(ExtendedFilter.X4JULI_ACCEPT, filter.decide(other));
+        assertEquals(ExtendedFilter.X4JULI_DENY, filter.decide(createRecord("x", Level.SEVERE)));
+
+        filter.setAcceptOnMatch(false);
+        other.setMessage("third template");
+        assertEquals(ExtendedFilter.X4JULI_NEUTRAL, filter.decide(other));
+    }
+
+    public void testHandlerPublishesSummary() {
+        ManualClockFilter filter = createFilter("logger");
+        ListHandler list = new ListHandler("list");
+        list.setLevel(Level.ALL);
+        list.addFilter(filter);
+        list.activateOptions();
+        for (int i = 0; i < 5; i++) {
+            list.publish(createRecord("a", Level.WARNING));
+        }
+        filter.time += 500;
+        list.publish(createRecord("a", Level.WARNING));
+
+        List published = list.getList();
+        assertEquals(5, published.size());
+        ExtendedLogRecord summary = (ExtendedLogRecord) published.get(3);
+        assertEquals("2 similar messages suppressed", FormatterUtil.formatMessage(summary));
+        assertEquals("template", ((ExtendedLogRecord) published.get(4)).getMessage());
+    }
+
+    public void testSummaryWithoutFollowingRecord() {
+        ManualClockFilter filter = createFilter("logger");
+        assertFalse(filter.isSuppressing());
+        for (int i = 0; i < 5; i++) {
+            filter.decide(createRecord("a", Level.WARNING));
+        }
+        assertTrue(filter.isSuppressing());
+        assertEquals(filter.time + 500, filter.summarizeDue());
+        assertFalse(filter.isSuppressing());
+        assertNull(filter.pollSummary());
+
+        filter.time += 500;
+        assertEquals(Long.MAX_VALUE, filter.summarizeDue());
+        ExtendedLogRecord summary = filter.pollSummary();
+        assertEquals("2 similar messages suppressed", FormatterUtil.formatMessage(summary));
+        assertEquals("a", summary.getLoggerName());
+        assertEquals(Level.WARNING, summary.getLevel());
+        assertEquals(ExtendedFilter.X4JULI_ACCEPT, filter.decide(createRecord("a", Level.WARNING)));
+        assertNull(filter.pollSummary());
+    }
+
+    public void testLeastRecentlyUsedBucketIsDropped() {
+        ManualClockFilter filter = createFilter("logger");
+        filter.setMaxKeys(2);
+        filter.decide(createRecord("a", Level.INFO));
+        for (int i = 0; i < 4; i++) {
+            filter.decide(createRecord("b", Level.INFO));
+        }
+        filter.decide(createRecord("a", Level.INFO));
+        assertEquals(ExtendedFilter.X4JULI_ACCEPT, filter.decide(createRecord("c", Level.INFO)));
+
+        ExtendedLogRecord summary = filter.pollSummary();
+        assertEquals("1 similar messages suppressed", FormatterUtil.formatMessage(summary));
+        assertEquals("b", summary.getLoggerName());
+        assertEquals(ExtendedFilter.X4JULI_ACCEPT, filter.decide(createRecord("a", Level.INFO)));
+        assertEquals(ExtendedFilter.X4JULI_DENY, filter.decide(createRecord("a", Level.INFO)));
+        assertEquals(ExtendedFilter.X4JULI_ACCEPT, filter.decide(createRecord("b", Level.INFO)));
+    }
+
+    public void testHandlerPublishesSummaryAfterSilence() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter();
+        filter.setRate(2);
+        filter.setBurst(3);
+        filter.activateOptions();
+        ListHandler list = new ListHandler("list");
+        list.setLoggerRepository(((LoggerRepositoryHolder) LogManager.getLogManager())
+                .getLoggerRepository());
+        list.setLevel(Level.ALL);
+        list.addFilter(filter);
+        list.activateOptions();
+        for (int i = 0; i < 5; i++) {
+            list.publish(createRecord("a", Level.WARNING));
+        }
+
+        List published = list.getList();
+        long end = System.currentTimeMillis() + 5000;
+        while (published.size() < 4 && System.currentTimeMillis() < end) {
+            Thread.sleep(50);
+            published = list.getList();
+        }
+        assertEquals(4, published.size());
+        ExtendedLogRecord summary = (ExtendedLogRecord) published.get(3);
+        assertEquals("2 similar messages suppressed", FormatterUtil.formatMessage(summary));
+        list.close();
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private ManualClockFilter createFilter(final String key) {
+        ManualClockFilter filter = new ManualClockFilter();
+        filter.setKey(key);
+        filter.setRate(2);
+        filter.setBurst(3);
+        filter.activateOptions();
+        return filter;
+    }
+
+    private ExtendedLogRecord createRecord(final String logger, final Level level) {
+        ExtendedLogRecord record = new ExtendedLogRecordImpl(level, "template");
+        record.setLoggerName(logger);
+        return record;
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    static final class ManualClockFilter extends RateLimitFilter {
+
+        long time = 1000000;
+
+        protected long now() {
+            return this.time;
+        }
+    }
+
+}
+
+// EOF RateLimitFilterTest.java
@@ -44,6 +44,9 @@ public class AllTests extends AbstractJuliTestCase {
     public static TestSuite suite(){
         TestSuite suite = new TestSuite("AllTests of juli.formatter");
         suite.addTest(PatternFormatterTest.suite());
+        suite.addTestSuite(JsonFormatterTest.class);
+        suite.addTestSuite(org.x4juli.formatter.helper.FormatterUtilTest.class);
+        suite.addTestSuite(org.slf4j.impl.MessageFormatterTest.class);
         suite.addTest(org.x4juli.formatter.pattern.AllTests.suite());
         return suite;
     }
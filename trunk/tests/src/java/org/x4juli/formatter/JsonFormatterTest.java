@@ -0,0 +1,89 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.formatter;
+
+import java.util.logging.Level;
+
+import org.x4juli.global.SystemUtils;
+import org.x4juli.global.components.AbstractJuliTestCase;
+import org.x4juli.global.helper.Transform;
+import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.ExtendedLogRecordImpl;
+
+/**
+ * Testcase for x4juli.
+ * @since 0.7
+ */
+public class JsonFormatterTest extends AbstractJuliTestCase {
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     *
+     */
+    public JsonFormatterTest() {
+        super();
+    }
+
+    /**
+     * @param name
+     */
+    public JsonFormatterTest(String name) {
+        super(name);
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    public void testEscaping() {
+        StringBuffer buf = new StringBuffer();
+        Transform.appendEscapingJSON(buf, "plain");
+        assertEquals("plain", buf.toString());
+        buf.setLength(0);
+        Transform.appendEscapingJSON(buf, "a\"b\\c\nd\te\u0001f\u2028");
+        assertEquals("a\\\"b\\\\c\\nd\\te\\u0001f\\u2028", buf.toString());
+    }
+
+    public void testRecord() {
+        ExtendedLogRecord record = new ExtendedLogRecordImpl(Level.WARNING, "say \"{0}\"");
+        record.setParameters(new Object[] {"hello" });
+        record.setLoggerName("org.x4juli.json");
+        record.setMillis(1234);
+        record.setProperty("user", "b\\u");
+
+        JsonFormatter formatter = new JsonFormatter();
+        formatter.activateOptions();
+        String expected = "{\"millis\":1234,\"sequence\":" + record.getSequenceNumber()
+                + ",\"level\":\"WARNING\",\"logger\":\"org.x4juli.json\",\"thread\":\""
+                + record.getThreadName() + "\",\"message\":\"say \\\"hello\\\"\""
+                + ",\"properties\":{\"user\":\"b\\\\u\"}}" + SystemUtils.LINE_SEPARATOR;
+        assertEquals(expected, formatter.format(record));
+        assertFalse(formatter.ignoresThrowable());
+        assertFalse(formatter.requiresLocationInfo());
+    }
+
+    public void testThrown() {
+        ExtendedLogRecord record = new ExtendedLogRecordImpl(Level.SEVERE, "failed");
+        record.setThrown(new IllegalStateException("broken"));
+        String json = new JsonFormatter().format(record);
+        assertTrue(json.indexOf(",\"thrown\":[\"java.lang.IllegalStateException: broken\","
+                + "\"\\tat org.x4juli.formatter.JsonFormatterTest.testThrown") > 0);
+        assertTrue(json.endsWith("]}" + SystemUtils.LINE_SEPARATOR));
+        assertEquals(json.length() - SystemUtils.LINE_SEPARATOR.length(), json.indexOf('\n'));
+    }
+
+}
+
+// EOF JsonFormatterTest.java
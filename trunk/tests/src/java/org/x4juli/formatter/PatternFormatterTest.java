@@ -27,6 +27,8 @@ import junit.framework.TestSuite;
 import org.x4juli.formatter.PatternFormatter;
 import org.x4juli.global.components.AbstractJuliTestCase;
 import org.x4juli.global.helper.LoggerUtil;
+import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.ExtendedLogRecordImpl;
 import org.x4juli.handlers.TestHandler;
 
 
@@ -174,7 +176,7 @@ public class PatternFormatterTest extends AbstractJuliTestCase {
 	public void test6() throws Exception {
 		this.actualPattern = patternLayout6;
 		testHandler
-				.setExpected("org.x4juli.formatter.PatternFormatterTest.test6(PatternFormatterTest.java:178)");
+				.setExpected("org.x4juli.formatter.PatternFormatterTest.test6(PatternFormatterTest.java:180)");
 		getTestLogger().info("uninteresting String");
 		assertTrue(testHandler.compare());
 	}
@@ -235,6 +237,39 @@ public class PatternFormatterTest extends AbstractJuliTestCase {
 		testHandler.setExpected(out.toString());
 		assertTrue(testHandler.compare());
 	}	
+
+	public void test12() throws Exception {
+		final String pattern = "%d{HH:mm:ss,SSS} %r %p %m%n";
+		final PatternFormatter shared = new PatternFormatter(pattern);
+		final int threadCount = 4;
+		final int records = 2000;
+		final String[] failures = new String[threadCount];
+		Thread[] threads = new Thread[threadCount];
+		for (int t = 0; t < threadCount; t++) {
+			final int id = t;
+			threads[t] = new Thread() {
+				public void run() {
+					PatternFormatter reference = new PatternFormatter(pattern);
+					long millis = System.currentTimeMillis() + id * 7919L;
+					for (int i = 0; i < records && failures[id] == null; i++) {
+						ExtendedLogRecord record = new ExtendedLogRecordImpl(Level.INFO,
+								"Thread " + id + " record " + i);
+						record.setMillis(millis + i * 13L);
+						String expected = reference.format(record);
+						String actual = shared.format(record);
+						if (!expected.equals(actual)) {
+							failures[id] = "Expected [" + expected + "] was [" + actual + "]";
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (int t = 0; t < threadCount; t++) {
+			threads[t].join();
+			assertNull(failures[t], failures[t]);
+		}
+	}
 	
 	public static Test suite() {
 		TestSuite suite = new TestSuite();
@@ -250,6 +285,7 @@ public class PatternFormatterTest extends AbstractJuliTestCase {
 		suite.addTest(new PatternFormatterTest("test9"));
 		suite.addTest(new PatternFormatterTest("test10"));
 		suite.addTest(new PatternFormatterTest("test11"));
+		suite.addTest(new PatternFormatterTest("test12"));
 
 		return suite;
 	}
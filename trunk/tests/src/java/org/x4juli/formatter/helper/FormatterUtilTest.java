@@ -0,0 +1,115 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.formatter.helper;
+
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.x4juli.global.components.AbstractJuliTestCase;
+import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.ExtendedLogRecordImpl;
+
+/**
+ * Testcase for x4juli.
+ * @since 0.7
+ */
+public class FormatterUtilTest extends AbstractJuliTestCase {
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     *
+     */
+    public FormatterUtilTest() {
+        super();
+    }
+
+    /**
+     * @param name
+     */
+    public FormatterUtilTest(String name) {
+        super(name);
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    public void testSlf4jFormat() {
+        ExtendedLogRecord record = createRecord("a {} b {}", new Object[] {new Integer(1), "x" });
+        record.setSlf4jFormat(true);
+        assertNull(record.getFormattedMessage());
+        assertEquals("a 1 b x", FormatterUtil.formatMessage(record));
+        assertEquals("a 1 b x", record.getFormattedMessage());
+
+        record = createRecord("a {} b {}", new Object[] {new Integer(1), "x" });
+        assertEquals("a {} b {}[0=1][1=x]", FormatterUtil.formatMessage(record));
+    }
+
+    public void testJavaTextFormat() {
+        String template = "{0} has {1,number,#} items";
+        assertEquals("list has 12 items", FormatterUtil.formatMessage(createRecord(template,
+                new Object[] {"list", new Integer(12) })));
+        assertEquals("set has 3 items", FormatterUtil.formatMessage(createRecord(template,
+                new Object[] {"set", new Long(3) })));
+        assertEquals("broken {0[0=x]", FormatterUtil.formatMessage(createRecord("broken {0",
+                new Object[] {"x" })));
+        assertEquals("broken {0[0=y]", FormatterUtil.formatMessage(createRecord("broken {0",
+                new Object[] {"y" })));
+    }
+
+    public void testSnapshotParameters() {
+        StringBuffer mutable = new StringBuffer("before");
+        Integer immutable = new Integer(7);
+        Object[] parameters = new Object[] {mutable, immutable, null };
+        ExtendedLogRecord record = createRecord("{0} {1} {2}", parameters);
+        FormatterUtil.snapshotParameters(record);
+        mutable.append(" after");
+        parameters[1] = "replaced";
+
+        Object[] snapshot = record.getParameters();
+        assertNotSame(parameters, snapshot);
+        assertEquals("before", snapshot[0]);
+        assertSame(immutable, snapshot[1]);
+        assertNull(snapshot[2]);
+        assertEquals("before 7 null", FormatterUtil.formatMessage(record));
+    }
+
+    public void testToJulRecord() {
+        ExtendedLogRecord record = createRecord("{} of {}", new Object[] {"one", "two" });
+        assertSame(record, FormatterUtil.toJulRecord(record));
+        record.setSlf4jFormat(true);
+        LogRecord copy = FormatterUtil.toJulRecord(record);
+        assertNotSame(record, copy);
+        assertNull(copy.getParameters());
+        assertEquals(record.getSequenceNumber(), copy.getSequenceNumber());
+        java.util.logging.Formatter julFormatter = new java.util.logging.Formatter() {
+            public String format(final LogRecord rec) {
+                return formatMessage(rec);
+            }
+        };
+        assertEquals("one of two", julFormatter.format(copy));
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private ExtendedLogRecord createRecord(final String message, final Object[] parameters) {
+        ExtendedLogRecord record = new ExtendedLogRecordImpl(Level.INFO, message);
+        record.setParameters(parameters);
+        return record;
+    }
+
+}
+
+// EOF FormatterUtilTest.java
@@ -20,7 +20,13 @@ import junit.framework.Test;
 import junit.framework.TestSuite;
 
 import org.x4juli.global.components.AbstractJuliTestCase;
+import org.x4juli.global.context.MDCTest;
 import org.x4juli.global.context.NDCTest;
+import org.x4juli.global.scheduler.SchedulerTest;
+import org.x4juli.global.spi.CompactTraceRendererTest;
+import org.x4juli.global.spi.HierarchyTest;
+import org.x4juli.global.spi.LocationCaptureTest;
+import org.x4juli.global.spi.ThreadMetadataTest;
 import org.x4juli.global.spi.ThrowableInformationTest;
 
 /**
@@ -47,6 +53,13 @@ public class AllTests extends AbstractJuliTestCase {
         TestSuite suite = new TestSuite("org.x4juli.global");
         suite.addTestSuite(ThrowableInformationTest.class);
         suite.addTestSuite(NDCTest.class);
+        suite.addTestSuite(MDCTest.class);
+        suite.addTestSuite(LocationCaptureTest.class);
+        suite.addTestSuite(HierarchyTest.class);
+        suite.addTestSuite(ThreadMetadataTest.class);
+        suite.addTestSuite(CompactTraceRendererTest.class);
+        suite.addTestSuite(ClockTest.class);
+        suite.addTestSuite(SchedulerTest.class);
         return suite;
     }
 
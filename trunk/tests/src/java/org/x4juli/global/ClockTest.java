@@ -0,0 +1,123 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.global;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.logging.Level;
+
+import org.x4juli.global.components.AbstractJuliTestCase;
+import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.ExtendedLogRecordImpl;
+import org.x4juli.handlers.rolling.RolloverDescription;
+import org.x4juli.handlers.rolling.TimeBasedRollingPolicy;
+
+/**
+ * Testcase for x4juli.
+ * @since 0.7
+ */
+public class ClockTest extends AbstractJuliTestCase {
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     *
+     */
+    public ClockTest() {
+        super();
+    }
+
+    /**
+     * @param name
+     */
+    public ClockTest(String name) {
+        super(name);
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.7
+     */
+    protected void tearDown() {
+        Clock.setClock(null);
+        super.tearDown();
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    public void testPrecise() {
+        assertSame(Clock.precise(), Clock.getClock());
+        assertTrue(Clock.getClock().isSystemTime());
+        long before = System.currentTimeMillis();
+        long now = Clock.currentTimeMillis();
+        assertTrue(now >= before && now <= System.currentTimeMillis());
+    }
+
+    public void testCoarse() throws Exception {
+        Clock coarse = Clock.coarse(1);
+        Clock.setClock(coarse);
+        assertFalse(coarse.isSystemTime());
+        long first = Clock.currentTimeMillis();
+        Thread.sleep(50);
+        assertTrue(Clock.currentTimeMillis() > first);
+        Clock.setClock(null);
+        assertSame(Clock.precise(), Clock.getClock());
+    }
+
+    public void testRecordTime() {
+        ManualClock clock = new ManualClock(1000000L);
+        Clock.setClock(clock);
+        ExtendedLogRecord record = new ExtendedLogRecordImpl(Level.INFO, "manual");
+        assertEquals(1000000L, record.getMillis());
+        clock.advance(250);
+        record = new ExtendedLogRecordImpl(Level.INFO, "manual");
+        assertEquals(1000250L, record.getMillis());
+    }
+
+    public void testTimeBasedRollover() throws Exception {
+        Calendar cal = Calendar.getInstance();
+        cal.set(2005, Calendar.NOVEMBER, 30, 23, 59, 58);
+        cal.set(Calendar.MILLISECOND, 500);
+        ManualClock clock = new ManualClock(cal.getTime().getTime());
+        Clock.setClock(clock);
+
+        String datePattern = "yyyy-MM-dd";
+        SimpleDateFormat sdf = new SimpleDateFormat(datePattern);
+        TimeBasedRollingPolicy tbrp = new TimeBasedRollingPolicy("output/clock-%d{"
+                + datePattern + "}");
+        tbrp.activateOptions();
+        RolloverDescription description = tbrp.initialize(null, true);
+        String first = "output/clock-" + sdf.format(cal.getTime());
+        assertEquals(first, description.getActiveFileName());
+
+        assertFalse(tbrp.isTriggeringEvent(null, null, first, 0));
+        clock.advance(1499);
+        assertFalse(tbrp.isTriggeringEvent(null, null, first, 0));
+
+        clock.advance(1);
+        assertTrue(tbrp.isTriggeringEvent(null, null, first, 0));
+        cal.add(Calendar.DAY_OF_MONTH, 1);
+        description = tbrp.rollover(first);
+        assertEquals("output/clock-" + sdf.format(cal.getTime()), description
+                .getActiveFileName());
+    }
+
+}
+
+// EOF ClockTest.java
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.global;
+
+/**
+ * Clock for testcases which only changes when told to.
+ * @since 0.7
+ */
+public final class ManualClock extends Clock {
+
+    private volatile long now;
+
+    /**
+     * @param now initial time in milliseconds.
+     */
+    public ManualClock(long now) {
+        this.now = now;
+    }
+
+    public long millis() {
+        return this.now;
+    }
+
+    /**
+     * @param millis to add to the time.
+     */
+    public void advance(long millis) {
+        this.now += millis;
+    }
+
+    /**
+     * @param millis new time.
+     */
+    public void set(long millis) {
+        this.now = millis;
+    }
+
+}
+
+// EOF ManualClock.java
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.global.context;
+
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.logging.Level;
+
+import org.x4juli.global.components.AbstractJuliTestCase;
+import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.ExtendedLogRecordImpl;
+import org.x4juli.global.spi.MDC;
+
+/**
+ * Test for mapped diagnostic context.
+ *
+ * @since 0.7
+ */
+public class MDCTest extends AbstractJuliTestCase {
+
+    MDC mdc;
+
+    /**
+     * @param name
+     */
+    public MDCTest(String name) {
+        super(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.7
+     */
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.mdc = ContextFactory.getMappedDiagnosticContext();
+        this.mdc.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.7
+     */
+    protected void tearDown() {
+        this.mdc.clear();
+        super.tearDown();
+    }
+
+    public void testCopyOnWrite() {
+        assertNull(this.mdc.getContext());
+        this.mdc.put("user", "someone");
+        this.mdc.put("session", "4711");
+        Hashtable before = this.mdc.getContext();
+        assertSame(before, this.mdc.getContext());
+
+        this.mdc.put("user", "other");
+        assertNotSame(before, this.mdc.getContext());
+        assertEquals("someone", before.get("user"));
+        assertEquals("other", this.mdc.get("user"));
+
+        Hashtable current = this.mdc.getContext();
+        this.mdc.remove("unknown");
+        assertSame(current, this.mdc.getContext());
+        this.mdc.remove("user");
+        assertEquals(1, this.mdc.getContext().size());
+        assertEquals("4711", this.mdc.get("session"));
+        this.mdc.remove("session");
+        assertNull(this.mdc.getContext());
+        assertNull(this.mdc.getKeys());
+    }
+
+    public void testImmutable() {
+        this.mdc.put("b", "2");
+        this.mdc.put("a", "1");
+        Hashtable context = this.mdc.getContext();
+        try {
+            context.put("c", "3");
+            fail("context is modifiable");
+        } catch (UnsupportedOperationException expected) {
+            // expected
+        }
+        try {
+            context.keySet().clear();
+            fail("key set is modifiable");
+        } catch (UnsupportedOperationException expected) {
+            // expected
+        }
+        Iterator iter = context.keySet().iterator();
+        assertEquals("a", iter.next());
+        assertEquals("b", iter.next());
+
+        Hashtable copy = (Hashtable) context.clone();
+        copy.put("c", "3");
+        assertEquals(3, copy.size());
+        assertEquals(2, context.size());
+    }
+
+    public void testRecordSnapshot() {
+        this.mdc.put("user", "someone");
+        ExtendedLogRecord record = new ExtendedLogRecordImpl(Level.INFO, "message");
+        record.initializeProperties();
+        assertSame(this.mdc.getContext(), record.getProperties());
+
+        this.mdc.put("user", "other");
+        assertEquals("someone", record.getProperty("user"));
+        record.setProperty("extra", "value");
+        assertEquals("someone", record.getProperty("user"));
+        assertEquals(2, record.getPropertyKeySet().size());
+        assertNull(this.mdc.get("extra"));
+
+        this.mdc.clear();
+        record = new ExtendedLogRecordImpl(Level.INFO, "message");
+        assertTrue(record.getPropertyKeySet().isEmpty());
+        record.setProperty("extra", "value");
+        assertEquals("value", record.getProperty("extra"));
+    }
+
+    public void testChildThread() throws Exception {
+        this.mdc.put("user", "parent");
+        final Hashtable parentContext = this.mdc.getContext();
+        final Object[] childContext = new Object[2];
+        Thread child = new Thread() {
+            public void run() {
+                MDC childMdc = ContextFactory.getMappedDiagnosticContext();
+                childContext[0] = childMdc.getContext();
+                childMdc.put("user", "child");
+                childContext[1] = childMdc.get("user");
+            }
+        };
+        child.start();
+        child.join();
+        assertSame(parentContext, childContext[0]);
+        assertEquals("child", childContext[1]);
+        assertEquals("parent", this.mdc.get("user"));
+    }
+
+}
+
+// EOF MDCTest.java
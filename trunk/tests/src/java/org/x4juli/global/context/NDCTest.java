@@ -15,6 +15,7 @@
  */
 package org.x4juli.global.context;
 
+import java.util.Stack;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -92,6 +93,60 @@ public class NDCTest extends AbstractJuliTestCase {
         assertTrue(Compare.compare("output/ndctest.txt", "witness/ndc/NDC.1"));
     }
 
+    public void testFullMessage() {
+        NDC myNDC = ContextFactory.getNestedDiagnosticContext();
+        myNDC.clear();
+        assertNull(myNDC.get());
+        assertEquals("", myNDC.peek());
+        for (int i = 0; i < 20; i++) {
+            myNDC.push("n" + i);
+        }
+        assertEquals(20, myNDC.getDepth());
+        String full = myNDC.get();
+        assertTrue(full.startsWith("n0 n1 n2 "));
+        assertTrue(full.endsWith(" n18 n19"));
+        assertSame(full, myNDC.get());
+        assertEquals("n19", myNDC.pop());
+        assertEquals("n18", myNDC.peek());
+        assertEquals(full.substring(0, full.length() - 4), myNDC.get());
+        myNDC.setMaxDepth(2);
+        assertEquals("n0 n1", myNDC.get());
+        myNDC.clear();
+        myNDC.push(null);
+        assertNull(myNDC.get());
+        myNDC.push("x");
+        assertEquals("null x", myNDC.get());
+        myNDC.clear();
+        assertEquals("", myNDC.pop());
+    }
+
+    public void testCloneAndInherit() throws Exception {
+        final NDC myNDC = ContextFactory.getNestedDiagnosticContext();
+        myNDC.clear();
+        myNDC.push("parent");
+        myNDC.push("request");
+        final Stack stack = myNDC.cloneStack();
+        assertEquals(2, stack.size());
+        assertEquals("request", stack.peek());
+
+        final String[] childNDC = new String[2];
+        Thread child = new Thread() {
+            public void run() {
+                myNDC.inherit(stack);
+                childNDC[0] = myNDC.get();
+                myNDC.push("child");
+                childNDC[1] = myNDC.get();
+            }
+        };
+        child.start();
+        child.join();
+        assertEquals("parent request", childNDC[0]);
+        assertEquals("parent request child", childNDC[1]);
+        assertEquals(2, stack.size());
+        assertEquals("parent request", myNDC.get());
+        myNDC.clear();
+    }
+
     protected void commonLog() {
         renameLogger.fine("m1");
         renameLogger.info("m2");
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.global.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.x4juli.global.components.AbstractJuliTestCase;
+
+/**
+ * Testcase for x4juli.
+ * @since 0.7
+ */
+public class SchedulerTest extends AbstractJuliTestCase {
+
+    private Scheduler scheduler;
+
+    /**
+     * Names of the executed jobs, guarded by itself.
+     */
+    private final List executed = new ArrayList();
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     *
+     */
+    public SchedulerTest() {
+        super();
+    }
+
+    /**
+     * @param name
+     */
+    public SchedulerTest(String name) {
+        super(name);
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.7
+     */
+    protected void tearDown() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdown();
+            this.scheduler = null;
+        }
+        super.tearDown();
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    public void testOrder() throws Exception {
+        this.scheduler = start(1);
+        long now = System.currentTimeMillis();
+        this.scheduler.schedule(new RecordingJob("A"), now + 60);
+        this.scheduler.schedule(new RecordingJob("B"), now + 20);
+        this.scheduler.schedule(new RecordingJob("C"), now + 20);
+        this.scheduler.schedule(new RecordingJob("D"), now + 40);
+        awaitExecuted(4);
+        assertEquals("[B, C, D, A]", executedNames());
+    }
+
+    public void testHeapOrder() throws Exception {
+        this.scheduler = new Scheduler(1);
+        List times = new ArrayList();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 200; i++) {
+            times.add(new Long(now - 1000 + i));
+        }
+        Collections.shuffle(times, new Random(4711));
+        List deleted = new ArrayList();
+        for (int i = 0; i < times.size(); i++) {
+            Long time = (Long) times.get(i);
+            Job job = new RecordingJob(time.toString());
+            this.scheduler.schedule(job, time.longValue());
+            if (i % 3 == 0) {
+                deleted.add(job);
+            }
+        }
+        for (int i = 0; i < deleted.size(); i++) {
+            assertTrue(this.scheduler.delete((Job) deleted.get(i)));
+        }
+        assertEquals(200 - deleted.size(), this.scheduler.size());
+        this.scheduler.setDaemon(true);
+        this.scheduler.start();
+        awaitExecuted(200 - deleted.size());
+
+        synchronized (this.executed) {
+            for (int i = 1; i < this.executed.size(); i++) {
+                long previous = Long.parseLong((String) this.executed.get(i - 1));
+                long current = Long.parseLong((String) this.executed.get(i));
+                assertTrue(previous < current);
+            }
+        }
+    }
+
+    public void testDeleteAndReplace() throws Exception {
+        this.scheduler = start(1);
+        long now = System.currentTimeMillis();
+        Job deleted = new RecordingJob("deleted");
+        Job replaced = new RecordingJob("replaced");
+        this.scheduler.schedule(deleted, now + 50);
+        this.scheduler.schedule(replaced, now + 500);
+        this.scheduler.schedule(replaced, now + 50);
+        assertEquals(2, this.scheduler.size());
+        assertTrue(this.scheduler.delete(deleted));
+        assertFalse(this.scheduler.delete(deleted));
+        awaitExecuted(1);
+        Thread.sleep(100);
+        assertEquals("[replaced]", executedNames());
+        assertEquals(0, this.scheduler.size());
+    }
+
+    public void testPeriodic() throws Exception {
+        this.scheduler = start(1);
+        Job periodic = new RecordingJob("periodic");
+        this.scheduler.schedule(periodic, System.currentTimeMillis(), 20);
+        awaitExecuted(3);
+        assertTrue(this.scheduler.changePeriod(periodic, 10));
+        assertTrue(this.scheduler.delete(periodic));
+        Thread.sleep(50);
+        int count;
+        synchronized (this.executed) {
+            count = this.executed.size();
+        }
+        Thread.sleep(100);
+        synchronized (this.executed) {
+            assertEquals(count, this.executed.size());
+        }
+        assertFalse(this.scheduler.changePeriod(periodic, 10));
+    }
+
+    public void testSlowJobDoesNotDelayOthers() throws Exception {
+        this.scheduler = start(2);
+        long now = System.currentTimeMillis();
+        this.scheduler.schedule(new Job() {
+            public void execute() {
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        }, now);
+        this.scheduler.schedule(new RecordingJob("quick"), now + 20);
+        awaitExecuted(1);
+        assertTrue(System.currentTimeMillis() - now < 800);
+    }
+
+    public void testShutdown() throws Exception {
+        Scheduler stopped = start(2);
+        Job job = new RecordingJob("late");
+        stopped.schedule(job, System.currentTimeMillis() + 1000);
+        stopped.shutdown();
+        stopped.join(2000);
+        assertFalse(stopped.isAlive());
+        assertFalse(stopped.delete(job));
+        stopped.schedule(job, System.currentTimeMillis());
+        assertEquals(0, stopped.size());
+        assertEquals("[]", executedNames());
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private static Scheduler start(int workers) {
+        Scheduler started = new Scheduler(workers);
+        started.setDaemon(true);
+        started.start();
+        return started;
+    }
+
+    private void awaitExecuted(int count) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        synchronized (this.executed) {
+            while (this.executed.size() < count && System.currentTimeMillis() < end) {
+                this.executed.wait(50);
+            }
+            assertTrue(this.executed.size() >= count);
+        }
+    }
+
+    private String executedNames() {
+        synchronized (this.executed) {
+            return this.executed.toString();
+        }
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Records its name when executed.
+     */
+    private final class RecordingJob implements Job {
+
+        private final String name;
+
+        RecordingJob(String name) {
+            this.name = name;
+        }
+
+        public void execute() {
+            synchronized (SchedulerTest.this.executed) {
+                SchedulerTest.this.executed.add(this.name);
+                SchedulerTest.this.executed.notifyAll();
+            }
+        }
+    }
+
+}
+
+// EOF SchedulerTest.java
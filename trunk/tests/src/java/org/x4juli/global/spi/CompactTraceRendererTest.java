@@ -0,0 +1,136 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.global.spi;
+
+import java.util.logging.Level;
+
+import org.x4juli.formatter.pattern.ThrowableInformationPatternConverter;
+import org.x4juli.global.SystemUtils;
+import org.x4juli.global.components.AbstractJuliTestCase;
+
+/**
+ * Testcase for x4juli.
+ * @since 0.7
+ */
+public class CompactTraceRendererTest extends AbstractJuliTestCase {
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     *
+     */
+    public CompactTraceRendererTest() {
+        super();
+    }
+
+    /**
+     * @param name
+     */
+    public CompactTraceRendererTest(String name) {
+        super(name);
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    public void testCommonFrames() {
+        Exception cause = new Exception("cause");
+        Exception thrown = new IllegalStateException("thrown", cause);
+        int common = cause.getStackTrace().length - 1;
+
+        String[] lines = new CompactTraceRenderer(0, null).render(thrown);
+        assertEquals("java.lang.IllegalStateException: thrown", lines[0]);
+        assertEquals(thrown.getStackTrace().length + 4, lines.length);
+        assertEquals("Caused by: java.lang.Exception: cause", lines[lines.length - 3]);
+        assertEquals("\tat " + cause.getStackTrace()[0], lines[lines.length - 2]);
+        assertEquals("\t... " + common + " frames in common with previous",
+                lines[lines.length - 1]);
+    }
+
+    public void testCollapsedPackages() throws Exception {
+        Exception thrown = (Exception) getClass().getMethod("create", new Class[0]).invoke(null,
+                new Object[0]);
+
+        String[] lines = CompactTraceRenderer.newInstance(null, null).render(thrown);
+        assertTrue(lines[1].startsWith("\tat " + getClass().getName() + ".create("));
+        assertTrue(lines[2], lines[2].startsWith("\t... "));
+        assertTrue(lines[2], lines[2].indexOf(" frames in ") > 0);
+        assertTrue(lines[2], lines[2].indexOf("reflect") > 0);
+        for (int i = 0; i < lines.length; i++) {
+            assertFalse(lines[i], lines[i].startsWith("\tat java.lang.reflect.Method.invoke("));
+        }
+
+        lines = CompactTraceRenderer.newInstance(null, "").render(thrown);
+        assertEquals(thrown.getStackTrace().length + 1, lines.length);
+    }
+
+    public void testDepth() {
+        Exception thrown = recurse(10);
+
+        String[] lines = CompactTraceRenderer.newInstance("3", "").render(thrown);
+        assertEquals(5, lines.length);
+        assertEquals("\tat " + thrown.getStackTrace()[2], lines[3]);
+        assertEquals("\t... " + (thrown.getStackTrace().length - 3) + " more", lines[4]);
+    }
+
+    public void testSharedLines() {
+        Exception[] thrown = new Exception[2];
+        for (int i = 0; i < thrown.length; i++) {
+            thrown[i] = new IllegalStateException("shared", new Exception("cause"));
+        }
+
+        String[] lines = new CompactTraceRenderer(3, "").render(thrown[0]);
+        assertSame(lines, new CompactTraceRenderer(3, "").render(thrown[1]));
+        String[] deeper = new CompactTraceRenderer(4, "").render(thrown[1]);
+        assertNotSame(lines, deeper);
+        assertEquals(lines.length + 1, deeper.length);
+        assertNotSame(lines, new CompactTraceRenderer(3, "")
+                .render(new IllegalStateException("other", new Exception("cause"))));
+    }
+
+    public void testPatternConverter() {
+        Exception thrown = new Exception("converted");
+        ExtendedLogRecord record = new ExtendedLogRecordImpl(Level.SEVERE, "failed");
+        record.setThrown(thrown);
+
+        StringBuffer buf = new StringBuffer();
+        ThrowableInformationPatternConverter.newInstance(new String[] {"compact", "1" }).format(
+                record, buf);
+        String eol = SystemUtils.LINE_SEPARATOR;
+        assertEquals("java.lang.Exception: converted" + eol + "\tat " + thrown.getStackTrace()[0]
+                + eol + "\t... " + (thrown.getStackTrace().length - 1) + " more" + eol, buf
+                .toString());
+    }
+
+    /**
+     * Invoked by reflection.
+     * @return a new exception.
+     */
+    public static Exception create() {
+        return new Exception("collapsed");
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private static Exception recurse(int depth) {
+        if (depth == 0) {
+            return new Exception("deep");
+        }
+        return recurse(depth - 1);
+    }
+
+}
+
+// EOF CompactTraceRendererTest.java
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.global.spi;
+
+import java.util.logging.Level;
+
+import org.x4juli.global.components.AbstractJuliTestCase;
+import org.x4juli.logger.DefaultJDKLoggerFactory;
+
+/**
+ * Testcase for x4juli.
+ * @since 0.7
+ */
+public class HierarchyTest extends AbstractJuliTestCase {
+
+    /**
+     * 
+     */
+    public HierarchyTest() {
+        super();
+    }
+
+    /**
+     * @param name
+     */
+    public HierarchyTest(String name) {
+        super(name);
+    }
+
+    public void testGetLogger() {
+        Hierarchy hierarchy = createHierarchy();
+        ExtendedLogger child = hierarchy.getLogger("a.b.c");
+        assertSame(hierarchy.getRootLogger(), child.getParent());
+        assertSame(child, hierarchy.getLogger("a.b.c"));
+        assertSame(child, hierarchy.exists("a.b.c"));
+        assertNull(hierarchy.exists("a.b"));
+
+        // Replaces the provision node, the child has to be relinked.
+        ExtendedLogger parent = hierarchy.getLogger("a");
+        assertSame(parent, child.getParent());
+        assertSame(parent, hierarchy.getLogger("a"));
+    }
+
+    public void testLoggerCache() {
+        Hierarchy hierarchy = createHierarchy();
+        ExtendedLogger[] loggers = new ExtendedLogger[1000];
+        for (int i = 0; i < loggers.length; i++) {
+            loggers[i] = hierarchy.getLogger("org.x4juli.cache.Logger" + i);
+        }
+        for (int i = 0; i < loggers.length; i++) {
+            assertSame(loggers[i], hierarchy.getLogger("org.x4juli.cache.Logger" + i));
+            assertSame(loggers[i], hierarchy.exists("org.x4juli.cache.Logger" + i));
+        }
+    }
+
+    public void testEffectiveLevel() {
+        Hierarchy hierarchy = createHierarchy();
+        hierarchy.getRootLogger().setLevel(Level.INFO);
+        ExtendedLogger child = hierarchy.getLogger("a.b.c");
+        assertFalse(child.isLoggable(Level.FINE));
+        assertTrue(child.isLoggable(Level.INFO));
+
+        ExtendedLogger parent = hierarchy.getLogger("a");
+        parent.setLevel(Level.FINE);
+        assertTrue(child.isLoggable(Level.FINE));
+
+        hierarchy.getLogger("a.b").setLevel(Level.SEVERE);
+        assertFalse(child.isLoggable(Level.WARNING));
+        assertTrue(child.isLoggable(Level.SEVERE));
+
+        hierarchy.getLogger("a.b").setLevel(null);
+        parent.setLevel(Level.OFF);
+        assertFalse(child.isLoggable(Level.SEVERE));
+        assertFalse(child.isLoggable(Level.OFF));
+
+        parent.setLevel(null);
+        hierarchy.getRootLogger().setLevel(Level.ALL);
+        assertTrue(child.isLoggable(Level.ALL));
+        assertTrue(child.isLoggable(Level.FINEST));
+    }
+
+    private Hierarchy createHierarchy() {
+        DefaultJDKLoggerFactory factory = new DefaultJDKLoggerFactory();
+        Hierarchy hierarchy = new Hierarchy(factory.makeNewLoggerInstance("", null));
+        hierarchy.setName("HierarchyTest");
+        return hierarchy;
+    }
+
+}
+
+// EOF HierarchyTest.java
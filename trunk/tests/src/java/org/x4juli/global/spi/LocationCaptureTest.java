@@ -0,0 +1,106 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.global.spi;
+
+import java.util.logging.Handler;
+
+import org.x4juli.formatter.PatternFormatter;
+import org.x4juli.global.components.AbstractJuliTestCase;
+import org.x4juli.global.spi.location.LocationCapture;
+import org.x4juli.global.spi.location.LocationCaptureStats;
+import org.x4juli.global.spi.location.LocationInfo;
+import org.x4juli.global.spi.location.StackTraceElementExtractor;
+import org.x4juli.handlers.AsyncHandler;
+import org.x4juli.handlers.ListHandler;
+
+/**
+ * Testcase for x4juli.
+ * @since 0.7
+ */
+public class LocationCaptureTest extends AbstractJuliTestCase {
+
+    /**
+     * 
+     */
+    public LocationCaptureTest() {
+        super();
+    }
+
+    /**
+     * @param name
+     */
+    public LocationCaptureTest(String name) {
+        super(name);
+    }
+
+    public void testCapture() {
+        LocationCaptureStats stats = new LocationCaptureStats();
+        LocationInfo li = CapturingLogger.log(stats);
+        assertEquals(LocationCaptureTest.class.getName(), li.getClassName());
+        assertEquals("testCapture", li.getMethodName());
+        assertEquals("LocationCaptureTest.java", li.getFileName());
+        assertEquals(1, stats.getCaptureCount());
+        assertEquals(0, stats.getUnresolvedCount());
+        assertTrue(stats.getFramesScanned() > 0);
+    }
+
+    public void testCaptureUnresolved() {
+        LocationCaptureStats stats = new LocationCaptureStats();
+        LocationInfo li = StackTraceElementExtractor.capture("no.such.Logger", stats);
+        assertSame(LocationInfo.NA_LOCATION_INFO, li);
+        assertEquals(1, stats.getUnresolvedCount());
+    }
+
+    public void testRequiresLocationInfo() {
+        PatternFormatter formatter = new PatternFormatter("%m%n");
+        assertFalse(formatter.requiresLocationInfo());
+        formatter.setConversionPattern("%F:%L %m%n");
+        assertTrue(formatter.requiresLocationInfo());
+
+        ListHandler list = new ListHandler("list");
+        list.setFormatter((ExtendedFormatter) new PatternFormatter("%m%n"));
+        Handler[] handlers = new Handler[] {list };
+        assertFalse(LocationCapture.requiresLocationInfo(handlers));
+
+        AsyncHandler async = new AsyncHandler("async");
+        async.addHandler(list);
+        handlers = new Handler[] {async };
+        assertFalse(LocationCapture.requiresLocationInfo(handlers));
+        int generation = LocationCapture.getGeneration();
+        list.setFormatter((ExtendedFormatter) new PatternFormatter("%M %m%n"));
+        assertTrue(generation != LocationCapture.getGeneration());
+        assertTrue(LocationCapture.requiresLocationInfo(handlers));
+    }
+
+    public void testToMode() {
+        assertSame(LocationCapture.MODE_ALWAYS, LocationCapture.toMode("Always"));
+        assertSame(LocationCapture.MODE_NEVER, LocationCapture.toMode("never"));
+        assertNull(LocationCapture.toMode("sometimes"));
+    }
+
+    /**
+     * Stands in for a logger, the location is captured within.
+     */
+    private static class CapturingLogger {
+
+        static LocationInfo log(final LocationCaptureStats stats) {
+            return StackTraceElementExtractor.capture(CapturingLogger.class.getName(), stats);
+        }
+    }
+
+}
+
+// EOF LocationCaptureTest.java
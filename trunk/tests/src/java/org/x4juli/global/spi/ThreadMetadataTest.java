@@ -0,0 +1,99 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.global.spi;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.logging.Level;
+
+import org.x4juli.global.components.AbstractJuliTestCase;
+import org.x4juli.global.context.ContextFactory;
+
+/**
+ * Testcase for x4juli.
+ * @since 0.7
+ */
+public class ThreadMetadataTest extends AbstractJuliTestCase {
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     *
+     */
+    public ThreadMetadataTest() {
+        super();
+    }
+
+    /**
+     * @param name
+     */
+    public ThreadMetadataTest(String name) {
+        super(name);
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    public void testShared() {
+        ExtendedLogRecord first = new ExtendedLogRecordImpl(Level.INFO, "first");
+        ExtendedLogRecord second = new ExtendedLogRecordImpl(Level.INFO, "second");
+        assertSame(first.getThreadMetadata(), second.getThreadMetadata());
+        assertSame(ThreadMetadata.current(), first.getThreadMetadata());
+        assertEquals(Thread.currentThread().getName(), first.getThreadName());
+    }
+
+    public void testRefresh() {
+        final Thread thread = Thread.currentThread();
+        final String name = thread.getName();
+        final ClassLoader tccl = thread.getContextClassLoader();
+        final ClassLoader other = new URLClassLoader(new URL[0], tccl);
+        ContextFactory.getThreadContextClassLoaderMapper().addClassLoaderId(other.hashCode(),
+                "other");
+        try {
+            ThreadMetadata before = ThreadMetadata.current();
+            thread.setName(name + "-renamed");
+            ExtendedLogRecord renamed = new ExtendedLogRecordImpl(Level.INFO, "renamed");
+            assertNotSame(before, renamed.getThreadMetadata());
+            assertEquals(name + "-renamed", renamed.getThreadName());
+            assertEquals(before.getClassLoaderId(), renamed.getClassloaderId());
+
+            thread.setContextClassLoader(other);
+            ExtendedLogRecord switched = new ExtendedLogRecordImpl(Level.INFO, "switched");
+            assertNotSame(renamed.getThreadMetadata(), switched.getThreadMetadata());
+            assertEquals(other.hashCode(), switched.getClassloaderId());
+            assertEquals("other", switched.getClassloaderIdentifier());
+            assertEquals(name + "-renamed", renamed.getThreadName());
+        } finally {
+            thread.setName(name);
+            thread.setContextClassLoader(tccl);
+        }
+    }
+
+    public void testOtherThread() throws Exception {
+        final ExtendedLogRecord[] records = new ExtendedLogRecord[1];
+        Thread thread = new Thread("metadata-thread") {
+            public void run() {
+                records[0] = new ExtendedLogRecordImpl(Level.INFO, "other thread");
+            }
+        };
+        thread.start();
+        thread.join();
+        assertNotSame(ThreadMetadata.current(), records[0].getThreadMetadata());
+        assertEquals("metadata-thread", records[0].getThreadName());
+    }
+
+}
+
+// EOF ThreadMetadataTest.java
@@ -59,6 +59,64 @@ public class ThrowableInformationTest extends AbstractJuliTestCase {
       assertEquals(false, eq2);
     }
 
+    public void testLines() {
+        ThrowableInformation ti = new ThrowableInformation(new Exception("lines"));
+        String[] rep = ti.getThrowableStrRep();
+        assertNotSame(rep, ti.getThrowableStrRep());
+        assertEquals(rep.length, ti.getLineCount());
+        for (int i = 0; i < rep.length; i++) {
+            assertEquals(rep[i], ti.getLine(i));
+        }
+        assertEquals("java.lang.Exception: lines", ti.getLine(0));
+    }
+
+    public void testSharedRendering() {
+        Throwable[] thrown = new Throwable[2];
+        for (int i = 0; i < thrown.length; i++) {
+            thrown[i] = new IllegalStateException("same", new Exception("cause"));
+        }
+        ThrowableInformation first = new ThrowableInformation(thrown[0]);
+        ThrowableInformation second = new ThrowableInformation(thrown[1]);
+        assertEquals(first, second);
+        assertSame(first.getLine(0), second.getLine(0));
+
+        ThrowableInformation other = new ThrowableInformation(new IllegalStateException("other"));
+        assertEquals("java.lang.IllegalStateException: other", other.getLine(0));
+    }
+
+    public void testNestedThrowable() {
+        NestingException nesting = new NestingException(new Exception("nested"));
+        ThrowableInformation ti = new ThrowableInformation(nesting);
+        boolean found = false;
+        for (int i = 0; i < ti.getLineCount() - 1; i++) {
+            if (ti.getLine(i).equals("Root cause follows.")) {
+                assertEquals("java.lang.Exception: nested", ti.getLine(i + 1));
+                found = true;
+            }
+        }
+        assertTrue(found);
+        assertEquals(ti, new ThrowableInformation(nesting));
+    }
+
+    /**
+     * Provides its nested exception the pre 1.4 way only.
+     */
+    public static class NestingException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Throwable rootCause;
+
+        public NestingException(Throwable rootCause) {
+            super("nesting");
+            this.rootCause = rootCause;
+        }
+
+        public Throwable getRootCause() {
+            return this.rootCause;
+        }
+    }
+
 }
 
 // EOF ThrowableInformationTest.java
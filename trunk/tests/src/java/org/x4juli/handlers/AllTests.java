@@ -45,6 +45,9 @@ public class AllTests extends TestCase {
         suite.addTestSuite(WriterHandlerTest.class);
         suite.addTestSuite(FileHandlerTest.class);
         suite.addTestSuite(EncodingTest.class);
+        suite.addTestSuite(AsyncHandlerTest.class);
+        suite.addTestSuite(MappedFileHandlerTest.class);
+        suite.addTestSuite(BinaryFileHandlerTest.class);
         suite.addTest(org.x4juli.handlers.rolling.AllTests.suite());
         return suite;
     }
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.handlers;
+
+import java.util.List;
+import java.util.logging.Level;
+
+import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.ExtendedLogRecordImpl;
+
+/**
+ * Testcase for x4juli.
+ * @since 0.7
+ */
+public class AsyncHandlerTest extends AbstractHandlerTest {
+
+    // ----------------------------------------------------------- Constructors
+    /**
+     *
+     */
+    public AsyncHandlerTest() {
+        super();
+    }
+
+    /**
+     * @param name
+     */
+    public AsyncHandlerTest(String name) {
+        super(name);
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    protected AbstractHandler getHandler() {
+        return new AsyncHandler("async");
+    }
+
+    protected AbstractHandler getConfiguredHandler() {
+        AsyncHandler handler = new AsyncHandler("async configured");
+        ListHandler list = new ListHandler("list");
+        list.activateOptions();
+        handler.addHandler(list);
+        return handler;
+    }
+
+    public void testDispatchAll() {
+        AsyncHandler handler = new AsyncHandler("async");
+        handler.setBufferSize(8);
+        handler.setBatchSize(3);
+        ListHandler list = new ListHandler("list");
+        list.activateOptions();
+        handler.addHandler(list);
+        handler.activateOptions();
+        for (int i = 0; i < 100; i++) {
+            handler.publish(createRecord("Message " + i));
+        }
+        handler.close();
+        List records = list.getList();
+        assertEquals(100, records.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("Message " + i, ((ExtendedLogRecord) records.get(i)).getMessage());
+        }
+        assertEquals(0, handler.getDiscardedCount());
+    }
+
+    public void testFlushWaitsForDispatch() {
+        AsyncHandler handler = new AsyncHandler("async");
+        ListHandler list = new ListHandler("list");
+        list.activateOptions();
+        handler.addHandler(list);
+        handler.activateOptions();
+        for (int i = 0; i < 10; i++) {
+            handler.publish(createRecord("Message " + i));
+        }
+        handler.flush();
+        assertEquals(10, list.getList().size());
+        handler.close();
+    }
+
+    public void testDiscardNewest() throws InterruptedException {
+        AsyncHandler handler = new AsyncHandler("async");
+        handler.setBufferSize(2);
+        handler.setBatchSize(1);
+        handler.setOverflowPolicy(AsyncHandler.POLICY_DISCARD_NEWEST);
+        BlockingHandler blocking = new BlockingHandler();
+        handler.addHandler(blocking);
+        handler.activateOptions();
+
+        handler.publish(createRecord("taken"));
+        blocking.awaitFirst();
+        handler.publish(createRecord("buffered 1"));
+        handler.publish(createRecord("buffered 2"));
+        handler.publish(createRecord("discarded"));
+        assertEquals(1, handler.getDiscardedCount());
+        blocking.release();
+        handler.close();
+
+        List records = blocking.getList();
+        // three records plus the summary of discarded records
+        assertEquals(4, records.size());
+        assertEquals("buffered 2", ((ExtendedLogRecord) records.get(3)).getMessage());
+    }
+
+    public void testOverflowPolicy() {
+        AsyncHandler handler = new AsyncHandler("async");
+        assertEquals(AsyncHandler.POLICY_BLOCK, handler.getOverflowPolicy());
+        handler.setOverflowPolicy("discardOldest");
+        assertEquals(AsyncHandler.POLICY_DISCARD_OLDEST, handler.getOverflowPolicy());
+        handler.setOverflowPolicy("DISCARDBELOWLEVEL");
+        assertEquals(AsyncHandler.POLICY_DISCARD_BELOW_LEVEL, handler.getOverflowPolicy());
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    protected ExtendedLogRecord createRecord(final String message) {
+        return new ExtendedLogRecordImpl(Level.INFO, message);
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    /**
+     * Holds the dispatcher in the first publish until released.
+     */
+    private static class BlockingHandler extends ListHandler {
+
+        private boolean first = true;
+
+        private boolean released = false;
+
+        BlockingHandler() {
+            super("blocking");
+            activateOptions();
+        }
+
+        protected void appendLogRecord(final ExtendedLogRecord record) {
+            super.appendLogRecord(record);
+            synchronized (this) {
+                if (this.first) {
+                    this.first = false;
+                    notifyAll();
+                    while (!this.released) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+
+        synchronized void awaitFirst() throws InterruptedException {
+            while (this.first) {
+                wait();
+            }
+        }
+
+        synchronized void release() {
+            this.released = true;
+            notifyAll();
+        }
+    }
+
+}
+
+// EOF AsyncHandlerTest.java
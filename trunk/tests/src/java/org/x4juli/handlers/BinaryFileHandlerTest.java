@@ -0,0 +1,177 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.handlers;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.RandomAccessFile;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Level;
+
+import org.x4juli.formatter.BinaryLogReader;
+import org.x4juli.formatter.DummyFormatter;
+import org.x4juli.formatter.PatternFormatter;
+import org.x4juli.global.spi.ExtendedFormatter;
+import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.ExtendedLogRecordImpl;
+
+/**
+ * Testcase for x4juli.
+ * @since 0.7
+ */
+public class BinaryFileHandlerTest extends AbstractHandlerTest {
+
+    static final String PATTERN = "%p %c [%t] %x %X{user} - %m%n";
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     *
+     */
+    public BinaryFileHandlerTest() {
+        super();
+    }
+
+    /**
+     * @param name
+     */
+    public BinaryFileHandlerTest(String name) {
+        super(name);
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Replayed records have to format like the records written, also after
+     * appending a second segment.
+     * @throws Exception if test failure.
+     */
+    public void testReplay() throws Exception {
+        ExtendedLogRecord[] records = new ExtendedLogRecord[] {
+                createRecord(Level.INFO, "plain \u00e4\u20ac message"),
+                createRecord(Level.WARNING, "{0} {1} {2} {3} {4}"),
+                createRecord(Level.SEVERE, "failed"),
+                createRecord(Level.FINE, null),
+                createRecord(Level.INFO, "{} and {}") };
+        records[0].setNDC("outer inner");
+        records[0].setProperty("user", "someone");
+        records[1].setParameters(new Object[] {"text", new Integer(-42), new Double(2.5),
+                new Date(0), null });
+        records[2].setThrown(new IllegalStateException("broken"));
+        records[2].setLoggerName(null);
+        records[4].setParameters(new Object[] {"first", new Long(2) });
+        records[4].setSlf4jFormat(true);
+
+        BinaryFileHandler bfh = createHandler(false);
+        for (int i = 0; i < 2; i++) {
+            bfh.publish(records[i]);
+        }
+        bfh.close();
+        bfh = createHandler(true);
+        for (int i = 2; i < records.length; i++) {
+            bfh.publish(records[i]);
+        }
+        bfh.close();
+
+        ListHandler list = new ListHandler("replayed");
+        list.setLevel(Level.ALL);
+        list.activateOptions();
+        BinaryLogReader reader = new BinaryLogReader(new FileInputStream("output/binary.log"));
+        assertEquals(records.length, reader.replay(list));
+        reader.close();
+
+        List replayed = list.getList();
+        PatternFormatter formatter = new PatternFormatter(PATTERN);
+        for (int i = 0; i < records.length; i++) {
+            ExtendedLogRecord rec = (ExtendedLogRecord) replayed.get(i);
+            assertEquals(formatter.format(records[i]), formatter.format(rec));
+            assertEquals(records[i].getMillis(), rec.getMillis());
+            assertEquals(records[i].getSequenceNumber(), rec.getSequenceNumber());
+            assertEquals(records[i].getThreadID(), rec.getThreadID());
+        }
+        ExtendedLogRecord thrown = (ExtendedLogRecord) replayed.get(2);
+        assertEquals(records[2].getThrowableInformation(), thrown.getThrowableInformation());
+        assertNull(((ExtendedLogRecord) replayed.get(1)).getNDC());
+    }
+
+    /**
+     * A record cut off at the end of the file ends the replay.
+     * @throws Exception if test failure.
+     */
+    public void testTruncated() throws Exception {
+        BinaryFileHandler bfh = createHandler(false);
+        for (int i = 0; i < 10; i++) {
+            bfh.publish(createRecord(Level.INFO, "Record number " + i));
+        }
+        bfh.close();
+        assertEquals(new File("output/binary.log").length(), bfh.getWrittenBytes());
+
+        RandomAccessFile raf = new RandomAccessFile("output/binary.log", "rw");
+        raf.setLength(raf.length() - 3);
+        raf.close();
+
+        BinaryLogReader reader = new BinaryLogReader(new FileInputStream("output/binary.log"));
+        int count = 0;
+        ExtendedLogRecord rec;
+        while ((rec = reader.read()) != null) {
+            assertEquals("Record number " + count, rec.getMessage());
+            count++;
+        }
+        reader.close();
+        assertEquals(9, count);
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * {@inheritDoc}
+     */
+    protected AbstractHandler getHandler() {
+        return new BinaryFileHandler("handler name");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected AbstractHandler getConfiguredHandler() {
+        BinaryFileHandler bfh = new BinaryFileHandler("foo");
+        bfh.setFile("output/binarytemp");
+        bfh.setFormatter((ExtendedFormatter) new DummyFormatter());
+        bfh.activateOptions();
+        return bfh;
+    }
+
+    // ------------------------------------------------------ Private Methods
+
+    private BinaryFileHandler createHandler(final boolean append) {
+        BinaryFileHandler bfh = new BinaryFileHandler("binary");
+        bfh.setFile("output/binary.log");
+        bfh.setAppend(append);
+        bfh.setLevel(Level.ALL);
+        bfh.activateOptions();
+        assertTrue(bfh.isActive());
+        return bfh;
+    }
+
+    private ExtendedLogRecord createRecord(final Level level, final String message) {
+        ExtendedLogRecord record = new ExtendedLogRecordImpl(level, message);
+        record.setLoggerName("org.x4juli.handlers.BinaryFileHandlerTest");
+        return record;
+    }
+}
+
+// EOF BinaryFileHandlerTest.java
@@ -89,6 +89,30 @@ public class EncodingTest extends AbstractJuliTestCase {
                 "witness/encoding/UTF-16.log"));
     }
 
+    /**
+     * Test utf-16 encoding through the channel, the byte order mark is
+     * written once.
+     * @throws Exception if test failure.
+     */
+    public void testUtf16ChannelIO() throws Exception {
+        Logger logger = createLogger("output/UTF-16-channel.log", "UTF-16", true, false);
+        common(logger);
+        assertTrue(BinaryCompare.compare("output/UTF-16-channel.log",
+                "witness/encoding/UTF-16.log"));
+    }
+
+    /**
+     * Test utf-16 encoding through the group commit writer.
+     * @throws Exception if test failure.
+     */
+    public void testUtf16GroupCommit() throws Exception {
+        Logger logger = createLogger("output/UTF-16-group.log", "UTF-16", false, true);
+        common(logger);
+        ((FileHandler) logger.getHandlers()[0]).close();
+        assertTrue(BinaryCompare.compare("output/UTF-16-group.log",
+                "witness/encoding/UTF-16.log"));
+    }
+
     /**
      * Test utf-16be encoding.
      * @throws Exception if test failure.
@@ -125,8 +149,15 @@ public class EncodingTest extends AbstractJuliTestCase {
     }
     
     private Logger createLogger(final String filename, final String encoding){
-        Logger logger = Logger.getLogger(encoding);
+        return createLogger(filename, encoding, false, false);
+    }
+
+    private Logger createLogger(final String filename, final String encoding,
+            final boolean channelIO, final boolean groupCommit){
+        Logger logger = Logger.getLogger(filename);
         FileHandler fh = new FileHandler(encoding);
+        fh.setChannelIO(channelIO);
+        fh.setGroupCommit(groupCommit);
         PatternFormatter pf = new PatternFormatter("%p - %m\n");
         pf.activateOptions();
         fh.setAppend(false);
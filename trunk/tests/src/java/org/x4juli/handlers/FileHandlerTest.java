@@ -15,10 +15,23 @@
  */
 package org.x4juli.handlers;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
 
 import org.x4juli.formatter.DummyFormatter;
+import org.x4juli.formatter.PatternFormatter;
+import org.x4juli.global.LoggerRepositoryHolder;
+import org.x4juli.global.SystemUtils;
+import org.x4juli.global.helper.GroupCommitWriter;
 import org.x4juli.global.spi.ExtendedFormatter;
+import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.ExtendedLogRecordImpl;
 import org.x4juli.handlers.FileHandler;
 
 /**
@@ -99,6 +112,146 @@ public class FileHandlerTest extends AbstractHandlerTest {
           wa.activateOptions();
           assertTrue(new File("output/newdir/temp.log").exists());
       }
+
+    /**
+     * Records larger than the byte buffer and chars outside of ASCII have to
+     * pass the channel unchanged.
+     * @throws Exception if test failure.
+     */
+    public void testChannelIO() throws Exception {
+        StringBuffer longMessage = new StringBuffer();
+        for (int i = 0; i < 3000; i++) {
+            longMessage.append((char) ('a' + (i % 26)));
+        }
+        longMessage.append("\u00e4\u20ac");
+
+        FileHandler fh = new FileHandler("channel");
+        fh.setFile("output/channel.log");
+        fh.setAppend(false);
+        fh.setEncoding("UTF-8");
+        fh.setChannelIO(true);
+        fh.setBufferSize(1024);
+        fh.setImmediateFlush(false);
+        fh.setFormatter((ExtendedFormatter) new PatternFormatter("%p %m%n"));
+        fh.activateOptions();
+        assertTrue(fh.isActive());
+        fh.publish(createRecord("first"));
+        fh.publish(createRecord(longMessage.toString()));
+        fh.publish(createRecord("last"));
+        fh.close();
+
+        String expected = "INFO first\n" + "INFO " + longMessage + "\n" + "INFO last\n";
+        StringBuffer actual = new StringBuffer();
+        Reader reader = new InputStreamReader(new FileInputStream("output/channel.log"), "UTF-8");
+        try {
+            int c;
+            while ((c = reader.read()) != -1) {
+                if (c != '\r') {
+                    actual.append((char) c);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        assertEquals(expected, actual.toString());
+    }
+
+    /**
+     * Records of concurrent threads have to be written completely and in
+     * order per thread, SEVERE records are forced.
+     * @throws Exception if test failure.
+     */
+    public void testGroupCommit() throws Exception {
+        final int threadCount = 4;
+        final int records = 500;
+        final FileHandler fh = new FileHandler("groupCommit");
+        fh.setFile("output/groupcommit.log");
+        fh.setAppend(false);
+        fh.setGroupCommit(true);
+        fh.setBufferSize(1024);
+        fh.setFlushRecords(16);
+        fh.setForceLevel(Level.SEVERE);
+        fh.setFormatter((ExtendedFormatter) new PatternFormatter("%m%n"));
+        fh.activateOptions();
+        assertTrue(fh.isActive());
+
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int id = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < records; i++) {
+                        Level level = (i % 100 == 0) ? Level.SEVERE : Level.INFO;
+                        ExtendedLogRecord record = new ExtendedLogRecordImpl(level, id + " " + i);
+                        fh.publish(record);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t < threadCount; t++) {
+            threads[t].join();
+        }
+        GroupCommitWriter gcw = fh.getGroupCommitWriter();
+        fh.flush();
+        assertEquals(threadCount * records, gcw.getWrittenRecords());
+        assertTrue(gcw.getBatchCount() < threadCount * records);
+        assertTrue(gcw.getForceCount() > 0);
+        fh.close();
+
+        int[] next = new int[threadCount];
+        BufferedReader reader = new BufferedReader(new FileReader("output/groupcommit.log"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int space = line.indexOf(' ');
+                int id = Integer.parseInt(line.substring(0, space));
+                assertEquals(line, next[id]++, Integer.parseInt(line.substring(space + 1)));
+            }
+        } finally {
+            reader.close();
+        }
+        for (int t = 0; t < threadCount; t++) {
+            assertEquals(records, next[t]);
+        }
+    }
+
+    /**
+     * The batch of a quiet handler has to be written once it is older than
+     * the flush interval, without further records or flush.
+     * @throws Exception if test failure.
+     */
+    public void testFlushIntervalOfQuietHandler() throws Exception {
+        FileHandler fh = new FileHandler("flushInterval");
+        fh.setLoggerRepository(((LoggerRepositoryHolder) LogManager.getLogManager())
+                .getLoggerRepository());
+        fh.setFile("output/flushinterval.log");
+        fh.setAppend(false);
+        fh.setGroupCommit(true);
+        fh.setFlushInterval(100);
+        fh.setFormatter((ExtendedFormatter) new PatternFormatter("%m%n"));
+        fh.activateOptions();
+        try {
+            fh.publish(createRecord("quiet"));
+            GroupCommitWriter gcw = fh.getGroupCommitWriter();
+            assertEquals(0, gcw.getWrittenRecords());
+            long end = System.currentTimeMillis() + 5000;
+            while (gcw.getWrittenRecords() == 0 && System.currentTimeMillis() < end) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, gcw.getWrittenRecords());
+            assertEquals("quiet".length() + SystemUtils.LINE_SEPARATOR.length(), new File(
+                    "output/flushinterval.log").length());
+        } finally {
+            fh.close();
+        }
+    }
+
+    // ------------------------------------------------------ Private Methods
+
+    private ExtendedLogRecord createRecord(final String message) {
+        return new ExtendedLogRecordImpl(Level.INFO, message);
+    }
 }
 
 // EOF FileHandlerTest.java
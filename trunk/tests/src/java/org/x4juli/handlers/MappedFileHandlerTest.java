@@ -0,0 +1,182 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.handlers;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.logging.Level;
+
+import org.x4juli.formatter.DummyFormatter;
+import org.x4juli.formatter.PatternFormatter;
+import org.x4juli.global.spi.ExtendedFormatter;
+import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.ExtendedLogRecordImpl;
+import org.x4juli.global.util.Compare;
+import org.x4juli.handlers.rolling.FixedWindowRollingPolicy;
+import org.x4juli.handlers.rolling.SizeBasedTriggeringPolicy;
+
+/**
+ * Testcase for x4juli.
+ * @since 0.7
+ */
+public class MappedFileHandlerTest extends AbstractHandlerTest {
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     *
+     */
+    public MappedFileHandlerTest() {
+        super();
+    }
+
+    /**
+     * @param name
+     */
+    public MappedFileHandlerTest(String name) {
+        super(name);
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Records spanning several regions have to be written completely, the
+     * file is truncated on close and appended to at its length.
+     * @throws Exception if test failure.
+     */
+    public void testRegions() throws Exception {
+        MappedFileHandler mfh = new MappedFileHandler("mapped");
+        mfh.setFile("output/mapped.log");
+        mfh.setAppend(false);
+        mfh.setRegionSize(64);
+        mfh.setFormatter((ExtendedFormatter) new PatternFormatter("%m\n"));
+        mfh.activateOptions();
+        assertTrue(mfh.isActive());
+        StringBuffer expected = new StringBuffer();
+        for (int i = 0; i < 100; i++) {
+            String message = "Record number " + i;
+            expected.append(message).append('\n');
+            mfh.publish(createRecord(message));
+        }
+        mfh.close();
+        assertEquals(expected.length(), new File("output/mapped.log").length());
+
+        mfh = new MappedFileHandler("mapped append");
+        mfh.setFile("output/mapped.log");
+        mfh.setAppend(true);
+        mfh.setFormatter((ExtendedFormatter) new PatternFormatter("%m\n"));
+        mfh.activateOptions();
+        mfh.publish(createRecord("appended"));
+        mfh.close();
+        expected.append("appended\n");
+
+        assertEquals(expected.toString(), readFile("output/mapped.log", "US-ASCII"));
+    }
+
+    /**
+     * Records ending with a zero byte, like each line of UTF-16LE, must be
+     * kept when the file is appended to.
+     * @throws Exception if test failure.
+     */
+    public void testAppendAfterZeroByte() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            MappedFileHandler mfh = new MappedFileHandler("mapped UTF-16LE");
+            mfh.setFile("output/mapped-utf16le.log");
+            mfh.setAppend(i > 0);
+            mfh.setEncoding("UTF-16LE");
+            mfh.setFormatter((ExtendedFormatter) new PatternFormatter("%m\n"));
+            mfh.activateOptions();
+            mfh.publish(createRecord("line " + i));
+            mfh.close();
+        }
+        assertEquals("line 0\nline 1\n", readFile("output/mapped-utf16le.log", "UTF-16LE"));
+    }
+
+    /**
+     * Same output as SizeBasedRollingTest.test2 of RollingFileHandler.
+     * @throws Exception if test failure.
+     */
+    public void testSizeBasedRolling() throws Exception {
+        MappedFileHandler mfh = new MappedFileHandler("mapped rolling");
+        mfh.setAppend(false);
+        mfh.setFormatter((ExtendedFormatter) new PatternFormatter("%m\n"));
+        mfh.setFile("output/mapped-sizeBased.log");
+
+        FixedWindowRollingPolicy swrp = new FixedWindowRollingPolicy(
+                "output/mapped-sizeBased.%i");
+        SizeBasedTriggeringPolicy sbtp = new SizeBasedTriggeringPolicy(100);
+        swrp.setMinIndex(0);
+        swrp.activateOptions();
+
+        mfh.setRollingPolicy(swrp);
+        mfh.setTriggeringPolicy(sbtp);
+        mfh.activateOptions();
+
+        // Write exactly 10 bytes with each log
+        for (int i = 0; i < 25; i++) {
+            if (i < 10) {
+                mfh.publish(createRecord("Hello---" + i));
+            } else {
+                mfh.publish(createRecord("Hello--" + i));
+            }
+        }
+        mfh.close();
+
+        assertTrue(Compare.compare("output/mapped-sizeBased.log", "witness/rolling/sbr-test2.log"));
+        assertTrue(Compare.compare("output/mapped-sizeBased.0", "witness/rolling/sbr-test2.0"));
+        assertTrue(Compare.compare("output/mapped-sizeBased.1", "witness/rolling/sbr-test2.1"));
+        assertEquals(100, new File("output/mapped-sizeBased.0").length());
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * {@inheritDoc}
+     */
+    protected AbstractHandler getHandler() {
+        return new MappedFileHandler("handler name");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected AbstractHandler getConfiguredHandler() {
+        MappedFileHandler mfh = new MappedFileHandler("foo");
+        mfh.setFile("output/mappedtemp");
+        mfh.setFormatter((ExtendedFormatter) new DummyFormatter());
+        mfh.activateOptions();
+        return mfh;
+    }
+
+    // ------------------------------------------------------ Private Methods
+
+    private String readFile(final String filename, final String encoding) throws Exception {
+        byte[] content = new byte[(int) new File(filename).length()];
+        RandomAccessFile raf = new RandomAccessFile(filename, "r");
+        try {
+            raf.readFully(content);
+        } finally {
+            raf.close();
+        }
+        return new String(content, encoding);
+    }
+
+    private ExtendedLogRecord createRecord(final String message) {
+        return new ExtendedLogRecordImpl(Level.INFO, message);
+    }
+}
+
+// EOF MappedFileHandlerTest.java
@@ -43,6 +43,7 @@ public class AllTests extends AbstractJuliTestCase {
     public static Test suite(){
         TestSuite suite = new TestSuite("AllTests of juli.handlers.rolling");
         suite.addTestSuite(SizeBasedRollingTest.class);
+        suite.addTestSuite(ScheduledRolloverTest.class);
         suite.addTest(org.x4juli.handlers.rolling.helper.AllTests.suite());
         return suite;
     }
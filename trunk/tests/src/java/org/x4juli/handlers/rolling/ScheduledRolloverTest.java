@@ -0,0 +1,184 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.handlers.rolling;
+
+import java.io.File;
+import java.util.Calendar;
+
+import org.x4juli.formatter.PatternFormatter;
+import org.x4juli.global.Clock;
+import org.x4juli.global.ManualClock;
+import org.x4juli.global.components.AbstractJuliTestCase;
+import org.x4juli.global.scheduler.Scheduler;
+import org.x4juli.global.spi.ExtendedFormatter;
+import org.x4juli.handlers.RollingFileHandler;
+
+/**
+ * Testcase for x4juli.
+ * @since 0.7
+ */
+public class ScheduledRolloverTest extends AbstractJuliTestCase {
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     *
+     */
+    public ScheduledRolloverTest() {
+        super();
+    }
+
+    /**
+     * @param name
+     */
+    public ScheduledRolloverTest(String name) {
+        super(name);
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.7
+     */
+    protected void tearDown() {
+        Clock.setClock(null);
+        super.tearDown();
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    public void testHourlyBoundary() {
+        Calendar cal = Calendar.getInstance();
+        cal.set(2005, Calendar.NOVEMBER, 30, 14, 17, 3);
+        cal.set(Calendar.MILLISECOND, 0);
+        ManualClock clock = new ManualClock(cal.getTimeInMillis());
+        Clock.setClock(clock);
+
+        TimeBasedRollingPolicy tbrp = new TimeBasedRollingPolicy(
+                "output/hourly-%d{yyyy-MM-dd_HH}.log");
+        tbrp.activateOptions();
+        String first = tbrp.initialize(null, true).getActiveFileName();
+
+        cal.set(Calendar.HOUR_OF_DAY, 15);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        clock.set(cal.getTimeInMillis() - 1);
+        assertFalse(tbrp.isTriggeringEvent(null, null, first, 0));
+        clock.set(cal.getTimeInMillis());
+        assertTrue(tbrp.isTriggeringEvent(null, null, first, 0));
+        assertFalse(first.equals(tbrp.rollover(first).getActiveFileName()));
+        assertFalse(tbrp.isTriggeringEvent(null, null, first, 0));
+    }
+
+    public void testUnknownPeriodChecksEachSecond() {
+        Calendar cal = Calendar.getInstance();
+        cal.set(2005, Calendar.NOVEMBER, 30, 9, 0, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        ManualClock clock = new ManualClock(cal.getTimeInMillis());
+        Clock.setClock(clock);
+
+        TimeBasedRollingPolicy tbrp = new TimeBasedRollingPolicy("output/half-%d{yyyy-MM-dd-a}");
+        tbrp.activateOptions();
+        String first = tbrp.initialize(null, true).getActiveFileName();
+        clock.set(cal.getTimeInMillis() + 999);
+        assertFalse(tbrp.isTriggeringEvent(null, null, first, 0));
+        clock.set(cal.getTimeInMillis() + 1000);
+        assertTrue(tbrp.isTriggeringEvent(null, null, first, 0));
+    }
+
+    public void testRecordsRollOverIfJobDoesNotRun() {
+        Calendar cal = Calendar.getInstance();
+        cal.set(2005, Calendar.NOVEMBER, 30, 14, 17, 3);
+        cal.set(Calendar.MILLISECOND, 0);
+        ManualClock clock = new ManualClock(cal.getTimeInMillis());
+        Clock.setClock(clock);
+        Scheduler scheduler = new Scheduler();
+        scheduler.setDaemon(true);
+        scheduler.start();
+
+        TimeBasedRollingPolicy tbrp = new TimeBasedRollingPolicy(
+                "output/stopped-%d{yyyy-MM-dd_HH}.log");
+        tbrp.activateOptions();
+        String first = tbrp.initialize(null, true).getActiveFileName();
+        tbrp.schedule(new RollingFileHandler("ScheduledRolloverTest"), scheduler);
+        assertEquals(1, scheduler.size());
+        scheduler.shutdown();
+
+        cal.set(Calendar.HOUR_OF_DAY, 15);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        clock.set(cal.getTimeInMillis() - 1);
+        assertFalse(tbrp.isTriggeringEvent(null, null, first, 0));
+        clock.set(cal.getTimeInMillis());
+        assertTrue(tbrp.isTriggeringEvent(null, null, first, 0));
+        tbrp.cancel();
+    }
+
+    public void testCloseCancelsScheduledRollover() throws Exception {
+        Scheduler scheduler = new Scheduler();
+        scheduler.setDaemon(true);
+        scheduler.start();
+        RollingFileHandler rfa = new RollingFileHandler("ScheduledRolloverTest");
+        rfa.setFormatter((ExtendedFormatter) new PatternFormatter("%m%n"));
+        TimeBasedRollingPolicy tbrp = new TimeBasedRollingPolicy(
+                "output/cancelled-%d{yyyy-MM-dd_HH_mm_ss}");
+        tbrp.activateOptions();
+        rfa.setRollingPolicy(tbrp);
+        rfa.activateOptions();
+        try {
+            tbrp.schedule(rfa, scheduler);
+            assertEquals(1, scheduler.size());
+            rfa.close();
+            assertEquals(0, scheduler.size());
+            Thread.sleep(1200);
+            assertEquals(0, scheduler.size());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    public void testScheduledRollover() throws Exception {
+        Scheduler scheduler = new Scheduler();
+        scheduler.setDaemon(true);
+        scheduler.start();
+        RollingFileHandler rfa = new RollingFileHandler("ScheduledRolloverTest");
+        rfa.setFormatter((ExtendedFormatter) new PatternFormatter("%m%n"));
+        TimeBasedRollingPolicy tbrp = new TimeBasedRollingPolicy(
+                "output/scheduled-%d{yyyy-MM-dd_HH_mm_ss}");
+        tbrp.activateOptions();
+        rfa.setRollingPolicy(tbrp);
+        rfa.activateOptions();
+        try {
+            String first = rfa.getFile();
+            tbrp.schedule(rfa, scheduler);
+            Thread.sleep(2200);
+            String current = rfa.getFile();
+            assertFalse(first.equals(current));
+            assertTrue(new File(first).exists());
+            assertTrue(new File(current).exists());
+            assertFalse(tbrp.isTriggeringEvent(rfa, null, current, 0));
+        } finally {
+            tbrp.cancel();
+            rfa.close();
+            scheduler.shutdown();
+        }
+    }
+
+}
+
+// EOF ScheduledRolloverTest.java
@@ -44,6 +44,7 @@ public class AllTests extends TestCase {
         suite.setName("AllTests of juli.handlers.rolling.helper");
         suite.addTestSuite(CompressTest.class);
         suite.addTestSuite(FileNamePatternTest.class);
+        suite.addTestSuite(RolloverExecutorTest.class);
         return suite;
     }
 
@@ -16,6 +16,10 @@
 package org.x4juli.handlers.rolling.helper;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import org.x4juli.global.components.AbstractJuliTestCase;
 import org.x4juli.global.util.Compare;
@@ -61,6 +65,46 @@ public class CompressTest extends AbstractJuliTestCase {
         assertTrue(Compare.gzCompare("output/compress2.txt.gz", "witness/compress2.txt.gz"));
     }
 
+    public void test3() throws Exception {
+        ParallelGZCompressAction.execute(new File("input/compress2.copy"), new File(
+                "output/compress3.txt.gz"), false, 3, 256, getLogger());
+        assertTrue(Compare.gzCompare("output/compress3.txt.gz", "witness/compress2.txt.gz"));
+    }
+
+    public void test4() throws Exception {
+        File source = new File("input/compress3.copy");
+        ParallelZipCompressAction.execute(source, new File("output/compress4.zip"), false, 3,
+                256, getLogger());
+        ZipFile zip = new ZipFile("output/compress4.zip");
+        try {
+            ZipEntry entry = zip.getEntry("compress3.copy");
+            assertNotNull(entry);
+            assertEquals(source.length(), entry.getSize());
+            assertTrue(contentEquals(new FileInputStream(source), zip.getInputStream(entry)));
+        } finally {
+            zip.close();
+        }
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    private static boolean contentEquals(final InputStream expected, final InputStream actual)
+            throws Exception {
+        try {
+            int b;
+            do {
+                b = expected.read();
+                if (b != actual.read()) {
+                    return false;
+                }
+            } while (b != -1);
+            return true;
+        } finally {
+            expected.close();
+            actual.close();
+        }
+    }
+
 }
 
 // EOF CompressTest.java
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.handlers.rolling.helper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Testcase for x4juli.
+ * @since 0.7
+ */
+public class RolloverExecutorTest extends TestCase {
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     *
+     */
+    public RolloverExecutorTest() {
+        super();
+    }
+
+    /**
+     * @param name
+     */
+    public RolloverExecutorTest(String name) {
+        super(name);
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Actions run in submission order in the background, a full queue rejects
+     * the action without running it in the caller.
+     * @throws Exception if test failure.
+     */
+    public void testQueue() throws Exception {
+        final List order = new ArrayList();
+        RolloverExecutor executor = new RolloverExecutor(2);
+
+        BlockingAction first = new BlockingAction(order, "first");
+        executor.execute(first);
+        first.awaitStarted();
+        assertSame(first, executor.getActiveAction());
+
+        executor.execute(new RecordingAction(order, "second"));
+        executor.execute(new RecordingAction(order, "third"));
+        assertEquals(2, executor.getQueueDepth());
+
+        // Queue is full, rejected and not run in this thread.
+        RecordingAction fourth = new RecordingAction(order, "fourth");
+        assertFalse(executor.execute(fourth));
+        assertEquals(1, executor.getRejectedCount());
+        assertFalse(first.isComplete());
+        assertFalse(fourth.isComplete());
+
+        first.release();
+        assertTrue(executor.awaitIdle(10000));
+        assertTrue(first.isComplete());
+        assertFalse(fourth.isComplete());
+        assertEquals(4, executor.getSubmittedCount());
+        assertEquals(3, executor.getCompletedCount());
+        assertEquals(2, executor.getMaxQueueDepth());
+        assertEquals(0, executor.getQueueDepth());
+        assertNull(executor.getActiveAction());
+
+        assertEquals(3, order.size());
+        assertEquals("first", order.get(0));
+        assertEquals("second", order.get(1));
+        assertEquals("third", order.get(2));
+    }
+
+    /**
+     * After shutdown actions are rejected, not run in the caller.
+     * @throws Exception if test failure.
+     */
+    public void testShutdownRejects() throws Exception {
+        final List order = new ArrayList();
+        RolloverExecutor executor = new RolloverExecutor();
+        executor.shutdown();
+        RecordingAction action = new RecordingAction(order, "rejected");
+        assertFalse(executor.execute(action));
+        assertEquals(1, executor.getRejectedCount());
+        assertTrue(executor.awaitIdle(10000));
+        assertFalse(action.isComplete());
+        assertEquals(0, order.size());
+    }
+
+    /**
+     * A failing action does not stop the following ones.
+     * @throws Exception if test failure.
+     */
+    public void testFailure() throws Exception {
+        final List order = new ArrayList();
+        RolloverExecutor executor = new RolloverExecutor();
+        executor.execute(new Runnable() {
+            public void run() {
+                throw new IllegalStateException("Expected by test");
+            }
+        });
+        executor.execute(new RecordingAction(order, "after"));
+        assertTrue(executor.awaitIdle(10000));
+        assertEquals(1, executor.getFailedCount());
+        assertEquals(2, executor.getCompletedCount());
+        assertEquals(1, order.size());
+    }
+
+    /**
+     * Waiting for one action must not wait for an action queued after it.
+     * @throws Exception if test failure.
+     */
+    public void testAwaitAction() throws Exception {
+        final List order = new ArrayList();
+        RolloverExecutor executor = new RolloverExecutor();
+        RecordingAction own = new RecordingAction(order, "own");
+        BlockingAction other = new BlockingAction(order, "other");
+        executor.execute(own);
+        executor.execute(other);
+        try {
+            assertTrue(executor.awaitAction(own, 10000));
+            assertTrue(own.isComplete());
+            other.awaitStarted();
+            assertFalse(executor.awaitAction(other, 50));
+            assertFalse(other.isComplete());
+        } finally {
+            other.release();
+        }
+        assertTrue(executor.awaitAction(other, 10000));
+        assertTrue(other.isComplete());
+    }
+
+    // ---------------------------------------------------------- Inner Classes
+
+    private static class RecordingAction extends AbstractAction {
+
+        private final List order;
+
+        private final String name;
+
+        RecordingAction(final List order, final String name) {
+            this.order = order;
+            this.name = name;
+        }
+
+        public boolean execute() {
+            synchronized (this.order) {
+                this.order.add(this.name);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Blocks until released, AbstractAction.run() holds the monitor of the
+     * action meanwhile.
+     */
+    private static class BlockingAction extends RecordingAction {
+
+        private final Object lock = new Object();
+
+        private boolean started = false;
+
+        private boolean released = false;
+
+        BlockingAction(final List order, final String name) {
+            super(order, name);
+        }
+
+        public boolean execute() {
+            synchronized (this.lock) {
+                this.started = true;
+                this.lock.notifyAll();
+                while (!this.released) {
+                    try {
+                        this.lock.wait();
+                    } catch (InterruptedException e) {
+                        return false;
+                    }
+                }
+            }
+            return super.execute();
+        }
+
+        void awaitStarted() throws InterruptedException {
+            synchronized (this.lock) {
+                while (!this.started) {
+                    this.lock.wait();
+                }
+            }
+        }
+
+        void release() {
+            synchronized (this.lock) {
+                this.released = true;
+                this.lock.notifyAll();
+            }
+        }
+    }
+}
+
+// EOF RolloverExecutorTest.java
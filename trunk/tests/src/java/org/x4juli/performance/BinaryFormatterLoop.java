@@ -0,0 +1,153 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.performance;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.logging.Level;
+
+import org.x4juli.formatter.BinaryFormatter;
+import org.x4juli.formatter.PatternFormatter;
+import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.ExtendedLogRecordImpl;
+
+/**
+ * Compares the cost and the size of a record written by
+ * <code>BinaryFormatter</code> with a <code>PatternFormatter</code> line
+ * written through a writer like <code>FileHandler</code> does. The records
+ * carry a template with parameters, which the text line has to format.
+ * @since 0.7
+ */
+public class BinaryFormatterLoop {
+
+    static final String PATTERN = "%d %p %c [%t] - %m%n";
+
+    static final int WARM = 1000 * 100;
+
+    static int runLength;
+
+    /**
+     *
+     */
+    public BinaryFormatterLoop() {
+        super();
+    }
+
+    /**
+     * @param args runLength
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            usage("Wrong number of arguments.");
+        }
+        runLength = Integer.parseInt(args[0]);
+        ExtendedLogRecord record = new ExtendedLogRecordImpl(Level.INFO,
+                "Processed order {0} for customer {1} in {2} ms");
+        record.setLoggerName("org.x4juli.performance.BinaryFormatterLoop");
+        record.setParameters(new Object[] {new Long(4711), "A0B1C2D3", new Integer(12) });
+
+        PatternFormatter pattern = new PatternFormatter(PATTERN);
+        BinaryFormatter binary = new BinaryFormatter();
+
+        System.out.println("Pattern [" + PATTERN + "]");
+        loopText(pattern, record);
+        loopBinary(binary, record);
+        CountingOutputStream text = new CountingOutputStream();
+        double textNanos = loopText(pattern, record, text);
+        CountingOutputStream bytes = new CountingOutputStream();
+        double binaryNanos = loopBinary(binary, record, bytes);
+        System.out.println("PatternFormatter [" + textNanos + "] BinaryFormatter ["
+                + binaryNanos + "] nanoseconds per record, ratio [" + (textNanos / binaryNanos)
+                + "]");
+        System.out.println("PatternFormatter [" + (text.count / (WARM + runLength))
+                + "] BinaryFormatter [" + (bytes.count / (WARM + runLength))
+                + "] bytes per record, ratio [" + ((double) text.count / bytes.count) + "]");
+        System.out.println("Done.");
+    }
+
+    static void usage(String msg) {
+        System.err.println(msg);
+        System.err.println("Usage: java " + BinaryFormatterLoop.class.getName() + " runLength");
+        System.err.println("\trunLength (integer) is the length of test loop.");
+        System.exit(1);
+    }
+
+    static double loopText(final PatternFormatter formatter, final ExtendedLogRecord record)
+            throws IOException {
+        return loopText(formatter, record, new CountingOutputStream());
+    }
+
+    static double loopText(final PatternFormatter formatter, final ExtendedLogRecord record,
+            final CountingOutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out);
+        long millis = record.getMillis();
+        for (int i = 0; i < WARM; i++) {
+            record.setMillis(millis + i);
+            writer.write(formatter.format(record));
+        }
+        long before = System.currentTimeMillis();
+        for (int i = 0; i < runLength; i++) {
+            record.setMillis(millis + i);
+            writer.write(formatter.format(record));
+        }
+        writer.flush();
+        long elapsedTime = System.currentTimeMillis() - before;
+        return (elapsedTime * 1000 * 1000.0) / runLength;
+    }
+
+    static double loopBinary(final BinaryFormatter formatter, final ExtendedLogRecord record)
+            throws IOException {
+        return loopBinary(formatter, record, new CountingOutputStream());
+    }
+
+    static double loopBinary(final BinaryFormatter formatter, final ExtendedLogRecord record,
+            final CountingOutputStream out) throws IOException {
+        formatter.writeSegment(out);
+        long millis = record.getMillis();
+        for (int i = 0; i < WARM; i++) {
+            record.setMillis(millis + i);
+            formatter.format(record, out);
+        }
+        long before = System.currentTimeMillis();
+        for (int i = 0; i < runLength; i++) {
+            record.setMillis(millis + i);
+            formatter.format(record, out);
+        }
+        long elapsedTime = System.currentTimeMillis() - before;
+        return (elapsedTime * 1000 * 1000.0) / runLength;
+    }
+
+    /**
+     * Counts the bytes instead of writing them.
+     */
+    static final class CountingOutputStream extends OutputStream {
+
+        long count;
+
+        public void write(int b) {
+            this.count++;
+        }
+
+        public void write(byte[] b, int off, int len) {
+            this.count += len;
+        }
+    }
+
+}
+
+// EOF BinaryFormatterLoop.java
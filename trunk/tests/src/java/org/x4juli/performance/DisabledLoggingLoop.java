@@ -0,0 +1,151 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.performance;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures disabled log statements (NOLOG cases) of a logger which inherits
+ * its level from a distant ancestor. Covers the plain JUL methods, the level
+ * guard and the JCL and SLF4J methods if the logger implements them.
+ * @since 0.7
+ */
+public class DisabledLoggingLoop {
+
+    static final Logger ancestor = Logger.getLogger("Ancestor");
+
+    static final Logger logger = Logger.getLogger("Ancestor.a.b.c.Child");
+
+    static final double MILLION = 1000 * 1000.0;
+
+    static final int WARM = 1000 * 100;
+
+    static int runLength;
+
+    /**
+     * Counts the enabled guards, keeps the loops from being eliminated.
+     */
+    static int enabled = 0;
+
+    /**
+     *
+     */
+    public DisabledLoggingLoop() {
+        super();
+    }
+
+    /**
+     * @param args runLength
+     */
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            usage("Wrong number of arguments.");
+        }
+        runLength = Integer.parseInt(args[0]);
+        ancestor.setLevel(Level.INFO);
+        ancestor.setUseParentHandlers(false);
+
+        loopJUL();
+        loopGuard();
+        if (logger instanceof org.apache.commons.logging.Log) {
+            loopJCL((org.apache.commons.logging.Log) logger);
+        } else {
+            System.out.println("Logger does not implement org.apache.commons.logging.Log.");
+        }
+        if (logger instanceof org.slf4j.Logger) {
+            loopSlf4j((org.slf4j.Logger) logger);
+        } else {
+            System.out.println("Logger does not implement org.slf4j.Logger.");
+        }
+        System.out.println("Done. Enabled[" + enabled + "]");
+    }
+
+    static void usage(String msg) {
+        System.err.println(msg);
+        System.err.println("Usage: java " + DisabledLoggingLoop.class.getName() + " runLength");
+        System.err.println("\trunLength (integer) is the length of test loop.");
+        System.exit(1);
+    }
+
+    static void loopJUL() {
+        String msg = "Some message of medium length.";
+        for (int i = 0; i < WARM; i++) {
+            logger.fine(msg);
+        }
+        long before = System.currentTimeMillis();
+        for (int i = 0; i < runLength; i++) {
+            logger.fine(msg);
+        }
+        report("JUL fine(String)", before);
+    }
+
+    static void loopGuard() {
+        for (int i = 0; i < WARM; i++) {
+            if (logger.isLoggable(Level.FINE)) {
+                enabled++;
+            }
+        }
+        long before = System.currentTimeMillis();
+        for (int i = 0; i < runLength; i++) {
+            if (logger.isLoggable(Level.FINE)) {
+                enabled++;
+            }
+        }
+        report("JUL isLoggable(FINE)", before);
+    }
+
+    static void loopJCL(final org.apache.commons.logging.Log log) {
+        String msg = "Some message of medium length.";
+        for (int i = 0; i < WARM; i++) {
+            log.debug(msg);
+        }
+        long before = System.currentTimeMillis();
+        for (int i = 0; i < runLength; i++) {
+            log.debug(msg);
+        }
+        report("JCL debug(Object)", before);
+        before = System.currentTimeMillis();
+        for (int i = 0; i < runLength; i++) {
+            if (log.isDebugEnabled()) {
+                enabled++;
+            }
+        }
+        report("JCL isDebugEnabled()", before);
+    }
+
+    static void loopSlf4j(final org.slf4j.Logger log) {
+        Integer x = new Integer(5);
+        for (int i = 0; i < WARM; i++) {
+            log.debug("Entry number: {}", x);
+        }
+        long before = System.currentTimeMillis();
+        for (int i = 0; i < runLength; i++) {
+            log.debug("Entry number: {}", x);
+        }
+        report("SLF4J debug(String, Object)", before);
+    }
+
+    static void report(final String name, final long before) {
+        long elapsedTime = System.currentTimeMillis() - before;
+        double average = (elapsedTime * MILLION) / runLength;
+        System.out.println(name + " loop completed in [" + elapsedTime
+                + "] milliseconds, or [" + average + "] nanoseconds per log.");
+    }
+
+}
+
+// EOF DisabledLoggingLoop.java
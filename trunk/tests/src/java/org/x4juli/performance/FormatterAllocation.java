@@ -0,0 +1,200 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.performance;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.logging.Level;
+
+import org.x4juli.formatter.PatternFormatter;
+import org.x4juli.global.helper.ByteBufferEncoder;
+import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.ExtendedLogRecordImpl;
+
+/**
+ * Measures the bytes allocated per record by the String based formatting
+ * path (<code>format</code> plus <code>Writer</code>) and by the appending
+ * path (<code>AppendingFormatter</code> plus <code>ByteBufferEncoder</code>
+ * plus channel).
+ * <p>
+ * The allocated bytes of the thread are read from
+ * <code>com.sun.management.ThreadMXBean</code> if the VM provides it,
+ * otherwise the heap usage is compared, which is only meaningful if no
+ * garbage collection happens during the loop.
+ * </p>
+ * @since 0.7
+ */
+public class FormatterAllocation {
+
+    static final String PATTERN = "%d %p %c - %m%n";
+
+    static final int WARM = 1000 * 100;
+
+    static int runLength;
+
+    /**
+     *
+     */
+    public FormatterAllocation() {
+        super();
+    }
+
+    /**
+     * @param args runLength [pattern]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            usage("Wrong number of arguments.");
+        }
+        runLength = Integer.parseInt(args[0]);
+        String pattern = PATTERN;
+        if (args.length > 1) {
+            pattern = args[1];
+        }
+        PatternFormatter formatter = new PatternFormatter(pattern);
+        ExtendedLogRecord record = new ExtendedLogRecordImpl(Level.INFO,
+                "Some message of medium length.");
+        record.setLoggerName("org.x4juli.performance.FormatterAllocation");
+
+        System.out.println("Pattern [" + pattern + "]");
+        loopString(formatter, record);
+        loopChannel(formatter, record);
+        System.out.println("Done.");
+    }
+
+    static void usage(String msg) {
+        System.err.println(msg);
+        System.err.println("Usage: java " + FormatterAllocation.class.getName()
+                + " runLength [pattern]");
+        System.err.println("\trunLength (integer) is the length of test loop.");
+        System.exit(1);
+    }
+
+    static void loopString(final PatternFormatter formatter, final ExtendedLogRecord record)
+            throws IOException {
+        Writer writer = new OutputStreamWriter(new NOPOutputStream());
+        long millis = record.getMillis();
+        for (int i = 0; i < WARM; i++) {
+            record.setMillis(millis + i);
+            writer.write(formatter.format(record));
+        }
+        writer.flush();
+
+        Runtime.getRuntime().gc();
+        long bytes = allocatedBytes();
+        long before = System.currentTimeMillis();
+        for (int i = 0; i < runLength; i++) {
+            record.setMillis(millis + i);
+            writer.write(formatter.format(record));
+        }
+        writer.flush();
+        report("String", before, bytes);
+    }
+
+    static void loopChannel(final PatternFormatter formatter, final ExtendedLogRecord record)
+            throws IOException {
+        WritableByteChannel channel = new NOPChannel();
+        ByteBufferEncoder encoder = new ByteBufferEncoder(null, ByteBufferEncoder.DEFAULT_CAPACITY);
+        long millis = record.getMillis();
+        for (int i = 0; i < WARM; i++) {
+            record.setMillis(millis + i);
+            formatter.format(record, encoder.getText());
+            encoder.encode(channel);
+        }
+        encoder.flush(channel);
+
+        Runtime.getRuntime().gc();
+        long bytes = allocatedBytes();
+        long before = System.currentTimeMillis();
+        for (int i = 0; i < runLength; i++) {
+            record.setMillis(millis + i);
+            formatter.format(record, encoder.getText());
+            encoder.encode(channel);
+        }
+        encoder.flush(channel);
+        report("Channel", before, bytes);
+    }
+
+    static void report(final String name, final long before, final long bytesBefore) {
+        long elapsedTime = System.currentTimeMillis() - before;
+        long bytes = allocatedBytes() - bytesBefore;
+        double average = (elapsedTime * 1000 * 1000.0) / runLength;
+        System.out.println(name + " loop completed in [" + elapsedTime + "] milliseconds, or ["
+                + average + "] nanoseconds per record, allocated [" + (bytes / runLength)
+                + "] bytes per record.");
+    }
+
+    /**
+     * Bytes allocated by the current thread, falls back to the used heap.
+     */
+    static long allocatedBytes() {
+        try {
+            Class factory = Class.forName("java.lang.management.ManagementFactory");
+            Object bean = factory.getMethod("getThreadMXBean", null).invoke(null, null);
+            Class beanClass = Class.forName("com.sun.management.ThreadMXBean");
+            Method method = beanClass.getMethod("getThreadAllocatedBytes",
+                    new Class[] {long.class });
+            Object threadId = Thread.class.getMethod("getId", null).invoke(
+                    Thread.currentThread(), null);
+            return ((Long) method.invoke(bean, new Object[] {threadId })).longValue();
+        } catch (Throwable t) {
+            Runtime runtime = Runtime.getRuntime();
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+    }
+
+    /**
+     * Discards all bytes.
+     */
+    static class NOPOutputStream extends OutputStream {
+
+        public void write(int b) {
+            // NOP
+        }
+
+        public void write(byte[] b, int off, int len) {
+            // NOP
+        }
+    }
+
+    /**
+     * Discards all bytes.
+     */
+    static class NOPChannel implements WritableByteChannel {
+
+        public int write(ByteBuffer src) {
+            int len = src.remaining();
+            src.position(src.limit());
+            return len;
+        }
+
+        public boolean isOpen() {
+            return true;
+        }
+
+        public void close() {
+            // NOP
+        }
+    }
+
+}
+
+// EOF FormatterAllocation.java
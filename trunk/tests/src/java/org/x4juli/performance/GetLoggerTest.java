@@ -20,7 +20,9 @@ import java.util.logging.Logger;
 
 /**
  * This program evaluates the performance of getLogger when creating and
- * retrieving loggers.
+ * retrieving loggers. With a thread count greater than one the existing
+ * loggers are additionally retrieved by concurrent threads to show the
+ * contention of the lookup.
  * @since 0.5
  */
 public class GetLoggerTest {
@@ -34,11 +36,13 @@ public class GetLoggerTest {
 
     /**
      * Start.
-     * @param args Usage: java org.apache.log4j.GetLoggerTest passes [nameCount nameLength]
+     * @param args Usage: java org.x4juli.performance.GetLoggerTest passes [nameCount nameLength threads]
      */
-    public static void main(String[] args) {
-        System.out.println("Usage: java org.apache.log4j.GetLoggerTest passes [nameCount nameLength]");
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("Usage: java org.x4juli.performance.GetLoggerTest passes [nameCount nameLength threads]");
+        System.out.println("\tnameLength <= 0 keeps the generated names.");
         int passes = 5;
+        int threads = 1;
         String[] names = new String[] { "org.x4juli.Alpha",
                                         "com.example.acme.Bravo",
                                         "com.example.acme.Charlie",
@@ -72,8 +76,11 @@ public class GetLoggerTest {
                 for (int i = 0; i < newNames.length; i++) {
                     newNames[i] = names[i % names.length] + i;
                 }
+                int nameLength = 0;
                 if (args.length > 2) {
-                    int nameLength = Integer.parseInt(args[2]);
+                    nameLength = Integer.parseInt(args[2]);
+                }
+                if (nameLength > 0) {
                     StringBuffer buf = new StringBuffer(nameLength);
                     for (int i = 0; i < newNames.length; i++) {
                         buf.insert(0, newNames[i]);
@@ -83,6 +90,9 @@ public class GetLoggerTest {
                 }
                 names = newNames;
             }
+            if (args.length > 3) {
+                threads = Integer.parseInt(args[3]);
+            }
          }
          int sum = 0;
          for (int i = 0; i < passes; i++) {
@@ -99,7 +109,59 @@ public class GetLoggerTest {
          if (passes != 1) {
             System.out.println("Average non-initial pass: " + sum / (passes - 1) + " ms.");
          }
+         if (threads > 1) {
+             contend(names, passes, 1);
+             contend(names, passes, threads);
+         }
+
+    }
 
+    /**
+     * Retrieves the existing loggers concurrently, every thread does all passes.
+     *
+     * @param names of the loggers, already created.
+     * @param passes per thread.
+     * @param threads number of threads.
+     */
+    static void contend(final String[] names, final int passes, final int threads)
+            throws InterruptedException {
+        final Object startSignal = new Object();
+        final boolean[] started = new boolean[1];
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread("GetLoggerTest-" + i) {
+                public void run() {
+                    synchronized (startSignal) {
+                        while (!started[0]) {
+                            try {
+                                startSignal.wait();
+                            } catch (InterruptedException e) {
+                                return;
+                            }
+                        }
+                    }
+                    for (int p = 0; p < passes; p++) {
+                        for (int j = 0; j < names.length; j++) {
+                            Logger.getLogger(names[j]);
+                        }
+                    }
+                }
+            };
+            workers[i].start();
+        }
+        long start = System.currentTimeMillis();
+        synchronized (startSignal) {
+            started[0] = true;
+            startSignal.notifyAll();
+        }
+        for (int i = 0; i < threads; i++) {
+            workers[i].join();
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        long lookups = (long) threads * passes * names.length;
+        System.out.println(threads + " thread(s): " + lookups + " lookups in " + elapsed
+                + " ms, " + (elapsed * 1000 * 1000.0 / lookups) + " ns per lookup, "
+                + (lookups * 1000.0 / Math.max(elapsed, 1)) + " lookups per second.");
     }
 
 }
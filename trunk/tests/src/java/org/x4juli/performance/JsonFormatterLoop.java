@@ -0,0 +1,111 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.performance;
+
+import java.util.logging.Level;
+
+import org.x4juli.formatter.JsonFormatter;
+import org.x4juli.formatter.PatternFormatter;
+import org.x4juli.global.spi.AppendingFormatter;
+import org.x4juli.global.spi.ExtendedLogRecord;
+import org.x4juli.global.spi.ExtendedLogRecordImpl;
+
+/**
+ * Compares the cost of a <code>JsonFormatter</code> line with a
+ * <code>PatternFormatter</code> line carrying the same fields. Both format
+ * into a reused buffer like a handler does. The JSON line should cost no
+ * more than 1.5 times the pattern line.
+ * @since 0.7
+ */
+public class JsonFormatterLoop {
+
+    static final String PATTERN = "%r %p %c [%t] %X - %m%n";
+
+    static final double LIMIT = 1.5;
+
+    static final int WARM = 1000 * 100;
+
+    static int runLength;
+
+    /**
+     *
+     */
+    public JsonFormatterLoop() {
+        super();
+    }
+
+    /**
+     * @param args runLength
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            usage("Wrong number of arguments.");
+        }
+        runLength = Integer.parseInt(args[0]);
+        ExtendedLogRecord record = new ExtendedLogRecordImpl(Level.INFO,
+                "Some message of medium length, with \"quotes\".");
+        record.setLoggerName("org.x4juli.performance.JsonFormatterLoop");
+        record.setProperty("user", "someone");
+        record.setProperty("session", "A0B1C2D3");
+
+        JsonFormatter json = new JsonFormatter();
+        json.activateOptions();
+        PatternFormatter pattern = new PatternFormatter(PATTERN);
+
+        System.out.println("Pattern [" + PATTERN + "]");
+        System.out.println("Json    " + json.format(record).trim());
+        loop(pattern, record);
+        loop(json, record);
+        double patternNanos = loop(pattern, record);
+        double jsonNanos = loop(json, record);
+        double ratio = jsonNanos / patternNanos;
+        System.out.println("PatternFormatter [" + patternNanos + "] JsonFormatter ["
+                + jsonNanos + "] nanoseconds per record, ratio [" + ratio + "] limit [" + LIMIT
+                + "]");
+        if (ratio > LIMIT) {
+            System.out.println("JsonFormatter exceeds the limit.");
+        }
+        System.out.println("Done.");
+    }
+
+    static void usage(String msg) {
+        System.err.println(msg);
+        System.err.println("Usage: java " + JsonFormatterLoop.class.getName() + " runLength");
+        System.err.println("\trunLength (integer) is the length of test loop.");
+        System.exit(1);
+    }
+
+    static double loop(final AppendingFormatter formatter, final ExtendedLogRecord record) {
+        StringBuffer buf = new StringBuffer(512);
+        long millis = record.getMillis();
+        for (int i = 0; i < WARM; i++) {
+            record.setMillis(millis + i);
+            buf.setLength(0);
+            formatter.format(record, buf);
+        }
+        long before = System.currentTimeMillis();
+        for (int i = 0; i < runLength; i++) {
+            record.setMillis(millis + i);
+            buf.setLength(0);
+            formatter.format(record, buf);
+        }
+        long elapsedTime = System.currentTimeMillis() - before;
+        return (elapsedTime * 1000 * 1000.0) / runLength;
+    }
+
+}
+
+// EOF JsonFormatterLoop.java
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.performance;
+
+import org.slf4j.impl.MessageFormatter;
+
+/**
+ * Measures time and allocated bytes of the SLF4J substitution for
+ * templates with 0, 1, 2 and 4 arguments and with an escaped anchor. Each
+ * case runs the former substring based implementation, the String returning
+ * methods of <code>MessageFormatter</code> and its appending methods writing
+ * into a reused buffer.
+ * @since 0.7
+ */
+public class MessageFormatterLoop {
+
+    static final int WARM = 1000 * 100;
+
+    static final String[] NAMES = new String[] {"0 args", "1 arg", "2 args", "4 args",
+            "escaped" };
+
+    static final String[] PATTERNS = new String[] {"Plain message without any argument.",
+            "Processed order {} for the customer.", "Processed order {} for customer {}.",
+            "Order {} customer {} amount {} in {} ms.", "Set \\{} contains {} and {}." };
+
+    static final Object[][] ARGUMENTS = new Object[][] {new Object[0],
+            new Object[] {new Integer(4711) }, new Object[] {new Integer(4711), "A0B1C2D3" },
+            new Object[] {new Integer(4711), "A0B1C2D3", new Double(12.5), new Long(42) },
+            new Object[] {"first", "second" } };
+
+    static int runLength;
+
+    static int sink;
+
+    /**
+     *
+     */
+    public MessageFormatterLoop() {
+        super();
+    }
+
+    /**
+     * @param args runLength
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            usage("Wrong number of arguments.");
+        }
+        runLength = Integer.parseInt(args[0]);
+        for (int c = 0; c < PATTERNS.length; c++) {
+            loop(c, 0);
+            loop(c, 1);
+            loop(c, 2);
+            System.out.println(NAMES[c] + " [" + PATTERNS[c] + "]");
+            System.out.println("  legacy " + loop(c, 0));
+            System.out.println("  format " + loop(c, 1));
+            System.out.println("  append " + loop(c, 2));
+        }
+        System.out.println("Done.");
+    }
+
+    static void usage(String msg) {
+        System.err.println(msg);
+        System.err.println("Usage: java " + MessageFormatterLoop.class.getName() + " runLength");
+        System.err.println("\trunLength (integer) is the length of test loop.");
+        System.exit(1);
+    }
+
+    /**
+     * @param mode 0 legacy, 1 format, 2 append.
+     * @return the result line.
+     */
+    static String loop(final int c, final int mode) {
+        final String pattern = PATTERNS[c];
+        final Object[] arguments = ARGUMENTS[c];
+        Runtime.getRuntime().gc();
+        long bytes = FormatterAllocation.allocatedBytes();
+        long before = System.currentTimeMillis();
+        if (mode == 0) {
+            sink += loopLegacy(pattern, arguments);
+        } else if (mode == 1) {
+            sink += loopFormat(pattern, arguments);
+        } else {
+            sink += loopAppend(pattern, arguments);
+        }
+        long elapsedTime = System.currentTimeMillis() - before;
+        bytes = FormatterAllocation.allocatedBytes() - bytes;
+        return "[" + ((elapsedTime * 1000 * 1000.0) / runLength) + "] nanoseconds, ["
+                + (bytes / runLength) + "] bytes per call";
+    }
+
+    static int loopLegacy(final String pattern, final Object[] arguments) {
+        int length = 0;
+        for (int i = 0; i < runLength; i++) {
+            length += legacyArrayFormat(pattern, arguments).length();
+        }
+        return length;
+    }
+
+    static int loopFormat(final String pattern, final Object[] arguments) {
+        int length = 0;
+        for (int i = 0; i < runLength; i++) {
+            length += format(pattern, arguments).length();
+        }
+        return length;
+    }
+
+    static int loopAppend(final String pattern, final Object[] arguments) {
+        final StringBuffer buf = new StringBuffer(256);
+        int length = 0;
+        for (int i = 0; i < runLength; i++) {
+            buf.setLength(0);
+            append(buf, pattern, arguments);
+            length += buf.length();
+        }
+        return length;
+    }
+
+    static String format(final String pattern, final Object[] arguments) {
+        switch (arguments.length) {
+        case 1:
+            return MessageFormatter.format(pattern, arguments[0]);
+        case 2:
+            return MessageFormatter.format(pattern, arguments[0], arguments[1]);
+        default:
+            return MessageFormatter.arrayFormat(pattern, arguments);
+        }
+    }
+
+    static void append(final StringBuffer buf, final String pattern, final Object[] arguments) {
+        switch (arguments.length) {
+        case 1:
+            MessageFormatter.appendFormat(buf, pattern, arguments[0]);
+            break;
+        case 2:
+            MessageFormatter.appendFormat(buf, pattern, arguments[0], arguments[1]);
+            break;
+        default:
+            MessageFormatter.appendArrayFormat(buf, pattern, arguments);
+        }
+    }
+
+    /**
+     * The implementation of MessageFormatter.arrayFormat before 0.7.
+     */
+    static String legacyArrayFormat(String messagePattern, Object[] argArray) {
+        if (messagePattern == null) {
+            return null;
+        }
+        int i = 0;
+        int len = messagePattern.length();
+        int j = messagePattern.indexOf('{');
+        StringBuffer sbuf = new StringBuffer(messagePattern.length() + 50);
+        for (int L = 0; L < argArray.length; L++) {
+            char escape = 'x';
+            j = messagePattern.indexOf('{', i);
+            if (j == -1 || (j + 1 == len)) {
+                if (i == 0) {
+                    return messagePattern;
+                } else {
+                    sbuf.append(messagePattern.substring(i, messagePattern.length()));
+                    return sbuf.toString();
+                }
+            } else {
+                char delimStop = messagePattern.charAt(j + 1);
+                if (j > 0) {
+                    escape = messagePattern.charAt(j - 1);
+                }
+                if (escape == '\\') {
+                    L--;
+                    sbuf.append(messagePattern.substring(i, j - 1));
+                    sbuf.append('{');
+                    i = j + 1;
+                } else if ((delimStop != '}')) {
+                    sbuf.append(messagePattern.substring(i, messagePattern.length()));
+                    return sbuf.toString();
+                } else {
+                    sbuf.append(messagePattern.substring(i, j));
+                    sbuf.append(argArray[L]);
+                    i = j + 2;
+                }
+            }
+        }
+        sbuf.append(messagePattern.substring(i, messagePattern.length()));
+        return sbuf.toString();
+    }
+
+}
+
+// EOF MessageFormatterLoop.java
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2005, x4juli.org.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.x4juli.performance;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Vector;
+
+import org.x4juli.global.scheduler.Job;
+import org.x4juli.global.scheduler.Scheduler;
+
+/**
+ * Measures the time to schedule and delete jobs with the heap based
+ * <code>Scheduler</code> and the former Vector based job list, for 10 up to
+ * runLength jobs. Finally measures how late a quick job runs while a slow job
+ * due at the same time is executed.
+ * @since 0.7
+ */
+public class SchedulerLoop {
+
+    static final long FAR_AWAY = 1000L * 60 * 60 * 24;
+
+    static int runLength;
+
+    /**
+     *
+     */
+    public SchedulerLoop() {
+        super();
+    }
+
+    /**
+     * @param args runLength
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            usage("Wrong number of arguments.");
+        }
+        runLength = Integer.parseInt(args[0]);
+        loop(100, true);
+        loop(100, false);
+        for (int jobs = 10; jobs <= runLength; jobs *= 10) {
+            System.out.println(jobs + " jobs");
+            System.out.println("  legacy " + loop(jobs, true));
+            System.out.println("  heap   " + loop(jobs, false));
+        }
+        System.out.println("quick job beside a slow job");
+        System.out.println("  late by [" + lateness() + "] milliseconds");
+        System.out.println("Done.");
+        System.exit(0);
+    }
+
+    static void usage(String msg) {
+        System.err.println(msg);
+        System.err.println("Usage: java " + SchedulerLoop.class.getName() + " runLength");
+        System.err.println("\trunLength (integer) is the maximum number of jobs.");
+        System.exit(1);
+    }
+
+    /**
+     * Schedules <code>jobs</code> jobs at random times and deletes them in
+     * random order.
+     *
+     * @return the result line.
+     */
+    static String loop(final int jobs, final boolean legacy) {
+        final Random random = new Random(4711);
+        final Job[] all = new Job[jobs];
+        final long[] times = new long[jobs];
+        final long base = System.currentTimeMillis() + FAR_AWAY;
+        for (int i = 0; i < jobs; i++) {
+            all[i] = new NopJob();
+            times[i] = base + random.nextInt(jobs * 10);
+        }
+        final LegacyJobList legacyList = new LegacyJobList();
+        final Scheduler scheduler = new Scheduler();
+
+        long before = System.currentTimeMillis();
+        for (int i = 0; i < jobs; i++) {
+            if (legacy) {
+                legacyList.schedule(all[i], times[i]);
+            } else {
+                scheduler.schedule(all[i], times[i]);
+            }
+        }
+        long scheduled = System.currentTimeMillis();
+        for (int i = jobs - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Job swap = all[i];
+            all[i] = all[j];
+            all[j] = swap;
+        }
+        long shuffled = System.currentTimeMillis();
+        for (int i = 0; i < jobs; i++) {
+            if (legacy) {
+                legacyList.delete(all[i]);
+            } else {
+                scheduler.delete(all[i]);
+            }
+        }
+        long deleted = System.currentTimeMillis();
+        return "schedule [" + ((scheduled - before) * 1000 * 1000.0 / jobs)
+                + "] nanoseconds, delete [" + ((deleted - shuffled) * 1000 * 1000.0 / jobs)
+                + "] nanoseconds per job";
+    }
+
+    static long lateness() throws Exception {
+        final Scheduler scheduler = new Scheduler();
+        scheduler.setDaemon(true);
+        scheduler.start();
+        final long[] executedAt = new long[1];
+        final long now = System.currentTimeMillis();
+        scheduler.schedule(new Job() {
+            public void execute() {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        }, now);
+        scheduler.schedule(new Job() {
+            public void execute() {
+                synchronized (executedAt) {
+                    executedAt[0] = System.currentTimeMillis();
+                    executedAt.notifyAll();
+                }
+            }
+        }, now);
+        synchronized (executedAt) {
+            while (executedAt[0] == 0) {
+                executedAt.wait();
+            }
+        }
+        scheduler.shutdown();
+        return executedAt[0] - now;
+    }
+
+    /**
+     * Does nothing.
+     */
+    static final class NopJob implements Job {
+        public void execute() {
+            // Nothing to do.
+        }
+    }
+
+    /**
+     * The job list of the Scheduler before 0.7.
+     */
+    static final class LegacyJobList {
+
+        private final List jobList = new Vector();
+
+        int findIndex(Job job) {
+            int size = this.jobList.size();
+            for (int i = 0; i < size; i++) {
+                LegacyEntry se = (LegacyEntry) this.jobList.get(i);
+                if (se.job == job) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        synchronized boolean delete(Job job) {
+            int i = findIndex(job);
+            if (i != -1) {
+                this.jobList.remove(i);
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void schedule(Job job, long desiredTime) {
+            int max = this.jobList.size();
+            int i = 0;
+            for (; i < max; i++) {
+                LegacyEntry sje = (LegacyEntry) this.jobList.get(i);
+                if (desiredTime < sje.desiredExecutionTime) {
+                    break;
+                }
+            }
+            this.jobList.add(i, new LegacyEntry(job, desiredTime));
+        }
+    }
+
+    /**
+     * Entry of the legacy job list.
+     */
+    static final class LegacyEntry {
+
+        final Job job;
+
+        final long desiredExecutionTime;
+
+        LegacyEntry(Job job, long desiredExecutionTime) {
+            this.job = job;
+            this.desiredExecutionTime = desiredExecutionTime;
+        }
+    }
+
+}
+
+// EOF SchedulerLoop.java